@@ -0,0 +1,192 @@
+package com.baremaps.jmh;
+
+import static org.locationtech.jts.io.WKBConstants.wkbNDR;
+
+import com.baremaps.osm.pbf.StringInterner;
+import com.baremaps.postgres.jdbc.CopyWriter;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.io.WKBWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the rows per second written in a {@code COPY} stream with boxed values and temporary arrays, as the
+ * {@code CopyWriter} used to do, and with the primitive overloads and the reused buffers of the {@code CopyWriter}.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+public class CopyWriterBenchmark {
+
+  private static final int ROWS = 100_000;
+
+  private static final OutputStream NULL = new OutputStream() {
+    @Override
+    public void write(int b) {
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+    }
+  };
+
+  private static final String[] KEYS = {"highway", "name", "surface", "oneway", "maxspeed", "lanes"};
+
+  private static final String[] VALUES = {"residential", "asphalt", "yes", "50", "2", "primary"};
+
+  private final List<Row> rows = new ArrayList<>(ROWS);
+
+  @Setup
+  public void setup() {
+    StringInterner interner = StringInterner.getDefault();
+    GeometryFactory geometryFactory = new GeometryFactory();
+    for (int i = 0; i < ROWS; i++) {
+      Map<String, String> tags = new HashMap<>();
+      for (int j = 0; j < 3; j++) {
+        tags.put(interner.intern(KEYS[(i + j) % KEYS.length]), interner.intern(VALUES[(i * 7 + j) % VALUES.length]));
+      }
+      List<Long> nodes = new ArrayList<>();
+      Coordinate[] coordinates = new Coordinate[10];
+      for (int j = 0; j < coordinates.length; j++) {
+        nodes.add(i * 10L + j);
+        coordinates[j] = new Coordinate(i * 0.001 + j * 0.0001, j * 0.0001);
+      }
+      Geometry geometry = geometryFactory.createLineString(coordinates);
+      geometry.setSRID(3857);
+      rows.add(new Row(i, 1, 1, 1L, tags, nodes, geometry));
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OperationsPerInvocation(ROWS)
+  @Warmup(iterations = 2)
+  @Measurement(iterations = 5)
+  public void boxed() throws IOException {
+    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(NULL, 65536));
+    for (Row row : rows) {
+      data.writeShort(8);
+      writeBoxedLong(data, row.id);
+      writeBoxedInteger(data, row.version);
+      writeBoxedInteger(data, row.uid);
+      data.writeInt(-1);
+      writeBoxedLong(data, row.changeset);
+      writeBoxedHstore(data, row.tags);
+      writeBoxedLongList(data, row.nodes);
+      byte[] wkb = new WKBWriter(2, wkbNDR, true).write(row.geometry);
+      data.writeInt(wkb.length);
+      data.write(wkb);
+    }
+    data.flush();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OperationsPerInvocation(ROWS)
+  @Warmup(iterations = 2)
+  @Measurement(iterations = 5)
+  public void copyWriter() throws IOException {
+    CopyWriter writer = new CopyWriter(NULL);
+    for (Row row : rows) {
+      writer.startRow(8);
+      writer.writeLong(row.id);
+      writer.writeInteger(row.version);
+      writer.writeInteger(row.uid);
+      writer.writeNull();
+      writer.writeLong(row.changeset);
+      writer.writeHstore(row.tags);
+      writer.writeLongList(row.nodes);
+      writer.writeGeometry(row.geometry);
+    }
+    writer.close();
+  }
+
+  private static void writeBoxedLong(DataOutputStream data, Long value) throws IOException {
+    data.writeInt(8);
+    data.writeLong(value.longValue());
+  }
+
+  private static void writeBoxedInteger(DataOutputStream data, Integer value) throws IOException {
+    data.writeInt(4);
+    data.writeInt(value.intValue());
+  }
+
+  private static void writeBoxedString(DataOutputStream data, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    data.writeInt(bytes.length);
+    data.write(bytes);
+  }
+
+  private static void writeBoxedHstore(DataOutputStream data, Map<String, String> value) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    output.writeInt(value.size());
+    for (Map.Entry<String, String> entry : value.entrySet()) {
+      writeBoxedString(output, entry.getKey());
+      writeBoxedString(output, entry.getValue());
+    }
+    data.writeInt(bytes.size());
+    data.write(bytes.toByteArray());
+  }
+
+  private static void writeBoxedLongList(DataOutputStream data, List<Long> values) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    output.writeInt(1);
+    output.writeInt(1);
+    output.writeInt(20);
+    output.writeInt(values.size());
+    output.writeInt(1);
+    for (Long value : values) {
+      writeBoxedLong(output, value);
+    }
+    data.writeInt(bytes.size());
+    data.write(bytes.toByteArray());
+  }
+
+  private static class Row {
+
+    private final Long id;
+    private final Integer version;
+    private final Integer uid;
+    private final Long changeset;
+    private final Map<String, String> tags;
+    private final List<Long> nodes;
+    private final Geometry geometry;
+
+    private Row(long id, int version, int uid, long changeset, Map<String, String> tags, List<Long> nodes,
+        Geometry geometry) {
+      this.id = id;
+      this.version = version;
+      this.uid = uid;
+      this.changeset = changeset;
+      this.tags = tags;
+      this.nodes = nodes;
+      this.geometry = geometry;
+    }
+
+  }
+
+}
@@ -0,0 +1,95 @@
+package com.baremaps.jmh;
+
+import com.baremaps.osm.domain.Blob;
+import com.baremaps.osm.pbf.BlobIterator;
+import com.baremaps.osm.pbf.DataBlockDecoder;
+import com.baremaps.osm.pbf.DataBlockReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the decoding of the data blocks with the generated protobuf objects and with the streaming decoder.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+public class DataBlockReaderBenchmark {
+
+  private final Path path = Paths.get("./switzerland-latest.pbf");
+
+  private final List<Blob> blobs = new ArrayList<>();
+
+  @Setup
+  public void setup() throws IOException {
+    URL url = new URL("http://download.geofabrik.de/europe/switzerland-latest.osm.pbf");
+    if (!Files.exists(path)) {
+      try (InputStream inputStream = url.openStream()) {
+        Files.copy(inputStream, path, StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(path))) {
+      BlobIterator iterator = new BlobIterator(inputStream);
+      while (iterator.hasNext()) {
+        Blob blob = iterator.next();
+        if ("OSMData".equals(blob.header().getType())) {
+          blobs.add(blob);
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 2)
+  @Measurement(iterations = 5)
+  public void dataBlockReader(Blackhole blackhole) throws Exception {
+    for (Blob blob : blobs) {
+      blackhole.consume(new DataBlockReader(blob).readDataBlock());
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 2)
+  @Measurement(iterations = 5)
+  public void dataBlockDecoder(Blackhole blackhole) throws Exception {
+    for (Blob blob : blobs) {
+      try (DataBlockDecoder decoder = new DataBlockDecoder(blob)) {
+        blackhole.consume(decoder.decodeDataBlock());
+      }
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 2)
+  @Measurement(iterations = 5)
+  public void dataBlockDecoderEntities(Blackhole blackhole) throws Exception {
+    for (Blob blob : blobs) {
+      try (DataBlockDecoder decoder = new DataBlockDecoder(blob)) {
+        decoder.decodeEntities(blackhole::consume);
+      }
+    }
+  }
+
+}
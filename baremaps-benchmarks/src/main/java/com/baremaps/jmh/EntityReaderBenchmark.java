@@ -1,6 +1,7 @@
 package com.baremaps.jmh;
 
 import com.baremaps.osm.OpenStreetMap;
+import com.baremaps.osm.domain.Entity;
 import com.baremaps.osm.domain.Node;
 import com.baremaps.osm.domain.Relation;
 import com.baremaps.osm.domain.Way;
@@ -15,6 +16,7 @@ import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Fork;
@@ -72,4 +74,33 @@ public class EntityReaderBenchmark {
     }
   }
 
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 2)
+  @Measurement(iterations = 5)
+  public void mappedEntityStream() throws IOException {
+    AtomicLong nodes = new AtomicLong(0);
+    AtomicLong ways = new AtomicLong(0);
+    AtomicLong relations = new AtomicLong(0);
+
+    try (Stream<Entity> stream = OpenStreetMap.streamPbfEntities(path)) {
+      stream.forEach(new EntityConsumerAdapter() {
+        @Override
+        public void match(Node node) {
+          nodes.incrementAndGet();
+        }
+
+        @Override
+        public void match(Way way) {
+          ways.incrementAndGet();
+        }
+
+        @Override
+        public void match(Relation relation) {
+          relations.incrementAndGet();
+        }
+      });
+    }
+  }
+
 }
@@ -34,6 +34,7 @@ import picocli.CommandLine.Option;
         Init.class,
         Execute.class,
         Import.class,
+        Index.class,
         Update.class,
         Diff.class,
         Export.class,
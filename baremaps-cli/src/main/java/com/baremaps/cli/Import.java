@@ -15,29 +15,47 @@
 package com.baremaps.cli;
 
 import com.baremaps.blob.BlobStore;
+import com.baremaps.config.BlobMapper;
+import com.baremaps.config.mapping.Column;
+import com.baremaps.config.mapping.Mapping;
+import com.baremaps.config.mapping.Table;
 import com.baremaps.osm.cache.CoordinateCache;
 import com.baremaps.osm.cache.InMemoryCoordinateCache;
 import com.baremaps.osm.cache.InMemoryReferenceCache;
+import com.baremaps.osm.cache.MappedCoordinateCache;
+import com.baremaps.osm.cache.MappedReferenceCache;
+import com.baremaps.osm.cache.PagedCoordinateCache;
 import com.baremaps.osm.cache.ReferenceCache;
 import com.baremaps.osm.database.ImportService;
 import com.baremaps.osm.database.HeaderTable;
-import com.baremaps.osm.database.NodeTable;
-import com.baremaps.osm.database.RelationTable;
-import com.baremaps.osm.database.WayTable;
+import com.baremaps.osm.geometry.HilbertCurve;
+import com.baremaps.osm.geometry.ZoomBand;
+import com.baremaps.osm.lmdb.LmdbCache;
 import com.baremaps.osm.lmdb.LmdbCoordinateCache;
 import com.baremaps.osm.lmdb.LmdbReferencesCache;
+import com.baremaps.osm.pbf.EntityFilter;
+import com.baremaps.osm.postgres.PostgresBulkLoader;
 import com.baremaps.osm.postgres.PostgresHeaderTable;
+import com.baremaps.osm.postgres.PostgresImportCheckpoint;
+import com.baremaps.osm.postgres.PostgresLayerTable;
 import com.baremaps.osm.postgres.PostgresNodeTable;
 import com.baremaps.osm.postgres.PostgresRelationTable;
 import com.baremaps.osm.postgres.PostgresWayTable;
 import com.baremaps.postgres.jdbc.PostgresUtils;
+import java.io.Closeable;
+import java.io.File;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.stream.Stream;
 import javax.sql.DataSource;
 import org.lmdbjava.Env;
+import org.lmdbjava.EnvFlags;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import picocli.CommandLine.Command;
@@ -50,7 +68,7 @@ public class Import implements Callable<Integer> {
   private static final Logger logger = LoggerFactory.getLogger(Import.class);
 
   private enum CacheType {
-    LMDB, MEMORY
+    LMDB, MEMORY, MAPPED, PAGED
   }
 
   @Mixin
@@ -70,6 +88,20 @@ public class Import implements Callable<Integer> {
       required = true)
   private String database;
 
+  @Option(
+      names = {"--mapping"},
+      paramLabel = "MAPPING",
+      description = "The mapping whose tables receive the matching entities with typed columns. Its entity and tag "
+          + "rules also select the entities that are imported.")
+  private URI mapping;
+
+  @Option(
+      names = {"--generalize"},
+      paramLabel = "ZOOM_BANDS",
+      description = "The zoom bands (e.g. 0-5,6-9,10-12) of the companion tables that receive generalized lines "
+          + "and polygons.")
+  private String generalize;
+
   @Option(
       names = {"--cache-type"},
       paramLabel = "CACHE_TYPE",
@@ -88,58 +120,229 @@ public class Import implements Callable<Integer> {
       description = "The projection used by the database.")
   private int srid = 3857;
 
+  @Option(
+      names = {"--copy-writers"},
+      paramLabel = "COPY_WRITERS",
+      description = "The number of parallel COPY streams per table (0 opens a COPY per block).")
+  private int copyWriters = Runtime.getRuntime().availableProcessors();
+
+  @Option(
+      names = {"--unlogged"},
+      description = "Empty the tables, load them unlogged and build the primary keys and the indexes after the import.")
+  private boolean unlogged = false;
+
+  @Option(
+      names = {"--cluster"},
+      description = "Write the rows of the tables in the order of the Hilbert index of their geometry.")
+  private boolean cluster = false;
+
+  @Option(
+      names = {"--cluster-directory"},
+      paramLabel = "CLUSTER_DIRECTORY",
+      description = "The directory of the sorted runs spilled by the clustered import.")
+  private Path clusterDirectory;
+
+  @Option(
+      names = {"--brin"},
+      description = "Create block range indexes on the geometries after the import (best with --cluster).")
+  private boolean brin = false;
+
+  @Option(
+      names = {"--checkpoint"},
+      description = "Commit each block together with a checkpoint, so that a failed import can be resumed.")
+  private boolean checkpoint = false;
+
+  @Option(
+      names = {"--resume"},
+      description = "Resume a failed checkpointed import with the same file and an empty cache (implies --checkpoint).")
+  private boolean resume = false;
+
   @Override
   public Integer call() throws Exception {
     System.setProperty("logLevel", options.logLevel.name());
 
+    boolean checkpointed = checkpoint || resume;
+    if (checkpointed && unlogged) {
+      throw new IllegalArgumentException("The --unlogged option empties the tables and cannot be checkpointed");
+    }
+    if (checkpointed && (mapping != null || generalize != null)) {
+      throw new IllegalArgumentException("The layer and generalized tables cannot be checkpointed");
+    }
+    if (checkpointed && (cluster || brin)) {
+      throw new IllegalArgumentException("The clustered import writes the rows at the end and cannot be checkpointed");
+    }
+
     BlobStore blobStore = options.blobStore();
-    DataSource datasource = PostgresUtils.datasource(database);
+    List<Table> tables = new ArrayList<>();
+    EntityFilter filter = EntityFilter.all();
+    if (mapping != null) {
+      Mapping mappingObject = new BlobMapper(blobStore).read(mapping, Mapping.class);
+      filter = EntityFilter.of(mappingObject);
+      if (mappingObject.getTables() != null) {
+        tables.addAll(mappingObject.getTables());
+      }
+    }
+    List<ZoomBand> bands = generalize != null ? ZoomBand.parse(generalize, srid) : List.of();
+
+    // Each table holds up to one connection per COPY stream, and the phases and the indexes use up to one
+    // connection per processor.
+    int parallelism = Runtime.getRuntime().availableProcessors();
+    int tableCount = 3 + tables.size() + bands.size() * (2 + tables.size());
+    DataSource datasource = PostgresUtils.datasource(database, copyWriters * tableCount + parallelism + 1);
     HeaderTable headerTable = new PostgresHeaderTable(datasource);
-    NodeTable nodeTable = new PostgresNodeTable(datasource);
-    WayTable wayTable = new PostgresWayTable(datasource);
-    RelationTable relationTable = new PostgresRelationTable(datasource);
+    PostgresNodeTable nodeTable = new PostgresNodeTable(datasource);
+    PostgresWayTable wayTable = new PostgresWayTable(datasource);
+    PostgresRelationTable relationTable = new PostgresRelationTable(datasource);
+
+    List<PostgresLayerTable> layerTables = new ArrayList<>();
+    for (Table table : tables) {
+      layerTables.add(new PostgresLayerTable(datasource, table, srid));
+    }
+    List<PostgresLayerTable> generalizedTables = new ArrayList<>();
+    for (ZoomBand band : bands) {
+      generalizedTables.add(new PostgresLayerTable(datasource, companion("osm_ways", "way", band), band, srid));
+      generalizedTables.add(
+          new PostgresLayerTable(datasource, companion("osm_relations", "relation", band), band, srid));
+      for (PostgresLayerTable layerTable : layerTables) {
+        generalizedTables.add(layerTable.generalize(band));
+      }
+    }
+    layerTables.addAll(generalizedTables);
 
     final CoordinateCache coordinateCache;
     final ReferenceCache referenceCache;
+    Env<ByteBuffer> env = null;
     switch (cacheType) {
       case MEMORY:
         coordinateCache = new InMemoryCoordinateCache();
         referenceCache = new InMemoryReferenceCache();
         break;
+      case PAGED:
+        coordinateCache = new PagedCoordinateCache();
+        referenceCache = new InMemoryReferenceCache();
+        break;
       case LMDB:
         if (cacheDirectory != null) {
           cacheDirectory = Files.createDirectories(cacheDirectory);
         } else {
           cacheDirectory = Files.createTempDirectory("baremaps_");
         }
-        Env<ByteBuffer> env = Env.create()
+        // The cache is only used during the import, so it is not synced to disk until the end. Each thread of a
+        // phase holds a reader slot per cache until the end of the phase.
+        env = Env.create()
             .setMapSize(1_000_000_000_000L)
             .setMaxDbs(3)
-            .open(cacheDirectory.toFile());
-        coordinateCache = new LmdbCoordinateCache(env);
-        referenceCache = new LmdbReferencesCache(env);
+            .setMaxReaders(2 * parallelism + 16)
+            .open(cacheDirectory.toFile(), EnvFlags.MDB_NOTLS, EnvFlags.MDB_NOSYNC, EnvFlags.MDB_WRITEMAP);
+        LmdbCoordinateCache lmdbCoordinateCache = new LmdbCoordinateCache(env);
+        LmdbReferencesCache lmdbReferenceCache = new LmdbReferencesCache(env);
+        lmdbCoordinateCache.startBulkLoad();
+        lmdbReferenceCache.startBulkLoad();
+        coordinateCache = lmdbCoordinateCache;
+        referenceCache = lmdbReferenceCache;
+        break;
+      case MAPPED:
+        if (cacheDirectory != null) {
+          cacheDirectory = Files.createDirectories(cacheDirectory);
+        } else {
+          cacheDirectory = Files.createTempDirectory("baremaps_");
+        }
+        coordinateCache = new MappedCoordinateCache(cacheDirectory.resolve("coordinates.bin"));
+        referenceCache = new MappedReferenceCache(cacheDirectory.resolve("references.bin"));
         break;
       default:
         throw new UnsupportedOperationException("Unsupported cache type");
     }
 
 
+    // The runs are spilled in a directory of their own, which is deleted even if the import fails.
+    Path runDirectory = null;
+    if (cluster) {
+      runDirectory = clusterDirectory != null
+          ? Files.createTempDirectory(Files.createDirectories(clusterDirectory), "baremaps_")
+          : Files.createTempDirectory("baremaps_");
+    }
+
     logger.info("Importing data");
-    new ImportService(
-        file,
-        blobStore,
-        coordinateCache,
-        referenceCache,
-        headerTable,
-        nodeTable,
-        wayTable,
-        relationTable,
-        srid
-    ).call();
+    try {
+      ImportService.builder(file, blobStore, coordinateCache, referenceCache, headerTable, nodeTable, wayTable,
+          relationTable, srid)
+          .parallelism(parallelism, parallelism, parallelism)
+          .bulkLoader(checkpointed ? null : new PostgresBulkLoader(datasource, nodeTable, wayTable, relationTable,
+              copyWriters, unlogged, parallelism, layerTables,
+              cluster ? HilbertCurve.of(srid) : null, runDirectory, brin))
+          .checkpoint(checkpointed ? new PostgresImportCheckpoint(datasource, nodeTable, wayTable, relationTable)
+              : null, resume)
+          .layerTables(new ArrayList<>(layerTables))
+          .filter(filter)
+          .build()
+          .call();
+    } finally {
+      try {
+        close(coordinateCache, referenceCache);
+      } finally {
+        if (env != null) {
+          env.close();
+        }
+        if (runDirectory != null) {
+          try (Stream<Path> paths = Files.walk(runDirectory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+          }
+        }
+      }
+    }
+
+    if (coordinateCache instanceof PagedCoordinateCache) {
+      PagedCoordinateCache pagedCache = (PagedCoordinateCache) coordinateCache;
+      logger.info("Coordinate cache: {} pages, {} MB",
+          pagedCache.pageCount(), pagedCache.memoryUsage() >> 20);
+    }
 
     logger.info("Done");
 
     return 0;
   }
 
+  /**
+   * Writes the pending entries of the caches, if they are bulk loaded, and closes them.
+   */
+  private static void close(CoordinateCache coordinateCache, ReferenceCache referenceCache) throws Exception {
+    try {
+      if (coordinateCache instanceof LmdbCache) {
+        ((LmdbCache<?>) coordinateCache).finishBulkLoad();
+      }
+    } finally {
+      try {
+        if (referenceCache instanceof LmdbCache) {
+          ((LmdbCache<?>) referenceCache).finishBulkLoad();
+        }
+      } finally {
+        try {
+          if (coordinateCache instanceof Closeable) {
+            ((Closeable) coordinateCache).close();
+          }
+        } finally {
+          if (referenceCache instanceof Closeable) {
+            ((Closeable) referenceCache).close();
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the mapping of the companion table of an OpenStreetMap table for a zoom band, which keeps the tags
+   * of the entities.
+   */
+  private static Table companion(String name, String entity, ZoomBand band) {
+    Column tags = new Column();
+    tags.setName("tags");
+    tags.setType(Column.Type.HSTORE);
+    Table table = new Table();
+    table.setName(name + band.getSuffix());
+    table.setAllowEntities(List.of(entity));
+    table.setColumns(List.of(tags));
+    return table;
+  }
+
 }
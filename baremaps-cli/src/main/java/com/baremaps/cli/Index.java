@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2020 The Baremaps Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.baremaps.cli;
+
+import com.baremaps.osm.pbf.BlobChannel;
+import com.baremaps.osm.pbf.BlobIndex;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Mixin;
+import picocli.CommandLine.Option;
+
+@Command(name = "index", description = "Index the blobs of a PBF file in a sidecar file.")
+public class Index implements Callable<Integer> {
+
+  private static final Logger logger = LoggerFactory.getLogger(Index.class);
+
+  @Mixin
+  private Options options;
+
+  @Option(
+      names = {"--file"},
+      paramLabel = "FILE",
+      description = "The PBF file to index.",
+      required = true)
+  private Path file;
+
+  @Option(
+      names = {"--output"},
+      paramLabel = "OUTPUT",
+      description = "The index file (defaults to the PBF file with the .idx extension).")
+  private Path output;
+
+  @Override
+  public Integer call() throws Exception {
+    System.setProperty("logLevel", options.logLevel.name());
+
+    Path path = output != null ? output : BlobIndex.sidecar(file);
+
+    logger.info("Indexing {}", file);
+    try (BlobChannel channel = BlobChannel.open(file)) {
+      BlobIndex index = BlobIndex.build(channel);
+      index.write(path);
+      logger.info("{} blobs indexed in {}", index.getEntries().size(), path);
+    }
+
+    logger.info("Done");
+
+    return 0;
+  }
+
+}
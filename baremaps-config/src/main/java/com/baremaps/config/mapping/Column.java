@@ -0,0 +1,62 @@
+package com.baremaps.config.mapping;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A typed column of a table, whose values are extracted from a tag of the entities. The column is null when
+ * the tag is absent or when its value cannot be converted to the type of the column. A column of type
+ * {@code hstore} contains all the tags of the entities.
+ */
+public class Column {
+
+  public enum Type {
+    @JsonProperty("text")
+    TEXT,
+    @JsonProperty("integer")
+    INTEGER,
+    @JsonProperty("bigint")
+    BIGINT,
+    @JsonProperty("real")
+    REAL,
+    @JsonProperty("double")
+    DOUBLE,
+    @JsonProperty("boolean")
+    BOOLEAN,
+    @JsonProperty("hstore")
+    HSTORE
+  }
+
+  private String name;
+
+  private String key;
+
+  private Type type = Type.TEXT;
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Returns the key of the tag, which defaults to the name of the column.
+   */
+  public String getKey() {
+    return key != null ? key : name;
+  }
+
+  public void setKey(String key) {
+    this.key = key;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public void setType(Type type) {
+    this.type = type;
+  }
+
+}
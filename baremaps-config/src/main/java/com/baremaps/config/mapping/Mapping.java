@@ -17,6 +17,24 @@ public class Mapping {
   @JsonProperty("block-tags")
   private List<String> blockTags;
 
+  private List<Table> tables;
+
+  public List<String> getAllowEntities() {
+    return allowEntities;
+  }
+
+  public void setAllowEntities(List<String> allowEntities) {
+    this.allowEntities = allowEntities;
+  }
+
+  public List<String> getBlockEntities() {
+    return blockEntities;
+  }
+
+  public void setBlockEntities(List<String> blockEntities) {
+    this.blockEntities = blockEntities;
+  }
+
   public List<String> getAllowTags() {
     return allowTags;
   }
@@ -33,4 +51,16 @@ public class Mapping {
     this.blockTags = blockTags;
   }
 
+  /**
+   * Returns the tables in which the entities are routed during an import (null to only import the entities in
+   * the OpenStreetMap tables).
+   */
+  public List<Table> getTables() {
+    return tables;
+  }
+
+  public void setTables(List<Table> tables) {
+    this.tables = tables;
+  }
+
 }
@@ -0,0 +1,68 @@
+package com.baremaps.config.mapping;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+
+/**
+ * A table of a mapping, which receives the entities matched by its rules with typed columns extracted from
+ * their tags.
+ *
+ * <p>The entities and the tags are selected with the same rules as the mapping: {@code node}, {@code way} and
+ * {@code relation} for the entities, and {@code key} or {@code key=value} for the tags.
+ */
+public class Table {
+
+  private String name;
+
+  @JsonProperty("allow-entities")
+  private List<String> allowEntities;
+
+  @JsonProperty("allow-tags")
+  private List<String> allowTags;
+
+  @JsonProperty("block-tags")
+  private List<String> blockTags;
+
+  private List<Column> columns;
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public List<String> getAllowEntities() {
+    return allowEntities;
+  }
+
+  public void setAllowEntities(List<String> allowEntities) {
+    this.allowEntities = allowEntities;
+  }
+
+  public List<String> getAllowTags() {
+    return allowTags;
+  }
+
+  public void setAllowTags(List<String> allowTags) {
+    this.allowTags = allowTags;
+  }
+
+  public List<String> getBlockTags() {
+    return blockTags;
+  }
+
+  public void setBlockTags(List<String> blockTags) {
+    this.blockTags = blockTags;
+  }
+
+  public List<Column> getColumns() {
+    return columns;
+  }
+
+  public void setColumns(List<Column> columns) {
+    this.columns = columns;
+  }
+
+}
@@ -3,10 +3,13 @@ package com.baremaps.config;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import com.baremaps.blob.ResourceBlobStore;
+import com.baremaps.config.mapping.Column.Type;
 import com.baremaps.config.mapping.Mapping;
+import com.baremaps.config.mapping.Table;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 
 class MappingLoaderTest {
@@ -19,4 +22,20 @@ class MappingLoaderTest {
     assertEquals("tag2", mapping.getAllowTags().get(1));
   }
 
+  @Test
+  void loadTables() throws URISyntaxException, IOException {
+    Mapping mapping = new BlobMapper(new ResourceBlobStore()).read(new URI("res://./mapping.json"), Mapping.class);
+    assertEquals(1, mapping.getTables().size());
+    Table table = mapping.getTables().get(0);
+    assertEquals("roads", table.getName());
+    assertEquals(List.of("way"), table.getAllowEntities());
+    assertEquals(List.of("highway"), table.getAllowTags());
+    assertEquals(List.of("area=yes"), table.getBlockTags());
+    assertEquals(3, table.getColumns().size());
+    assertEquals("highway", table.getColumns().get(0).getKey());
+    assertEquals(Type.TEXT, table.getColumns().get(0).getType());
+    assertEquals("maxspeed", table.getColumns().get(2).getKey());
+    assertEquals(Type.INTEGER, table.getColumns().get(2).getType());
+  }
+
 }
\ No newline at end of file
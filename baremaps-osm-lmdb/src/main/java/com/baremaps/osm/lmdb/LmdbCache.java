@@ -17,19 +17,68 @@ package com.baremaps.osm.lmdb;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.baremaps.osm.cache.Cache;
+import java.io.Closeable;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.lmdbjava.Dbi;
 import org.lmdbjava.Env;
+import org.lmdbjava.PutFlags;
 import org.lmdbjava.Txn;
 
-public abstract class LmdbCache<K, V> implements Cache<K, V> {
+/**
+ * A cache stored in an LMDB database with 8-byte big-endian keys.
+ *
+ * <p>The key and value buffers are reused by each thread, and each thread reuses a read transaction that is
+ * renewed for every lookup. As these transactions outlive their threads' lookups, the environment must be
+ * opened with the {@code MDB_NOTLS} flag when several caches share it. Each transaction holds a reader slot of
+ * the environment until it is closed, so the transactions must be released with {@link #release()} once the
+ * threads that used them are done, e.g. at the end of each phase of an import.
+ *
+ * <p>In bulk-load mode, the entries are handed over to a dedicated writer thread that commits several blocks
+ * per transaction. The entries of a transaction are sorted, and the keys that are greater than all the keys
+ * written before are appended with {@code MDB_APPEND}, which avoids the search of the B-tree. The lookups wait
+ * for the pending entries to be written, so that the cache remains consistent.
+ */
+public abstract class LmdbCache<V> implements Cache<Long, V>, Closeable {
+
+  private static final int BATCH_SIZE = 16;
+
+  private static final ThreadLocal<ByteBuffer> KEY = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(8));
 
   private final Env<ByteBuffer> env;
 
   private final Dbi<ByteBuffer> database;
 
+  private final ThreadLocal<ReadTxn> readTxn = new ThreadLocal<>();
+
+  private final ConcurrentLinkedQueue<Txn<ByteBuffer>> readTxns = new ConcurrentLinkedQueue<>();
+
+  private final List<Entry<Long, V>> end = new ArrayList<>();
+
+  private final AtomicLong pending = new AtomicLong();
+
+  private final Object monitor = new Object();
+
+  private BlockingQueue<List<Entry<Long, V>>> queue;
+
+  private Thread writer;
+
+  private volatile int generation = 0;
+
+  private volatile Throwable failure;
+
+  private long lastKey;
+
+  private boolean appended;
+
   protected LmdbCache(Env<ByteBuffer> env, Dbi<ByteBuffer> database) {
     checkNotNull(env);
     checkNotNull(database);
@@ -37,61 +86,275 @@ public abstract class LmdbCache<K, V> implements Cache<K, V> {
     this.database = database;
   }
 
-  public void add(K key, V value) {
-    try (Txn<ByteBuffer> txn = env.txnWrite()) {
-      database.put(txn, buffer(key), write(value));
-      txn.commit();
+  /**
+   * Starts the bulk-load mode, in which the entries are written asynchronously by a dedicated thread.
+   */
+  public synchronized void startBulkLoad() {
+    if (writer != null) {
+      return;
     }
+    failure = null;
+    queue = new ArrayBlockingQueue<>(BATCH_SIZE * 4);
+    writer = new Thread(this::writeBatches, "lmdb-writer");
+    writer.setDaemon(true);
+    writer.start();
   }
 
-  public void add(List<Entry<K, V>> entries) {
-    try (Txn<ByteBuffer> txn = env.txnWrite()) {
-      for (Entry<K, V> entry : entries) {
-        database.put(txn, buffer(entry.key()), write(entry.value()));
+  /**
+   * Waits for the pending entries to be written, stops the writer thread and flushes the environment.
+   *
+   * @throws InterruptedException
+   */
+  public synchronized void finishBulkLoad() throws InterruptedException {
+    if (writer == null) {
+      return;
+    }
+    try {
+      // The writer stops on failure, in which case the queue is no longer drained.
+      while (failure == null && !queue.offer(end, 100, TimeUnit.MILLISECONDS)) {
+        // Wait for the writer to make room in the queue.
       }
-      txn.commit();
+      writer.join();
+    } finally {
+      writer = null;
+      queue = null;
     }
+    checkFailure();
+    env.sync(true);
   }
 
   @Override
-  public void delete(K key) {
-    try (Txn<ByteBuffer> txn = env.txnWrite()) {
-      database.delete(txn, buffer(key));
-      txn.commit();
+  public void add(Long key, V value) {
+    add(Collections.singletonList(new Entry<>(key, value)));
+  }
+
+  @Override
+  public void add(List<Entry<Long, V>> entries) {
+    checkFailure();
+    BlockingQueue<List<Entry<Long, V>>> current = queue;
+    if (current != null) {
+      pending.addAndGet(entries.size());
+      try {
+        while (!current.offer(entries, 100, TimeUnit.MILLISECONDS)) {
+          checkFailure();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+    } else {
+      synchronized (this) {
+        write(entries);
+      }
     }
   }
 
   @Override
-  public void deleteAll(List<K> keys) {
+  public void delete(Long key) {
+    deleteAll(Collections.singletonList(key));
+  }
+
+  @Override
+  public void deleteAll(List<Long> keys) {
+    awaitPendingWrites();
     try (Txn<ByteBuffer> txn = env.txnWrite()) {
-      for (K key : keys) {
+      for (Long key : keys) {
         database.delete(txn, buffer(key));
       }
       txn.commit();
     }
   }
 
-  public V get(K key) {
-    try (Txn<ByteBuffer> txn = env.txnRead()) {
-      ByteBuffer buffer = database.get(txn, buffer(key));
-      return read(buffer);
+  @Override
+  public V get(Long key) {
+    Txn<ByteBuffer> txn = readTxn();
+    try {
+      return read(database.get(txn, buffer(key)));
+    } finally {
+      txn.reset();
     }
   }
 
-  public List<V> get(List<K> keys) {
-    List<V> list = new ArrayList<>();
-    try (Txn<ByteBuffer> txn = env.txnRead()) {
-      for (K key : keys) {
-        ByteBuffer buffer = database.get(txn, buffer(key));
-        list.add(read(buffer));
+  @Override
+  public List<V> get(List<Long> keys) {
+    List<V> list = new ArrayList<>(keys.size());
+    Txn<ByteBuffer> txn = readTxn();
+    try {
+      for (Long key : keys) {
+        list.add(read(database.get(txn, buffer(key))));
       }
+    } finally {
+      txn.reset();
     }
     return list;
   }
 
-  public abstract ByteBuffer buffer(K key);
+  /**
+   * Closes the read transactions of the threads that have used the cache, which releases their reader slots.
+   * The method must only be called once these threads are done with the cache; a thread that uses the cache
+   * afterwards opens a new transaction.
+   */
+  @Override
+  public synchronized void release() {
+    generation++;
+    Txn<ByteBuffer> txn;
+    while ((txn = readTxns.poll()) != null) {
+      // The transactions are reset after each use, and closing a reset transaction does not abort it, so it
+      // is renewed first in order to release its reader slot.
+      txn.renew();
+      txn.close();
+    }
+  }
+
+  /**
+   * Closes the read transactions of the cache, after the bulk-load mode has been finished.
+   */
+  @Override
+  public void close() {
+    release();
+  }
+
+  protected Env<ByteBuffer> env() {
+    return env;
+  }
+
+  protected Dbi<ByteBuffer> database() {
+    return database;
+  }
+
+  /**
+   * Returns the read transaction of the current thread once the pending entries have been written. The
+   * transaction is renewed, so that it sees the last committed entries, and it must be reset after use.
+   *
+   * @return the read transaction
+   */
+  protected Txn<ByteBuffer> readTxn() {
+    awaitPendingWrites();
+    ReadTxn current = readTxn.get();
+    if (current == null || current.generation != generation) {
+      synchronized (this) {
+        current = new ReadTxn(env.txnRead(), generation);
+        readTxns.add(current.txn);
+      }
+      readTxn.set(current);
+    } else {
+      current.txn.renew();
+    }
+    return current.txn;
+  }
+
+  /**
+   * Returns the key as an 8-byte big-endian buffer, which is reused by the current thread. The byte order
+   * preserves the order of the positive ids, which allows the sorted keys to be appended.
+   *
+   * @param key
+   * @return the buffer
+   */
+  public ByteBuffer buffer(long key) {
+    ByteBuffer buffer = KEY.get();
+    buffer.clear();
+    buffer.putLong(key).flip();
+    return buffer;
+  }
 
   public abstract V read(ByteBuffer buffer);
 
-  public abstract ByteBuffer write(V t);
+  /**
+   * Returns the value in a buffer that may be reused by the current thread.
+   *
+   * @param value
+   * @return the buffer
+   */
+  public abstract ByteBuffer write(V value);
+
+  private void writeBatches() {
+    List<List<Entry<Long, V>>> batches = new ArrayList<>(BATCH_SIZE);
+    try {
+      boolean finished = false;
+      while (!finished) {
+        batches.add(queue.take());
+        queue.drainTo(batches, BATCH_SIZE - 1);
+        finished = batches.removeIf(batch -> batch == end);
+        List<Entry<Long, V>> entries = new ArrayList<>();
+        for (List<Entry<Long, V>> batch : batches) {
+          entries.addAll(batch);
+        }
+        write(entries);
+        batches.clear();
+        pending.addAndGet(-entries.size());
+        synchronized (monitor) {
+          monitor.notifyAll();
+        }
+      }
+    } catch (Throwable e) {
+      failure = e;
+      synchronized (monitor) {
+        monitor.notifyAll();
+      }
+    }
+  }
+
+  private void write(List<Entry<Long, V>> entries) {
+    List<Entry<Long, V>> sorted = new ArrayList<>(entries);
+    sorted.sort(Comparator.comparing(Entry::key, Long::compareUnsigned));
+    try (Txn<ByteBuffer> txn = env.txnWrite()) {
+      for (Entry<Long, V> entry : sorted) {
+        long key = entry.key();
+        ByteBuffer value = write(entry.value());
+        if (!appended || Long.compareUnsigned(key, lastKey) > 0) {
+          try {
+            database.put(txn, buffer(key), value, PutFlags.MDB_APPEND);
+          } catch (Dbi.KeyExistsException e) {
+            // The database already contains greater keys (e.g. it has been reopened).
+            database.put(txn, buffer(key), value);
+          }
+          lastKey = key;
+          appended = true;
+        } else {
+          database.put(txn, buffer(key), value);
+        }
+      }
+      txn.commit();
+    }
+  }
+
+  private void awaitPendingWrites() {
+    if (pending.get() == 0) {
+      return;
+    }
+    synchronized (monitor) {
+      while (pending.get() > 0 && failure == null) {
+        try {
+          monitor.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException(e);
+        }
+      }
+    }
+    checkFailure();
+  }
+
+  /**
+   * A read transaction and the generation of the transactions in which it has been opened.
+   */
+  private static class ReadTxn {
+
+    private final Txn<ByteBuffer> txn;
+
+    private final int generation;
+
+    private ReadTxn(Txn<ByteBuffer> txn, int generation) {
+      this.txn = txn;
+      this.generation = generation;
+    }
+
+  }
+
+  private void checkFailure() {
+    if (failure != null) {
+      throw new IllegalStateException("Unable to write in the cache", failure);
+    }
+  }
+
 }
@@ -18,19 +18,37 @@ import com.baremaps.osm.cache.CoordinateCache;
 import java.nio.ByteBuffer;
 import org.lmdbjava.DbiFlags;
 import org.lmdbjava.Env;
+import org.lmdbjava.Txn;
 import org.locationtech.jts.geom.Coordinate;
 
-public class LmdbCoordinateCache extends LmdbCache<Long, Coordinate> implements CoordinateCache {
+public class LmdbCoordinateCache extends LmdbCache<Coordinate> implements CoordinateCache {
+
+  private static final ThreadLocal<ByteBuffer> VALUE = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(17));
 
   public LmdbCoordinateCache(Env<ByteBuffer> env) {
     super(env, env.openDbi("coordinate", DbiFlags.MDB_CREATE));
   }
 
   @Override
-  public ByteBuffer buffer(Long key) {
-    ByteBuffer buffer = ByteBuffer.allocateDirect(20);
-    buffer.put(String.format("%020d", key).getBytes()).flip();
-    return buffer.putLong(key);
+  public int get(long[] keys, int length, double[] coordinates) {
+    int missing = 0;
+    Txn<ByteBuffer> txn = readTxn();
+    try {
+      for (int i = 0; i < length; i++) {
+        ByteBuffer buffer = database().get(txn, buffer(keys[i]));
+        if (buffer == null || buffer.get() == 0) {
+          coordinates[2 * i] = Double.NaN;
+          coordinates[2 * i + 1] = Double.NaN;
+          missing++;
+        } else {
+          coordinates[2 * i] = buffer.getDouble();
+          coordinates[2 * i + 1] = buffer.getDouble();
+        }
+      }
+    } finally {
+      txn.reset();
+    }
+    return missing;
   }
 
   @Override
@@ -45,11 +63,14 @@ public class LmdbCoordinateCache extends LmdbCache<Long, Coordinate> implements
 
   @Override
   public ByteBuffer write(Coordinate value) {
-    ByteBuffer buffer = ByteBuffer.allocateDirect(17);
+    ByteBuffer buffer = VALUE.get();
+    buffer.clear();
     if (value != null) {
       buffer.put((byte) 1);
       buffer.putDouble(value.getX());
       buffer.putDouble(value.getY());
+    } else {
+      buffer.put((byte) 0);
     }
     buffer.flip();
     return buffer;
@@ -20,18 +20,32 @@ import java.util.ArrayList;
 import java.util.List;
 import org.lmdbjava.DbiFlags;
 import org.lmdbjava.Env;
+import org.lmdbjava.Txn;
 
-public class LmdbReferencesCache extends LmdbCache<Long, List<Long>> implements ReferenceCache {
+public class LmdbReferencesCache extends LmdbCache<List<Long>> implements ReferenceCache {
+
+  private static final ThreadLocal<ByteBuffer> VALUE = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(4096));
 
   public LmdbReferencesCache(Env<ByteBuffer> env) {
     super(env, env.openDbi("references", DbiFlags.MDB_CREATE));
   }
 
   @Override
-  public ByteBuffer buffer(Long key) {
-    ByteBuffer buffer = ByteBuffer.allocateDirect(20);
-    buffer.put(String.format("%020d", key).getBytes()).flip();
-    return buffer.putLong(key);
+  public long[] getReferences(long key) {
+    Txn<ByteBuffer> txn = readTxn();
+    try {
+      ByteBuffer buffer = database().get(txn, buffer(key));
+      if (buffer == null) {
+        return null;
+      }
+      long[] references = new long[buffer.getInt()];
+      for (int i = 0; i < references.length; i++) {
+        references[i] = buffer.getLong();
+      }
+      return references;
+    } finally {
+      txn.reset();
+    }
   }
 
   public List<Long> read(ByteBuffer buffer) {
@@ -47,7 +61,12 @@ public class LmdbReferencesCache extends LmdbCache<Long, List<Long>> implements
   }
 
   public ByteBuffer write(List<Long> value) {
-    ByteBuffer buffer = ByteBuffer.allocateDirect(4 + 8 * value.size());
+    ByteBuffer buffer = VALUE.get();
+    if (buffer.capacity() < 4 + 8 * value.size()) {
+      buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(4 + 8 * value.size()) << 1);
+      VALUE.set(buffer);
+    }
+    buffer.clear();
     buffer.putInt(value.size());
     for (Long v : value) {
       buffer.putLong(v);
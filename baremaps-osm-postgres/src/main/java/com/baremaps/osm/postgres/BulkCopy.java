@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2020 The Baremaps Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.baremaps.osm.postgres;
+
+import com.baremaps.osm.database.DatabaseException;
+import com.baremaps.postgres.jdbc.CopyWriter;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives the rows of a table during a bulk load. The rows are only guaranteed to be written once the bulk
+ * copy is closed.
+ *
+ * @param <T> the type of the rows
+ */
+public interface BulkCopy<T> extends AutoCloseable {
+
+  /**
+   * Writes a row in a {@code COPY} stream.
+   *
+   * @param <T> the type of the rows
+   */
+  @FunctionalInterface
+  interface RowWriter<T> {
+
+    void write(CopyWriter writer, T row) throws IOException;
+
+  }
+
+  /**
+   * Writes a list of rows. The method can be called concurrently.
+   *
+   * @param rows
+   * @throws DatabaseException
+   */
+  void write(List<T> rows) throws DatabaseException;
+
+  /**
+   * Writes the pending rows and releases the resources of the bulk copy.
+   *
+   * @throws DatabaseException
+   */
+  @Override
+  void close() throws DatabaseException;
+
+  /**
+   * Discards the pending rows and releases the resources of the bulk copy, e.g. after a failure. The rows that
+   * have already been committed are kept.
+   */
+  void abort();
+
+}
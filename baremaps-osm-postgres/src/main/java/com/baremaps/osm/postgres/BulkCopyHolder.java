@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2020 The Baremaps Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.baremaps.osm.postgres;
+
+import com.baremaps.osm.database.DatabaseException;
+import com.baremaps.osm.domain.Element;
+import com.baremaps.osm.geometry.HilbertCurve;
+import com.baremaps.osm.postgres.BulkCopy.RowWriter;
+import java.nio.file.Path;
+import java.util.List;
+import javax.sql.DataSource;
+
+/**
+ * Holds the bulk copy of a table during a bulk load. Once a bulk copy has been started, the copies of the table
+ * are routed to it until it is finished or aborted.
+ *
+ * @param <T> the type of the rows
+ */
+public class BulkCopyHolder<T extends Element> {
+
+  private final DataSource dataSource;
+
+  private final String copy;
+
+  private final RowWriter<T> rowWriter;
+
+  private volatile BulkCopy<T> bulkCopy;
+
+  /**
+   * Constructs a holder.
+   *
+   * @param dataSource the data source
+   * @param copy       the {@code COPY} statement of the table
+   * @param rowWriter  the writer of the rows
+   */
+  public BulkCopyHolder(DataSource dataSource, String copy, RowWriter<T> rowWriter) {
+    this.dataSource = dataSource;
+    this.copy = copy;
+    this.rowWriter = rowWriter;
+  }
+
+  /**
+   * Routes the subsequent copies to a pool of long-lived {@code COPY} streams until {@link #finish()} is called.
+   *
+   * @param writers     the number of parallel {@code COPY} streams
+   * @param rowsPerCopy the number of rows after which a stream is rotated
+   */
+  public synchronized void start(int writers, long rowsPerCopy) {
+    checkNotStarted();
+    bulkCopy = new CopyPool<>(dataSource, copy, rowWriter, writers, writers * 4, rowsPerCopy);
+  }
+
+  /**
+   * Buffers the subsequent copies in runs sorted by the Hilbert index of the geometries until {@link #finish()}
+   * is called, so that the rows are written in spatial order.
+   *
+   * @param curve       the Hilbert curve of the projection of the geometries
+   * @param directory   the directory of the runs
+   * @param runSize     the number of bytes buffered in memory before a run is spilled
+   * @param rowsPerCopy the number of rows after which a new {@code COPY} is started
+   */
+  public synchronized void startClustered(HilbertCurve curve, Path directory, long runSize, long rowsPerCopy) {
+    checkNotStarted();
+    bulkCopy = new ClusteredCopy<>(dataSource, copy, rowWriter, row -> curve.index(row.getGeometry()),
+        directory, runSize, rowsPerCopy);
+  }
+
+  /**
+   * Waits for the pending copies and ends the {@code COPY} streams started by {@link #start(int, long)} or
+   * {@link #startClustered(HilbertCurve, Path, long, long)}. The method does nothing if no bulk copy is in
+   * progress.
+   *
+   * @throws DatabaseException
+   */
+  public synchronized void finish() throws DatabaseException {
+    if (bulkCopy != null) {
+      try {
+        bulkCopy.close();
+      } finally {
+        bulkCopy = null;
+      }
+    }
+  }
+
+  /**
+   * Discards the pending rows of the bulk copy, e.g. after a failed import. The method does nothing if no bulk
+   * copy is in progress.
+   */
+  public synchronized void abort() {
+    if (bulkCopy != null) {
+      bulkCopy.abort();
+      bulkCopy = null;
+    }
+  }
+
+  /**
+   * Writes the rows with the bulk copy if one is in progress.
+   *
+   * @param rows
+   * @return false if no bulk copy is in progress
+   * @throws DatabaseException
+   */
+  public boolean write(List<T> rows) throws DatabaseException {
+    BulkCopy<T> current = bulkCopy;
+    if (current == null) {
+      return false;
+    }
+    current.write(rows);
+    return true;
+  }
+
+  private void checkNotStarted() {
+    if (bulkCopy != null) {
+      throw new IllegalStateException("The bulk copy has already been started");
+    }
+  }
+
+}
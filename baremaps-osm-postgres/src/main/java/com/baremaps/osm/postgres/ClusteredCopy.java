@@ -0,0 +1,429 @@
+/*
+ * Copyright (C) 2020 The Baremaps Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.baremaps.osm.postgres;
+
+import com.baremaps.osm.database.DatabaseException;
+import com.baremaps.postgres.jdbc.CopyWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ToLongFunction;
+import javax.sql.DataSource;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+/**
+ * A bulk copy that writes the rows of a table in the order of a key, e.g. the Hilbert index of their geometry,
+ * so that the rows that are close in space are stored in the same pages of the table.
+ *
+ * <p>The rows are encoded as soon as they are received and buffered in runs. Once a run reaches the configured
+ * size, it is sorted by key and spilled to a temporary file. When the bulk copy is closed, the runs are merged
+ * and the rows are written with {@code COPY} streams that are rotated after the configured
+ * number of rows. When there are more runs than can be opened at once, they are first merged in groups into
+ * larger runs. The rows with the same key keep the order in which they have been received within a run.
+ *
+ * @param <T> the type of the rows
+ */
+public class ClusteredCopy<T> implements BulkCopy<T> {
+
+  private static final int ROW_OVERHEAD = 32;
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private static final int MAX_FAN_IN = 64;
+
+  private final DataSource dataSource;
+
+  private final String copy;
+
+  private final RowWriter<T> rowWriter;
+
+  private final ToLongFunction<T> key;
+
+  private final Path directory;
+
+  private final long runSize;
+
+  private final long rowsPerCopy;
+
+  private final ThreadLocal<Encoder> encoders = ThreadLocal.withInitial(Encoder::new);
+
+  private final List<Path> runs = new ArrayList<>();
+
+  private List<Row> run = new ArrayList<>();
+
+  private long runBytes = 0;
+
+  private boolean closed = false;
+
+  /**
+   * Constructs a clustered copy.
+   *
+   * @param dataSource  the data source
+   * @param copy        the {@code COPY} statement
+   * @param rowWriter   the writer of the rows
+   * @param key         the key of the rows
+   * @param directory   the directory of the runs
+   * @param runSize     the number of bytes buffered in memory before a run is spilled
+   * @param rowsPerCopy the number of rows after which a new {@code COPY} is started
+   */
+  public ClusteredCopy(
+      DataSource dataSource,
+      String copy,
+      RowWriter<T> rowWriter,
+      ToLongFunction<T> key,
+      Path directory,
+      long runSize,
+      long rowsPerCopy) {
+    this.dataSource = dataSource;
+    this.copy = copy;
+    this.rowWriter = rowWriter;
+    this.key = key;
+    this.directory = directory;
+    this.runSize = runSize;
+    this.rowsPerCopy = rowsPerCopy;
+  }
+
+  @Override
+  public void write(List<T> rows) throws DatabaseException {
+    if (rows.isEmpty()) {
+      return;
+    }
+    List<Row> encoded = new ArrayList<>(rows.size());
+    long bytes = 0;
+    Encoder encoder = encoders.get();
+    try {
+      for (T row : rows) {
+        Row entry = new Row(key.applyAsLong(row), encoder.encode(row));
+        encoded.add(entry);
+        bytes += entry.bytes.length + ROW_OVERHEAD;
+      }
+    } catch (IOException e) {
+      throw new DatabaseException(e);
+    }
+    List<Row> full = null;
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("The clustered copy has been closed");
+      }
+      run.addAll(encoded);
+      runBytes += bytes;
+      if (runBytes >= runSize) {
+        full = run;
+        run = new ArrayList<>();
+        runBytes = 0;
+      }
+    }
+    if (full != null) {
+      Path path = spill(full);
+      synchronized (this) {
+        runs.add(path);
+      }
+    }
+  }
+
+  /**
+   * Merges the runs and writes the rows in the order of their keys.
+   *
+   * @throws DatabaseException
+   */
+  @Override
+  public synchronized void close() throws DatabaseException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (!run.isEmpty()) {
+        runs.add(spill(run));
+        run = null;
+      }
+      merge();
+    } finally {
+      deleteRuns();
+    }
+  }
+
+  /**
+   * Discards the buffered rows and deletes the runs.
+   */
+  @Override
+  public synchronized void abort() {
+    closed = true;
+    run = null;
+    deleteRuns();
+  }
+
+  private void deleteRuns() {
+    for (Path path : runs) {
+      try {
+        Files.deleteIfExists(path);
+      } catch (IOException e) {
+        // The runs are in a temporary directory.
+      }
+    }
+    runs.clear();
+  }
+
+  private Path spill(List<Row> rows) throws DatabaseException {
+    rows.sort(Comparator.comparingLong(row -> row.key));
+    try {
+      Path path = Files.createTempFile(directory, "cluster_", ".run");
+      try (DataOutputStream output = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE))) {
+        for (Row row : rows) {
+          output.writeLong(row.key);
+          output.writeInt(row.bytes.length);
+          output.write(row.bytes);
+        }
+      }
+      return path;
+    } catch (IOException e) {
+      throw new DatabaseException(e);
+    }
+  }
+
+  /**
+   * Merges the runs in passes of at most {@link #MAX_FAN_IN} runs, so that the number of open files and of
+   * read buffers is bounded, and writes the rows of the last pass with {@code COPY}.
+   */
+  private void merge() throws DatabaseException {
+    try {
+      while (runs.size() > MAX_FAN_IN) {
+        List<Path> inputs = new ArrayList<>(runs);
+        List<Path> merged = new ArrayList<>();
+        for (int i = 0; i < inputs.size(); i += MAX_FAN_IN) {
+          List<Path> group = inputs.subList(i, Math.min(i + MAX_FAN_IN, inputs.size()));
+          if (group.size() == 1) {
+            merged.add(group.get(0));
+            continue;
+          }
+          Path path = Files.createTempFile(directory, "cluster_", ".run");
+          runs.add(path);
+          merged.add(path);
+          try (DataOutputStream output = new DataOutputStream(
+              new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE))) {
+            merge(group, reader -> {
+              output.writeLong(reader.key);
+              output.writeInt(reader.length);
+              output.write(reader.bytes, 0, reader.length);
+            });
+          }
+          for (Path input : group) {
+            Files.deleteIfExists(input);
+          }
+        }
+        runs.clear();
+        runs.addAll(merged);
+      }
+      CopySink sink = new CopySink();
+      try {
+        merge(runs, sink);
+        sink.finish();
+      } finally {
+        sink.release();
+      }
+    } catch (IOException | SQLException e) {
+      throw new DatabaseException(e);
+    }
+  }
+
+  /**
+   * Merges the rows of runs by key. The rows with the same key are merged in the order of the runs, which are
+   * in the order of their spilling, so that the merge is stable.
+   */
+  private static void merge(List<Path> paths, RowSink sink) throws IOException, SQLException {
+    PriorityQueue<RunReader> queue = new PriorityQueue<>(
+        Comparator.<RunReader>comparingLong(reader -> reader.key).thenComparingInt(reader -> reader.index));
+    try {
+      for (int i = 0; i < paths.size(); i++) {
+        RunReader reader = new RunReader(paths.get(i), i);
+        if (reader.next()) {
+          queue.add(reader);
+        } else {
+          reader.close();
+        }
+      }
+      while (!queue.isEmpty()) {
+        RunReader reader = queue.poll();
+        sink.write(reader);
+        if (reader.next()) {
+          queue.add(reader);
+        } else {
+          reader.close();
+        }
+      }
+    } finally {
+      for (RunReader reader : queue) {
+        reader.close();
+      }
+    }
+  }
+
+  /**
+   * Receives the merged rows.
+   */
+  private interface RowSink {
+
+    void write(RunReader reader) throws IOException, SQLException;
+
+  }
+
+  /**
+   * Writes the merged rows with {@code COPY} streams that are rotated after the configured number of rows.
+   */
+  private class CopySink implements RowSink {
+
+    private Connection connection;
+
+    private PGCopyOutputStream stream;
+
+    private CopyWriter writer;
+
+    private long rows = 0;
+
+    @Override
+    public void write(RunReader reader) throws IOException, SQLException {
+      if (writer == null) {
+        connection = dataSource.getConnection();
+        stream = new PGCopyOutputStream(connection.unwrap(PGConnection.class), copy);
+        writer = new CopyWriter(stream);
+        writer.writeHeader();
+      }
+      writer.writeEncodedRow(reader.bytes, 0, reader.length);
+      if (++rows >= rowsPerCopy) {
+        finish();
+      }
+    }
+
+    /**
+     * Ends the current {@code COPY}, if any, and releases its connection.
+     */
+    private void finish() throws IOException, SQLException {
+      if (writer != null) {
+        writer.close();
+        writer = null;
+        rows = 0;
+        connection.close();
+        connection = null;
+      }
+    }
+
+    /**
+     * Cancels a failed {@code COPY}, so that its rows are discarded, and releases its connection.
+     */
+    private void release() {
+      if (connection != null) {
+        try {
+          if (writer != null) {
+            stream.cancelCopy();
+          }
+          connection.close();
+        } catch (SQLException e) {
+          // The copy has already failed.
+        }
+        connection = null;
+      }
+    }
+
+  }
+
+  private static class Row {
+
+    private final long key;
+
+    private final byte[] bytes;
+
+    private Row(long key, byte[] bytes) {
+      this.key = key;
+      this.bytes = bytes;
+    }
+
+  }
+
+  /**
+   * Encodes the rows of a thread with a reusable buffer.
+   */
+  private class Encoder {
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    private final CopyWriter writer = new CopyWriter(buffer);
+
+    private byte[] encode(T row) throws IOException {
+      buffer.reset();
+      rowWriter.write(writer, row);
+      writer.flush();
+      return buffer.toByteArray();
+    }
+
+  }
+
+  /**
+   * Reads the rows of a run in order.
+   */
+  private static class RunReader {
+
+    private final DataInputStream input;
+
+    private final int index;
+
+    private long key;
+
+    private byte[] bytes = new byte[256];
+
+    private int length;
+
+    private RunReader(Path path, int index) throws IOException {
+      this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE));
+      this.index = index;
+    }
+
+    private boolean next() throws IOException {
+      try {
+        key = input.readLong();
+      } catch (EOFException e) {
+        return false;
+      }
+      length = input.readInt();
+      if (length > bytes.length) {
+        bytes = new byte[Math.max(length, bytes.length * 2)];
+      }
+      input.readFully(bytes, 0, length);
+      return true;
+    }
+
+    private void close() {
+      try {
+        input.close();
+      } catch (IOException e) {
+        // The run is only read.
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2020 The Baremaps Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.baremaps.osm.postgres;
+
+import com.baremaps.osm.database.DatabaseException;
+import com.baremaps.postgres.jdbc.CopyWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+/**
+ * A pool of long-lived {@code COPY ... FROM STDIN BINARY} streams that write the rows of a table in parallel.
+ *
+ * <p>Each writer owns a dedicated connection and keeps its {@code COPY} open across the lists of rows it
+ * receives, so that the cost of a connection checkout and of a {@code COPY} round trip is paid once per
+ * rotation instead of once per block. The lists are handed to the writers through a bounded queue, which
+ * blocks the producers when the database cannot keep up. A writer ends its {@code COPY} and starts a new one
+ * once it has written the configured number of rows, which bounds the size of the transactions, or once the
+ * queue has been idle for a second, which returns the connection to the data source so that the pools of the
+ * other tables are not starved when the data source has fewer connections than writers. Each of these
+ * rotations commits the rows written by the {@code COPY} it ends, so that the rows become visible while the
+ * pool is running, and the remaining rows are committed when the pool is closed.
+ *
+ * @param <T> the type of the rows
+ */
+public class CopyPool<T> implements BulkCopy<T> {
+
+  private static final List<?> END = Collections.emptyList();
+
+  private static final long IDLE_TIMEOUT = 1000;
+
+  private final DataSource dataSource;
+
+  private final String copy;
+
+  private final RowWriter<T> rowWriter;
+
+  private final long rowsPerCopy;
+
+  private final BlockingQueue<List<T>> queue;
+
+  private final List<Thread> threads;
+
+  private volatile Exception failure;
+
+  private volatile boolean aborted = false;
+
+  private boolean closed = false;
+
+  /**
+   * Starts a pool of writers.
+   *
+   * @param dataSource  the data source
+   * @param copy        the {@code COPY} statement
+   * @param rowWriter   the writer of the rows
+   * @param writers     the number of writers
+   * @param queueSize   the number of lists that can be queued before the producers are blocked
+   * @param rowsPerCopy the number of rows after which a writer starts a new {@code COPY}
+   */
+  public CopyPool(
+      DataSource dataSource,
+      String copy,
+      RowWriter<T> rowWriter,
+      int writers,
+      int queueSize,
+      long rowsPerCopy) {
+    if (writers < 1) {
+      throw new IllegalArgumentException("The number of writers must be positive");
+    }
+    this.dataSource = dataSource;
+    this.copy = copy;
+    this.rowWriter = rowWriter;
+    this.rowsPerCopy = rowsPerCopy;
+    this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+    this.threads = new ArrayList<>(writers);
+    for (int i = 0; i < writers; i++) {
+      Thread thread = new Thread(this::run, "copy-writer-" + i);
+      thread.setDaemon(true);
+      thread.start();
+      threads.add(thread);
+    }
+  }
+
+  /**
+   * Queues a list of rows. The method blocks while the queue is full.
+   *
+   * @param rows
+   * @throws DatabaseException if a writer has failed
+   */
+  @Override
+  public void write(List<T> rows) throws DatabaseException {
+    if (rows.isEmpty()) {
+      return;
+    }
+    try {
+      while (!queue.offer(rows, 100, TimeUnit.MILLISECONDS)) {
+        checkFailure();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DatabaseException(e);
+    }
+    checkFailure();
+  }
+
+  /**
+   * Waits for the queued rows to be written and ends the {@code COPY} of each writer.
+   *
+   * @throws DatabaseException if a writer has failed
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public synchronized void close() throws DatabaseException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      for (int i = 0; i < threads.size(); i++) {
+        while (!queue.offer((List<T>) END, 100, TimeUnit.MILLISECONDS)) {
+          if (failure != null || aborted) {
+            queue.clear();
+          }
+        }
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DatabaseException(e);
+    }
+    checkFailure();
+  }
+
+  /**
+   * Discards the queued rows, cancels the {@code COPY} of each writer and waits for the writers to stop.
+   */
+  @Override
+  public void abort() {
+    aborted = true;
+    queue.clear();
+    try {
+      close();
+    } catch (DatabaseException e) {
+      // The rows are discarded anyway.
+    }
+  }
+
+  private void checkFailure() throws DatabaseException {
+    if (failure != null) {
+      throw new DatabaseException(failure);
+    }
+  }
+
+  private void run() {
+    Connection connection = null;
+    PGCopyOutputStream stream = null;
+    CopyWriter writer = null;
+    long rows = 0;
+    try {
+      while (true) {
+        List<T> list = queue.poll(IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+        if (list == null) {
+          // Release the connection while the producers are busy elsewhere, e.g. with the other tables.
+          if (writer != null) {
+            writer.close();
+            writer = null;
+            connection.close();
+            connection = null;
+            rows = 0;
+          }
+          list = queue.take();
+        }
+        if (list == END) {
+          break;
+        }
+        if (failure != null || aborted) {
+          continue;
+        }
+        if (writer == null) {
+          connection = dataSource.getConnection();
+          stream = new PGCopyOutputStream(connection.unwrap(PGConnection.class), copy);
+          writer = new CopyWriter(stream);
+          writer.writeHeader();
+        }
+        for (T row : list) {
+          rowWriter.write(writer, row);
+        }
+        rows += list.size();
+        if (rows >= rowsPerCopy) {
+          writer.close();
+          writer = null;
+          connection.close();
+          connection = null;
+          rows = 0;
+        }
+      }
+      if (writer != null && !aborted) {
+        writer.close();
+        writer = null;
+      }
+    } catch (Exception e) {
+      failure = e;
+      if (e instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
+      }
+      // Keep draining the queue so that the producers and the close method are not blocked.
+      drain();
+    } finally {
+      if (writer != null) {
+        // End the COPY without committing its rows before the connection is returned to the data source.
+        try {
+          stream.cancelCopy();
+        } catch (SQLException e) {
+          if (failure == null && !aborted) {
+            failure = e;
+          }
+        }
+      }
+      if (connection != null) {
+        try {
+          connection.close();
+        } catch (SQLException e) {
+          if (failure == null) {
+            failure = e;
+          }
+        }
+      }
+    }
+  }
+
+  private void drain() {
+    try {
+      while (queue.take() != END) {
+        // The rows are discarded as the pool has failed.
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright (C) 2020 The Baremaps Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.baremaps.osm.postgres;
+
+import com.baremaps.osm.database.BulkLoader;
+import com.baremaps.osm.database.DatabaseException;
+import com.baremaps.osm.database.ImportPhase;
+import com.baremaps.osm.geometry.HilbertCurve;
+import com.baremaps.postgres.jdbc.PostgresUtils;
+import com.google.common.io.Resources;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads the OpenStreetMap tables with long-lived {@code COPY} streams and, optionally, without write-ahead log.
+ *
+ * <p>In the unlogged mode, the node, way and relation tables are created if needed, emptied and switched to
+ * {@code UNLOGGED} without their primary keys and indexes before the import, so that the copies neither write
+ * to the write-ahead log nor maintain indexes. Once the copies are done, the tables are switched back to
+ * {@code LOGGED}, which rewrites them before they have any index, and the primary keys and the indexes are
+ * built in parallel on separate connections. As the tables are emptied, this mode must only be used for a full
+ * import.
+ *
+ * <p>The layer tables of a mapping are recreated before the import, loaded with their own {@code COPY} streams
+ * and spatially indexed afterwards.
+ *
+ * <p>In the clustered mode, the rows of each table are buffered in runs sorted by the Hilbert index of their
+ * geometry and spilled to disk. Once the entities have been imported, the runs of the tables are merged in
+ * parallel and the rows are written in spatial order, so that the features of a tile share a few pages of the
+ * tables. Block range indexes, which are small and cheap to build on clustered tables, can then be created on
+ * the geometries.
+ */
+public class PostgresBulkLoader implements BulkLoader {
+
+  private static final Logger logger = LoggerFactory.getLogger(PostgresBulkLoader.class);
+
+  private static final long ROWS_PER_COPY = 1_000_000;
+
+  private static final long RUN_SIZE = 64L << 20;
+
+  private final DataSource dataSource;
+
+  private final PostgresNodeTable nodeTable;
+
+  private final PostgresWayTable wayTable;
+
+  private final PostgresRelationTable relationTable;
+
+  private final int copyWriters;
+
+  private final boolean unlogged;
+
+  private final int parallelism;
+
+  private final List<PostgresLayerTable> layerTables;
+
+  private final HilbertCurve clusterCurve;
+
+  private final Path clusterDirectory;
+
+  private final boolean brin;
+
+  /**
+   * Constructs a bulk loader.
+   *
+   * @param dataSource
+   * @param nodeTable
+   * @param wayTable
+   * @param relationTable
+   * @param copyWriters   the number of parallel {@code COPY} streams per table (0 to copy each block separately)
+   * @param unlogged      true to load unlogged tables and to defer the primary keys and the indexes
+   * @param parallelism   the number of connections used to build the primary keys and the indexes
+   */
+  public PostgresBulkLoader(
+      DataSource dataSource,
+      PostgresNodeTable nodeTable,
+      PostgresWayTable wayTable,
+      PostgresRelationTable relationTable,
+      int copyWriters,
+      boolean unlogged,
+      int parallelism) {
+    this(dataSource, nodeTable, wayTable, relationTable, copyWriters, unlogged, parallelism, List.of());
+  }
+
+  /**
+   * Constructs a bulk loader that also loads the layer tables of a mapping.
+   *
+   * @param dataSource
+   * @param nodeTable
+   * @param wayTable
+   * @param relationTable
+   * @param copyWriters   the number of parallel {@code COPY} streams per table (0 to copy each block separately)
+   * @param unlogged      true to load unlogged tables and to defer the primary keys and the indexes
+   * @param parallelism   the number of connections used to build the primary keys and the indexes
+   * @param layerTables   the layer tables
+   */
+  public PostgresBulkLoader(
+      DataSource dataSource,
+      PostgresNodeTable nodeTable,
+      PostgresWayTable wayTable,
+      PostgresRelationTable relationTable,
+      int copyWriters,
+      boolean unlogged,
+      int parallelism,
+      List<PostgresLayerTable> layerTables) {
+    this(dataSource, nodeTable, wayTable, relationTable, copyWriters, unlogged, parallelism, layerTables,
+        null, null, false);
+  }
+
+  /**
+   * Constructs a bulk loader that can write the rows of the tables in spatial order.
+   *
+   * @param dataSource
+   * @param nodeTable
+   * @param wayTable
+   * @param relationTable
+   * @param copyWriters      the number of parallel {@code COPY} streams per table (0 to copy each block separately)
+   * @param unlogged         true to load unlogged tables and to defer the primary keys and the indexes
+   * @param parallelism      the number of connections used to build the primary keys and the indexes
+   * @param layerTables      the layer tables
+   * @param clusterCurve     the Hilbert curve used to order the rows (null to write the rows in the order of the
+   *                         file)
+   * @param clusterDirectory the directory of the sorted runs
+   * @param brin             true to create block range indexes on the geometries
+   */
+  public PostgresBulkLoader(
+      DataSource dataSource,
+      PostgresNodeTable nodeTable,
+      PostgresWayTable wayTable,
+      PostgresRelationTable relationTable,
+      int copyWriters,
+      boolean unlogged,
+      int parallelism,
+      List<PostgresLayerTable> layerTables,
+      HilbertCurve clusterCurve,
+      Path clusterDirectory,
+      boolean brin) {
+    this.dataSource = dataSource;
+    this.nodeTable = nodeTable;
+    this.wayTable = wayTable;
+    this.relationTable = relationTable;
+    this.copyWriters = copyWriters;
+    this.unlogged = unlogged;
+    this.parallelism = Math.max(1, parallelism);
+    this.layerTables = layerTables;
+    this.clusterCurve = clusterCurve;
+    this.clusterDirectory = clusterDirectory;
+    this.brin = brin;
+  }
+
+  @Override
+  public void beforeImport() throws DatabaseException {
+    if (unlogged) {
+      logger.info("Creating unlogged tables");
+      try (Connection connection = dataSource.getConnection()) {
+        PostgresUtils.executeResource(connection, "osm_create_tables.sql");
+        PostgresUtils.executeResource(connection, "osm_set_tables_unlogged.sql");
+      } catch (IOException | SQLException e) {
+        throw new DatabaseException(e);
+      }
+    }
+    for (PostgresLayerTable layerTable : layerTables) {
+      layerTable.create();
+    }
+    for (BulkCopyHolder<?> bulkCopy : bulkCopies()) {
+      if (clusterCurve != null) {
+        bulkCopy.startClustered(clusterCurve, clusterDirectory, RUN_SIZE, ROWS_PER_COPY);
+      } else if (copyWriters > 0) {
+        bulkCopy.start(copyWriters, ROWS_PER_COPY);
+      }
+    }
+  }
+
+  /**
+   * Ends the copies of the table of a phase, as the subsequent phases do not write to it. The copies of the
+   * layer tables, which receive the entities of all the phases, are ended after the import.
+   */
+  @Override
+  public void afterPhase(ImportPhase phase) throws DatabaseException {
+    if (clusterCurve != null) {
+      logger.info("Writing the rows of the {} phase in spatial order", phase);
+    }
+    switch (phase) {
+      case NODES:
+        nodeTable.getBulkCopy().finish();
+        break;
+      case WAYS:
+        wayTable.getBulkCopy().finish();
+        break;
+      case RELATIONS:
+        relationTable.getBulkCopy().finish();
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown phase " + phase);
+    }
+  }
+
+  @Override
+  public void afterImport() throws DatabaseException {
+    if (clusterCurve != null && !layerTables.isEmpty()) {
+      logger.info("Writing the rows of the layers in spatial order");
+    }
+    List<Callable<Void>> copies = new ArrayList<>();
+    for (BulkCopyHolder<?> bulkCopy : bulkCopies()) {
+      copies.add(() -> {
+        bulkCopy.finish();
+        return null;
+      });
+    }
+    runParallel(copies);
+    if (!layerTables.isEmpty()) {
+      logger.info("Creating the indexes of the layers");
+      executeParallel(
+          layerTables.stream().map(PostgresLayerTable::getIndexStatement).collect(Collectors.toList()));
+    }
+    if (unlogged) {
+      logger.info("Setting the tables as logged");
+      executeParallel("osm_set_tables_logged.sql");
+      logger.info("Creating primary keys");
+      executeParallel("osm_create_primary_keys.sql");
+      logger.info("Creating indexes");
+      executeParallel("osm_create_bulk_indexes.sql");
+    }
+    if (brin) {
+      logger.info("Creating block range indexes");
+      executeParallel("osm_create_brin_indexes.sql");
+      if (!layerTables.isEmpty()) {
+        executeParallel(
+            layerTables.stream().map(PostgresLayerTable::getBrinIndexStatement).collect(Collectors.toList()));
+      }
+    }
+  }
+
+  @Override
+  public void abort() {
+    for (BulkCopyHolder<?> bulkCopy : bulkCopies()) {
+      bulkCopy.abort();
+    }
+  }
+
+  /**
+   * Executes each statement of a resource on its own connection. The statements that target the same table
+   * are serialized by the locks of the database.
+   */
+  private void executeParallel(String resource) throws DatabaseException {
+    List<String> statements = new ArrayList<>();
+    try {
+      String queries = Resources.toString(Resources.getResource(resource), StandardCharsets.UTF_8);
+      for (String query : queries.split(";")) {
+        if (!query.isBlank()) {
+          statements.add(query.trim());
+        }
+      }
+    } catch (IOException e) {
+      throw new DatabaseException(e);
+    }
+    executeParallel(statements);
+  }
+
+  private void executeParallel(List<String> statements) throws DatabaseException {
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for (String query : statements) {
+      tasks.add(() -> {
+        long start = System.currentTimeMillis();
+        try (Connection connection = dataSource.getConnection();
+            Statement statement = connection.createStatement()) {
+          statement.execute(query);
+        }
+        logger.info("{} in {} ms", query, System.currentTimeMillis() - start);
+        return null;
+      });
+    }
+    runParallel(tasks);
+  }
+
+  /**
+   * Returns the bulk copies of all the tables.
+   */
+  private List<BulkCopyHolder<?>> bulkCopies() {
+    List<BulkCopyHolder<?>> bulkCopies = new ArrayList<>();
+    bulkCopies.add(nodeTable.getBulkCopy());
+    bulkCopies.add(wayTable.getBulkCopy());
+    bulkCopies.add(relationTable.getBulkCopy());
+    for (PostgresLayerTable layerTable : layerTables) {
+      bulkCopies.add(layerTable.getBulkCopy());
+    }
+    return bulkCopies;
+  }
+
+  /**
+   * Executes the tasks in parallel and waits for their completion.
+   */
+  private void runParallel(Collection<Callable<Void>> tasks) throws DatabaseException {
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, tasks.size())));
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (Callable<Void> task : tasks) {
+        futures.add(executor.submit(task));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } catch (ExecutionException e) {
+      throw new DatabaseException(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DatabaseException(e);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+}
@@ -35,6 +35,10 @@ public class PostgresCoordinateCache implements CoordinateCache {
   private static final String SELECT_IN =
       "SELECT id, lon, lat FROM osm_nodes WHERE id = ANY (?)";
 
+  private static final String SELECT_ORDERED =
+      "SELECT n.lon, n.lat FROM unnest(?) WITH ORDINALITY AS k(id, i) "
+          + "LEFT JOIN osm_nodes n ON n.id = k.id ORDER BY k.i";
+
   private final DataSource dataSource;
 
   public PostgresCoordinateCache(DataSource dataSource) {
@@ -77,6 +81,34 @@ public class PostgresCoordinateCache implements CoordinateCache {
     }
   }
 
+  @Override
+  public int get(long[] keys, int length, double[] coordinates) throws CacheException {
+    Long[] array = new Long[length];
+    for (int i = 0; i < length; i++) {
+      array[i] = keys[i];
+    }
+    try (Connection connection = dataSource.getConnection();
+        PreparedStatement statement = connection.prepareStatement(SELECT_ORDERED)) {
+      statement.setArray(1, connection.createArrayOf("int8", array));
+      ResultSet result = statement.executeQuery();
+      int missing = 0;
+      for (int i = 0; i < length && result.next(); i++) {
+        double lon = result.getDouble(1);
+        if (result.wasNull()) {
+          coordinates[2 * i] = Double.NaN;
+          coordinates[2 * i + 1] = Double.NaN;
+          missing++;
+        } else {
+          coordinates[2 * i] = lon;
+          coordinates[2 * i + 1] = result.getDouble(2);
+        }
+      }
+      return missing;
+    } catch (SQLException e) {
+      throw new CacheException(e);
+    }
+  }
+
   @Override
   public void add(Long key, Coordinate values) {
     throw new UnsupportedOperationException();
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2020 The Baremaps Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.baremaps.osm.postgres;
+
+import com.baremaps.osm.database.DatabaseException;
+import com.baremaps.osm.database.ImportCheckpoint;
+import com.baremaps.osm.database.ImportPhase;
+import com.baremaps.osm.domain.DataBlock;
+import com.baremaps.postgres.jdbc.PostgresUtils;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import javax.sql.DataSource;
+
+/**
+ * Records the committed blobs of an import in the {@code osm_import_checkpoints} table.
+ *
+ * <p>The entities of a blob are copied on a single connection and the blob is recorded before the transaction
+ * is committed, so that the table never records a blob whose entities have not been saved and never misses a
+ * blob whose entities have been saved.
+ */
+public class PostgresImportCheckpoint implements ImportCheckpoint {
+
+  private static final String SELECT =
+      "SELECT blob_index, blob_offset FROM osm_import_checkpoints WHERE phase = ?";
+
+  private static final String INSERT =
+      "INSERT INTO osm_import_checkpoints (phase, blob_index, blob_offset) VALUES (?, ?, ?)";
+
+  private static final String DELETE = "DELETE FROM osm_import_checkpoints";
+
+  private final DataSource dataSource;
+
+  private final PostgresNodeTable nodeTable;
+
+  private final PostgresWayTable wayTable;
+
+  private final PostgresRelationTable relationTable;
+
+  public PostgresImportCheckpoint(
+      DataSource dataSource,
+      PostgresNodeTable nodeTable,
+      PostgresWayTable wayTable,
+      PostgresRelationTable relationTable) {
+    this.dataSource = dataSource;
+    this.nodeTable = nodeTable;
+    this.wayTable = wayTable;
+    this.relationTable = relationTable;
+  }
+
+  @Override
+  public void reset() throws DatabaseException {
+    try (Connection connection = dataSource.getConnection()) {
+      PostgresUtils.executeResource(connection, "osm_create_checkpoint_table.sql");
+      try (Statement statement = connection.createStatement()) {
+        statement.execute(DELETE);
+      }
+    } catch (IOException | SQLException e) {
+      throw new DatabaseException(e);
+    }
+  }
+
+  @Override
+  public Map<Integer, Long> committed(ImportPhase phase) throws DatabaseException {
+    try (Connection connection = dataSource.getConnection()) {
+      PostgresUtils.executeResource(connection, "osm_create_checkpoint_table.sql");
+      try (PreparedStatement statement = connection.prepareStatement(SELECT)) {
+        statement.setString(1, phase.name());
+        ResultSet result = statement.executeQuery();
+        Map<Integer, Long> blobs = new HashMap<>();
+        while (result.next()) {
+          blobs.put(result.getInt(1), result.getLong(2));
+        }
+        return blobs;
+      }
+    } catch (IOException | SQLException e) {
+      throw new DatabaseException(e);
+    }
+  }
+
+  @Override
+  public void commit(ImportPhase phase, int index, long offset, DataBlock block) throws DatabaseException {
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try {
+        nodeTable.copy(connection, block.getDenseNodes());
+        nodeTable.copy(connection, block.getNodes());
+        wayTable.copy(connection, block.getWays());
+        relationTable.copy(connection, block.getRelations());
+        try (PreparedStatement statement = connection.prepareStatement(INSERT)) {
+          statement.setString(1, phase.name());
+          statement.setInt(2, index);
+          statement.setLong(3, offset);
+          statement.execute();
+        }
+        connection.commit();
+      } catch (Throwable e) {
+        // Roll back before autocommit is restored, as restoring it would commit the rows copied so far.
+        try {
+          connection.rollback();
+        } catch (SQLException rollbackException) {
+          e.addSuppressed(rollbackException);
+        }
+        throw e;
+      } finally {
+        connection.setAutoCommit(true);
+      }
+    } catch (SQLException e) {
+      throw new DatabaseException(e);
+    }
+  }
+
+}
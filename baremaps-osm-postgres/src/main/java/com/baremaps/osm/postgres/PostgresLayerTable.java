@@ -0,0 +1,312 @@
+/*
+ * Copyright (C) 2020 The Baremaps Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.baremaps.osm.postgres;
+
+import com.baremaps.config.mapping.Column;
+import com.baremaps.config.mapping.Table;
+import com.baremaps.osm.database.DatabaseException;
+import com.baremaps.osm.database.LayerTable;
+import com.baremaps.osm.domain.Element;
+import com.baremaps.osm.domain.Node;
+import com.baremaps.osm.domain.Way;
+import com.baremaps.osm.geometry.ZoomBand;
+import com.baremaps.postgres.jdbc.CopyWriter;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+/**
+ * A narrow table whose typed columns are extracted from the tags of the elements routed by a mapping.
+ *
+ * <p>Besides the columns of the mapping, the table has an {@code id} column, a {@code type} column
+ * ({@code node}, {@code way} or {@code relation}) and a {@code geom} column, which is constrained to the
+ * srid of the import and indexed once the table has been loaded. The companion tables returned by
+ * {@link #generalize(ZoomBand)} have the same columns and receive the geometries generalized for a zoom band.
+ */
+public class PostgresLayerTable implements LayerTable {
+
+  private static final Pattern IDENTIFIER = Pattern.compile("[a-z_][a-z0-9_]*");
+
+  private static final Set<String> RESERVED_COLUMNS = Set.of("id", "type", "geom");
+
+  private final DataSource dataSource;
+
+  private final Table mapping;
+
+  private final ZoomBand zoomBand;
+
+  private final int srid;
+
+  private final List<Column> columns;
+
+  private final String drop;
+
+  private final String create;
+
+  private final String index;
+
+  private final String brinIndex;
+
+  private final String copy;
+
+  private final BulkCopyHolder<Element> bulkCopy;
+
+  public PostgresLayerTable(DataSource dataSource, Table mapping, int srid) {
+    this(dataSource, mapping, null, srid);
+  }
+
+  /**
+   * Constructs a layer table.
+   *
+   * @param dataSource
+   * @param mapping
+   * @param zoomBand   the zoom band of the generalized geometries (null for the geometries at full resolution)
+   * @param srid       the srid of the geometries
+   */
+  public PostgresLayerTable(DataSource dataSource, Table mapping, ZoomBand zoomBand, int srid) {
+    this.dataSource = dataSource;
+    this.mapping = mapping;
+    this.zoomBand = zoomBand;
+    this.srid = srid;
+    this.columns = mapping.getColumns() != null ? mapping.getColumns() : Collections.emptyList();
+    String name = identifier(mapping.getName());
+    Set<String> names = new HashSet<>(RESERVED_COLUMNS);
+    for (Column column : columns) {
+      if (!names.add(identifier(column.getName()))) {
+        throw new IllegalArgumentException(RESERVED_COLUMNS.contains(column.getName())
+            ? "Reserved column name in table " + name + ": " + column.getName()
+            : "Duplicate column name in table " + name + ": " + column.getName());
+      }
+    }
+    this.drop = String.format("DROP TABLE IF EXISTS %s", name);
+    this.create = String.format("CREATE TABLE %s (id bigint, type text%s, geom geometry(Geometry, %d))", name,
+        columns.stream().map(c -> ", " + c.getName() + " " + sqlType(c.getType())).collect(Collectors.joining()),
+        srid);
+    this.index = String.format("CREATE INDEX IF NOT EXISTS %1$s_geom_index ON %1$s USING GIST (geom)", name);
+    this.brinIndex = String.format("CREATE INDEX IF NOT EXISTS %1$s_geom_brin ON %1$s USING BRIN (geom)", name);
+    this.copy = String.format("COPY %s (id, type%s, geom) FROM STDIN BINARY", name,
+        columns.stream().map(c -> ", " + c.getName()).collect(Collectors.joining()));
+    this.bulkCopy = new BulkCopyHolder<>(dataSource, copy, this::writeRow);
+  }
+
+  @Override
+  public Table getMapping() {
+    return mapping;
+  }
+
+  @Override
+  public ZoomBand getZoomBand() {
+    return zoomBand;
+  }
+
+  /**
+   * Returns the companion table that receives the geometries generalized for a zoom band. The companion table
+   * has the rules, the columns and the srid of this table and is named after it (e.g. {@code roads_z0_5}).
+   *
+   * @param band
+   * @return the companion table
+   */
+  public PostgresLayerTable generalize(ZoomBand band) {
+    Table table = new Table();
+    table.setName(mapping.getName() + band.getSuffix());
+    table.setAllowEntities(mapping.getAllowEntities());
+    table.setAllowTags(mapping.getAllowTags());
+    table.setBlockTags(mapping.getBlockTags());
+    table.setColumns(mapping.getColumns());
+    return new PostgresLayerTable(dataSource, table, band, srid);
+  }
+
+  /**
+   * Drops and creates the table.
+   *
+   * @throws DatabaseException
+   */
+  public void create() throws DatabaseException {
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.execute(drop);
+      statement.execute(create);
+    } catch (SQLException e) {
+      throw new DatabaseException(e);
+    }
+  }
+
+  /**
+   * Returns the statement that creates the spatial index of the table.
+   */
+  public String getIndexStatement() {
+    return index;
+  }
+
+  /**
+   * Returns the statement that creates the block range index of the geometries of the table.
+   */
+  public String getBrinIndexStatement() {
+    return brinIndex;
+  }
+
+  /**
+   * Returns the bulk copy of the table, through which the copies are routed during a bulk load.
+   *
+   * @return the bulk copy
+   */
+  public BulkCopyHolder<Element> getBulkCopy() {
+    return bulkCopy;
+  }
+
+  @Override
+  public void copy(List<Element> elements) throws DatabaseException {
+    if (elements.isEmpty()) {
+      return;
+    }
+    if (bulkCopy.write(elements)) {
+      return;
+    }
+    try (Connection connection = dataSource.getConnection()) {
+      PGConnection pgConnection = connection.unwrap(PGConnection.class);
+      try (CopyWriter writer = new CopyWriter(new PGCopyOutputStream(pgConnection, copy))) {
+        writer.writeHeader();
+        for (Element element : elements) {
+          writeRow(writer, element);
+        }
+      }
+    } catch (IOException | SQLException e) {
+      throw new DatabaseException(e);
+    }
+  }
+
+  private void writeRow(CopyWriter writer, Element element) throws IOException {
+    writer.startRow(columns.size() + 3);
+    writer.writeLong(element.getId());
+    writer.writeString(element instanceof Node ? "node" : element instanceof Way ? "way" : "relation");
+    Map<String, String> tags = element.getTags();
+    for (Column column : columns) {
+      String value = tags.get(column.getKey());
+      switch (column.getType()) {
+        case INTEGER:
+          writer.writeInteger(parseInteger(value));
+          break;
+        case BIGINT:
+          writer.writeLong(parseLong(value));
+          break;
+        case REAL:
+          Double real = parseDouble(value);
+          writer.writeFloat(real != null ? real.floatValue() : null);
+          break;
+        case DOUBLE:
+          writer.writeDouble(parseDouble(value));
+          break;
+        case BOOLEAN:
+          writer.writeBoolean(parseBoolean(value));
+          break;
+        case HSTORE:
+          writer.writeHstore(tags);
+          break;
+        default:
+          writer.writeString(value);
+      }
+    }
+    writer.writeGeometry(element.getGeometry());
+  }
+
+  private static String identifier(String name) {
+    if (name == null || !IDENTIFIER.matcher(name).matches()) {
+      throw new IllegalArgumentException("Invalid table or column name: " + name);
+    }
+    return name;
+  }
+
+  private static String sqlType(Column.Type type) {
+    switch (type) {
+      case INTEGER:
+        return "int";
+      case BIGINT:
+        return "bigint";
+      case REAL:
+        return "real";
+      case DOUBLE:
+        return "double precision";
+      case BOOLEAN:
+        return "boolean";
+      case HSTORE:
+        return "hstore";
+      default:
+        return "text";
+    }
+  }
+
+  private static Integer parseInteger(String value) {
+    if (value == null) {
+      return null;
+    }
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static Long parseLong(String value) {
+    if (value == null) {
+      return null;
+    }
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static Double parseDouble(String value) {
+    if (value == null) {
+      return null;
+    }
+    try {
+      double number = Double.parseDouble(value.trim());
+      return Double.isFinite(number) ? number : null;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static Boolean parseBoolean(String value) {
+    if (value == null) {
+      return null;
+    }
+    switch (value.trim()) {
+      case "yes":
+      case "true":
+      case "1":
+        return true;
+      case "no":
+      case "false":
+      case "0":
+        return false;
+      default:
+        return null;
+    }
+  }
+
+}
@@ -49,6 +49,8 @@ public class PostgresNodeTable implements NodeTable {
 
   private final String copy;
 
+  private final BulkCopyHolder<Node> bulkCopy;
+
   public PostgresNodeTable(DataSource dataSource) {
     this(dataSource,
         "osm_nodes",
@@ -105,6 +107,7 @@ public class PostgresNodeTable implements NodeTable {
         "COPY %1$s (%2$s, %3$s, %4$s, %5$s, %6$s, %7$s, %8$s, %9$s, %10$s) FROM STDIN BINARY",
         nodeTable, idColumn, versionColumn, uidColumn, timestampColumn,
         changesetColumn, tagsColumn, longitudeColumn, latitudeColumn, geometryColumn);
+    this.bulkCopy = new BulkCopyHolder<>(dataSource, copy, this::writeRow);
   }
 
   public Node select(Long id) throws DatabaseException {
@@ -195,25 +198,47 @@ public class PostgresNodeTable implements NodeTable {
     }
   }
 
+  /**
+   * Returns the bulk copy of the table, through which the copies are routed during a bulk load.
+   *
+   * @return the bulk copy
+   */
+  public BulkCopyHolder<Node> getBulkCopy() {
+    return bulkCopy;
+  }
+
   public void copy(List<Node> entities) throws DatabaseException {
     if (entities.isEmpty()) {
       return;
     }
+    if (bulkCopy.write(entities)) {
+      return;
+    }
     try (Connection connection = dataSource.getConnection()) {
+      copy(connection, entities);
+    } catch (SQLException e) {
+      throw new DatabaseException(e);
+    }
+  }
+
+  /**
+   * Copies the entities with a connection provided by the caller, so that the copy can take part in a larger
+   * transaction.
+   *
+   * @param connection
+   * @param entities
+   * @throws DatabaseException
+   */
+  public void copy(Connection connection, List<Node> entities) throws DatabaseException {
+    if (entities.isEmpty()) {
+      return;
+    }
+    try {
       PGConnection pgConnection = connection.unwrap(PGConnection.class);
       try (CopyWriter writer = new CopyWriter(new PGCopyOutputStream(pgConnection, copy))) {
         writer.writeHeader();
         for (Node entity : entities) {
-          writer.startRow(9);
-          writer.writeLong(entity.getId());
-          writer.writeInteger(entity.getInfo().getVersion());
-          writer.writeInteger(entity.getInfo().getUid());
-          writer.writeLocalDateTime(entity.getInfo().getTimestamp());
-          writer.writeLong(entity.getInfo().getChangeset());
-          writer.writeHstore(entity.getTags());
-          writer.writeDouble(entity.getLon());
-          writer.writeDouble(entity.getLat());
-          writer.writeGeometry(entity.getGeometry());
+          writeRow(writer, entity);
         }
       }
     } catch (IOException | SQLException e) {
@@ -221,6 +246,23 @@ public class PostgresNodeTable implements NodeTable {
     }
   }
 
+  private void writeRow(CopyWriter writer, Node entity) throws IOException {
+    writer.startRow(9);
+    writer.writeLong(entity.getId());
+    writer.writeInteger(entity.getInfo().getVersion());
+    writer.writeInteger(entity.getInfo().getUid());
+    if (entity.getInfo().hasTimestamp()) {
+      writer.writeEpochMillis(entity.getInfo().getTimestampMillis());
+    } else {
+      writer.writeNull();
+    }
+    writer.writeLong(entity.getInfo().getChangeset());
+    writer.writeHstore(entity.getTags());
+    writer.writeDouble(entity.getLon());
+    writer.writeDouble(entity.getLat());
+    writer.writeGeometry(entity.getGeometry());
+  }
+
   private Node getEntity(ResultSet result) throws SQLException {
     long id = result.getLong(1);
     int version = result.getInt(2);
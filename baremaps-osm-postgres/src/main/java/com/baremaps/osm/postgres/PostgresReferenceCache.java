@@ -63,6 +63,30 @@ public class PostgresReferenceCache implements ReferenceCache {
     }
   }
 
+  @Override
+  public long[] getReferences(long key) throws CacheException {
+    try (Connection connection = dataSource.getConnection();
+        PreparedStatement statement = connection.prepareStatement(SELECT)) {
+      statement.setLong(1, key);
+      ResultSet result = statement.executeQuery();
+      if (!result.next()) {
+        return null;
+      }
+      Array array = result.getArray(1);
+      if (array == null) {
+        return new long[0];
+      }
+      Long[] nodes = (Long[]) array.getArray();
+      long[] references = new long[nodes.length];
+      for (int i = 0; i < nodes.length; i++) {
+        references[i] = nodes[i];
+      }
+      return references;
+    } catch (SQLException e) {
+      throw new CacheException(e);
+    }
+  }
+
   @Override
   public List<List<Long>> get(List<Long> keys) throws CacheException {
     try (Connection connection = dataSource.getConnection();
@@ -50,6 +50,8 @@ public class PostgresRelationTable implements RelationTable {
 
   private final String copy;
 
+  private final BulkCopyHolder<Relation> bulkCopy;
+
   private final DataSource dataSource;
 
   public PostgresRelationTable(DataSource dataSource) {
@@ -111,6 +113,7 @@ public class PostgresRelationTable implements RelationTable {
         "COPY %1$s (%2$s, %3$s, %4$s, %5$s, %6$s, %7$s, %8$s, %9$s, %10$s, %11$s) FROM STDIN BINARY",
         nodeTable, idColumn, versionColumn, uidColumn, timestampColumn,
         changesetColumn, tagsColumn, memberRefs, memberTypes, memberRoles, geometryColumn);
+    this.bulkCopy = new BulkCopyHolder<>(dataSource, copy, this::writeRow);
   }
 
   public Relation select(Long id) throws DatabaseException {
@@ -204,33 +207,47 @@ public class PostgresRelationTable implements RelationTable {
     }
   }
 
+  /**
+   * Returns the bulk copy of the table, through which the copies are routed during a bulk load.
+   *
+   * @return the bulk copy
+   */
+  public BulkCopyHolder<Relation> getBulkCopy() {
+    return bulkCopy;
+  }
+
   public void copy(List<Relation> entities) throws DatabaseException {
     if (entities.isEmpty()) {
       return;
     }
+    if (bulkCopy.write(entities)) {
+      return;
+    }
     try (Connection connection = dataSource.getConnection()) {
+      copy(connection, entities);
+    } catch (SQLException ex) {
+      throw new DatabaseException(ex);
+    }
+  }
+
+  /**
+   * Copies the entities with a connection provided by the caller, so that the copy can take part in a larger
+   * transaction.
+   *
+   * @param connection
+   * @param entities
+   * @throws DatabaseException
+   */
+  public void copy(Connection connection, List<Relation> entities) throws DatabaseException {
+    if (entities.isEmpty()) {
+      return;
+    }
+    try {
       PGConnection pgConnection = connection.unwrap(PGConnection.class);
       try (CopyWriter writer = new CopyWriter(new PGCopyOutputStream(pgConnection, copy))) {
         writer.writeHeader();
         for (Relation entity : entities) {
-          writer.startRow(10);
-          writer.writeLong(entity.getId());
-          writer.writeInteger(entity.getInfo().getVersion());
-          writer.writeInteger(entity.getInfo().getUid());
-          writer.writeLocalDateTime(entity.getInfo().getTimestamp());
-          writer.writeLong(entity.getInfo().getChangeset());
-          writer.writeHstore(entity.getTags());
-          writer.writeLongList(entity.getMembers().stream()
-              .map(Member::getRef)
-              .collect(Collectors.toList()));
-          writer.writeIntegerList(entity.getMembers().stream()
-              .map(Member::getType)
-              .map(MemberType::ordinal)
-              .collect(Collectors.toList()));
-          writer.writeStringList(entity.getMembers().stream()
-              .map(Member::getRole)
-              .collect(Collectors.toList()));
-          writer.writeGeometry(entity.getGeometry());
+          writeRow(writer, entity);
         }
       }
     } catch (IOException | SQLException ex) {
@@ -238,6 +255,33 @@ public class PostgresRelationTable implements RelationTable {
     }
   }
 
+  private void writeRow(CopyWriter writer, Relation entity) throws IOException {
+    writer.startRow(10);
+    writer.writeLong(entity.getId());
+    writer.writeInteger(entity.getInfo().getVersion());
+    writer.writeInteger(entity.getInfo().getUid());
+    if (entity.getInfo().hasTimestamp()) {
+      writer.writeEpochMillis(entity.getInfo().getTimestampMillis());
+    } else {
+      writer.writeNull();
+    }
+    writer.writeLong(entity.getInfo().getChangeset());
+    writer.writeHstore(entity.getTags());
+    List<Member> members = entity.getMembers();
+    long[] refs = new long[members.size()];
+    int[] types = new int[members.size()];
+    for (int i = 0; i < members.size(); i++) {
+      refs[i] = members.get(i).getRef();
+      types[i] = members.get(i).getType().ordinal();
+    }
+    writer.writeLongArray(refs);
+    writer.writeIntegerArray(types);
+    writer.writeStringList(entity.getMembers().stream()
+        .map(Member::getRole)
+        .collect(Collectors.toList()));
+    writer.writeGeometry(entity.getGeometry());
+  }
+
   private Relation getEntity(ResultSet result) throws SQLException {
     long id = result.getLong(1);
     int version = result.getInt(2);
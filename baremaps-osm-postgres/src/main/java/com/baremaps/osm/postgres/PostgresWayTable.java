@@ -52,6 +52,8 @@ public class PostgresWayTable implements WayTable {
 
   private final String copy;
 
+  private final BulkCopyHolder<Way> bulkCopy;
+
   public PostgresWayTable(DataSource dataSource) {
     this(dataSource,
         "osm_ways",
@@ -105,6 +107,7 @@ public class PostgresWayTable implements WayTable {
         "COPY %1$s (%2$s, %3$s, %4$s, %5$s, %6$s, %7$s, %8$s, %9$s) FROM STDIN BINARY",
         wayTable, idColumn, versionColumn, uidColumn, timestampColumn,
         changesetColumn, tagsColumn, nodesColumn, geometryColumn);
+    this.bulkCopy = new BulkCopyHolder<>(dataSource, copy, this::writeRow);
   }
 
   public Way select(Long id) throws DatabaseException {
@@ -201,24 +204,47 @@ public class PostgresWayTable implements WayTable {
     }
   }
 
+  /**
+   * Returns the bulk copy of the table, through which the copies are routed during a bulk load.
+   *
+   * @return the bulk copy
+   */
+  public BulkCopyHolder<Way> getBulkCopy() {
+    return bulkCopy;
+  }
+
   public void copy(List<Way> entities) throws DatabaseException {
     if (entities.isEmpty()) {
       return;
     }
+    if (bulkCopy.write(entities)) {
+      return;
+    }
     try (Connection connection = dataSource.getConnection()) {
+      copy(connection, entities);
+    } catch (SQLException e) {
+      throw new DatabaseException(e);
+    }
+  }
+
+  /**
+   * Copies the entities with a connection provided by the caller, so that the copy can take part in a larger
+   * transaction.
+   *
+   * @param connection
+   * @param entities
+   * @throws DatabaseException
+   */
+  public void copy(Connection connection, List<Way> entities) throws DatabaseException {
+    if (entities.isEmpty()) {
+      return;
+    }
+    try {
       PGConnection pgConnection = connection.unwrap(PGConnection.class);
       try (CopyWriter writer = new CopyWriter(new PGCopyOutputStream(pgConnection, copy))) {
         writer.writeHeader();
         for (Way entity : entities) {
-          writer.startRow(8);
-          writer.writeLong(entity.getId());
-          writer.writeInteger(entity.getInfo().getVersion());
-          writer.writeInteger(entity.getInfo().getUid());
-          writer.writeLocalDateTime(entity.getInfo().getTimestamp());
-          writer.writeLong(entity.getInfo().getChangeset());
-          writer.writeHstore(entity.getTags());
-          writer.writeLongList(entity.getNodes());
-          writer.writeGeometry(entity.getGeometry());
+          writeRow(writer, entity);
         }
       }
     } catch (IOException | SQLException e) {
@@ -226,6 +252,22 @@ public class PostgresWayTable implements WayTable {
     }
   }
 
+  private void writeRow(CopyWriter writer, Way entity) throws IOException {
+    writer.startRow(8);
+    writer.writeLong(entity.getId());
+    writer.writeInteger(entity.getInfo().getVersion());
+    writer.writeInteger(entity.getInfo().getUid());
+    if (entity.getInfo().hasTimestamp()) {
+      writer.writeEpochMillis(entity.getInfo().getTimestampMillis());
+    } else {
+      writer.writeNull();
+    }
+    writer.writeLong(entity.getInfo().getChangeset());
+    writer.writeHstore(entity.getTags());
+    writer.writeLongList(entity.getNodes());
+    writer.writeGeometry(entity.getGeometry());
+  }
+
   private Way getEntity(ResultSet result) throws SQLException {
     long id = result.getLong(1);
     int version = result.getInt(2);
@@ -0,0 +1,162 @@
+package com.baremaps.osm.postgres;/*
+ * Copyright (C) 2020 The Baremaps Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+import static com.baremaps.osm.postgres.DatabaseConstants.DATABASE_URL;
+import static com.baremaps.osm.postgres.DatabaseConstants.INFO;
+import static com.baremaps.osm.postgres.DatabaseConstants.RELATION_2;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import com.baremaps.osm.database.DatabaseException;
+import com.baremaps.osm.database.ImportPhase;
+import com.baremaps.osm.domain.Node;
+import com.baremaps.osm.domain.Way;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.baremaps.postgres.jdbc.PostgresUtils;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class PostgresBulkLoaderTest {
+
+  DataSource dataSource;
+
+  PostgresNodeTable nodeTable;
+
+  PostgresWayTable wayTable;
+
+  PostgresRelationTable relationTable;
+
+  @BeforeEach
+  void createTable() throws SQLException, IOException {
+    dataSource = PostgresUtils.datasource(DATABASE_URL, 2);
+    nodeTable = new PostgresNodeTable(dataSource);
+    wayTable = new PostgresWayTable(dataSource);
+    relationTable = new PostgresRelationTable(dataSource);
+    try (Connection connection = dataSource.getConnection()) {
+      PostgresUtils.executeResource(connection, "osm_create_extensions.sql");
+      PostgresUtils.executeResource(connection, "osm_drop_tables.sql");
+      PostgresUtils.executeResource(connection, "osm_create_tables.sql");
+    }
+  }
+
+  @Test
+  @Tag("integration")
+  void moreWritersThanConnections() throws SQLException {
+    PostgresBulkLoader bulkLoader =
+        new PostgresBulkLoader(dataSource, nodeTable, wayTable, relationTable, 4, false, 1);
+    assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+      bulkLoader.beforeImport();
+      for (long i = 0; i < 8; i++) {
+        nodeTable.copy(List.of(new Node(i, INFO, ImmutableMap.of(), 0, 0, null)));
+      }
+      // The ways are finished while the writers of the nodes may still hold the connections of the pool.
+      for (long i = 0; i < 32; i++) {
+        wayTable.copy(List.of(new Way(i, INFO, ImmutableMap.of(), ImmutableList.of(0L, 1L), null)));
+      }
+      bulkLoader.afterPhase(ImportPhase.WAYS);
+      bulkLoader.afterPhase(ImportPhase.NODES);
+      relationTable.copy(List.of(RELATION_2));
+      bulkLoader.afterPhase(ImportPhase.RELATIONS);
+      bulkLoader.afterImport();
+    });
+    assertEquals(8, count("osm_nodes"));
+    assertEquals(32, count("osm_ways"));
+    assertEquals(1, count("osm_relations"));
+  }
+
+  @Test
+  @Tag("integration")
+  void unlogged() throws SQLException, DatabaseException {
+    nodeTable.insert(new Node(100, INFO, ImmutableMap.of(), 0, 0, null));
+    PostgresBulkLoader bulkLoader =
+        new PostgresBulkLoader(dataSource, nodeTable, wayTable, relationTable, 2, true, 1);
+    bulkLoader.beforeImport();
+    assertEquals(0, count("osm_nodes"));
+    assertEquals("u", persistence("osm_nodes"));
+    assertFalse(exists("osm_nodes_pkey"));
+    assertFalse(exists("osm_nodes_gix"));
+    for (long i = 0; i < 8; i++) {
+      nodeTable.copy(List.of(new Node(i, INFO, ImmutableMap.of(), 0, 0, null)));
+    }
+    bulkLoader.afterPhase(ImportPhase.NODES);
+    bulkLoader.afterPhase(ImportPhase.WAYS);
+    bulkLoader.afterPhase(ImportPhase.RELATIONS);
+    bulkLoader.afterImport();
+    assertEquals(8, count("osm_nodes"));
+    assertEquals("p", persistence("osm_nodes"));
+    assertEquals("p", persistence("osm_ways"));
+    assertEquals("p", persistence("osm_relations"));
+    assertTrue(exists("osm_nodes_pkey"));
+    assertTrue(exists("osm_nodes_gix"));
+  }
+
+  @Test
+  @Tag("integration")
+  void abort() throws SQLException, DatabaseException {
+    PostgresBulkLoader bulkLoader =
+        new PostgresBulkLoader(dataSource, nodeTable, wayTable, relationTable, 2, false, 1);
+    bulkLoader.beforeImport();
+    for (long i = 0; i < 8; i++) {
+      nodeTable.copy(List.of(new Node(i, INFO, ImmutableMap.of(), 0, 0, null)));
+    }
+    bulkLoader.abort();
+    // The aborted copies are released and subsequent writes go through the regular copies.
+    bulkLoader.afterPhase(ImportPhase.NODES);
+    bulkLoader.afterImport();
+    nodeTable.copy(List.of(new Node(8, INFO, ImmutableMap.of(), 0, 0, null)));
+    assertEquals(1, count("osm_nodes WHERE id = 8"));
+  }
+
+  private String persistence(String table) throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet result = statement.executeQuery(
+            "SELECT relpersistence FROM pg_class WHERE relname = '" + table + "'")) {
+      result.next();
+      return result.getString(1);
+    }
+  }
+
+  private boolean exists(String relation) throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet result = statement.executeQuery(
+            "SELECT count(*) FROM pg_class WHERE relname = '" + relation + "'")) {
+      result.next();
+      return result.getLong(1) > 0;
+    }
+  }
+
+  private long count(String table) throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet result = statement.executeQuery("SELECT count(*) FROM " + table)) {
+      result.next();
+      return result.getLong(1);
+    }
+  }
+
+}
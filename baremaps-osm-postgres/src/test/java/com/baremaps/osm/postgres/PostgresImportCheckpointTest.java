@@ -0,0 +1,101 @@
+package com.baremaps.osm.postgres;/*
+ * Copyright (C) 2020 The Baremaps Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+import static com.baremaps.osm.postgres.DatabaseConstants.DATABASE_URL;
+import static com.baremaps.osm.postgres.DatabaseConstants.NODE_0;
+import static com.baremaps.osm.postgres.DatabaseConstants.NODE_1;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.baremaps.osm.database.DatabaseException;
+import com.baremaps.osm.database.ImportPhase;
+import com.baremaps.osm.domain.DataBlock;
+import com.baremaps.osm.domain.Node;
+import com.baremaps.osm.domain.Way;
+import com.baremaps.postgres.jdbc.PostgresUtils;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class PostgresImportCheckpointTest {
+
+  DataSource dataSource;
+
+  PostgresNodeTable nodeTable;
+
+  PostgresImportCheckpoint checkpoint;
+
+  @BeforeEach
+  void createTable() throws SQLException, IOException, DatabaseException {
+    dataSource = PostgresUtils.datasource(DATABASE_URL);
+    nodeTable = new PostgresNodeTable(dataSource);
+    checkpoint = new PostgresImportCheckpoint(dataSource, nodeTable,
+        new PostgresWayTable(dataSource), new PostgresRelationTable(dataSource));
+    try (Connection connection = dataSource.getConnection()) {
+      PostgresUtils.executeResource(connection, "osm_create_extensions.sql");
+      PostgresUtils.executeResource(connection, "osm_drop_tables.sql");
+      PostgresUtils.executeResource(connection, "osm_create_tables.sql");
+    }
+    checkpoint.reset();
+  }
+
+  @Test
+  @Tag("integration")
+  void commit() throws DatabaseException {
+    checkpoint.commit(ImportPhase.NODES, 3, 42, block(NODE_0));
+    assertEquals(Map.of(3, 42L), checkpoint.committed(ImportPhase.NODES));
+    assertTrue(checkpoint.committed(ImportPhase.WAYS).isEmpty());
+    assertEquals(NODE_0, nodeTable.select(NODE_0.getId()));
+  }
+
+  @Test
+  @Tag("integration")
+  void rollback() throws DatabaseException {
+    checkpoint.commit(ImportPhase.NODES, 3, 42, block(NODE_0));
+    assertThrows(DatabaseException.class, () -> checkpoint.commit(ImportPhase.NODES, 3, 42, block(NODE_1)));
+    assertNull(nodeTable.select(NODE_1.getId()));
+  }
+
+  @Test
+  @Tag("integration")
+  void rollbackOnRuntimeException() throws DatabaseException {
+    // The way has no info, so its row writer throws after the node has been copied.
+    Way way = new Way(1, null, Map.of(), List.of(), null);
+    DataBlock block = new DataBlock(null, List.of(), List.of(NODE_1), List.of(way), List.of());
+    assertThrows(NullPointerException.class, () -> checkpoint.commit(ImportPhase.WAYS, 5, 84, block));
+    assertNull(nodeTable.select(NODE_1.getId()));
+    assertTrue(checkpoint.committed(ImportPhase.WAYS).isEmpty());
+  }
+
+  @Test
+  @Tag("integration")
+  void reset() throws DatabaseException {
+    checkpoint.commit(ImportPhase.NODES, 3, 42, block(NODE_0));
+    checkpoint.reset();
+    assertTrue(checkpoint.committed(ImportPhase.NODES).isEmpty());
+  }
+
+  private static DataBlock block(Node node) {
+    return new DataBlock(null, List.of(), List.of(node), List.of(), List.of());
+  }
+
+}
@@ -0,0 +1,108 @@
+package com.baremaps.osm.postgres;/*
+ * Copyright (C) 2020 The Baremaps Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+import static com.baremaps.osm.postgres.DatabaseConstants.DATABASE_URL;
+import static com.baremaps.osm.postgres.DatabaseConstants.GEOMETRY_FACTORY;
+import static com.baremaps.osm.postgres.DatabaseConstants.INFO;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.baremaps.config.mapping.Column;
+import com.baremaps.config.mapping.Column.Type;
+import com.baremaps.config.mapping.Table;
+import com.baremaps.osm.database.DatabaseException;
+import com.baremaps.osm.domain.Element;
+import com.baremaps.osm.domain.Way;
+import com.baremaps.postgres.jdbc.PostgresUtils;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+
+class PostgresLayerTableTest {
+
+  DataSource dataSource;
+
+  PostgresLayerTable layerTable;
+
+  @BeforeEach
+  void createTable() throws SQLException, IOException, DatabaseException {
+    dataSource = PostgresUtils.datasource(DATABASE_URL);
+    try (Connection connection = dataSource.getConnection()) {
+      PostgresUtils.executeResource(connection, "osm_create_extensions.sql");
+    }
+    Table table = new Table();
+    table.setName("roads");
+    table.setColumns(List.of(
+        column("highway", null, Type.TEXT),
+        column("lanes", null, Type.INTEGER),
+        column("oneway", null, Type.BOOLEAN),
+        column("max_speed", "maxspeed", Type.INTEGER)));
+    layerTable = new PostgresLayerTable(dataSource, table, 4326);
+    layerTable.create();
+  }
+
+  @Test
+  @Tag("integration")
+  void copy() throws DatabaseException, SQLException {
+    Element way = new Way(1, INFO, Map.of("highway", "primary", "lanes", "2", "oneway", "yes", "maxspeed", "50 mph"),
+        List.of(1L, 2L), GEOMETRY_FACTORY.createLineString(new Coordinate[] {new Coordinate(0, 0), new Coordinate(1, 1)}));
+    layerTable.copy(List.of(way));
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet result = statement.executeQuery("SELECT id, type, highway, lanes, oneway, max_speed FROM roads")) {
+      assertTrue(result.next());
+      assertEquals(1, result.getLong(1));
+      assertEquals("way", result.getString(2));
+      assertEquals("primary", result.getString(3));
+      assertEquals(2, result.getInt(4));
+      assertTrue(result.getBoolean(5));
+      result.getInt(6);
+      assertTrue(result.wasNull());
+      assertFalse(result.next());
+    }
+  }
+
+  @Test
+  @Tag("integration")
+  void rejectReservedAndDuplicateColumns() {
+    Table reserved = new Table();
+    reserved.setName("roads");
+    reserved.setColumns(List.of(column("type", null, Type.TEXT)));
+    assertThrows(IllegalArgumentException.class, () -> new PostgresLayerTable(dataSource, reserved, 4326));
+    Table duplicate = new Table();
+    duplicate.setName("roads");
+    duplicate.setColumns(List.of(column("lanes", null, Type.INTEGER), column("lanes", "width", Type.INTEGER)));
+    assertThrows(IllegalArgumentException.class, () -> new PostgresLayerTable(dataSource, duplicate, 4326));
+  }
+
+  private static Column column(String name, String key, Type type) {
+    Column column = new Column();
+    column.setName(name);
+    column.setKey(key);
+    column.setType(type);
+    return column;
+  }
+
+}
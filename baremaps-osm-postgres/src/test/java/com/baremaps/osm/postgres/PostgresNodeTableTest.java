@@ -23,17 +23,27 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 
 import com.baremaps.osm.database.DatabaseException;
 import com.baremaps.osm.domain.Node;
+import com.baremaps.osm.geometry.HilbertCurve;
 import com.baremaps.postgres.jdbc.PostgresUtils;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.sql.DataSource;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.locationtech.jts.geom.Coordinate;
 
 class PostgresNodeTableTest {
 
@@ -94,4 +104,75 @@ class PostgresNodeTableTest {
     assertIterableEquals(nodes,
         nodeStore.select(nodes.stream().map(e -> e.getId()).collect(Collectors.toList())));
   }
+
+  @Test
+  @Tag("integration")
+  void bulkCopy() throws DatabaseException {
+    List<Node> nodes = Arrays.asList(NODE_0, NODE_1, NODE_2);
+    nodeStore.getBulkCopy().start(2, 2);
+    nodeStore.copy(nodes.subList(0, 1));
+    nodeStore.copy(nodes.subList(1, 3));
+    nodeStore.getBulkCopy().finish();
+    assertIterableEquals(nodes,
+        nodeStore.select(nodes.stream().map(e -> e.getId()).collect(Collectors.toList())));
+  }
+
+  @Test
+  @Tag("integration")
+  void clusteredCopy(@TempDir Path directory) throws DatabaseException, SQLException {
+    HilbertCurve curve = HilbertCurve.of(4326);
+    List<Node> nodes = Arrays.asList(NODE_2, NODE_1, NODE_0);
+    nodeStore.getBulkCopy().startClustered(curve, directory, 1, 2);
+    nodeStore.copy(nodes.subList(0, 1));
+    nodeStore.copy(nodes.subList(1, 3));
+    nodeStore.getBulkCopy().finish();
+    List<Long> expected = nodes.stream()
+        .sorted(Comparator.comparingLong(node -> curve.index(node.getGeometry())))
+        .map(Node::getId)
+        .collect(Collectors.toList());
+    List<Long> actual = new ArrayList<>();
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet result = statement.executeQuery("SELECT id FROM osm_nodes ORDER BY ctid")) {
+      while (result.next()) {
+        actual.add(result.getLong(1));
+      }
+    }
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  @Tag("integration")
+  void clusteredCopyInSeveralPasses(@TempDir Path directory) throws DatabaseException, SQLException, IOException {
+    HilbertCurve curve = HilbertCurve.of(4326);
+    List<Node> nodes = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      // Spread the nodes along a diagonal in an order that is not the order of the curve.
+      double x = (i * 37 % 200) - 100;
+      nodes.add(new Node(i, NODE_0.getInfo(), NODE_0.getTags(), x, x / 2,
+          NODE_0.getGeometry().getFactory().createPoint(new Coordinate(x, x / 2))));
+    }
+    // Each copy is spilled in its own run, which requires more runs than can be merged at once.
+    nodeStore.getBulkCopy().startClustered(curve, directory, 1, 64);
+    for (Node node : nodes) {
+      nodeStore.copy(List.of(node));
+    }
+    nodeStore.getBulkCopy().finish();
+    List<Long> expected = nodes.stream()
+        .sorted(Comparator.comparingLong(node -> curve.index(node.getGeometry())))
+        .map(Node::getId)
+        .collect(Collectors.toList());
+    List<Long> actual = new ArrayList<>();
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet result = statement.executeQuery("SELECT id FROM osm_nodes ORDER BY ctid")) {
+      while (result.next()) {
+        actual.add(result.getLong(1));
+      }
+    }
+    assertEquals(expected, actual);
+    try (Stream<Path> runs = Files.list(directory)) {
+      assertEquals(0, runs.count());
+    }
+  }
 }
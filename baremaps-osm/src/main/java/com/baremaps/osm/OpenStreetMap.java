@@ -5,8 +5,10 @@ import com.baremaps.osm.domain.Change;
 import com.baremaps.osm.domain.Entity;
 import com.baremaps.osm.domain.State;
 import com.baremaps.osm.handler.BlockEntityConsumer;
+import com.baremaps.osm.pbf.BlobChannel;
 import com.baremaps.osm.pbf.BlobIterator;
 import com.baremaps.osm.pbf.BlobUtils;
+import com.baremaps.osm.pbf.EntityFilter;
 import com.baremaps.osm.xml.XmlChangeSpliterator;
 import com.baremaps.osm.xml.XmlEntitySpliterator;
 import com.baremaps.stream.StreamException;
@@ -16,6 +18,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
@@ -55,6 +58,19 @@ public class OpenStreetMap {
         Runtime.getRuntime().availableProcessors());
   }
 
+  /**
+   * Creates an ordered stream of OSM blocks from a PBF file in which the dense nodes are decoded as primitive columns.
+   *
+   * @param input
+   * @return
+   */
+  public static Stream<Block> streamPbfColumnarBlocks(InputStream input) {
+    return StreamUtils.bufferInSourceOrder(
+        StreamUtils.stream(new BlobIterator(input)),
+        BlobUtils::readColumnarBlock,
+        Runtime.getRuntime().availableProcessors());
+  }
+
   /**
    * Creates an ordered stream of OSM entities from a PBF file.
    *
@@ -65,6 +81,55 @@ public class OpenStreetMap {
     return streamPbfBlocks(input).flatMap(OpenStreetMap::streamPbfBlockEntities);
   }
 
+  /**
+   * Creates an ordered stream of OSM entities from a PBF file in which only the entities accepted by the filter
+   * are decoded.
+   *
+   * @param input
+   * @param filter
+   * @return
+   */
+  public static Stream<Entity> streamPbfEntities(InputStream input, EntityFilter filter) {
+    return StreamUtils.bufferInSourceOrder(
+        StreamUtils.stream(new BlobIterator(input)),
+        blob -> BlobUtils.readBlock(blob, filter),
+        Runtime.getRuntime().availableProcessors())
+        .flatMap(OpenStreetMap::streamPbfBlockEntities);
+  }
+
+  /**
+   * Creates an ordered parallel stream of OSM blocks from a memory-mapped PBF file.
+   * The stream should be closed in order to release the underlying file channel.
+   *
+   * @param path
+   * @return
+   * @throws IOException
+   */
+  public static Stream<Block> streamPbfBlocks(Path path) throws IOException {
+    BlobChannel channel = BlobChannel.open(path);
+    return StreamSupport.stream(channel.spliterator(), true)
+        .map(BlobUtils::readBlock)
+        .onClose(() -> {
+          try {
+            channel.close();
+          } catch (IOException e) {
+            throw new StreamException(e);
+          }
+        });
+  }
+
+  /**
+   * Creates an ordered parallel stream of OSM entities from a memory-mapped PBF file.
+   * The stream should be closed in order to release the underlying file channel.
+   *
+   * @param path
+   * @return
+   * @throws IOException
+   */
+  public static Stream<Entity> streamPbfEntities(Path path) throws IOException {
+    return streamPbfBlocks(path).flatMap(OpenStreetMap::streamPbfBlockEntities);
+  }
+
   /**
    * Creates an ordered stream of OSM entities from a XML file.
    *
@@ -30,6 +30,13 @@ public interface Cache<K, V> {
 
   void deleteAll(List<K> keys);
 
+  /**
+   * Releases the resources that the cache holds for the threads that have used it (e.g. read transactions),
+   * once these threads are done with the cache.
+   */
+  default void release() {
+  }
+
   class Entry<K, V> {
 
     private final K key;
@@ -1,33 +1,95 @@
 package com.baremaps.osm.cache;
 
 import com.baremaps.osm.cache.Cache.Entry;
+import com.baremaps.osm.domain.ColumnarDataBlock;
 import com.baremaps.osm.domain.DataBlock;
+import com.baremaps.osm.domain.DenseNodeColumns;
+import com.baremaps.osm.domain.Node;
+import com.baremaps.osm.domain.Way;
 import com.baremaps.osm.handler.BlockConsumerAdapter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.locationtech.jts.geom.Coordinate;
 
 public class CacheBlockConsumer implements BlockConsumerAdapter {
 
-  private final Cache<Long, Coordinate> coordiateCache;
+  private final CoordinateCache coordiateCache;
   private final Cache<Long, List<Long>> referenceCache;
+  private final boolean locationsOnWays;
 
-  public CacheBlockConsumer(Cache<Long, Coordinate> coordiateCache, Cache<Long, List<Long>> referenceCache) {
+  public CacheBlockConsumer(CoordinateCache coordiateCache, Cache<Long, List<Long>> referenceCache) {
+    this(coordiateCache, referenceCache, false);
+  }
+
+  /**
+   * Constructs a consumer that fills the caches used to build the geometries.
+   *
+   * <p>When the ways embed the locations of their nodes, the way geometries do not need the coordinate cache.
+   * The coordinates of the nodes are then not cached, and only the locations of the ways are cached so that
+   * the geometries of the relations can still be assembled. Otherwise, the coordinates of the nodes are added
+   * from primitive columns, e.g. the dense node columns of a {@link ColumnarDataBlock}, without boxing the ids
+   * or creating coordinates.
+   *
+   * @param coordiateCache
+   * @param referenceCache
+   * @param locationsOnWays true if the ways embed the locations of their nodes
+   */
+  public CacheBlockConsumer(
+      CoordinateCache coordiateCache,
+      Cache<Long, List<Long>> referenceCache,
+      boolean locationsOnWays) {
     this.coordiateCache = coordiateCache;
     this.referenceCache = referenceCache;
+    this.locationsOnWays = locationsOnWays;
   }
 
   @Override
   public void match(DataBlock dataBlock) throws Exception {
-    coordiateCache.add(dataBlock.getDenseNodes().stream()
-        .map(node -> new Entry<>(node.getId(), new Coordinate(node.getLon(), node.getLat())))
-        .collect(Collectors.toList()));
-    coordiateCache.add(dataBlock.getNodes().stream()
-        .map(node -> new Entry<>(node.getId(), new Coordinate(node.getLon(), node.getLat())))
-        .collect(Collectors.toList()));
+    if (locationsOnWays) {
+      List<Entry<Long, Coordinate>> locations = new ArrayList<>();
+      for (Way way : dataBlock.getWays()) {
+        Coordinate[] coordinates = way.getLocations();
+        if (coordinates != null) {
+          for (int i = 0; i < coordinates.length; i++) {
+            if (coordinates[i] != null) {
+              locations.add(new Entry<>(way.getNodes().get(i), coordinates[i]));
+            }
+          }
+        }
+      }
+      coordiateCache.add(locations);
+      referenceCache.add(dataBlock.getWays().stream()
+          .map(way -> new Entry<>(way.getId(), way.getNodes()))
+          .collect(Collectors.toList()));
+      return;
+    }
+    if (dataBlock instanceof ColumnarDataBlock) {
+      DenseNodeColumns columns = ((ColumnarDataBlock) dataBlock).getDenseNodeColumns();
+      coordiateCache.add(columns.getIds(), columns.getLons(), columns.getLats(), columns.size());
+    } else {
+      addNodes(dataBlock.getDenseNodes());
+    }
+    addNodes(dataBlock.getNodes());
     referenceCache.add(dataBlock.getWays().stream()
         .map(way -> new Entry<>(way.getId(), way.getNodes()))
         .collect(Collectors.toList()));
   }
 
+  private void addNodes(List<Node> nodes) throws CacheException {
+    if (nodes.isEmpty()) {
+      return;
+    }
+    long[] ids = new long[nodes.size()];
+    double[] lons = new double[nodes.size()];
+    double[] lats = new double[nodes.size()];
+    for (int i = 0; i < ids.length; i++) {
+      Node node = nodes.get(i);
+      ids[i] = node.getId();
+      lons[i] = node.getLon();
+      lats[i] = node.getLat();
+    }
+    coordiateCache.add(ids, lons, lats, ids.length);
+  }
+
 }
@@ -1,7 +1,67 @@
 package com.baremaps.osm.cache;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.locationtech.jts.geom.Coordinate;
 
 public interface CoordinateCache extends Cache<Long, Coordinate> {
 
+  /**
+   * Adds the coordinates of the specified keys from columns of longitudes and latitudes, e.g. the columns of
+   * the dense nodes of a block. The caches that store primitive values override this method so that neither
+   * the keys are boxed nor the coordinates are created.
+   *
+   * @param keys   the keys
+   * @param lons   the longitudes
+   * @param lats   the latitudes
+   * @param length the number of keys to add
+   * @throws CacheException
+   */
+  default void add(long[] keys, double[] lons, double[] lats, int length) throws CacheException {
+    List<Entry<Long, Coordinate>> entries = new ArrayList<>(length);
+    for (int i = 0; i < length; i++) {
+      entries.add(new Entry<>(keys[i], new Coordinate(lons[i], lats[i])));
+    }
+    add(entries);
+  }
+
+  /**
+   * Copies the coordinates of the specified keys in an array of interleaved longitudes and latitudes,
+   * without boxing the keys or creating coordinates. The missing coordinates are set to {@code NaN}.
+   *
+   * @param keys        the keys
+   * @param length      the number of keys to look up
+   * @param coordinates the array that receives the {@code 2 * length} ordinates
+   * @return the number of missing coordinates
+   * @throws CacheException
+   */
+  default int get(long[] keys, int length, double[] coordinates) throws CacheException {
+    int missing = 0;
+    for (int i = 0; i < length; i++) {
+      Coordinate coordinate = get(keys[i]);
+      if (coordinate == null) {
+        coordinates[2 * i] = Double.NaN;
+        coordinates[2 * i + 1] = Double.NaN;
+        missing++;
+      } else {
+        coordinates[2 * i] = coordinate.getX();
+        coordinates[2 * i + 1] = coordinate.getY();
+      }
+    }
+    return missing;
+  }
+
+  /**
+   * Copies the coordinates of the specified keys in an array of interleaved longitudes and latitudes.
+   *
+   * @param keys        the keys
+   * @param coordinates the array that receives the ordinates
+   * @return the number of missing coordinates
+   * @throws CacheException
+   * @see #get(long[], int, double[])
+   */
+  default int get(long[] keys, double[] coordinates) throws CacheException {
+    return get(keys, keys.length, coordinates);
+  }
+
 }
@@ -0,0 +1,53 @@
+package com.baremaps.osm.cache;
+
+import org.locationtech.jts.geom.Coordinate;
+
+/**
+ * Encodes the coordinates stored off-heap by the caches as two fixed-point integers with the precision of
+ * OpenStreetMap (1e-7 degree) packed in a long.
+ *
+ * <p>The sign bit of the integers is flipped, so that the zeroes of an unwritten region of memory decode to
+ * {@code Integer.MIN_VALUE}, which is outside of the range of valid coordinates. A zero long therefore
+ * denotes the absence of a coordinate.
+ */
+final class FixedPointCoordinates {
+
+  static final long EMPTY = 0L;
+
+  private static final double PRECISION = 1e7;
+
+  private static final int SIGN = 0x80000000;
+
+  private FixedPointCoordinates() {
+
+  }
+
+  static long encode(Coordinate coordinate) {
+    if (coordinate == null) {
+      return EMPTY;
+    }
+    return encode(coordinate.getX(), coordinate.getY());
+  }
+
+  static long encode(double lon, double lat) {
+    int x = (int) Math.round(lon * PRECISION) ^ SIGN;
+    int y = (int) Math.round(lat * PRECISION) ^ SIGN;
+    return ((long) x << 32) | (y & 0xFFFFFFFFL);
+  }
+
+  static Coordinate decode(long value) {
+    if (value == EMPTY) {
+      return null;
+    }
+    return new Coordinate(lon(value), lat(value));
+  }
+
+  static double lon(long value) {
+    return value == EMPTY ? Double.NaN : ((int) (value >>> 32) ^ SIGN) / PRECISION;
+  }
+
+  static double lat(long value) {
+    return value == EMPTY ? Double.NaN : ((int) value ^ SIGN) / PRECISION;
+  }
+
+}
@@ -26,7 +26,9 @@ public abstract class InMemoryCache<K, V> implements Cache<K, V> {
 
   @Override
   public void add(List<Entry<K, V>> entries) {
-    map.putAll(entries.stream().collect(Collectors.toMap(Entry::key, Entry::value)));
+    for (Entry<K, V> entry : entries) {
+      map.put(entry.key(), entry.value());
+    }
   }
 
   @Override
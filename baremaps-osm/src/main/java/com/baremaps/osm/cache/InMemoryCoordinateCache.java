@@ -2,6 +2,73 @@ package com.baremaps.osm.cache;
 
 import org.locationtech.jts.geom.Coordinate;
 
-public class InMemoryCoordinateCache extends InMemoryCache<Long, Coordinate> implements CoordinateCache{
+/**
+ * An in-memory coordinate cache that stores the coordinates as fixed-point integers packed in the values of
+ * striped open-addressing maps of primitive longs, which takes 20 to 40 bytes per coordinate.
+ */
+public class InMemoryCoordinateCache extends StripedCache<Coordinate> implements CoordinateCache {
+
+  private final LongLongHashMap[] maps = new LongLongHashMap[STRIPES];
+
+  public InMemoryCoordinateCache() {
+    for (int i = 0; i < STRIPES; i++) {
+      maps[i] = new LongLongHashMap();
+    }
+  }
+
+  @Override
+  protected Coordinate read(int stripe, long key) {
+    return FixedPointCoordinates.decode(maps[stripe].get(key, FixedPointCoordinates.EMPTY));
+  }
+
+  @Override
+  protected void write(int stripe, long key, Coordinate value) {
+    if (value == null) {
+      maps[stripe].remove(key);
+    } else {
+      maps[stripe].put(key, FixedPointCoordinates.encode(value));
+    }
+  }
+
+  @Override
+  public void add(long[] keys, double[] lons, double[] lats, int length) {
+    int[] order = new int[length];
+    int[] offsets = sortByStripe(keys, length, order);
+    for (int stripe = 0; stripe < STRIPES; stripe++) {
+      if (offsets[stripe] == offsets[stripe + 1]) {
+        continue;
+      }
+      lock(stripe).writeLock().lock();
+      try {
+        for (int i = offsets[stripe]; i < offsets[stripe + 1]; i++) {
+          int index = order[i];
+          maps[stripe].put(keys[index], FixedPointCoordinates.encode(lons[index], lats[index]));
+        }
+      } finally {
+        lock(stripe).writeLock().unlock();
+      }
+    }
+  }
+
+  @Override
+  public int get(long[] keys, int length, double[] coordinates) {
+    int missing = 0;
+    for (int i = 0; i < length; i++) {
+      int stripe = stripe(keys[i]);
+      long value;
+      lock(stripe).readLock().lock();
+      try {
+        value = maps[stripe].get(keys[i], FixedPointCoordinates.EMPTY);
+      } finally {
+        lock(stripe).readLock().unlock();
+      }
+      if (value == FixedPointCoordinates.EMPTY) {
+        missing++;
+      }
+      coordinates[2 * i] = FixedPointCoordinates.lon(value);
+      coordinates[2 * i + 1] = FixedPointCoordinates.lat(value);
+    }
+    return missing;
+  }
 
 }
@@ -1,7 +1,57 @@
 package com.baremaps.osm.cache;
 
+import java.util.ArrayList;
 import java.util.List;
 
-public class InMemoryReferenceCache extends InMemoryCache<Long, List<Long>> implements ReferenceCache {
+/**
+ * An in-memory reference cache that stores the references as arrays of primitive longs in striped
+ * open-addressing maps.
+ */
+public class InMemoryReferenceCache extends StripedCache<List<Long>> implements ReferenceCache {
+
+  private final List<LongObjectHashMap<long[]>> maps = new ArrayList<>(STRIPES);
+
+  public InMemoryReferenceCache() {
+    for (int i = 0; i < STRIPES; i++) {
+      maps.add(new LongObjectHashMap<>());
+    }
+  }
+
+  @Override
+  protected List<Long> read(int stripe, long key) {
+    long[] references = maps.get(stripe).get(key);
+    if (references == null) {
+      return null;
+    }
+    List<Long> list = new ArrayList<>(references.length);
+    for (long reference : references) {
+      list.add(reference);
+    }
+    return list;
+  }
+
+  @Override
+  protected void write(int stripe, long key, List<Long> value) {
+    if (value == null) {
+      maps.get(stripe).remove(key);
+      return;
+    }
+    long[] references = new long[value.size()];
+    for (int i = 0; i < references.length; i++) {
+      references[i] = value.get(i);
+    }
+    maps.get(stripe).put(key, references);
+  }
+
+  @Override
+  public long[] getReferences(long key) {
+    int stripe = stripe(key);
+    lock(stripe).readLock().lock();
+    try {
+      return maps.get(stripe).get(key);
+    } finally {
+      lock(stripe).readLock().unlock();
+    }
+  }
 
 }
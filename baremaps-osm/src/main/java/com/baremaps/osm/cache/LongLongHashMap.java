@@ -0,0 +1,177 @@
+package com.baremaps.osm.cache;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map of primitive longs with linear probing.
+ *
+ * <p>The keys and the values are stored in parallel arrays, so that no entry object is allocated and no key
+ * is boxed. The map is not thread-safe and {@code Long.MIN_VALUE} cannot be used as a key.
+ */
+final class LongLongHashMap {
+
+  private static final long EMPTY = Long.MIN_VALUE;
+
+  private static final double LOAD_FACTOR = 0.75;
+
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  private long[] keys;
+
+  private long[] values;
+
+  private int mask;
+
+  private int size;
+
+  LongLongHashMap() {
+    this(16);
+  }
+
+  LongLongHashMap(int expectedSize) {
+    int capacity = (int) Math.min(MAX_CAPACITY,
+        Long.highestOneBit(Math.max(16, (long) (expectedSize / LOAD_FACTOR)) - 1) << 1);
+    allocate(capacity);
+  }
+
+  /**
+   * Returns the value of the key, or the default value if the map does not contain the key.
+   *
+   * @param key
+   * @param defaultValue
+   * @return the value
+   */
+  long get(long key, long defaultValue) {
+    int slot = slot(key);
+    while (keys[slot] != EMPTY) {
+      if (keys[slot] == key) {
+        return values[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return defaultValue;
+  }
+
+  /**
+   * Associates the value with the key.
+   *
+   * @param key
+   * @param value
+   */
+  void put(long key, long value) {
+    if (key == EMPTY) {
+      throw new IllegalArgumentException("Long.MIN_VALUE cannot be used as a key");
+    }
+    int slot = slot(key);
+    while (keys[slot] != EMPTY) {
+      if (keys[slot] == key) {
+        values[slot] = value;
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    // At the maximum capacity, the map keeps filling beyond the load factor but keeps an empty slot, so that
+    // the probes terminate.
+    if (size == keys.length - 1) {
+      throw new IllegalStateException("The map is full");
+    }
+    keys[slot] = key;
+    values[slot] = value;
+    if (++size > keys.length * LOAD_FACTOR && keys.length < MAX_CAPACITY) {
+      rehash(keys.length << 1);
+    }
+  }
+
+  /**
+   * Removes the key from the map. The entries that follow it in its probe sequence are shifted back, so that
+   * the removals leave no tombstones and the probes of the remaining keys stay short.
+   *
+   * @param key
+   * @return true if the map contained the key
+   */
+  boolean remove(long key) {
+    int slot = slot(key);
+    while (keys[slot] != EMPTY) {
+      if (keys[slot] == key) {
+        shift(slot);
+        size--;
+        return true;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return false;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of bytes used by the arrays of the map.
+   */
+  long memoryUsage() {
+    return (long) keys.length * Long.BYTES * 2;
+  }
+
+  /**
+   * Spreads the bits of a key (finalizer of MurmurHash3), as the ids are often sequential. The low bits of
+   * the hash select the slots of the maps and the high bits can select the stripes of a striped cache.
+   *
+   * @param key
+   * @return the hash of the key
+   */
+  static long hash(long key) {
+    long hash = key;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  private int slot(long key) {
+    return (int) hash(key) & mask;
+  }
+
+  private void shift(int gap) {
+    int slot = gap;
+    while (true) {
+      slot = (slot + 1) & mask;
+      long key = keys[slot];
+      if (key == EMPTY) {
+        break;
+      }
+      // The entry can fill the gap if the gap lies between its home slot and its slot.
+      if (((slot - slot(key)) & mask) >= ((slot - gap) & mask)) {
+        keys[gap] = key;
+        values[gap] = values[slot];
+        gap = slot;
+      }
+    }
+    keys[gap] = EMPTY;
+    values[gap] = 0L;
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new long[capacity];
+    Arrays.fill(keys, EMPTY);
+    mask = capacity - 1;
+  }
+
+  private void rehash(int capacity) {
+    long[] oldKeys = keys;
+    long[] oldValues = values;
+    allocate(capacity);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY) {
+        int slot = slot(oldKeys[i]);
+        while (keys[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+
+}
@@ -0,0 +1,156 @@
+package com.baremaps.osm.cache;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from primitive longs to objects with linear probing.
+ *
+ * <p>The map is not thread-safe and {@code Long.MIN_VALUE} cannot be used as a key.
+ *
+ * @param <V> the type of the values
+ */
+final class LongObjectHashMap<V> {
+
+  private static final long EMPTY = Long.MIN_VALUE;
+
+  private static final double LOAD_FACTOR = 0.75;
+
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  private long[] keys;
+
+  private Object[] values;
+
+  private int mask;
+
+  private int size;
+
+  LongObjectHashMap() {
+    this(16);
+  }
+
+  LongObjectHashMap(int expectedSize) {
+    int capacity = (int) Math.min(MAX_CAPACITY,
+        Long.highestOneBit(Math.max(16, (long) (expectedSize / LOAD_FACTOR)) - 1) << 1);
+    allocate(capacity);
+  }
+
+  /**
+   * Returns the value of the key, or null if the map does not contain the key.
+   *
+   * @param key
+   * @return the value
+   */
+  @SuppressWarnings("unchecked")
+  V get(long key) {
+    int slot = slot(key);
+    while (keys[slot] != EMPTY) {
+      if (keys[slot] == key) {
+        return (V) values[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return null;
+  }
+
+  /**
+   * Associates the value with the key.
+   *
+   * @param key
+   * @param value
+   */
+  void put(long key, V value) {
+    if (key == EMPTY) {
+      throw new IllegalArgumentException("Long.MIN_VALUE cannot be used as a key");
+    }
+    int slot = slot(key);
+    while (keys[slot] != EMPTY) {
+      if (keys[slot] == key) {
+        values[slot] = value;
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    // At the maximum capacity, the map keeps filling beyond the load factor but keeps an empty slot, so that
+    // the probes terminate.
+    if (size == keys.length - 1) {
+      throw new IllegalStateException("The map is full");
+    }
+    keys[slot] = key;
+    values[slot] = value;
+    if (++size > keys.length * LOAD_FACTOR && keys.length < MAX_CAPACITY) {
+      rehash(keys.length << 1);
+    }
+  }
+
+  /**
+   * Removes the key from the map. The entries that follow it in its probe sequence are shifted back, so that
+   * the removals leave no tombstones and the probes of the remaining keys stay short.
+   *
+   * @param key
+   * @return true if the map contained the key
+   */
+  boolean remove(long key) {
+    int slot = slot(key);
+    while (keys[slot] != EMPTY) {
+      if (keys[slot] == key) {
+        shift(slot);
+        size--;
+        return true;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return false;
+  }
+
+  int size() {
+    return size;
+  }
+
+  private int slot(long key) {
+    return (int) LongLongHashMap.hash(key) & mask;
+  }
+
+  private void shift(int gap) {
+    int slot = gap;
+    while (true) {
+      slot = (slot + 1) & mask;
+      long key = keys[slot];
+      if (key == EMPTY) {
+        break;
+      }
+      // The entry can fill the gap if the gap lies between its home slot and its slot.
+      if (((slot - slot(key)) & mask) >= ((slot - gap) & mask)) {
+        keys[gap] = key;
+        values[gap] = values[slot];
+        gap = slot;
+      }
+    }
+    keys[gap] = EMPTY;
+    values[gap] = null;
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new Object[capacity];
+    Arrays.fill(keys, EMPTY);
+    mask = capacity - 1;
+  }
+
+  private void rehash(int capacity) {
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    allocate(capacity);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY) {
+        int slot = slot(oldKeys[i]);
+        while (keys[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+
+}
@@ -0,0 +1,139 @@
+package com.baremaps.osm.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.locationtech.jts.geom.Coordinate;
+
+/**
+ * A dense coordinate cache backed by a sparse memory-mapped file (also known as flat nodes).
+ *
+ * <p>The coordinate of the node {@code id} is stored at the offset {@code id * 8} of the file as two
+ * fixed-point integers with the precision of OpenStreetMap (1e-7 degree). The file is mapped lazily in
+ * segments, so that it grows with the largest id and only the pages that contain coordinates are allocated
+ * on disk. As each coordinate is written with a single 8-byte store at its own offset, concurrent writers do
+ * not need to be synchronized. The lookups are O(1) and the coordinates do not put any pressure on the heap.
+ */
+public class MappedCoordinateCache implements CoordinateCache, Closeable {
+
+  private static final int DEFAULT_SEGMENT_BITS = 30;
+
+  private final MappedLongArray array;
+
+  /**
+   * Opens or creates a cache with segments of 1 GB.
+   *
+   * @param path the path of the file
+   * @throws IOException
+   */
+  public MappedCoordinateCache(Path path) throws IOException {
+    this(path, DEFAULT_SEGMENT_BITS);
+  }
+
+  /**
+   * Opens or creates a cache.
+   *
+   * @param path        the path of the file
+   * @param segmentBits the base-2 logarithm of the size of the mapped segments in bytes
+   * @throws IOException
+   */
+  public MappedCoordinateCache(Path path, int segmentBits) throws IOException {
+    this.array = new MappedLongArray(path, segmentBits);
+  }
+
+  @Override
+  public Coordinate get(Long key) throws CacheException {
+    return FixedPointCoordinates.decode(value(key));
+  }
+
+  @Override
+  public List<Coordinate> get(List<Long> keys) throws CacheException {
+    List<Coordinate> coordinates = new ArrayList<>(keys.size());
+    for (Long key : keys) {
+      coordinates.add(get(key));
+    }
+    return coordinates;
+  }
+
+  @Override
+  public int get(long[] keys, int length, double[] coordinates) throws CacheException {
+    int missing = 0;
+    for (int i = 0; i < length; i++) {
+      long value = value(keys[i]);
+      if (value == FixedPointCoordinates.EMPTY) {
+        missing++;
+      }
+      coordinates[2 * i] = FixedPointCoordinates.lon(value);
+      coordinates[2 * i + 1] = FixedPointCoordinates.lat(value);
+    }
+    return missing;
+  }
+
+  @Override
+  public void add(Long key, Coordinate value) {
+    write(key, FixedPointCoordinates.encode(value));
+  }
+
+  @Override
+  public void add(List<Entry<Long, Coordinate>> entries) {
+    for (Entry<Long, Coordinate> entry : entries) {
+      add(entry.key(), entry.value());
+    }
+  }
+
+  @Override
+  public void add(long[] keys, double[] lons, double[] lats, int length) {
+    for (int i = 0; i < length; i++) {
+      write(keys[i], FixedPointCoordinates.encode(lons[i], lats[i]));
+    }
+  }
+
+  @Override
+  public void delete(Long key) {
+    write(key, FixedPointCoordinates.EMPTY);
+  }
+
+  @Override
+  public void deleteAll(List<Long> keys) {
+    for (Long key : keys) {
+      delete(key);
+    }
+  }
+
+  /**
+   * Unmaps the segments and closes the file. The mapped regions are released by the garbage collector.
+   *
+   * @throws IOException
+   */
+  @Override
+  public void close() throws IOException {
+    array.close();
+  }
+
+  private long value(long id) throws CacheException {
+    try {
+      return array.get(checkId(id));
+    } catch (IOException e) {
+      throw new CacheException(e);
+    }
+  }
+
+  private void write(long id, long value) {
+    try {
+      array.set(checkId(id), value);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static long checkId(long id) {
+    if (id < 0) {
+      throw new IllegalArgumentException("The ids of the nodes must be positive");
+    }
+    return id;
+  }
+
+}
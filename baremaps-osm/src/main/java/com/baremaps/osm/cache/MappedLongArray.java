@@ -0,0 +1,128 @@
+package com.baremaps.osm.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A dense array of longs backed by a sparse memory-mapped file.
+ *
+ * <p>The value at the index {@code i} is stored at the offset {@code i * 8} of the file. The file is mapped
+ * lazily in segments, so that it grows with the largest index and only the pages that contain values are
+ * allocated on disk. The values that have never been written are 0. As each value is written with a single
+ * 8-byte store at its own offset, concurrent writers of different indexes do not need to be synchronized.
+ */
+final class MappedLongArray implements Closeable {
+
+  private final FileChannel channel;
+
+  private final int segmentBits;
+
+  private final long segmentMask;
+
+  private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+  /**
+   * Opens or creates an array.
+   *
+   * @param path        the path of the file
+   * @param segmentBits the base-2 logarithm of the size of the mapped segments in bytes
+   * @throws IOException
+   */
+  MappedLongArray(Path path, int segmentBits) throws IOException {
+    if (segmentBits < 3 || segmentBits > 30) {
+      throw new IllegalArgumentException("The segment bits must be between 3 and 30");
+    }
+    this.channel = FileChannel.open(path,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE,
+        StandardOpenOption.SPARSE);
+    this.segmentBits = segmentBits;
+    this.segmentMask = (1L << segmentBits) - 1;
+  }
+
+  /**
+   * Returns the value at an index, or 0 if it has never been written.
+   *
+   * @param index a positive index
+   * @return the value
+   * @throws IOException
+   */
+  long get(long index) throws IOException {
+    long position = position(index);
+    MappedByteBuffer segment = segment(position, false);
+    if (segment == null) {
+      return 0;
+    }
+    return segment.getLong((int) (position & segmentMask));
+  }
+
+  /**
+   * Sets the value at an index.
+   *
+   * @param index a positive index
+   * @param value the value
+   * @throws IOException
+   */
+  void set(long index, long value) throws IOException {
+    long position = position(index);
+    segment(position, true).putLong((int) (position & segmentMask), value);
+  }
+
+  /**
+   * Flushes the segments, unmaps them and closes the file. The mapped regions are released by the garbage
+   * collector.
+   *
+   * @throws IOException
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    for (MappedByteBuffer segment : segments) {
+      if (segment != null) {
+        segment.force();
+      }
+    }
+    segments = new MappedByteBuffer[0];
+    channel.close();
+  }
+
+  private long position(long index) {
+    if (index < 0) {
+      throw new IllegalArgumentException("The index must be positive");
+    }
+    return index << 3;
+  }
+
+  private MappedByteBuffer segment(long position, boolean create) throws IOException {
+    int index = (int) (position >>> segmentBits);
+    MappedByteBuffer[] current = segments;
+    if (index < current.length && current[index] != null) {
+      return current[index];
+    }
+    return map(index, create);
+  }
+
+  private synchronized MappedByteBuffer map(int index, boolean create) throws IOException {
+    MappedByteBuffer[] current = segments;
+    if (index < current.length && current[index] != null) {
+      return current[index];
+    }
+    long offset = (long) index << segmentBits;
+    if (!create && offset >= channel.size()) {
+      return null;
+    }
+    // Mapping a region beyond the end of the file extends the file without allocating the pages.
+    MappedByteBuffer segment = channel.map(MapMode.READ_WRITE, offset, 1L << segmentBits);
+    MappedByteBuffer[] updated = Arrays.copyOf(current, Math.max(current.length, index + 1));
+    updated[index] = segment;
+    segments = updated;
+    return segment;
+  }
+
+}
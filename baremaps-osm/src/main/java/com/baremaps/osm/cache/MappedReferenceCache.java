@@ -0,0 +1,284 @@
+package com.baremaps.osm.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A reference cache that appends compressed lists of references to a memory-mapped log.
+ *
+ * <p>Each list is encoded as the varint of its size followed by the zig-zag varints of the deltas between
+ * consecutive references. As the nodes of a way usually have close ids, the lists are 3 to 5 times smaller
+ * than with 8-byte references. The offset of the last list written for each id is kept in a dense
+ * memory-mapped array indexed by id (a sidecar file with the {@code .idx} suffix), so that the index does not
+ * put any pressure on the heap and a lookup consists of a single sequential decode. The ids must be positive.
+ *
+ * <p>The log is append-only: the lists that are replaced or deleted are not reclaimed. When an existing cache
+ * is reopened, its lists remain readable and the new lists are appended from the next segment boundary.
+ */
+public class MappedReferenceCache implements ReferenceCache, Closeable {
+
+  private static final int DEFAULT_SEGMENT_BITS = 30;
+
+  private static final long MISSING = 0;
+
+  private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[1024]);
+
+  private final FileChannel channel;
+
+  private final int segmentBits;
+
+  private final int segmentSize;
+
+  private final MappedLongArray index;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+  private long position = 0;
+
+  /**
+   * Opens or creates a cache with segments of 1 GB.
+   *
+   * @param path the path of the log
+   * @throws IOException
+   */
+  public MappedReferenceCache(Path path) throws IOException {
+    this(path, DEFAULT_SEGMENT_BITS);
+  }
+
+  /**
+   * Opens or creates a cache.
+   *
+   * @param path        the path of the log
+   * @param segmentBits the base-2 logarithm of the size of the mapped segments in bytes
+   * @throws IOException
+   */
+  public MappedReferenceCache(Path path, int segmentBits) throws IOException {
+    if (segmentBits < 10 || segmentBits > 30) {
+      throw new IllegalArgumentException("The segment bits must be between 10 and 30");
+    }
+    this.channel = FileChannel.open(path,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE,
+        StandardOpenOption.SPARSE);
+    this.index = new MappedLongArray(path.resolveSibling(path.getFileName() + ".idx"), segmentBits);
+    this.segmentBits = segmentBits;
+    this.segmentSize = 1 << segmentBits;
+    // The segments are mapped in full, so the size of the log is a segment boundary.
+    this.position = channel.size();
+  }
+
+  @Override
+  public List<Long> get(Long key) {
+    long[] references = getReferences(key);
+    if (references == null) {
+      return null;
+    }
+    List<Long> list = new ArrayList<>(references.length);
+    for (long reference : references) {
+      list.add(reference);
+    }
+    return list;
+  }
+
+  @Override
+  public long[] getReferences(long key) {
+    long offset = offset(key);
+    if (offset < 0) {
+      return null;
+    }
+    int number = (int) (offset >>> segmentBits);
+    MappedByteBuffer segment;
+    lock.readLock().lock();
+    try {
+      segment = number < segments.length ? segments[number] : null;
+    } finally {
+      lock.readLock().unlock();
+    }
+    if (segment == null) {
+      // The segment has been written before the cache was reopened.
+      lock.writeLock().lock();
+      try {
+        segment = segment(number);
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+    ByteBuffer buffer = segment.duplicate();
+    buffer.position((int) (offset & (segmentSize - 1)));
+    int size = (int) readVarint(buffer);
+    long[] references = new long[size];
+    long reference = 0;
+    for (int i = 0; i < size; i++) {
+      long delta = readVarint(buffer);
+      reference += (delta >>> 1) ^ -(delta & 1);
+      references[i] = reference;
+    }
+    return references;
+  }
+
+  @Override
+  public List<List<Long>> get(List<Long> keys) {
+    List<List<Long>> values = new ArrayList<>(keys.size());
+    for (Long key : keys) {
+      values.add(get(key));
+    }
+    return values;
+  }
+
+  @Override
+  public void add(Long key, List<Long> values) {
+    byte[] scratch = SCRATCH.get();
+    if (scratch.length < 5 + values.size() * 10) {
+      scratch = new byte[5 + values.size() * 10];
+      SCRATCH.set(scratch);
+    }
+    int length = writeVarint(scratch, 0, values.size());
+    long previous = 0;
+    for (Long value : values) {
+      long delta = value - previous;
+      length = writeVarint(scratch, length, (delta << 1) ^ (delta >> 63));
+      previous = value;
+    }
+    if (length > segmentSize) {
+      throw new IllegalArgumentException("The list of references is larger than a segment");
+    }
+    MappedByteBuffer segment;
+    long offset;
+    lock.writeLock().lock();
+    try {
+      // The lists never straddle two segments.
+      if ((position & (segmentSize - 1)) + length > segmentSize) {
+        position = ((position >>> segmentBits) + 1) << segmentBits;
+      }
+      offset = position;
+      segment = segment((int) (offset >>> segmentBits));
+      position += length;
+    } finally {
+      lock.writeLock().unlock();
+    }
+    // The bytes are copied outside of the lock, as the reserved region is not shared.
+    ByteBuffer target = segment.duplicate();
+    target.position((int) (offset & (segmentSize - 1)));
+    target.put(scratch, 0, length);
+    // The offsets are shifted by one, so that the unwritten entries of the index are missing.
+    setOffset(key, offset + 1);
+  }
+
+  @Override
+  public void add(List<Entry<Long, List<Long>>> entries) {
+    for (Entry<Long, List<Long>> entry : entries) {
+      add(entry.key(), entry.value());
+    }
+  }
+
+  @Override
+  public void delete(Long key) {
+    setOffset(key, MISSING);
+  }
+
+  @Override
+  public void deleteAll(List<Long> keys) {
+    for (Long key : keys) {
+      delete(key);
+    }
+  }
+
+  /**
+   * Returns the number of bytes appended to the log.
+   */
+  public long size() {
+    lock.readLock().lock();
+    try {
+      return position;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    lock.writeLock().lock();
+    try {
+      for (MappedByteBuffer segment : segments) {
+        if (segment != null) {
+          segment.force();
+        }
+      }
+      segments = new MappedByteBuffer[0];
+      channel.close();
+    } finally {
+      lock.writeLock().unlock();
+      index.close();
+    }
+  }
+
+  /**
+   * Returns the offset of the list of an id in the log, or -1 if the id is missing.
+   */
+  private long offset(long key) {
+    try {
+      return index.get(key) - 1;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void setOffset(long key, long value) {
+    try {
+      index.set(key, value);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private MappedByteBuffer segment(int number) {
+    if (number >= segments.length) {
+      segments = Arrays.copyOf(segments, number + 1);
+    }
+    if (segments[number] == null) {
+      try {
+        segments[number] = channel.map(MapMode.READ_WRITE, (long) number << segmentBits, segmentSize);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return segments[number];
+  }
+
+  private static int writeVarint(byte[] buffer, int position, long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[position++] = (byte) value;
+    return position;
+  }
+
+  private static long readVarint(ByteBuffer buffer) {
+    long value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    return value;
+  }
+
+}
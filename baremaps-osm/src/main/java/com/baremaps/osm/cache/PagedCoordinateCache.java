@@ -0,0 +1,178 @@
+package com.baremaps.osm.cache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.locationtech.jts.geom.Coordinate;
+
+/**
+ * A sparse coordinate cache that stores the coordinates in off-heap pages allocated lazily per range of ids.
+ *
+ * <p>The ids are split in ranges of {@code 2^pageBits} consecutive ids. The page of a range is a direct buffer
+ * that is only allocated when a coordinate of the range is added, and the pages are found with a directory
+ * indexed by the primitive range number. The coordinates are stored as fixed-point integers, so that neither
+ * the keys nor the values are retained as objects. This suits the extracts whose node ids are clustered but
+ * scattered across the whole range of ids, for which a dense cache would mostly be empty.
+ */
+public class PagedCoordinateCache implements CoordinateCache {
+
+  private static final int DEFAULT_PAGE_BITS = 14;
+
+  private final int pageBits;
+
+  private final int pageMask;
+
+  private volatile AtomicReferenceArray<ByteBuffer> directory = new AtomicReferenceArray<>(0);
+
+  private int pageCount = 0;
+
+  /**
+   * Constructs a cache with pages of 16384 coordinates (128 KB).
+   */
+  public PagedCoordinateCache() {
+    this(DEFAULT_PAGE_BITS);
+  }
+
+  /**
+   * Constructs a cache.
+   *
+   * @param pageBits the base-2 logarithm of the number of coordinates per page
+   */
+  public PagedCoordinateCache(int pageBits) {
+    if (pageBits < 1 || pageBits > 27) {
+      throw new IllegalArgumentException("The page bits must be between 1 and 27");
+    }
+    this.pageBits = pageBits;
+    this.pageMask = (1 << pageBits) - 1;
+  }
+
+  @Override
+  public Coordinate get(Long key) {
+    return FixedPointCoordinates.decode(read(key));
+  }
+
+  @Override
+  public List<Coordinate> get(List<Long> keys) {
+    List<Coordinate> coordinates = new ArrayList<>(keys.size());
+    for (Long key : keys) {
+      coordinates.add(get(key));
+    }
+    return coordinates;
+  }
+
+  @Override
+  public int get(long[] keys, int length, double[] coordinates) {
+    int missing = 0;
+    for (int i = 0; i < length; i++) {
+      long value = read(keys[i]);
+      if (value == FixedPointCoordinates.EMPTY) {
+        missing++;
+      }
+      coordinates[2 * i] = FixedPointCoordinates.lon(value);
+      coordinates[2 * i + 1] = FixedPointCoordinates.lat(value);
+    }
+    return missing;
+  }
+
+  @Override
+  public void add(Long key, Coordinate value) {
+    write(key, FixedPointCoordinates.encode(value));
+  }
+
+  @Override
+  public void add(List<Entry<Long, Coordinate>> entries) {
+    for (Entry<Long, Coordinate> entry : entries) {
+      add(entry.key(), entry.value());
+    }
+  }
+
+  @Override
+  public void add(long[] keys, double[] lons, double[] lats, int length) {
+    for (int i = 0; i < length; i++) {
+      write(keys[i], FixedPointCoordinates.encode(lons[i], lats[i]));
+    }
+  }
+
+  @Override
+  public void delete(Long key) {
+    if (page(key, false) != null) {
+      write(key, FixedPointCoordinates.EMPTY);
+    }
+  }
+
+  @Override
+  public void deleteAll(List<Long> keys) {
+    for (Long key : keys) {
+      delete(key);
+    }
+  }
+
+  /**
+   * Returns the number of allocated pages.
+   */
+  public synchronized int pageCount() {
+    return pageCount;
+  }
+
+  /**
+   * Returns the number of bytes used by the cache, including the allocated pages and the directory.
+   */
+  public synchronized long memoryUsage() {
+    return (long) pageCount * pageSize() + (long) directory.length() * Long.BYTES;
+  }
+
+  private long read(long id) {
+    ByteBuffer page = page(id, false);
+    if (page == null) {
+      return FixedPointCoordinates.EMPTY;
+    }
+    return page.getLong((int) (id & pageMask) << 3);
+  }
+
+  private void write(long id, long value) {
+    page(id, true).putLong((int) (id & pageMask) << 3, value);
+  }
+
+  private int pageSize() {
+    return (1 << pageBits) * Long.BYTES;
+  }
+
+  private ByteBuffer page(long id, boolean create) {
+    if (id < 0) {
+      throw new IllegalArgumentException("The ids of the nodes must be positive");
+    }
+    long index = id >>> pageBits;
+    if (index >= Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("The id is too large for the page size");
+    }
+    AtomicReferenceArray<ByteBuffer> current = directory;
+    ByteBuffer page = index < current.length() ? current.get((int) index) : null;
+    if (page == null && create) {
+      page = allocate((int) index);
+    }
+    return page;
+  }
+
+  private synchronized ByteBuffer allocate(int index) {
+    AtomicReferenceArray<ByteBuffer> current = directory;
+    if (index < current.length() && current.get(index) != null) {
+      return current.get(index);
+    }
+    if (index >= current.length()) {
+      // Grow the directory geometrically and publish it once the existing pages have been copied.
+      AtomicReferenceArray<ByteBuffer> updated = new AtomicReferenceArray<>(
+          Math.max(index + 1, current.length() + (current.length() >> 1)));
+      for (int i = 0; i < current.length(); i++) {
+        updated.set(i, current.get(i));
+      }
+      directory = updated;
+      current = updated;
+    }
+    ByteBuffer page = ByteBuffer.allocateDirect(pageSize());
+    current.set(index, page);
+    pageCount++;
+    return page;
+  }
+
+}
@@ -4,4 +4,23 @@ import java.util.List;
 
 public interface ReferenceCache extends Cache<Long, List<Long>>{
 
+  /**
+   * Returns the references of the specified key as an array of primitive longs.
+   *
+   * @param key the key
+   * @return the references or null if the cache does not contain the key
+   * @throws CacheException
+   */
+  default long[] getReferences(long key) throws CacheException {
+    List<Long> references = get(key);
+    if (references == null) {
+      return null;
+    }
+    long[] array = new long[references.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = references.get(i);
+    }
+    return array;
+  }
+
 }
@@ -0,0 +1,143 @@
+package com.baremaps.osm.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A base class for the in-memory caches whose entries are spread over stripes of primitive maps.
+ *
+ * <p>The stripe of a key is selected by the high bits of its hash and each stripe is guarded by its own
+ * read-write lock, so that the blocks can be inserted and read concurrently. A bulk insert groups its entries
+ * by stripe and locks each stripe only once.
+ *
+ * @param <V> the type of the values
+ */
+abstract class StripedCache<V> implements Cache<Long, V> {
+
+  protected static final int STRIPE_BITS = 6;
+
+  protected static final int STRIPES = 1 << STRIPE_BITS;
+
+  private final ReadWriteLock[] locks = new ReadWriteLock[STRIPES];
+
+  protected StripedCache() {
+    for (int i = 0; i < STRIPES; i++) {
+      locks[i] = new ReentrantReadWriteLock();
+    }
+  }
+
+  /**
+   * Returns the value of a key, while the read lock of its stripe is held.
+   */
+  protected abstract V read(int stripe, long key);
+
+  /**
+   * Sets the value of a key (null to delete it), while the write lock of its stripe is held.
+   */
+  protected abstract void write(int stripe, long key, V value);
+
+  protected static int stripe(long key) {
+    return (int) (LongLongHashMap.hash(key) >>> (Long.SIZE - STRIPE_BITS));
+  }
+
+  protected ReadWriteLock lock(int stripe) {
+    return locks[stripe];
+  }
+
+  /**
+   * Sorts the indices of the keys by stripe with a counting sort, so that a bulk insert can lock each stripe
+   * only once. The indices of the keys of the stripe {@code s} are stored in {@code order} from
+   * {@code offsets[s]} (inclusive) to {@code offsets[s + 1]} (exclusive).
+   *
+   * @param keys   the keys
+   * @param length the number of keys
+   * @param order  the array that receives the sorted indices
+   * @return the offsets of the stripes in the sorted indices
+   */
+  protected static int[] sortByStripe(long[] keys, int length, int[] order) {
+    int[] stripes = new int[length];
+    int[] offsets = new int[STRIPES + 1];
+    for (int i = 0; i < length; i++) {
+      stripes[i] = stripe(keys[i]);
+      offsets[stripes[i] + 1]++;
+    }
+    for (int i = 0; i < STRIPES; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+    int[] positions = offsets.clone();
+    for (int i = 0; i < length; i++) {
+      order[positions[stripes[i]]++] = i;
+    }
+    return offsets;
+  }
+
+  @Override
+  public V get(Long key) {
+    int stripe = stripe(key);
+    lock(stripe).readLock().lock();
+    try {
+      return read(stripe, key);
+    } finally {
+      lock(stripe).readLock().unlock();
+    }
+  }
+
+  @Override
+  public List<V> get(List<Long> keys) {
+    List<V> values = new ArrayList<>(keys.size());
+    for (Long key : keys) {
+      values.add(get(key));
+    }
+    return values;
+  }
+
+  @Override
+  public void add(Long key, V value) {
+    int stripe = stripe(key);
+    lock(stripe).writeLock().lock();
+    try {
+      write(stripe, key, value);
+    } finally {
+      lock(stripe).writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void add(List<Entry<Long, V>> entries) {
+    long[] keys = new long[entries.size()];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = entries.get(i).key();
+    }
+    int[] order = new int[keys.length];
+    int[] offsets = sortByStripe(keys, keys.length, order);
+    for (int stripe = 0; stripe < STRIPES; stripe++) {
+      if (offsets[stripe] == offsets[stripe + 1]) {
+        continue;
+      }
+      lock(stripe).writeLock().lock();
+      try {
+        for (int i = offsets[stripe]; i < offsets[stripe + 1]; i++) {
+          Entry<Long, V> entry = entries.get(order[i]);
+          write(stripe, entry.key(), entry.value());
+        }
+      } finally {
+        lock(stripe).writeLock().unlock();
+      }
+    }
+  }
+
+  @Override
+  public void delete(Long key) {
+    add(key, null);
+  }
+
+  @Override
+  public void deleteAll(List<Long> keys) {
+    for (Long key : keys) {
+      delete(key);
+    }
+  }
+
+}
@@ -0,0 +1,38 @@
+package com.baremaps.osm.database;
+
+/**
+ * Prepares the tables before an import and finalizes them once all the entities have been copied.
+ */
+public interface BulkLoader {
+
+  /**
+   * Prepares the tables before the first entity is copied.
+   *
+   * @throws DatabaseException
+   */
+  void beforeImport() throws DatabaseException;
+
+  /**
+   * Finalizes the copies of a phase once all its entities have been copied, so that the resources they hold
+   * (e.g. connections) are released before the next phase starts.
+   *
+   * @param phase the completed phase
+   * @throws DatabaseException
+   */
+  void afterPhase(ImportPhase phase) throws DatabaseException;
+
+  /**
+   * Finalizes the tables once all the entities have been copied (e.g. waits for the pending copies and builds
+   * the constraints and the indexes).
+   *
+   * @throws DatabaseException
+   */
+  void afterImport() throws DatabaseException;
+
+  /**
+   * Discards the pending copies and releases their resources after a failed import. The entities that have
+   * already been committed are kept.
+   */
+  void abort();
+
+}
@@ -20,6 +20,10 @@ public class DatabaseException extends Exception {
     super();
   }
 
+  public DatabaseException(String message) {
+    super(message);
+  }
+
   public DatabaseException(Exception e) {
     super(e);
   }
@@ -0,0 +1,48 @@
+package com.baremaps.osm.database;
+
+import com.baremaps.osm.domain.DataBlock;
+import java.util.Map;
+
+/**
+ * Records the blobs whose entities have been committed during an import, so that a failed import can be
+ * resumed without saving an entity twice.
+ *
+ * <p>The entities of a blob and the record of the blob are committed in the same transaction. As the blobs
+ * of a phase are processed in parallel, a checkpoint is the set of committed blobs of each phase rather than
+ * a single position in the file.
+ *
+ * <p>The coordinate and reference caches are not part of a checkpoint: their content may be ahead of the
+ * committed blobs when an import fails. A resumed import therefore starts with empty caches and decodes the
+ * committed node and way blobs again to fill them, without saving their entities, before it saves the
+ * remaining blobs.
+ */
+public interface ImportCheckpoint {
+
+  /**
+   * Removes the recorded blobs, e.g. before a new import or once an import has completed.
+   *
+   * @throws DatabaseException
+   */
+  void reset() throws DatabaseException;
+
+  /**
+   * Returns the blobs committed in a phase.
+   *
+   * @param phase
+   * @return the offsets of the committed blobs in the file by index
+   * @throws DatabaseException
+   */
+  Map<Integer, Long> committed(ImportPhase phase) throws DatabaseException;
+
+  /**
+   * Saves the entities of a blob and records the blob in a single transaction.
+   *
+   * @param phase
+   * @param index  the index of the blob in the file
+   * @param offset the offset of the blob in the file
+   * @param block  the entities of the blob
+   * @throws DatabaseException
+   */
+  void commit(ImportPhase phase, int index, long offset, DataBlock block) throws DatabaseException;
+
+}
@@ -0,0 +1,8 @@
+package com.baremaps.osm.database;
+
+/**
+ * The phases of an import, which are separated by barriers.
+ */
+public enum ImportPhase {
+  NODES, WAYS, RELATIONS
+}
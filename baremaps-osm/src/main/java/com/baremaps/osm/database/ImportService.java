@@ -1,44 +1,105 @@
 package com.baremaps.osm.database;
 
-import static com.baremaps.osm.OpenStreetMap.streamPbfBlocks;
-import static com.baremaps.stream.ConsumerUtils.consumeThenReturn;
-import static com.baremaps.stream.StreamUtils.batch;
-
 import com.baremaps.blob.BlobStore;
 import com.baremaps.osm.cache.Cache;
 import com.baremaps.osm.cache.CacheBlockConsumer;
 import com.baremaps.osm.cache.CoordinateCache;
 import com.baremaps.osm.cache.ReferenceCache;
+import com.baremaps.osm.domain.Blob;
 import com.baremaps.osm.domain.Block;
+import com.baremaps.osm.domain.DataBlock;
+import com.baremaps.osm.domain.Element;
 import com.baremaps.osm.domain.Entity;
+import com.baremaps.osm.domain.HeaderBlock;
+import com.baremaps.osm.domain.Member.MemberType;
 import com.baremaps.osm.geometry.CreateGeometryConsumer;
 import com.baremaps.osm.geometry.ReprojectGeometryConsumer;
 import com.baremaps.osm.handler.BlockEntityConsumer;
-import com.baremaps.osm.progress.InputStreamProgress;
+import com.baremaps.osm.pbf.BlobChannel;
+import com.baremaps.osm.pbf.BlobIndex;
+import com.baremaps.osm.pbf.BlobUtils;
+import com.baremaps.osm.pbf.DataBlockDecoder;
+import com.baremaps.osm.pbf.EntityFilter;
+import com.baremaps.osm.pbf.StringInterner;
 import com.baremaps.osm.progress.ProgressLogger;
+import com.baremaps.stream.StreamException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
-import java.util.function.Function;
-import org.locationtech.jts.geom.Coordinate;
+import java.util.function.IntPredicate;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.IntStream;
+import java.util.zip.DataFormatException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Imports a PBF file in the database in three phases separated by barriers.
+ *
+ * <p>The nodes are decoded, cached and saved first. Once all the coordinates are in the cache, the ways are
+ * decoded, cached and saved, and once all the references are in the cache, the relations are decoded and saved.
+ * As the geometries of a phase only depend on the caches filled by the previous phases, the blobs of a phase
+ * can be processed in any order and with any degree of parallelism. The blobs are read through a
+ * {@link BlobChannel}, so that the second and third phases only read the blobs that contain ways or relations.
+ * The types of the blobs are taken from the sidecar {@link BlobIndex} when it exists and are otherwise found by
+ * the node phase, and each phase only decodes the entities of its own type.
+ *
+ * <p>With an {@link EntityFilter}, only the accepted entities are saved. The filter is pushed down into the
+ * decoder when no later phase needs the rejected entities: the nodes and the ways are otherwise decoded and cached
+ * before being filtered, as the geometries of the accepted ways and relations may depend on them. The phases of
+ * the types that are neither accepted nor needed are skipped, together with their blobs.
+ *
+ * <p>With an {@link ImportCheckpoint}, the entities of each blob are committed together with the record of
+ * the blob, and a resumed import skips the blobs committed by the failed one. The caches are not persisted
+ * with the checkpoints: the nodes and the ways of the committed blobs are decoded again to refill the caches,
+ * but their geometries are neither built nor saved.
+ */
 public class ImportService implements Callable<Void> {
 
   private static final Logger logger = LoggerFactory.getLogger(ImportService.class);
 
+  private static final EntityFilter NODES =
+      new EntityFilter(true, false, false, Collections.emptyList(), Collections.emptyList());
+
+  private static final EntityFilter WAYS =
+      new EntityFilter(false, true, false, Collections.emptyList(), Collections.emptyList());
+
+  private static final EntityFilter RELATIONS =
+      new EntityFilter(false, false, true, Collections.emptyList(), Collections.emptyList());
+
   private final URI uri;
   private final BlobStore blobStore;
-  private final Cache<Long, Coordinate> coordinateCache;
+  private final CoordinateCache coordinateCache;
   private final Cache<Long, List<Long>> referenceCache;
   private final HeaderTable headerTable;
   private final NodeTable nodeTable;
   private final WayTable wayTable;
   private final RelationTable relationTable;
   private final int srid;
+  private final int nodeParallelism;
+  private final int wayParallelism;
+  private final int relationParallelism;
+  private final BulkLoader bulkLoader;
+  private final ImportCheckpoint checkpoint;
+  private final boolean resume;
+  private final List<LayerTable> layerTables;
+  private final EntityFilter filter;
 
   public ImportService(
       URI uri,
@@ -50,34 +111,492 @@ public class ImportService implements Callable<Void> {
       WayTable wayTable,
       RelationTable relationTable,
       int srid) {
-    this.uri = uri;
-    this.blobStore = blobStore;
-    this.coordinateCache = coordinateCache;
-    this.referenceCache = referenceCache;
-    this.headerTable = headerTable;
-    this.nodeTable = nodeTable;
-    this.wayTable = wayTable;
-    this.relationTable = relationTable;
-    this.srid = srid;
+    this(builder(uri, blobStore, coordinateCache, referenceCache, headerTable, nodeTable, wayTable, relationTable,
+        srid));
+  }
+
+  private ImportService(Builder builder) {
+    if (builder.checkpoint != null && !builder.layerTables.isEmpty()) {
+      throw new IllegalArgumentException("The layer tables cannot be checkpointed");
+    }
+    if (builder.resume && builder.checkpoint == null) {
+      throw new IllegalArgumentException("A checkpoint is required to resume an import");
+    }
+    this.uri = builder.uri;
+    this.blobStore = builder.blobStore;
+    this.coordinateCache = builder.coordinateCache;
+    this.referenceCache = builder.referenceCache;
+    this.headerTable = builder.headerTable;
+    this.nodeTable = builder.nodeTable;
+    this.wayTable = builder.wayTable;
+    this.relationTable = builder.relationTable;
+    this.srid = builder.srid;
+    this.nodeParallelism = builder.nodeParallelism;
+    this.wayParallelism = builder.wayParallelism;
+    this.relationParallelism = builder.relationParallelism;
+    this.bulkLoader = builder.bulkLoader;
+    this.checkpoint = builder.checkpoint;
+    this.resume = builder.resume;
+    this.layerTables = builder.layerTables;
+    this.filter = builder.filter;
+  }
+
+  /**
+   * Returns a builder for an import service with the required components. The optional components default to
+   * one thread per processor in each phase, no bulk loader, no checkpoint, no layer table and no filter.
+   *
+   * @param uri
+   * @param blobStore
+   * @param coordinateCache
+   * @param referenceCache
+   * @param headerTable
+   * @param nodeTable
+   * @param wayTable
+   * @param relationTable
+   * @param srid
+   * @return the builder
+   */
+  public static Builder builder(
+      URI uri,
+      BlobStore blobStore,
+      CoordinateCache coordinateCache,
+      ReferenceCache referenceCache,
+      HeaderTable headerTable,
+      NodeTable nodeTable,
+      WayTable wayTable,
+      RelationTable relationTable,
+      int srid) {
+    return new Builder(uri, blobStore, coordinateCache, referenceCache, headerTable, nodeTable, wayTable,
+        relationTable, srid);
   }
 
   @Override
   public Void call() throws Exception {
+    boolean completed = false;
+    try {
+      importData();
+      completed = true;
+    } finally {
+      // Release the pending copies of a failed import, whatever the phase that failed.
+      if (!completed && bulkLoader != null) {
+        bulkLoader.abort();
+      }
+    }
+    return null;
+  }
+
+  private void importData() throws Exception {
     logger.info("Importing data");
+    long start = System.currentTimeMillis();
 
-    Consumer<Block> cacheBlock = new CacheBlockConsumer(coordinateCache, referenceCache);
-    Consumer<Entity> createGeometry = new CreateGeometryConsumer(coordinateCache, referenceCache);
-    Consumer<Entity> reprojectGeometry = new ReprojectGeometryConsumer(4326, srid);
-    Consumer<Block> prepareGeometries = new BlockEntityConsumer(createGeometry.andThen(reprojectGeometry));
-    Function<Block, Block> prepareBlock = consumeThenReturn(cacheBlock.andThen(prepareGeometries));
-    Consumer<Block> saveBlock = new SaveBlockConsumer(headerTable, nodeTable, wayTable, relationTable);
+    if (bulkLoader != null) {
+      bulkLoader.beforeImport();
+      logger.info("Prepared the tables in {} ms", System.currentTimeMillis() - start);
+    }
+
+    Path path = localPath();
+    BlobIndex index = readIndex(path);
+    try (BlobChannel channel = open(path, index)) {
+      int count = channel.count();
+      Consumer<Entity> createGeometry = new CreateGeometryConsumer(coordinateCache, referenceCache);
+      Consumer<Entity> reprojectGeometry = new ReprojectGeometryConsumer(4326, srid);
+      Consumer<Block> prepareGeometries = new BlockEntityConsumer(createGeometry.andThen(reprojectGeometry));
+      Consumer<Block> saveEntities = new SaveBlockConsumer(headerTable, nodeTable, wayTable, relationTable);
+      Consumer<Block> saveBlock = layerTables.isEmpty()
+          ? saveEntities
+          : saveEntities.andThen(new SaveLayerConsumer(layerTables));
+
+      boolean locationsOnWays = false;
+      int first = 0;
+      if (count > 0) {
+        Blob blob = channel.read(0);
+        if ("OSMHeader".equals(blob.header().getType())) {
+          HeaderBlock headerBlock = BlobUtils.readHeaderBlock(blob);
+          locationsOnWays = headerBlock.getHeader().hasLocationsOnWays();
+          prepareGeometries.andThen(saveBlock).accept(headerBlock);
+          first = 1;
+        }
+      }
+      if (locationsOnWays) {
+        logger.info("Using the locations embedded in the ways");
+      }
+
+      Consumer<Block> cacheBlock = new CacheBlockConsumer(coordinateCache, referenceCache, locationsOnWays);
+
+      // Without an index, the types of the blobs are found by the node phase.
+      boolean[] hasNodes = new boolean[count];
+      boolean[] hasWays = new boolean[count];
+      boolean[] hasRelations = new boolean[count];
+      for (int i = 0; i < count; i++) {
+        hasNodes[i] = index == null || index.getEntries().get(i).hasType(MemberType.NODE);
+        hasWays[i] = index != null && index.getEntries().get(i).hasType(MemberType.WAY);
+        hasRelations[i] = index != null && index.getEntries().get(i).hasType(MemberType.RELATION);
+      }
+      long[] offsets = channel.offsets();
+
+      // The cached entities are filtered after they have been cached.
+      boolean cacheNodes = filter.acceptWays() || filter.acceptRelations();
+      boolean cacheWays = filter.acceptRelations();
+      EntityFilter nodeFilter = cacheNodes ? NODES : filter.restrict(true, false, false);
+      EntityFilter wayFilter = cacheWays ? WAYS : filter.restrict(false, true, false);
+      EntityFilter relationFilter = filter.restrict(false, false, true);
 
-    ProgressLogger progressLogger = new ProgressLogger(blobStore.size(uri), 5000);
-    try (InputStream inputStream = new InputStreamProgress(blobStore.read(this.uri), progressLogger)) {
-      batch(streamPbfBlocks(inputStream).map(prepareBlock)).forEach(saveBlock);
+      if (checkpoint != null && !resume) {
+        checkpoint.reset();
+      }
+      boolean[] nodesCommitted = committed(ImportPhase.NODES, offsets, count);
+      boolean[] waysCommitted = committed(ImportPhase.WAYS, offsets, count);
+      boolean[] relationsCommitted = committed(ImportPhase.RELATIONS, offsets, count);
+
+      if (filter.acceptNodes() || cacheNodes) {
+        logger.info("Importing nodes");
+        long phaseStart = System.currentTimeMillis();
+        phase(channel, offsets, first, count, i -> hasNodes[i], nodeParallelism, (blob, i) -> {
+          if (!"OSMData".equals(blob.header().getType())) {
+            return;
+          }
+          DataBlock nodes;
+          try (DataBlockDecoder decoder = new DataBlockDecoder(blob, nodeFilter)) {
+            if (index == null) {
+              hasWays[i] = decoder.contains(MemberType.WAY);
+              hasRelations[i] = decoder.contains(MemberType.RELATION);
+            }
+            nodes = decoder.decodeDataBlock();
+          } catch (DataFormatException | IOException e) {
+            throw new StreamException(e);
+          }
+          cacheBlock.accept(nodes);
+          if (!nodesCommitted[i]) {
+            DataBlock selected = nodeFilter == NODES ? select(nodes) : nodes;
+            prepareGeometries.accept(selected);
+            save(saveBlock, ImportPhase.NODES, i, offsets[i], selected);
+          }
+        });
+        afterPhase(ImportPhase.NODES);
+        logger.info("Imported the nodes in {} ms", System.currentTimeMillis() - phaseStart);
+      }
+
+      if (filter.acceptWays() || cacheWays) {
+        logger.info("Importing ways");
+        long phaseStart = System.currentTimeMillis();
+        phase(channel, offsets, first, count, i -> hasWays[i], wayParallelism, (blob, i) -> {
+          DataBlock ways = BlobUtils.decodeDataBlock(blob, wayFilter);
+          cacheBlock.accept(ways);
+          if (!waysCommitted[i]) {
+            DataBlock selected = wayFilter == WAYS ? select(ways) : ways;
+            prepareGeometries.accept(selected);
+            save(saveBlock, ImportPhase.WAYS, i, offsets[i], selected);
+          }
+        });
+        afterPhase(ImportPhase.WAYS);
+        logger.info("Imported the ways in {} ms", System.currentTimeMillis() - phaseStart);
+      }
+
+      if (filter.acceptRelations()) {
+        logger.info("Importing relations");
+        long phaseStart = System.currentTimeMillis();
+        phase(channel, offsets, first, count, i -> hasRelations[i] && !relationsCommitted[i], relationParallelism,
+            (blob, i) -> {
+          DataBlock relations = BlobUtils.decodeDataBlock(blob, relationFilter);
+          prepareGeometries.accept(relations);
+          save(saveBlock, ImportPhase.RELATIONS, i, offsets[i], relations);
+        });
+        afterPhase(ImportPhase.RELATIONS);
+        logger.info("Imported the relations in {} ms", System.currentTimeMillis() - phaseStart);
+      }
+    } finally {
+      if (!isLocal(uri)) {
+        Files.deleteIfExists(path);
+      }
+    }
+
+    if (bulkLoader != null) {
+      long finishStart = System.currentTimeMillis();
+      bulkLoader.afterImport();
+      logger.info("Finalized the tables in {} ms", System.currentTimeMillis() - finishStart);
+    }
+
+    if (checkpoint != null) {
+      checkpoint.reset();
+    }
+
+    logger.info("Imported the data in {} ms", System.currentTimeMillis() - start);
+
+    StringInterner interner = StringInterner.getDefault();
+    logger.info("Interned {} strings with a hit rate of {} and {} evictions", interner.size(), interner.hitRate(),
+        interner.evictions());
+  }
+
+  private void afterPhase(ImportPhase phase) throws DatabaseException {
+    if (bulkLoader != null) {
+      bulkLoader.afterPhase(phase);
+    }
+  }
+
+  /**
+   * Returns the blobs of a phase committed by a previous import, after checking that they match the offsets of
+   * the file.
+   */
+  private boolean[] committed(ImportPhase phase, long[] offsets, int count) throws DatabaseException {
+    boolean[] committed = new boolean[count];
+    if (!resume) {
+      return committed;
+    }
+    Map<Integer, Long> blobs = checkpoint.committed(phase);
+    for (Map.Entry<Integer, Long> blob : blobs.entrySet()) {
+      int index = blob.getKey();
+      if (index < 0 || index >= count || offsets[index] != blob.getValue()) {
+        throw new DatabaseException("The checkpoints do not match the file " + uri);
+      }
+      committed[index] = true;
+    }
+    if (!blobs.isEmpty()) {
+      logger.info("Resuming the {} phase after {} committed blobs", phase.name().toLowerCase(), blobs.size());
+    }
+    return committed;
+  }
+
+  /**
+   * Returns the entities of a block accepted by the filter.
+   */
+  private DataBlock select(DataBlock block) {
+    if (filter.isAll()) {
+      return block;
+    }
+    return new DataBlock(
+        block.getBlob(),
+        select(block.getDenseNodes()),
+        select(block.getNodes()),
+        select(block.getWays()),
+        select(block.getRelations()));
+  }
+
+  private <T extends Element> List<T> select(List<T> elements) {
+    List<T> selected = new ArrayList<>();
+    for (T element : elements) {
+      if (filter.accept(element)) {
+        selected.add(element);
+      }
+    }
+    return selected;
+  }
+
+  /**
+   * Saves a block, together with its checkpoint if the import is checkpointed.
+   */
+  private void save(Consumer<Block> saveBlock, ImportPhase phase, int index, long offset, DataBlock block) {
+    if (checkpoint == null) {
+      saveBlock.accept(block);
+      return;
+    }
+    try {
+      checkpoint.commit(phase, index, offset, block);
+    } catch (DatabaseException e) {
+      throw new StreamException(e);
+    }
+  }
+
+  /**
+   * Processes the selected blobs of a phase in a dedicated pool. The method returns once all the blobs have
+   * been processed, which acts as a barrier between the phases.
+   */
+  private void phase(
+      BlobChannel channel,
+      long[] offsets,
+      int first,
+      int count,
+      IntPredicate selected,
+      int parallelism,
+      ObjIntConsumer<Blob> consumer) throws InterruptedException, ExecutionException {
+    long size = 0;
+    for (int i = first; i < count; i++) {
+      if (selected.test(i)) {
+        size += offsets[i + 1] - offsets[i];
+      }
+    }
+    ProgressLogger progressLogger = new ProgressLogger(size, 5000);
+    AtomicLong position = new AtomicLong();
+    ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+    try {
+      pool.submit(() -> IntStream.range(first, count).parallel()
+          .filter(selected::test)
+          .forEach(i -> {
+            try {
+              consumer.accept(channel.read(i), i);
+            } catch (IOException e) {
+              throw new StreamException(e);
+            }
+            progressLogger.accept(position.addAndGet(offsets[i + 1] - offsets[i]));
+          })).get();
+      // The threads of the pool are done with the caches.
+      coordinateCache.release();
+      referenceCache.release();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Returns a local copy of the file, as the phases need random access to the blobs.
+   */
+  private Path localPath() throws IOException {
+    if (isLocal(uri)) {
+      return Paths.get(uri.getPath()).toAbsolutePath();
+    }
+    Path path = Files.createTempFile("baremaps_", ".osm.pbf");
+    try (InputStream inputStream = blobStore.read(uri)) {
+      Files.copy(inputStream, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+    return path;
+  }
+
+  private static boolean isLocal(URI uri) {
+    return uri.getScheme() == null || "file".equals(uri.getScheme());
+  }
+
+  /**
+   * Reads the sidecar index of the file, or returns null if it does not exist, is stale or cannot be read.
+   */
+  private static BlobIndex readIndex(Path path) {
+    Path sidecar = BlobIndex.sidecar(path);
+    if (!Files.exists(sidecar)) {
+      return null;
+    }
+    try {
+      BlobIndex index = BlobIndex.readSidecar(path);
+      if (index == null) {
+        logger.warn("Ignoring the stale index {}", sidecar);
+      }
+      return index;
+    } catch (IOException | UncheckedIOException e) {
+      logger.warn("Unable to read the index {}", sidecar);
+      return null;
+    }
+  }
+
+  /**
+   * Opens a blob channel on the file, with the offsets of its index if it exists.
+   */
+  private static BlobChannel open(Path path, BlobIndex index) throws IOException {
+    FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return index != null ? new BlobChannel(fileChannel, index.offsets()) : new BlobChannel(fileChannel);
+    } catch (RuntimeException e) {
+      fileChannel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Builds an import service with its optional components.
+   */
+  public static class Builder {
+
+    private final URI uri;
+    private final BlobStore blobStore;
+    private final CoordinateCache coordinateCache;
+    private final ReferenceCache referenceCache;
+    private final HeaderTable headerTable;
+    private final NodeTable nodeTable;
+    private final WayTable wayTable;
+    private final RelationTable relationTable;
+    private final int srid;
+    private int nodeParallelism = Runtime.getRuntime().availableProcessors();
+    private int wayParallelism = Runtime.getRuntime().availableProcessors();
+    private int relationParallelism = Runtime.getRuntime().availableProcessors();
+    private BulkLoader bulkLoader;
+    private ImportCheckpoint checkpoint;
+    private boolean resume;
+    private List<LayerTable> layerTables = Collections.emptyList();
+    private EntityFilter filter = EntityFilter.all();
+
+    private Builder(
+        URI uri,
+        BlobStore blobStore,
+        CoordinateCache coordinateCache,
+        ReferenceCache referenceCache,
+        HeaderTable headerTable,
+        NodeTable nodeTable,
+        WayTable wayTable,
+        RelationTable relationTable,
+        int srid) {
+      this.uri = uri;
+      this.blobStore = blobStore;
+      this.coordinateCache = coordinateCache;
+      this.referenceCache = referenceCache;
+      this.headerTable = headerTable;
+      this.nodeTable = nodeTable;
+      this.wayTable = wayTable;
+      this.relationTable = relationTable;
+      this.srid = srid;
+    }
+
+    /**
+     * Sets the number of threads of each phase.
+     *
+     * @param nodeParallelism     the number of threads that import the nodes
+     * @param wayParallelism      the number of threads that import the ways
+     * @param relationParallelism the number of threads that import the relations
+     * @return the builder
+     */
+    public Builder parallelism(int nodeParallelism, int wayParallelism, int relationParallelism) {
+      this.nodeParallelism = nodeParallelism;
+      this.wayParallelism = wayParallelism;
+      this.relationParallelism = relationParallelism;
+      return this;
+    }
+
+    /**
+     * Sets a bulk loader that prepares the tables before the import and finalizes them afterwards.
+     *
+     * @param bulkLoader the bulk loader or null
+     * @return the builder
+     */
+    public Builder bulkLoader(BulkLoader bulkLoader) {
+      this.bulkLoader = bulkLoader;
+      return this;
+    }
+
+    /**
+     * Sets a checkpoint that records each committed blob.
+     *
+     * @param checkpoint the checkpoint or null
+     * @param resume     true to skip the blobs recorded by the checkpoint
+     * @return the builder
+     */
+    public Builder checkpoint(ImportCheckpoint checkpoint, boolean resume) {
+      this.checkpoint = checkpoint;
+      this.resume = resume;
+      return this;
+    }
+
+    /**
+     * Sets the layer tables into which the entities are also routed. The layer tables are not covered by the
+     * checkpoints, so they cannot be combined.
+     *
+     * @param layerTables the layer tables
+     * @return the builder
+     */
+    public Builder layerTables(List<LayerTable> layerTables) {
+      this.layerTables = layerTables;
+      return this;
+    }
+
+    /**
+     * Sets a filter that selects the entities to save.
+     *
+     * @param filter the filter
+     * @return the builder
+     */
+    public Builder filter(EntityFilter filter) {
+      this.filter = filter;
+      return this;
+    }
+
+    public ImportService build() {
+      return new ImportService(this);
     }
 
-    return null;
   }
 
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2020 The Baremaps Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.baremaps.osm.database;
+
+import com.baremaps.config.mapping.Table;
+import com.baremaps.osm.domain.Element;
+import com.baremaps.osm.geometry.ZoomBand;
+import java.util.List;
+
+/**
+ * A narrow table that receives the entities routed by a {@link Table} of a mapping.
+ */
+public interface LayerTable {
+
+  /**
+   * Returns the mapping of the table.
+   *
+   * @return the mapping
+   */
+  Table getMapping();
+
+  /**
+   * Returns the zoom band of the table if it receives generalized geometries.
+   *
+   * @return the zoom band, or null if the table receives the geometries at full resolution
+   */
+  ZoomBand getZoomBand();
+
+  /**
+   * Copies the rows of the elements in the table.
+   *
+   * @param elements the elements accepted by the mapping of the table
+   * @throws DatabaseException
+   */
+  void copy(List<Element> elements) throws DatabaseException;
+
+}
@@ -0,0 +1,89 @@
+package com.baremaps.osm.database;
+
+import com.baremaps.osm.domain.DataBlock;
+import com.baremaps.osm.domain.Element;
+import com.baremaps.osm.domain.Node;
+import com.baremaps.osm.domain.Relation;
+import com.baremaps.osm.domain.Way;
+import com.baremaps.osm.geometry.ZoomBand;
+import com.baremaps.osm.handler.BlockConsumerAdapter;
+import com.baremaps.osm.pbf.EntityFilter;
+import java.util.ArrayList;
+import java.util.List;
+import org.locationtech.jts.geom.Geometry;
+
+/**
+ * Routes the elements of the blocks into the layer tables whose mapping accepts them.
+ *
+ * <p>An element is accepted by a table when the {@link EntityFilter} of its mapping accepts it. An element can
+ * be routed into several tables, and the elements without geometry are not routed. The tables of a zoom band
+ * receive copies of the elements with generalized geometries, and the elements that are not visible in the band
+ * are not routed to them.
+ */
+public class SaveLayerConsumer implements BlockConsumerAdapter {
+
+  private final List<LayerTable> tables;
+
+  private final List<EntityFilter> filters;
+
+  public SaveLayerConsumer(List<LayerTable> tables) {
+    this.tables = tables;
+    this.filters = new ArrayList<>(tables.size());
+    for (LayerTable table : tables) {
+      filters.add(EntityFilter.of(table.getMapping()));
+    }
+  }
+
+  @Override
+  public void match(DataBlock dataBlock) throws Exception {
+    List<List<Element>> rows = new ArrayList<>(tables.size());
+    for (int i = 0; i < tables.size(); i++) {
+      rows.add(new ArrayList<>());
+    }
+    route(dataBlock.getDenseNodes(), rows);
+    route(dataBlock.getNodes(), rows);
+    route(dataBlock.getWays(), rows);
+    route(dataBlock.getRelations(), rows);
+    for (int i = 0; i < tables.size(); i++) {
+      if (!rows.get(i).isEmpty()) {
+        tables.get(i).copy(rows.get(i));
+      }
+    }
+  }
+
+  private void route(List<? extends Element> elements, List<List<Element>> rows) {
+    for (Element element : elements) {
+      if (element.getGeometry() == null) {
+        continue;
+      }
+      for (int i = 0; i < filters.size(); i++) {
+        if (!filters.get(i).accept(element)) {
+          continue;
+        }
+        ZoomBand band = tables.get(i).getZoomBand();
+        if (band == null) {
+          rows.get(i).add(element);
+          continue;
+        }
+        Geometry geometry = band.generalize(element.getGeometry());
+        if (geometry != null) {
+          rows.get(i).add(withGeometry(element, geometry));
+        }
+      }
+    }
+  }
+
+  private static Element withGeometry(Element element, Geometry geometry) {
+    if (element instanceof Way) {
+      Way way = (Way) element;
+      return new Way(way.getId(), way.getInfo(), way.getTags(), way.getNodes(), geometry);
+    } else if (element instanceof Relation) {
+      Relation relation = (Relation) element;
+      return new Relation(relation.getId(), relation.getInfo(), relation.getTags(), relation.getMembers(), geometry);
+    } else {
+      Node node = (Node) element;
+      return new Node(node.getId(), node.getInfo(), node.getTags(), node.getLon(), node.getLat(), geometry);
+    }
+  }
+
+}
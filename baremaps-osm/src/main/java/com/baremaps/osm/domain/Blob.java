@@ -18,6 +18,8 @@ import com.baremaps.osm.binary.Fileformat;
 import com.baremaps.osm.binary.Fileformat.BlobHeader;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnsafeByteOperations;
+import java.nio.ByteBuffer;
 import java.util.StringJoiner;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
@@ -28,10 +30,14 @@ import java.util.zip.Inflater;
 public class Blob {
 
   private final BlobHeader header;
-  private final byte[] rawData;
+  private final ByteBuffer rawData;
   private final int size;
 
   public Blob(BlobHeader header, byte[] rawData, int size) {
+    this(header, ByteBuffer.wrap(rawData), size);
+  }
+
+  public Blob(BlobHeader header, ByteBuffer rawData, int size) {
     this.header = header;
     this.rawData = rawData;
     this.size = size;
@@ -41,17 +47,30 @@ public class Blob {
     return header;
   }
 
+  /**
+   * Parses the blob message that wraps the (possibly compressed) data.
+   *
+   * @return the blob message
+   * @throws InvalidProtocolBufferException
+   */
+  public Fileformat.Blob message() throws InvalidProtocolBufferException {
+    return Fileformat.Blob.parseFrom(rawData.duplicate());
+  }
+
   public ByteString data() throws DataFormatException, InvalidProtocolBufferException {
-    Fileformat.Blob blob = Fileformat.Blob.parseFrom(rawData);
+    Fileformat.Blob blob = message();
     if (blob.hasRaw()) {
       return blob.getRaw();
     } else if (blob.hasZlibData()) {
       byte[] bytes = new byte[blob.getRawSize()];
       Inflater inflater = new Inflater();
-      inflater.setInput(blob.getZlibData().toByteArray());
-      inflater.inflate(bytes);
-      inflater.end();
-      return ByteString.copyFrom(bytes);
+      try {
+        inflater.setInput(blob.getZlibData().asReadOnlyByteBuffer());
+        inflater.inflate(bytes);
+      } finally {
+        inflater.end();
+      }
+      return UnsafeByteOperations.unsafeWrap(bytes);
     } else {
       throw new DataFormatException("Unsupported toPrimitiveBlock format");
     }
@@ -0,0 +1,65 @@
+package com.baremaps.osm.domain;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Represents a data block whose dense nodes are stored as primitive columns.
+ *
+ * <p>The dense nodes are only materialized when they are accessed through {@link #getDenseNodes()},
+ * and the materialized nodes are retained so that side-effects (e.g. geometries) are preserved.
+ * Consumers that only need primitive values should rely on {@link #getDenseNodeColumns()}.
+ */
+public class ColumnarDataBlock extends DataBlock {
+
+  private final DenseNodeColumns denseNodeColumns;
+
+  public ColumnarDataBlock(
+      Blob blob,
+      DenseNodeColumns denseNodeColumns,
+      List<Node> nodes,
+      List<Way> ways,
+      List<Relation> relations) {
+    super(blob, new DenseNodeList(denseNodeColumns), nodes, ways, relations);
+    this.denseNodeColumns = denseNodeColumns;
+  }
+
+  public DenseNodeColumns getDenseNodeColumns() {
+    return denseNodeColumns;
+  }
+
+  private static class DenseNodeList extends AbstractList<Node> implements RandomAccess {
+
+    private final DenseNodeColumns columns;
+
+    private Node[] nodes;
+
+    private DenseNodeList(DenseNodeColumns columns) {
+      this.columns = columns;
+    }
+
+    @Override
+    public synchronized Node get(int index) {
+      if (index < 0 || index >= columns.size()) {
+        throw new IndexOutOfBoundsException();
+      }
+      if (nodes == null) {
+        nodes = new Node[columns.size()];
+      }
+      Node node = nodes[index];
+      if (node == null) {
+        node = columns.getNode(index);
+        nodes[index] = node;
+      }
+      return node;
+    }
+
+    @Override
+    public int size() {
+      return columns.size();
+    }
+
+  }
+
+}
@@ -0,0 +1,160 @@
+package com.baremaps.osm.domain;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Represents the dense nodes of a data block as primitive columns.
+ *
+ * <p>The tags of the node {@code i} are stored in the {@code keysVals} column as pairs of
+ * indices in the string table, from {@code tagOffsets[i]} (inclusive) to {@code tagOffsets[i + 1]}
+ * (exclusive). Consumers can therefore iterate over the nodes without materializing objects.
+ */
+public class DenseNodeColumns {
+
+  private final int size;
+  private final long[] ids;
+  private final int[] versions;
+  private final long[] timestamps;
+  private final long[] changesets;
+  private final int[] uids;
+  private final double[] lons;
+  private final double[] lats;
+  private final int[] tagOffsets;
+  private final int[] keysVals;
+  private final String[] stringTable;
+
+  public DenseNodeColumns(
+      int size,
+      long[] ids,
+      int[] versions,
+      long[] timestamps,
+      long[] changesets,
+      int[] uids,
+      double[] lons,
+      double[] lats,
+      int[] tagOffsets,
+      int[] keysVals,
+      String[] stringTable) {
+    this.size = size;
+    this.ids = ids;
+    this.versions = versions;
+    this.timestamps = timestamps;
+    this.changesets = changesets;
+    this.uids = uids;
+    this.lons = lons;
+    this.lats = lats;
+    this.tagOffsets = tagOffsets;
+    this.keysVals = keysVals;
+    this.stringTable = stringTable;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the column of the ids, whose first {@link #size()} values are the ids of the nodes.
+   */
+  public long[] getIds() {
+    return ids;
+  }
+
+  /**
+   * Returns the column of the longitudes, whose first {@link #size()} values are the longitudes of the nodes.
+   */
+  public double[] getLons() {
+    return lons;
+  }
+
+  /**
+   * Returns the column of the latitudes, whose first {@link #size()} values are the latitudes of the nodes.
+   */
+  public double[] getLats() {
+    return lats;
+  }
+
+  public long getId(int index) {
+    return ids[index];
+  }
+
+  public int getVersion(int index) {
+    return versions[index];
+  }
+
+  /**
+   * Returns the timestamp of a node in milliseconds since the epoch.
+   */
+  public long getTimestamp(int index) {
+    return timestamps[index];
+  }
+
+  public long getChangeset(int index) {
+    return changesets[index];
+  }
+
+  public int getUid(int index) {
+    return uids[index];
+  }
+
+  public double getLon(int index) {
+    return lons[index];
+  }
+
+  public double getLat(int index) {
+    return lats[index];
+  }
+
+  public int getTagCount(int index) {
+    return (tagOffsets[index + 1] - tagOffsets[index]) / 2;
+  }
+
+  /**
+   * Returns the index in the string table of the key of a tag.
+   */
+  public int getKeyIndex(int index, int tag) {
+    return keysVals[tagOffsets[index] + 2 * tag];
+  }
+
+  /**
+   * Returns the index in the string table of the value of a tag.
+   */
+  public int getValueIndex(int index, int tag) {
+    return keysVals[tagOffsets[index] + 2 * tag + 1];
+  }
+
+  public String getKey(int index, int tag) {
+    return stringTable[getKeyIndex(index, tag)];
+  }
+
+  public String getValue(int index, int tag) {
+    return stringTable[getValueIndex(index, tag)];
+  }
+
+  public String[] getStringTable() {
+    return stringTable;
+  }
+
+  /**
+   * Materializes the node at the specified index.
+   *
+   * @param index
+   * @return a new node
+   */
+  public Node getNode(int index) {
+    int tagCount = getTagCount(index);
+    Map<String, String> tags;
+    if (tagCount == 0) {
+      tags = Collections.emptyMap();
+    } else {
+      tags = new HashMap<>(tagCount * 2);
+      for (int t = 0; t < tagCount; t++) {
+        tags.put(getKey(index, t), getValue(index, t));
+      }
+    }
+    Info info = new Info(versions[index], timestamps[index], changesets[index], uids[index]);
+    return new Node(ids[index], info, tags, lons[index], lats[index]);
+  }
+
+}
@@ -17,6 +17,8 @@ package com.baremaps.osm.domain;
 import com.baremaps.osm.handler.EntityConsumer;
 import com.baremaps.osm.handler.EntityFunction;
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.StringJoiner;
 
@@ -25,11 +27,17 @@ import java.util.StringJoiner;
  */
 public class Header implements Entity {
 
+  /**
+   * The optional feature of the files whose ways embed the locations of their nodes.
+   */
+  public static final String LOCATIONS_ON_WAYS = "LocationsOnWays";
+
   private final Long replicationSequenceNumber;
   private final LocalDateTime replicationTimestamp;
   private final String replicationUrl;
   private final String source;
   private final String writingProgram;
+  private final List<String> optionalFeatures;
 
   public Header(
       Long replicationSequenceNumber,
@@ -37,6 +45,18 @@ public class Header implements Entity {
       String replicationUrl,
       String source,
       String writingProgram) {
+    this(replicationSequenceNumber, replicationTimestamp, replicationUrl, source, writingProgram,
+        Collections.emptyList());
+  }
+
+  public Header(
+      Long replicationSequenceNumber,
+      LocalDateTime replicationTimestamp,
+      String replicationUrl,
+      String source,
+      String writingProgram,
+      List<String> optionalFeatures) {
+    this.optionalFeatures = optionalFeatures;
     this.replicationTimestamp = replicationTimestamp;
     this.replicationSequenceNumber = replicationSequenceNumber;
     this.replicationUrl = replicationUrl;
@@ -64,6 +84,17 @@ public class Header implements Entity {
     return writingProgram;
   }
 
+  public List<String> getOptionalFeatures() {
+    return optionalFeatures;
+  }
+
+  /**
+   * Returns true if the ways of the dataset embed the locations of their nodes.
+   */
+  public boolean hasLocationsOnWays() {
+    return optionalFeatures.contains(LOCATIONS_ON_WAYS);
+  }
+
   @Override
   public void visit(EntityConsumer consumer) throws Exception {
     consumer.match(this);
@@ -87,12 +118,14 @@ public class Header implements Entity {
         Objects.equals(replicationSequenceNumber, header.replicationSequenceNumber) &&
         Objects.equals(replicationUrl, header.replicationUrl) &&
         Objects.equals(source, header.source) &&
-        Objects.equals(writingProgram, header.writingProgram);
+        Objects.equals(writingProgram, header.writingProgram) &&
+        Objects.equals(optionalFeatures, header.optionalFeatures);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(replicationTimestamp, replicationSequenceNumber, replicationUrl, source, writingProgram);
+    return Objects.hash(replicationTimestamp, replicationSequenceNumber, replicationUrl, source, writingProgram,
+        optionalFeatures);
   }
 
   @Override
@@ -103,6 +136,7 @@ public class Header implements Entity {
         .add("replicationUrl='" + replicationUrl + "'")
         .add("source='" + source + "'")
         .add("writingProgram='" + writingProgram + "'")
+        .add("optionalFeatures=" + optionalFeatures)
         .toString();
   }
 }
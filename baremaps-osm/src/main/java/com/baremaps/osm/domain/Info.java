@@ -1,37 +1,88 @@
 package com.baremaps.osm.domain;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.Objects;
 import java.util.StringJoiner;
 
 /**
  * Represents all the metadata associated to an element in an OpenStreetMap dataset.
+ *
+ * <p>The timestamp is stored as a primitive number of milliseconds since the epoch (UTC), so that the
+ * readers and writers of the import pipeline do not allocate date objects for every entity.
  */
 public class Info {
 
+  /**
+   * The value of the timestamp when the metadata does not specify a timestamp.
+   */
+  public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
   protected final int version;
 
-  protected final LocalDateTime timestamp;
+  protected final long timestamp;
 
   protected final long changeset;
 
   protected final int uid;
 
-  public Info(int version, LocalDateTime timestamp, long changeset, int uid) {
+  /**
+   * Constructs the metadata of an element.
+   *
+   * @param version
+   * @param timestamp the timestamp in milliseconds since the epoch or {@link #NO_TIMESTAMP}
+   * @param changeset
+   * @param uid
+   */
+  public Info(int version, long timestamp, long changeset, int uid) {
     this.version = version;
     this.timestamp = timestamp;
     this.changeset = changeset;
     this.uid = uid;
   }
 
+  /**
+   * Constructs the metadata of an element.
+   *
+   * @param version
+   * @param timestamp the timestamp in UTC or null
+   * @param changeset
+   * @param uid
+   */
+  public Info(int version, LocalDateTime timestamp, long changeset, int uid) {
+    this(version, toEpochMillis(timestamp), changeset, uid);
+  }
+
   public int getVersion() {
     return version;
   }
 
+  /**
+   * Returns the timestamp in UTC.
+   *
+   * @return the timestamp or null
+   */
   public LocalDateTime getTimestamp() {
+    if (timestamp == NO_TIMESTAMP) {
+      return null;
+    }
+    return LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneOffset.UTC);
+  }
+
+  /**
+   * Returns the timestamp in milliseconds since the epoch.
+   *
+   * @return the timestamp or {@link #NO_TIMESTAMP}
+   */
+  public long getTimestampMillis() {
     return timestamp;
   }
 
+  public boolean hasTimestamp() {
+    return timestamp != NO_TIMESTAMP;
+  }
+
   public long getChangeset() {
     return changeset;
   }
@@ -40,6 +91,12 @@ public class Info {
     return uid;
   }
 
+  private static long toEpochMillis(LocalDateTime timestamp) {
+    if (timestamp == null) {
+      return NO_TIMESTAMP;
+    }
+    return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+  }
 
   @Override
   public boolean equals(Object o) {
@@ -51,9 +108,9 @@ public class Info {
     }
     Info info = (Info) o;
     return version == info.version &&
+        timestamp == info.timestamp &&
         changeset == info.changeset &&
-        uid == info.uid &&
-        Objects.equals(timestamp, info.timestamp);
+        uid == info.uid;
   }
 
   @Override
@@ -65,7 +122,7 @@ public class Info {
   public String toString() {
     return new StringJoiner(", ", Info.class.getSimpleName() + "[", "]")
         .add("version=" + version)
-        .add("timestamp=" + timestamp)
+        .add("timestamp=" + getTimestamp())
         .add("changeset=" + changeset)
         .add("uid=" + uid)
         .toString();
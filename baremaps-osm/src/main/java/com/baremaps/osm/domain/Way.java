@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.StringJoiner;
+import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
 
 /**
@@ -29,20 +30,54 @@ public final class Way extends Element {
 
   private final List<Long> nodes;
 
+  private final Coordinate[] locations;
+
   public Way(long id, Info info, Map<String, String> tags, List<Long> nodes) {
     super(id, info, tags);
     this.nodes = nodes;
+    this.locations = null;
   }
 
   public Way(long id, Info info, Map<String, String> tags, List<Long> nodes, Geometry geometry) {
+    this(id, info, tags, nodes, geometry, null);
+  }
+
+  /**
+   * Constructs a way whose nodes are located, as in the files with the {@code LocationsOnWays} feature.
+   *
+   * @param id
+   * @param info
+   * @param tags
+   * @param nodes
+   * @param geometry
+   * @param locations the locations of the nodes (an element is null if the location is unknown)
+   */
+  public Way(
+      long id,
+      Info info,
+      Map<String, String> tags,
+      List<Long> nodes,
+      Geometry geometry,
+      Coordinate[] locations) {
     super(id, info, tags, geometry);
     this.nodes = nodes;
+    this.locations = locations;
   }
 
   public List<Long> getNodes() {
     return nodes;
   }
 
+  /**
+   * Returns the locations of the nodes embedded in the way. The locations are not taken into account
+   * when comparing ways.
+   *
+   * @return the locations or null
+   */
+  public Coordinate[] getLocations() {
+    return locations;
+  }
+
   @Override
   public void visit(EntityConsumer consumer) throws Exception {
     consumer.match(this);
@@ -1,6 +1,9 @@
 package com.baremaps.osm.geometry;
 
 import com.baremaps.osm.cache.Cache;
+import com.baremaps.osm.cache.CacheException;
+import com.baremaps.osm.cache.CoordinateCache;
+import com.baremaps.osm.cache.ReferenceCache;
 import com.baremaps.osm.domain.Member;
 import com.baremaps.osm.domain.Member.MemberType;
 import com.baremaps.osm.domain.Node;
@@ -15,6 +18,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
@@ -22,6 +26,7 @@ import org.locationtech.jts.geom.LinearRing;
 import org.locationtech.jts.geom.MultiPolygon;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
 import org.locationtech.jts.geom.PrecisionModel;
 import org.locationtech.jts.geom.prep.PreparedGeometry;
 import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
@@ -38,6 +43,8 @@ public class CreateGeometryConsumer implements EntityConsumerAdapter {
 
   private static final Logger logger = LoggerFactory.getLogger(CreateGeometryConsumer.class);
 
+  private static final ThreadLocal<long[]> KEYS = ThreadLocal.withInitial(() -> new long[2000]);
+
   protected final GeometryFactory geometryFactory;
   private final Cache<Long, Coordinate> coordinateCache;
   private final Cache<Long, List<Long>> referenceCache;
@@ -59,14 +66,16 @@ public class CreateGeometryConsumer implements EntityConsumerAdapter {
   @Override
   public void match(Way way) {
     try {
-      List<Coordinate> coordinates = coordinateCache.get(way.getNodes());
-      Coordinate[] array = coordinates.toArray(new Coordinate[coordinates.size()]);
-      LineString line = geometryFactory.createLineString(array);
+      Coordinate[] locations = getLocations(way);
+      CoordinateSequence sequence = locations != null
+          ? geometryFactory.getCoordinateSequenceFactory().create(locations)
+          : createSequence(way.getNodes());
+      LineString line = geometryFactory.createLineString(sequence);
       if (!line.isEmpty()) {
         if (!line.isClosed()) {
           way.setGeometry(line);
         } else {
-          Polygon polygon = geometryFactory.createPolygon(line.getCoordinates());
+          Polygon polygon = geometryFactory.createPolygon(sequence);
           way.setGeometry(polygon);
         }
       }
@@ -75,6 +84,22 @@ public class CreateGeometryConsumer implements EntityConsumerAdapter {
     }
   }
 
+  /**
+   * Returns the locations embedded in the way if they are all known.
+   */
+  private Coordinate[] getLocations(Way way) {
+    Coordinate[] locations = way.getLocations();
+    if (locations == null) {
+      return null;
+    }
+    for (Coordinate location : locations) {
+      if (location == null) {
+        return null;
+      }
+    }
+    return locations;
+  }
+
   @Override
   public void match(Relation relation) {
     try {
@@ -183,12 +208,60 @@ public class CreateGeometryConsumer implements EntityConsumerAdapter {
 
   private LineString createLine(Member member) {
     try {
-      List<Long> references = referenceCache.get(member.getRef());
-      List<Coordinate> coordinates = coordinateCache.get(references);
-      Coordinate[] array = coordinates.toArray(new Coordinate[coordinates.size()]);
-      return geometryFactory.createLineString(array);
+      CoordinateSequence sequence;
+      if (referenceCache instanceof ReferenceCache) {
+        long[] references = ((ReferenceCache) referenceCache).getReferences(member.getRef());
+        sequence = references != null ? createSequence(references, references.length) : null;
+      } else {
+        List<Long> references = referenceCache.get(member.getRef());
+        sequence = references != null ? createSequence(references) : null;
+      }
+      // Like a missing coordinate, missing references prevent the geometry of the relation from being built.
+      if (sequence == null) {
+        throw new IllegalStateException("The references of way #" + member.getRef() + " are missing in the cache");
+      }
+      return geometryFactory.createLineString(sequence);
     } catch (Exception e) {
       throw new StreamException(e);
     }
   }
+
+  private CoordinateSequence createSequence(List<Long> references) throws CacheException {
+    long[] keys = KEYS.get();
+    if (keys.length < references.size()) {
+      keys = new long[references.size()];
+      KEYS.set(keys);
+    }
+    for (int i = 0; i < references.size(); i++) {
+      keys[i] = references.get(i);
+    }
+    return createSequence(keys, references.size());
+  }
+
+  /**
+   * Creates a packed sequence that wraps the array filled by the coordinate cache, so that no coordinate is
+   * created when the cache supports primitive lookups.
+   */
+  private CoordinateSequence createSequence(long[] keys, int length) throws CacheException {
+    double[] coordinates = new double[2 * length];
+    int missing;
+    if (coordinateCache instanceof CoordinateCache) {
+      missing = ((CoordinateCache) coordinateCache).get(keys, length, coordinates);
+    } else {
+      missing = 0;
+      for (int i = 0; i < length; i++) {
+        Coordinate coordinate = coordinateCache.get(keys[i]);
+        if (coordinate == null) {
+          missing++;
+        } else {
+          coordinates[2 * i] = coordinate.getX();
+          coordinates[2 * i + 1] = coordinate.getY();
+        }
+      }
+    }
+    if (missing > 0) {
+      throw new IllegalStateException(missing + " coordinates are missing in the cache");
+    }
+    return new PackedCoordinateSequence.Double(coordinates, 2, 0);
+  }
 }
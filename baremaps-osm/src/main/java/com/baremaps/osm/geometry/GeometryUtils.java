@@ -24,6 +24,9 @@ import org.locationtech.jts.io.WKBWriter;
 
 public class GeometryUtils {
 
+  // The writers are not thread-safe but can be reused, as they reset their buffer for each geometry.
+  private static final ThreadLocal<WKBWriter> WRITER = ThreadLocal.withInitial(() -> new WKBWriter(2, wkbNDR, true));
+
   private GeometryUtils() {
 
   }
@@ -38,8 +41,7 @@ public class GeometryUtils {
     if (geometry == null) {
       return null;
     }
-    WKBWriter writer = new WKBWriter(2, wkbNDR, true);
-    return writer.write(geometry);
+    return WRITER.get().write(geometry);
   }
 
   /**
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2020 The Baremaps Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.baremaps.osm.geometry;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+
+/**
+ * Maps the positions of an extent to their index on a Hilbert curve.
+ *
+ * <p>The extent is divided in a grid of 2^16 by 2^16 cells, which is about the size of the tiles at zoom 16.
+ * Sorting the geometries by the index of the center of their envelope keeps the geometries that are close in
+ * space close in the order, e.g. when the rows of a table are written on disk. The center of the envelope is
+ * a cheap approximation of the centroid: both fall in the same cell for most small geometries, but they may
+ * differ for large, elongated or concave geometries, which is acceptable for clustering.
+ */
+public class HilbertCurve {
+
+  private static final int ORDER = 16;
+
+  private static final long SIDE = 1L << ORDER;
+
+  private static final double WEB_MERCATOR_EXTENT = 20037508.342789244;
+
+  private final Envelope extent;
+
+  /**
+   * Constructs a Hilbert curve that covers an extent. The positions outside of the extent are clamped.
+   *
+   * @param extent
+   */
+  public HilbertCurve(Envelope extent) {
+    this.extent = extent;
+  }
+
+  /**
+   * Returns a Hilbert curve that covers the valid extent of a projection.
+   *
+   * @param srid the projection (4326 or 3857)
+   * @return the curve
+   */
+  public static HilbertCurve of(int srid) {
+    switch (srid) {
+      case 4326:
+        return new HilbertCurve(new Envelope(-180, 180, -90, 90));
+      case 3857:
+        return new HilbertCurve(new Envelope(
+            -WEB_MERCATOR_EXTENT, WEB_MERCATOR_EXTENT, -WEB_MERCATOR_EXTENT, WEB_MERCATOR_EXTENT));
+      default:
+        throw new IllegalArgumentException("Unsupported projection: " + srid);
+    }
+  }
+
+  /**
+   * Returns the index of the center of the envelope of a geometry.
+   *
+   * @param geometry
+   * @return the index, or {@code Long.MAX_VALUE} if the geometry is null or empty
+   */
+  public long index(Geometry geometry) {
+    if (geometry == null || geometry.isEmpty()) {
+      return Long.MAX_VALUE;
+    }
+    Envelope envelope = geometry.getEnvelopeInternal();
+    return index((envelope.getMinX() + envelope.getMaxX()) / 2, (envelope.getMinY() + envelope.getMaxY()) / 2);
+  }
+
+  /**
+   * Returns the index of a position.
+   *
+   * @param x
+   * @param y
+   * @return the index
+   */
+  public long index(double x, double y) {
+    return index(ORDER, cell(x, extent.getMinX(), extent.getWidth()), cell(y, extent.getMinY(), extent.getHeight()));
+  }
+
+  private static long cell(double value, double min, double size) {
+    long cell = (long) ((value - min) / size * SIDE);
+    return Math.max(0, Math.min(SIDE - 1, cell));
+  }
+
+  /**
+   * Returns the index of a cell of a grid of 2^order by 2^order cells.
+   *
+   * @param order
+   * @param x
+   * @param y
+   * @return the index
+   */
+  static long index(int order, long x, long y) {
+    long side = 1L << order;
+    long index = 0;
+    for (long s = side / 2; s > 0; s /= 2) {
+      long rx = (x & s) > 0 ? 1 : 0;
+      long ry = (y & s) > 0 ? 1 : 0;
+      index += s * s * ((3 * rx) ^ ry);
+      if (ry == 0) {
+        if (rx == 1) {
+          x = side - 1 - x;
+          y = side - 1 - y;
+        }
+        long t = x;
+        x = y;
+        y = t;
+      }
+    }
+    return index;
+  }
+
+}
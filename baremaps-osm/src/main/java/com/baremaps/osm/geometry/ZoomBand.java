@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2020 The Baremaps Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.baremaps.osm.geometry;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.simplify.TopologyPreservingSimplifier;
+
+/**
+ * A range of zoom levels whose tiles can be generated from generalized geometries.
+ *
+ * <p>The geometries are simplified with a tolerance of one pixel (1/256 of a tile) at the highest zoom level of
+ * the band, with a simplifier that preserves their topology (e.g. the rings of a polygon do not cross). The
+ * points are not generalized, and the lines and the polygons that are smaller than a pixel are dropped, as
+ * they would not be visible in the tiles of the band.
+ */
+public class ZoomBand {
+
+  private static final double WEB_MERCATOR_WIDTH = 2 * 20037508.342789244;
+
+  private static final double WGS84_WIDTH = 360;
+
+  private static final int TILE_SIZE = 256;
+
+  private static final int MAX_ZOOM = 24;
+
+  private final int minZoom;
+
+  private final int maxZoom;
+
+  private final double tolerance;
+
+  /**
+   * Constructs a zoom band.
+   *
+   * @param minZoom
+   * @param maxZoom
+   * @param tolerance the distance tolerance of the simplification in the units of the projection
+   */
+  public ZoomBand(int minZoom, int maxZoom, double tolerance) {
+    if (minZoom < 0 || minZoom > maxZoom || maxZoom > MAX_ZOOM) {
+      throw new IllegalArgumentException("Invalid zoom band: " + minZoom + "-" + maxZoom);
+    }
+    this.minZoom = minZoom;
+    this.maxZoom = maxZoom;
+    this.tolerance = tolerance;
+  }
+
+  /**
+   * Returns a zoom band whose tolerance is the size of a pixel at its highest zoom level.
+   *
+   * @param minZoom
+   * @param maxZoom
+   * @param srid    the projection of the geometries (4326 or 3857)
+   * @return the zoom band
+   */
+  public static ZoomBand of(int minZoom, int maxZoom, int srid) {
+    final double width;
+    switch (srid) {
+      case 4326:
+        width = WGS84_WIDTH;
+        break;
+      case 3857:
+        width = WEB_MERCATOR_WIDTH;
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported projection: " + srid);
+    }
+    return new ZoomBand(minZoom, maxZoom, width / TILE_SIZE / (1L << maxZoom));
+  }
+
+  /**
+   * Parses a list of zoom bands of the form {@code 0-5,6-9,10-12}.
+   *
+   * @param bands
+   * @param srid  the projection of the geometries (4326 or 3857)
+   * @return the zoom bands
+   */
+  public static List<ZoomBand> parse(String bands, int srid) {
+    List<ZoomBand> list = new ArrayList<>();
+    for (String band : bands.split(",")) {
+      String[] zooms = band.trim().split("-");
+      try {
+        if (zooms.length == 1) {
+          int zoom = Integer.parseInt(zooms[0]);
+          list.add(of(zoom, zoom, srid));
+        } else if (zooms.length == 2) {
+          list.add(of(Integer.parseInt(zooms[0]), Integer.parseInt(zooms[1]), srid));
+        } else {
+          throw new IllegalArgumentException("Invalid zoom band: " + band);
+        }
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid zoom band: " + band, e);
+      }
+    }
+    return list;
+  }
+
+  public int getMinZoom() {
+    return minZoom;
+  }
+
+  public int getMaxZoom() {
+    return maxZoom;
+  }
+
+  public double getTolerance() {
+    return tolerance;
+  }
+
+  /**
+   * Returns the suffix of the tables of the band (e.g. {@code _z0_5}).
+   */
+  public String getSuffix() {
+    return "_z" + minZoom + "_" + maxZoom;
+  }
+
+  /**
+   * Generalizes a geometry for the band.
+   *
+   * @param geometry
+   * @return the generalized geometry, or null if the geometry is a point or is not visible in the band
+   */
+  public Geometry generalize(Geometry geometry) {
+    if (geometry == null || geometry.isEmpty()) {
+      return null;
+    }
+    switch (geometry.getDimension()) {
+      case 1:
+        if (geometry.getLength() < tolerance) {
+          return null;
+        }
+        break;
+      case 2:
+        if (geometry.getArea() < tolerance * tolerance) {
+          return null;
+        }
+        break;
+      default:
+        return null;
+    }
+    Geometry simplified = TopologyPreservingSimplifier.simplify(geometry, tolerance);
+    if (simplified.isEmpty()) {
+      return null;
+    }
+    simplified.setSRID(geometry.getSRID());
+    return simplified;
+  }
+
+}
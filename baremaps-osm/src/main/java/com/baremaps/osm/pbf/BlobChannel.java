@@ -0,0 +1,148 @@
+package com.baremaps.osm.pbf;
+
+import com.baremaps.osm.binary.Fileformat;
+import com.baremaps.osm.domain.Blob;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Spliterator;
+
+/**
+ * Provides random access to the blobs of a PBF file through a {@code FileChannel}.
+ *
+ * <p>The blob headers are scanned once to build a table of offsets. The blobs are then
+ * memory-mapped on demand, which allows disjoint ranges of blobs to be read concurrently.
+ */
+public class BlobChannel implements Closeable {
+
+  private final FileChannel channel;
+
+  private long[] offsets;
+
+  public BlobChannel(FileChannel channel) {
+    this.channel = channel;
+  }
+
+  /**
+   * Constructs a blob channel with a known table of offsets (e.g. from a {@code BlobIndex}), which avoids the
+   * scan of the blob headers.
+   *
+   * @param channel
+   * @param offsets the offsets of the blobs, followed by the size of the file
+   */
+  public BlobChannel(FileChannel channel, long[] offsets) {
+    this.channel = channel;
+    this.offsets = offsets;
+  }
+
+  /**
+   * Opens a blob channel on the specified PBF file.
+   *
+   * @param path
+   * @return
+   * @throws IOException
+   */
+  public static BlobChannel open(Path path) throws IOException {
+    return new BlobChannel(FileChannel.open(path, StandardOpenOption.READ));
+  }
+
+  /**
+   * Returns the offsets of the blobs, followed by the size of the file. The size of the blob
+   * {@code i} is therefore given by {@code offsets[i + 1] - offsets[i]}.
+   *
+   * @return the table of offsets
+   * @throws IOException
+   */
+  public synchronized long[] offsets() throws IOException {
+    if (offsets == null) {
+      offsets = scan();
+    }
+    return offsets;
+  }
+
+  /**
+   * Returns the number of blobs in the file.
+   *
+   * @return the number of blobs
+   * @throws IOException
+   */
+  public int count() throws IOException {
+    return offsets().length - 1;
+  }
+
+  /**
+   * Reads the blob at the specified index of the table of offsets.
+   *
+   * @param index
+   * @return the blob
+   * @throws IOException
+   */
+  public Blob read(int index) throws IOException {
+    long[] table = offsets();
+    long offset = table[index];
+    int size = (int) (table[index + 1] - offset);
+    MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, offset, size);
+    int headerSize = buffer.getInt();
+    ByteBuffer headerBytes = buffer.duplicate();
+    headerBytes.limit(4 + headerSize);
+    Fileformat.BlobHeader header = Fileformat.BlobHeader.parseFrom(headerBytes);
+    ByteBuffer data = buffer.duplicate();
+    data.position(4 + headerSize);
+    return new Blob(header, data.slice(), size);
+  }
+
+  /**
+   * Returns a splittable spliterator over the blobs of the file.
+   *
+   * @return a spliterator
+   * @throws IOException
+   */
+  public Spliterator<Blob> spliterator() throws IOException {
+    return new BlobSpliterator(this, 0, count());
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private long[] scan() throws IOException {
+    long size = channel.size();
+    long[] table = new long[1024];
+    int count = 0;
+    long position = 0;
+    ByteBuffer length = ByteBuffer.allocate(4);
+    while (position < size) {
+      length.clear();
+      readFully(length, position);
+      int headerSize = length.getInt(0);
+      ByteBuffer headerBytes = ByteBuffer.allocate(headerSize);
+      readFully(headerBytes, position + 4);
+      headerBytes.flip();
+      Fileformat.BlobHeader header = Fileformat.BlobHeader.parseFrom(headerBytes);
+      if (count == table.length - 1) {
+        table = Arrays.copyOf(table, table.length * 2);
+      }
+      table[count++] = position;
+      position = position + 4 + headerSize + header.getDatasize();
+    }
+    table[count++] = size;
+    return Arrays.copyOf(table, count);
+  }
+
+  private void readFully(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException();
+      }
+    }
+  }
+
+}
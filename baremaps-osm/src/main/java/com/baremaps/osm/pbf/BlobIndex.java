@@ -0,0 +1,370 @@
+package com.baremaps.osm.pbf;
+
+import com.baremaps.osm.domain.Blob;
+import com.baremaps.osm.domain.ColumnarDataBlock;
+import com.baremaps.osm.domain.DenseNodeColumns;
+import com.baremaps.osm.domain.Member.MemberType;
+import com.baremaps.osm.domain.Node;
+import com.baremaps.osm.domain.Relation;
+import com.baremaps.osm.domain.Way;
+import com.baremaps.stream.StreamException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+
+/**
+ * A compact index of the blobs of a PBF file, usually stored in a sidecar file next to it.
+ *
+ * <p>For each blob, the index records its offset, its size, its type, the range of ids of each entity type and
+ * the bounding box of its located elements (nodes and ways with locations). When the blobs are sorted by type
+ * and id, as in the files produced by the usual tools, the blob that contains an element is found with a binary
+ * search. Otherwise, the index falls back to a linear scan of the entries.
+ */
+public class BlobIndex {
+
+  private static final int MAGIC = 0x42424958; // "BBIX"
+
+  private static final int VERSION = 1;
+
+  private static final String EXTENSION = ".idx";
+
+  private final List<Entry> entries;
+
+  private final int[][] sortedEntries = new int[MemberType.values().length][];
+
+  public BlobIndex(List<Entry> entries) {
+    this.entries = Collections.unmodifiableList(entries);
+    for (MemberType type : MemberType.values()) {
+      sortedEntries[type.ordinal()] = sortedEntries(type);
+    }
+  }
+
+  /**
+   * Returns the path of the sidecar index of a PBF file.
+   *
+   * @param path the path of the PBF file
+   * @return the path of the index
+   */
+  public static Path sidecar(Path path) {
+    return path.resolveSibling(path.getFileName() + EXTENSION);
+  }
+
+  /**
+   * Reads the sidecar index of a PBF file if it is up to date. The index is stale if it is older than the file or
+   * if its blobs do not cover the file exactly, e.g. when the file has been replaced after the index was written.
+   *
+   * @param path the path of the PBF file
+   * @return the index, or null if the sidecar does not exist or is stale
+   * @throws IOException
+   */
+  public static BlobIndex readSidecar(Path path) throws IOException {
+    Path sidecar = sidecar(path);
+    if (!Files.exists(sidecar)
+        || Files.getLastModifiedTime(sidecar).compareTo(Files.getLastModifiedTime(path)) < 0) {
+      return null;
+    }
+    BlobIndex index = read(sidecar);
+    long[] offsets = index.offsets();
+    if (offsets[0] != 0 || offsets[offsets.length - 1] != Files.size(path)) {
+      return null;
+    }
+    for (int i = 1; i < offsets.length; i++) {
+      if (offsets[i] < offsets[i - 1]) {
+        return null;
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Builds the index of the blobs of a channel by decoding the blobs in parallel.
+   *
+   * @param channel
+   * @return the index
+   * @throws IOException
+   */
+  public static BlobIndex build(BlobChannel channel) throws IOException {
+    long[] offsets = channel.offsets();
+    List<Entry> entries = IntStream.range(0, channel.count())
+        .parallel()
+        .mapToObj(i -> {
+          try {
+            return entry(offsets[i], channel.read(i));
+          } catch (IOException e) {
+            throw new StreamException(e);
+          }
+        })
+        .collect(Collectors.toList());
+    return new BlobIndex(entries);
+  }
+
+  /**
+   * Reads an index from a file.
+   *
+   * @param path
+   * @return the index
+   * @throws IOException
+   */
+  public static BlobIndex read(Path path) throws IOException {
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+        throw new IOException("Invalid blob index");
+      }
+      int count = input.readInt();
+      List<Entry> entries = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        long offset = input.readLong();
+        int size = input.readInt();
+        String type = input.readUTF();
+        long[] ids = new long[6];
+        for (int j = 0; j < ids.length; j++) {
+          ids[j] = input.readLong();
+        }
+        Envelope envelope = new Envelope();
+        if (input.readBoolean()) {
+          envelope.init(input.readDouble(), input.readDouble(), input.readDouble(), input.readDouble());
+        }
+        entries.add(new Entry(offset, size, type, ids, envelope));
+      }
+      return new BlobIndex(entries);
+    }
+  }
+
+  /**
+   * Writes the index in a file.
+   *
+   * @param path
+   * @throws IOException
+   */
+  public void write(Path path) throws IOException {
+    try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+      output.writeInt(entries.size());
+      for (Entry entry : entries) {
+        output.writeLong(entry.offset);
+        output.writeInt(entry.size);
+        output.writeUTF(entry.type);
+        for (long id : entry.ids) {
+          output.writeLong(id);
+        }
+        output.writeBoolean(!entry.envelope.isNull());
+        if (!entry.envelope.isNull()) {
+          output.writeDouble(entry.envelope.getMinX());
+          output.writeDouble(entry.envelope.getMaxX());
+          output.writeDouble(entry.envelope.getMinY());
+          output.writeDouble(entry.envelope.getMaxY());
+        }
+      }
+    }
+  }
+
+  public List<Entry> getEntries() {
+    return entries;
+  }
+
+  /**
+   * Returns the offsets of the blobs, followed by the size of the file, as expected by a {@code BlobChannel}.
+   *
+   * @return the table of offsets
+   */
+  public long[] offsets() {
+    long[] offsets = new long[entries.size() + 1];
+    for (int i = 0; i < entries.size(); i++) {
+      offsets[i] = entries.get(i).offset;
+    }
+    if (!entries.isEmpty()) {
+      Entry last = entries.get(entries.size() - 1);
+      offsets[entries.size()] = last.offset + last.size;
+    }
+    return offsets;
+  }
+
+  /**
+   * Returns the indexes of the blobs that may contain the specified element.
+   *
+   * @param type the type of the element
+   * @param id   the id of the element
+   * @return the indexes of the blobs
+   */
+  public List<Integer> find(MemberType type, long id) {
+    int[] sorted = sortedEntries[type.ordinal()];
+    if (sorted == null) {
+      List<Integer> result = new ArrayList<>();
+      for (int i = 0; i < entries.size(); i++) {
+        if (entries.get(i).contains(type, id)) {
+          result.add(i);
+        }
+      }
+      return result;
+    }
+    int low = 0;
+    int high = sorted.length - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      Entry entry = entries.get(sorted[middle]);
+      if (entry.getMaxId(type) < id) {
+        low = middle + 1;
+      } else if (entry.getMinId(type) > id) {
+        high = middle - 1;
+      } else {
+        return Collections.singletonList(sorted[middle]);
+      }
+    }
+    return Collections.emptyList();
+  }
+
+  /**
+   * Returns the indexes of the blobs whose located elements intersect the specified envelope.
+   *
+   * @param envelope
+   * @return the indexes of the blobs
+   */
+  public List<Integer> find(Envelope envelope) {
+    List<Integer> result = new ArrayList<>();
+    for (int i = 0; i < entries.size(); i++) {
+      if (entries.get(i).envelope.intersects(envelope)) {
+        result.add(i);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the indexes of the entries that contain the specified type sorted by id, or null if their
+   * ranges of ids overlap.
+   */
+  private int[] sortedEntries(MemberType type) {
+    List<Integer> indexes = new ArrayList<>();
+    long last = Long.MIN_VALUE;
+    for (int i = 0; i < entries.size(); i++) {
+      Entry entry = entries.get(i);
+      if (entry.hasType(type)) {
+        if (!indexes.isEmpty() && entry.getMinId(type) <= last) {
+          return null;
+        }
+        indexes.add(i);
+        last = entry.getMaxId(type);
+      }
+    }
+    return indexes.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  private static Entry entry(long offset, Blob blob) {
+    long[] ids = new long[] {
+        Long.MAX_VALUE, Long.MIN_VALUE,
+        Long.MAX_VALUE, Long.MIN_VALUE,
+        Long.MAX_VALUE, Long.MIN_VALUE};
+    Envelope envelope = new Envelope();
+    if ("OSMData".equals(blob.header().getType())) {
+      ColumnarDataBlock block = BlobUtils.decodeDataBlock(blob);
+      DenseNodeColumns columns = block.getDenseNodeColumns();
+      for (int i = 0; i < columns.size(); i++) {
+        update(ids, MemberType.NODE, columns.getId(i));
+        envelope.expandToInclude(columns.getLon(i), columns.getLat(i));
+      }
+      for (Node node : block.getNodes()) {
+        update(ids, MemberType.NODE, node.getId());
+        envelope.expandToInclude(node.getLon(), node.getLat());
+      }
+      for (Way way : block.getWays()) {
+        update(ids, MemberType.WAY, way.getId());
+        if (way.getLocations() != null) {
+          for (Coordinate location : way.getLocations()) {
+            if (location != null) {
+              envelope.expandToInclude(location);
+            }
+          }
+        }
+      }
+      for (Relation relation : block.getRelations()) {
+        update(ids, MemberType.RELATION, relation.getId());
+      }
+    }
+    return new Entry(offset, (int) blob.size(), blob.header().getType(), ids, envelope);
+  }
+
+  private static void update(long[] ids, MemberType type, long id) {
+    int i = type.ordinal() * 2;
+    ids[i] = Math.min(ids[i], id);
+    ids[i + 1] = Math.max(ids[i + 1], id);
+  }
+
+  /**
+   * The entry of a blob in the index.
+   */
+  public static class Entry {
+
+    private final long offset;
+
+    private final int size;
+
+    private final String type;
+
+    private final long[] ids;
+
+    private final Envelope envelope;
+
+    /**
+     * Constructs an entry.
+     *
+     * @param offset   the offset of the blob in the file
+     * @param size     the size of the blob, including its header
+     * @param type     the type of the blob
+     * @param ids      the min and max ids of the nodes, ways and relations of the blob
+     * @param envelope the envelope of the located elements of the blob
+     */
+    public Entry(long offset, int size, String type, long[] ids, Envelope envelope) {
+      this.offset = offset;
+      this.size = size;
+      this.type = type;
+      this.ids = ids;
+      this.envelope = envelope;
+    }
+
+    public long getOffset() {
+      return offset;
+    }
+
+    public int getSize() {
+      return size;
+    }
+
+    public String getType() {
+      return type;
+    }
+
+    public long getMinId(MemberType type) {
+      return ids[type.ordinal() * 2];
+    }
+
+    public long getMaxId(MemberType type) {
+      return ids[type.ordinal() * 2 + 1];
+    }
+
+    public Envelope getEnvelope() {
+      return envelope;
+    }
+
+    public boolean hasType(MemberType type) {
+      return getMinId(type) <= getMaxId(type);
+    }
+
+    public boolean contains(MemberType type, long id) {
+      return getMinId(type) <= id && id <= getMaxId(type);
+    }
+
+  }
+
+}
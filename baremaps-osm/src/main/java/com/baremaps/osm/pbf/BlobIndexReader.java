@@ -0,0 +1,187 @@
+package com.baremaps.osm.pbf;
+
+import com.baremaps.osm.domain.Blob;
+import com.baremaps.osm.domain.ColumnarDataBlock;
+import com.baremaps.osm.domain.DenseNodeColumns;
+import com.baremaps.osm.domain.Element;
+import com.baremaps.osm.domain.Member.MemberType;
+import com.baremaps.osm.domain.Node;
+import com.baremaps.osm.domain.Relation;
+import com.baremaps.osm.domain.Way;
+import com.baremaps.stream.StreamException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.locationtech.jts.geom.Envelope;
+
+/**
+ * Provides random access to the entities of a PBF file with a {@link BlobIndex}.
+ *
+ * <p>Only the blobs that may contain the requested entities are decoded. When several entities are requested at
+ * once, they are grouped by blob so that each blob is decoded at most once.
+ */
+public class BlobIndexReader implements Closeable {
+
+  private final BlobChannel channel;
+
+  private final BlobIndex index;
+
+  public BlobIndexReader(BlobChannel channel, BlobIndex index) {
+    this.channel = channel;
+    this.index = index;
+  }
+
+  /**
+   * Opens a reader on a PBF file with its sidecar index. The index is built in memory if the sidecar does not
+   * exist or is stale.
+   *
+   * @param path the path of the PBF file
+   * @return the reader
+   * @throws IOException
+   */
+  public static BlobIndexReader open(Path path) throws IOException {
+    BlobIndex index = BlobIndex.readSidecar(path);
+    FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      if (index != null) {
+        return new BlobIndexReader(new BlobChannel(fileChannel, index.offsets()), index);
+      } else {
+        BlobChannel channel = new BlobChannel(fileChannel);
+        return new BlobIndexReader(channel, BlobIndex.build(channel));
+      }
+    } catch (IOException | RuntimeException e) {
+      fileChannel.close();
+      throw e;
+    }
+  }
+
+  public BlobIndex getIndex() {
+    return index;
+  }
+
+  public Node getNode(long id) throws IOException {
+    return (Node) get(MemberType.NODE, id);
+  }
+
+  public Way getWay(long id) throws IOException {
+    return (Way) get(MemberType.WAY, id);
+  }
+
+  public Relation getRelation(long id) throws IOException {
+    return (Relation) get(MemberType.RELATION, id);
+  }
+
+  /**
+   * Returns the element of the specified type and id.
+   *
+   * @param type
+   * @param id
+   * @return the element or null if it does not exist
+   * @throws IOException
+   */
+  public Element get(MemberType type, long id) throws IOException {
+    for (int blob : index.find(type, id)) {
+      Element element = decode(blob, type, Collections.singleton(id)).get(id);
+      if (element != null) {
+        return element;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the elements of the specified type and ids, in the order of the ids.
+   *
+   * @param type
+   * @param ids
+   * @return the entities (null if they do not exist)
+   * @throws IOException
+   */
+  public List<Element> get(MemberType type, List<Long> ids) throws IOException {
+    Map<Integer, Set<Long>> groups = new LinkedHashMap<>();
+    for (Long id : ids) {
+      for (int blob : index.find(type, id)) {
+        groups.computeIfAbsent(blob, k -> new HashSet<>()).add(id);
+      }
+    }
+    Map<Long, Element> found = new HashMap<>();
+    for (Map.Entry<Integer, Set<Long>> group : groups.entrySet()) {
+      found.putAll(decode(group.getKey(), type, group.getValue()));
+    }
+    List<Element> result = new ArrayList<>(ids.size());
+    for (Long id : ids) {
+      result.add(found.get(id));
+    }
+    return result;
+  }
+
+  /**
+   * Returns the blobs whose located elements intersect the specified envelope.
+   *
+   * @param envelope
+   * @return the blobs
+   */
+  public Stream<Blob> blobs(Envelope envelope) {
+    return index.find(envelope).stream().map(i -> {
+      try {
+        return channel.read(i);
+      } catch (IOException e) {
+        throw new StreamException(e);
+      }
+    });
+  }
+
+  private Map<Long, Element> decode(int blob, MemberType type, Set<Long> ids) throws IOException {
+    ColumnarDataBlock block = BlobUtils.decodeDataBlock(channel.read(blob));
+    Map<Long, Element> entities = new HashMap<>();
+    switch (type) {
+      case NODE:
+        DenseNodeColumns columns = block.getDenseNodeColumns();
+        for (int i = 0; i < columns.size(); i++) {
+          if (ids.contains(columns.getId(i))) {
+            entities.put(columns.getId(i), columns.getNode(i));
+          }
+        }
+        for (Node node : block.getNodes()) {
+          if (ids.contains(node.getId())) {
+            entities.put(node.getId(), node);
+          }
+        }
+        break;
+      case WAY:
+        for (Way way : block.getWays()) {
+          if (ids.contains(way.getId())) {
+            entities.put(way.getId(), way);
+          }
+        }
+        break;
+      case RELATION:
+        for (Relation relation : block.getRelations()) {
+          if (ids.contains(relation.getId())) {
+            entities.put(relation.getId(), relation);
+          }
+        }
+        break;
+      default:
+        break;
+    }
+    return entities;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+}
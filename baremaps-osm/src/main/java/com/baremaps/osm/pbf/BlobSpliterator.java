@@ -0,0 +1,68 @@
+package com.baremaps.osm.pbf;
+
+import com.baremaps.osm.domain.Blob;
+import com.baremaps.stream.StreamException;
+import java.io.IOException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A {@code BlobSpliterator} covers a range of blobs in a {@code BlobChannel}. As the offsets of the blobs are known
+ * in advance, the range can be split in disjoint halves that can be processed by different workers.
+ */
+class BlobSpliterator implements Spliterator<Blob> {
+
+  private final BlobChannel channel;
+
+  private int index;
+
+  private final int fence;
+
+  /**
+   * Creates a spliterator that covers the blobs from {@code index} (inclusive) to {@code fence} (exclusive).
+   *
+   * @param channel the underlying channel.
+   * @param index   the index of the first blob.
+   * @param fence   the index of the last blob, exclusive.
+   */
+  BlobSpliterator(BlobChannel channel, int index, int fence) {
+    this.channel = channel;
+    this.index = index;
+    this.fence = fence;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super Blob> action) {
+    if (index >= fence) {
+      return false;
+    }
+    try {
+      action.accept(channel.read(index++));
+      return true;
+    } catch (IOException e) {
+      throw new StreamException(e);
+    }
+  }
+
+  @Override
+  public Spliterator<Blob> trySplit() {
+    int middle = (index + fence) >>> 1;
+    if (middle <= index) {
+      return null;
+    }
+    Spliterator<Blob> prefix = new BlobSpliterator(channel, index, middle);
+    index = middle;
+    return prefix;
+  }
+
+  @Override
+  public long estimateSize() {
+    return fence - index;
+  }
+
+  @Override
+  public int characteristics() {
+    return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+  }
+
+}
@@ -2,10 +2,12 @@ package com.baremaps.osm.pbf;
 
 import com.baremaps.osm.domain.Blob;
 import com.baremaps.osm.domain.Block;
+import com.baremaps.osm.domain.ColumnarDataBlock;
 import com.baremaps.osm.domain.DataBlock;
 import com.baremaps.osm.domain.HeaderBlock;
 import com.baremaps.stream.StreamException;
 import com.google.protobuf.InvalidProtocolBufferException;
+import java.io.IOException;
 import java.util.zip.DataFormatException;
 
 public class BlobUtils {
@@ -18,6 +20,18 @@ public class BlobUtils {
     return new BlockReader(blob).readBlock();
   }
 
+  public static Block readBlock(Blob blob, EntityFilter filter) {
+    return new BlockReader(blob).readBlock(filter);
+  }
+
+  public static Block readColumnarBlock(Blob blob) {
+    return new BlockReader(blob).readColumnarBlock();
+  }
+
+  public static Block decodeBlock(Blob blob) {
+    return new BlockReader(blob).decodeBlock();
+  }
+
   public static HeaderBlock readHeaderBlock(Blob blob) {
     try {
       return new HeaderBlockReader(blob).readHeaderBlock();
@@ -34,5 +48,36 @@ public class BlobUtils {
     }
   }
 
+  public static DataBlock readDataBlock(Blob blob, EntityFilter filter) {
+    try {
+      return new DataBlockReader(blob, filter).readDataBlock();
+    } catch (DataFormatException | InvalidProtocolBufferException e) {
+      throw new StreamException(e);
+    }
+  }
+
+  public static ColumnarDataBlock readColumnarDataBlock(Blob blob) {
+    try {
+      return new DataBlockReader(blob).readColumnarDataBlock();
+    } catch (DataFormatException | InvalidProtocolBufferException e) {
+      throw new StreamException(e);
+    }
+  }
+
+  public static ColumnarDataBlock decodeDataBlock(Blob blob) {
+    try (DataBlockDecoder decoder = new DataBlockDecoder(blob)) {
+      return decoder.decodeDataBlock();
+    } catch (DataFormatException | IOException e) {
+      throw new StreamException(e);
+    }
+  }
+
+  public static ColumnarDataBlock decodeDataBlock(Blob blob, EntityFilter filter) {
+    try (DataBlockDecoder decoder = new DataBlockDecoder(blob, filter)) {
+      return decoder.decodeDataBlock();
+    } catch (DataFormatException | IOException e) {
+      throw new StreamException(e);
+    }
+  }
 
 }
@@ -0,0 +1,102 @@
+package com.baremaps.osm.pbf;
+
+import com.baremaps.osm.binary.Fileformat;
+import com.baremaps.osm.domain.Blob;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnsafeByteOperations;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * The decompressed content of a blob borrowed from a {@link BufferPool}.
+ *
+ * <p>The zlib payloads are inflated with an {@code Inflater} reused by the current thread into an array
+ * borrowed from the pool. The content returned by {@link #data()} aliases this array, therefore it must not
+ * be used once the buffer has been closed and returned to the pool.
+ */
+public class BlockBuffer implements AutoCloseable {
+
+  private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+  private final BufferPool pool;
+
+  private byte[] buffer;
+
+  private final ByteString data;
+
+  private BlockBuffer(BufferPool pool, byte[] buffer, ByteString data) {
+    this.pool = pool;
+    this.buffer = buffer;
+    this.data = data;
+  }
+
+  /**
+   * Borrows a buffer from the default pool and decompresses the content of the blob in it.
+   *
+   * @param blob
+   * @return the buffer
+   * @throws DataFormatException
+   * @throws InvalidProtocolBufferException
+   */
+  public static BlockBuffer inflate(Blob blob) throws DataFormatException, InvalidProtocolBufferException {
+    return inflate(blob, BufferPool.getDefault());
+  }
+
+  /**
+   * Borrows a buffer from a pool and decompresses the content of the blob in it.
+   *
+   * @param blob
+   * @param pool
+   * @return the buffer
+   * @throws DataFormatException
+   * @throws InvalidProtocolBufferException
+   */
+  public static BlockBuffer inflate(Blob blob, BufferPool pool)
+      throws DataFormatException, InvalidProtocolBufferException {
+    Fileformat.Blob message = blob.message();
+    if (message.hasRaw()) {
+      return new BlockBuffer(pool, null, message.getRaw());
+    } else if (message.hasZlibData()) {
+      int size = message.getRawSize();
+      byte[] buffer = pool.borrow(size);
+      Inflater inflater = INFLATER.get();
+      try {
+        inflater.setInput(message.getZlibData().asReadOnlyByteBuffer());
+        int length = inflater.inflate(buffer, 0, size);
+        if (length != size || !inflater.finished()) {
+          throw new DataFormatException("Unexpected size of the inflated blob");
+        }
+      } catch (DataFormatException e) {
+        pool.release(buffer);
+        throw e;
+      } finally {
+        inflater.reset();
+      }
+      return new BlockBuffer(pool, buffer, UnsafeByteOperations.unsafeWrap(buffer, 0, size));
+    } else {
+      throw new DataFormatException("Unsupported toPrimitiveBlock format");
+    }
+  }
+
+  /**
+   * Returns the decompressed content of the blob.
+   *
+   * @return the content
+   */
+  public ByteString data() {
+    return data;
+  }
+
+  /**
+   * Returns the array to the pool.
+   */
+  @Override
+  public void close() {
+    if (buffer != null) {
+      pool.release(buffer);
+      buffer = null;
+    }
+  }
+
+}
@@ -22,6 +22,37 @@ public class BlockReader {
     }
   }
 
+  public Block readBlock(EntityFilter filter) {
+    switch (blob.header().getType()) {
+      case "OSMHeader":
+        return BlobUtils.readHeaderBlock(blob);
+      case "OSMData":
+        return BlobUtils.readDataBlock(blob, filter);
+      default:
+        throw new RuntimeException("Unknown blob type");
+    }
+  }
 
+  public Block readColumnarBlock() {
+    switch (blob.header().getType()) {
+      case "OSMHeader":
+        return BlobUtils.readHeaderBlock(blob);
+      case "OSMData":
+        return BlobUtils.readColumnarDataBlock(blob);
+      default:
+        throw new RuntimeException("Unknown blob type");
+    }
+  }
+
+  public Block decodeBlock() {
+    switch (blob.header().getType()) {
+      case "OSMHeader":
+        return BlobUtils.readHeaderBlock(blob);
+      case "OSMData":
+        return BlobUtils.decodeDataBlock(blob);
+      default:
+        throw new RuntimeException("Unknown blob type");
+    }
+  }
 
 }
@@ -0,0 +1,88 @@
+package com.baremaps.osm.pbf;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of byte arrays used to decompress the blobs.
+ *
+ * <p>The decompressed blocks can weigh up to 32MB and allocating a new array for each of them puts a
+ * lot of pressure on the garbage collector (with G1, such arrays are allocated in humongous regions).
+ * The arrays are rounded up to the next power of two so that they can be reused for blocks of similar size.
+ * When the pool is full, the released arrays are left to the garbage collector.
+ */
+public class BufferPool {
+
+  private static final BufferPool DEFAULT = new BufferPool(2 * Runtime.getRuntime().availableProcessors());
+
+  private final int capacity;
+
+  private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<>();
+
+  private final AtomicInteger size = new AtomicInteger();
+
+  /**
+   * Creates a pool.
+   *
+   * @param capacity the maximum number of arrays retained by the pool
+   */
+  public BufferPool(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * Returns the pool shared by the block readers.
+   *
+   * @return the default pool
+   */
+  public static BufferPool getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Borrows an array whose length is greater or equal to the specified length.
+   *
+   * @param length the minimum length of the array
+   * @return an array
+   */
+  public byte[] borrow(int length) {
+    byte[] buffer = buffers.poll();
+    if (buffer != null) {
+      size.decrementAndGet();
+      if (buffer.length >= length) {
+        return buffer;
+      }
+    }
+    return new byte[roundUp(length)];
+  }
+
+  /**
+   * Returns an array to the pool.
+   *
+   * @param buffer
+   */
+  public void release(byte[] buffer) {
+    if (size.incrementAndGet() <= capacity) {
+      buffers.offer(buffer);
+    } else {
+      size.decrementAndGet();
+    }
+  }
+
+  /**
+   * Returns the number of arrays retained by the pool.
+   */
+  public int size() {
+    return size.get();
+  }
+
+  private static int roundUp(int length) {
+    int rounded = Integer.highestOneBit(Math.max(length, 1));
+    if (rounded < length) {
+      rounded = rounded << 1;
+    }
+    return rounded > 0 ? rounded : length;
+  }
+
+}
@@ -0,0 +1,812 @@
+package com.baremaps.osm.pbf;
+
+import com.baremaps.osm.domain.Blob;
+import com.baremaps.osm.domain.ColumnarDataBlock;
+import com.baremaps.osm.domain.DenseNodeColumns;
+import com.baremaps.osm.domain.Entity;
+import com.baremaps.osm.domain.Info;
+import com.baremaps.osm.domain.Member;
+import com.baremaps.osm.domain.Member.MemberType;
+import com.baremaps.osm.domain.Node;
+import com.baremaps.osm.domain.Relation;
+import com.baremaps.osm.domain.Way;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import org.locationtech.jts.geom.Coordinate;
+
+/**
+ * A streaming decoder for primitive blocks that reads the protobuf wire format with a {@code CodedInputStream}.
+ *
+ * <p>Contrary to the {@code DataBlockReader}, the decoder does not build the generated protobuf objects. The
+ * packed and delta coded fields are decoded directly into primitive columns or into the domain objects.
+ *
+ * <p>The decoder borrows the decompressed block from a {@link BufferPool} and aliases it while decoding. It should
+ * therefore be closed once the entities have been decoded in order to return the buffer to the pool.
+ */
+public class DataBlockDecoder implements AutoCloseable {
+
+  private static final int PRIMITIVE_BLOCK_STRINGTABLE = 1;
+  private static final int PRIMITIVE_BLOCK_PRIMITIVEGROUP = 2;
+  private static final int PRIMITIVE_BLOCK_GRANULARITY = 17;
+  private static final int PRIMITIVE_BLOCK_DATE_GRANULARITY = 18;
+  private static final int PRIMITIVE_BLOCK_LAT_OFFSET = 19;
+  private static final int PRIMITIVE_BLOCK_LON_OFFSET = 20;
+
+  private static final int PRIMITIVE_GROUP_NODES = 1;
+  private static final int PRIMITIVE_GROUP_DENSE = 2;
+  private static final int PRIMITIVE_GROUP_WAYS = 3;
+  private static final int PRIMITIVE_GROUP_RELATIONS = 4;
+
+  private static final int ELEMENT_ID = 1;
+  private static final int ELEMENT_KEYS = 2;
+  private static final int ELEMENT_VALS = 3;
+  private static final int ELEMENT_INFO = 4;
+
+  private static final int NODE_LAT = 8;
+  private static final int NODE_LON = 9;
+
+  private static final int WAY_REFS = 8;
+  private static final int WAY_LAT = 9;
+  private static final int WAY_LON = 10;
+
+  private static final int RELATION_ROLES_SID = 8;
+  private static final int RELATION_MEMIDS = 9;
+  private static final int RELATION_TYPES = 10;
+
+  private static final int INFO_VERSION = 1;
+  private static final int INFO_TIMESTAMP = 2;
+  private static final int INFO_CHANGESET = 3;
+  private static final int INFO_UID = 4;
+
+  private static final int DENSE_NODES_ID = 1;
+  private static final int DENSE_NODES_DENSEINFO = 5;
+  private static final int DENSE_NODES_LAT = 8;
+  private static final int DENSE_NODES_LON = 9;
+  private static final int DENSE_NODES_KEYS_VALS = 10;
+
+  private final Blob blob;
+
+  private final EntityFilter filter;
+
+  private final EntityFilter.Matcher matcher;
+
+  private final BlockBuffer buffer;
+
+  private final List<ByteString> groups = new ArrayList<>();
+
+  private String[] stringTable = new String[0];
+  private int granularity = 100;
+  private int dateGranularity = 1000;
+  private long latOffset = 0;
+  private long lonOffset = 0;
+
+  // Scratch buffers reused across the elements of the block.
+  private final IntColumn keys = new IntColumn();
+  private final IntColumn vals = new IntColumn();
+  private final IntColumn roles = new IntColumn();
+  private final LongColumn refs = new LongColumn();
+  private final LongColumn lats = new LongColumn();
+  private final LongColumn lons = new LongColumn();
+  private final IntColumn types = new IntColumn();
+
+  public DataBlockDecoder(Blob blob) throws DataFormatException, IOException {
+    this(blob, EntityFilter.all());
+  }
+
+  /**
+   * Constructs a decoder that only decodes the entities accepted by the specified filter. The elements of the
+   * other types are skipped without being decoded, and the tag rules are evaluated on the indices of the string
+   * table before any object is built. The whole block is skipped if no string matches the allow rules.
+   *
+   * @param blob
+   * @param filter
+   */
+  public DataBlockDecoder(Blob blob, EntityFilter filter) throws DataFormatException, IOException {
+    this.blob = blob;
+    this.filter = filter;
+    this.buffer = BlockBuffer.inflate(blob);
+    CodedInputStream input = buffer.data().newCodedInput();
+    input.enableAliasing(true);
+    int tag;
+    while ((tag = input.readTag()) != 0) {
+      switch (WireFormat.getTagFieldNumber(tag)) {
+        case PRIMITIVE_BLOCK_STRINGTABLE:
+          readStringTable(input);
+          break;
+        case PRIMITIVE_BLOCK_PRIMITIVEGROUP:
+          // The primitive groups are decoded once the granularity and the offsets are known.
+          groups.add(input.readBytes());
+          break;
+        case PRIMITIVE_BLOCK_GRANULARITY:
+          granularity = input.readInt32();
+          break;
+        case PRIMITIVE_BLOCK_DATE_GRANULARITY:
+          dateGranularity = input.readInt32();
+          break;
+        case PRIMITIVE_BLOCK_LAT_OFFSET:
+          latOffset = input.readInt64();
+          break;
+        case PRIMITIVE_BLOCK_LON_OFFSET:
+          lonOffset = input.readInt64();
+          break;
+        default:
+          input.skipField(tag);
+      }
+    }
+    this.matcher = filter.isAll() ? null : filter.matcher(stringTable);
+  }
+
+  /**
+   * Returns the decompressed block to the pool. The decoder cannot be used afterwards.
+   */
+  @Override
+  public void close() {
+    groups.clear();
+    buffer.close();
+  }
+
+  /**
+   * Returns true if the block contains entities of the specified type, whether or not they are accepted by the
+   * filter. Only the tags of the groups are read.
+   *
+   * @param type
+   * @return true if the block contains the type
+   * @throws IOException
+   */
+  public boolean contains(MemberType type) throws IOException {
+    for (ByteString group : groups) {
+      CodedInputStream input = group.newCodedInput();
+      int tag;
+      while ((tag = input.readTag()) != 0) {
+        if (fieldType(WireFormat.getTagFieldNumber(tag)) == type) {
+          return true;
+        }
+        input.skipField(tag);
+      }
+    }
+    return false;
+  }
+
+  public ColumnarDataBlock decodeDataBlock() throws IOException {
+    DenseNodeBuffer denseNodes = new DenseNodeBuffer();
+    List<Node> nodes = new ArrayList<>();
+    List<Way> ways = new ArrayList<>();
+    List<Relation> relations = new ArrayList<>();
+    for (ByteString group : groups) {
+      decodeGroup(group, denseNodes, nodes::add, ways::add, relations::add);
+    }
+    return new ColumnarDataBlock(blob, denseNodes.build(), nodes, ways, relations);
+  }
+
+  /**
+   * Decodes the entities of the block in the order of {@link DataBlockReader#readEntities(Consumer)}: the dense
+   * nodes, the nodes, the ways and the relations of all the groups. Each type is decoded by its own pass over
+   * the groups, which skips the fields of the other types, so that the order does not depend on how the
+   * entities are mixed within the groups.
+   *
+   * @param consumer
+   * @throws IOException
+   */
+  public void decodeEntities(Consumer<Entity> consumer) throws IOException {
+    DenseNodeBuffer denseNodes = new DenseNodeBuffer();
+    for (ByteString group : groups) {
+      decodeGroup(group, denseNodes, null, null, null);
+    }
+    DenseNodeColumns columns = denseNodes.build();
+    for (int i = 0; i < columns.size(); i++) {
+      consumer.accept(columns.getNode(i));
+    }
+    for (ByteString group : groups) {
+      decodeGroup(group, null, consumer::accept, null, null);
+    }
+    for (ByteString group : groups) {
+      decodeGroup(group, null, null, consumer::accept, null);
+    }
+    for (ByteString group : groups) {
+      decodeGroup(group, null, null, null, consumer::accept);
+    }
+  }
+
+  /**
+   * Decodes the fields of a group, skipping the types whose buffer or consumer is null.
+   */
+  private void decodeGroup(
+      ByteString group,
+      DenseNodeBuffer denseNodes,
+      Consumer<Node> nodes,
+      Consumer<Way> ways,
+      Consumer<Relation> relations) throws IOException {
+    CodedInputStream input = group.newCodedInput();
+    input.enableAliasing(true);
+    int tag;
+    while ((tag = input.readTag()) != 0) {
+      switch (WireFormat.getTagFieldNumber(tag)) {
+        case PRIMITIVE_GROUP_NODES:
+          if (nodes != null && accept(filter.acceptNodes())) {
+            Node node = readNode(input);
+            if (node != null) {
+              nodes.accept(node);
+            }
+          } else {
+            input.skipField(tag);
+          }
+          break;
+        case PRIMITIVE_GROUP_DENSE:
+          if (denseNodes != null && accept(filter.acceptNodes())) {
+            readDenseNodes(input, denseNodes);
+          } else {
+            input.skipField(tag);
+          }
+          break;
+        case PRIMITIVE_GROUP_WAYS:
+          if (ways != null && accept(filter.acceptWays())) {
+            Way way = readWay(input);
+            if (way != null) {
+              ways.accept(way);
+            }
+          } else {
+            input.skipField(tag);
+          }
+          break;
+        case PRIMITIVE_GROUP_RELATIONS:
+          if (relations != null && accept(filter.acceptRelations())) {
+            Relation relation = readRelation(input);
+            if (relation != null) {
+              relations.accept(relation);
+            }
+          } else {
+            input.skipField(tag);
+          }
+          break;
+        default:
+          input.skipField(tag);
+      }
+    }
+  }
+
+  private boolean accept(boolean type) {
+    return type && (matcher == null || matcher.mayMatch());
+  }
+
+  /**
+   * Returns true if the tags of the current element, held in the scratch buffers, are accepted by the filter.
+   */
+  private boolean acceptTags() {
+    if (matcher == null) {
+      return true;
+    }
+    boolean allowed = !matcher.requiresAllowedTag();
+    for (int t = 0; t < keys.size; t++) {
+      if (matcher.isBlocked(keys.values[t], vals.values[t])) {
+        return false;
+      }
+      allowed = allowed || matcher.isAllowed(keys.values[t], vals.values[t]);
+    }
+    return allowed;
+  }
+
+  /**
+   * Returns the type of the entities of a field of a primitive group, or null if the field is unknown.
+   */
+  private static MemberType fieldType(int field) {
+    switch (field) {
+      case PRIMITIVE_GROUP_NODES:
+      case PRIMITIVE_GROUP_DENSE:
+        return MemberType.NODE;
+      case PRIMITIVE_GROUP_WAYS:
+        return MemberType.WAY;
+      case PRIMITIVE_GROUP_RELATIONS:
+        return MemberType.RELATION;
+      default:
+        return null;
+    }
+  }
+
+  private void readStringTable(CodedInputStream input) throws IOException {
+    int limit = input.pushLimit(input.readRawVarint32());
+    List<String> strings = new ArrayList<>();
+    int tag;
+    while ((tag = input.readTag()) != 0) {
+      if (WireFormat.getTagFieldNumber(tag) == 1) {
+        strings.add(StringInterner.getDefault().intern(input.readBytes()));
+      } else {
+        input.skipField(tag);
+      }
+    }
+    input.popLimit(limit);
+    stringTable = strings.toArray(new String[0]);
+  }
+
+  private void readDenseNodes(CodedInputStream input, DenseNodeBuffer buffer) throws IOException {
+    int limit = input.pushLimit(input.readRawVarint32());
+    int start = buffer.ids.size;
+    int tag;
+    while ((tag = input.readTag()) != 0) {
+      switch (WireFormat.getTagFieldNumber(tag)) {
+        case DENSE_NODES_ID:
+          readDeltaSInt64(input, tag, buffer.ids);
+          break;
+        case DENSE_NODES_DENSEINFO:
+          readDenseInfo(input, buffer);
+          break;
+        case DENSE_NODES_LAT:
+          readDeltaSInt64(input, tag, buffer.lats);
+          break;
+        case DENSE_NODES_LON:
+          readDeltaSInt64(input, tag, buffer.lons);
+          break;
+        case DENSE_NODES_KEYS_VALS:
+          readInt32(input, tag, buffer.keysVals);
+          break;
+        default:
+          input.skipField(tag);
+      }
+    }
+    input.popLimit(limit);
+    buffer.close(start);
+  }
+
+  private void readDenseInfo(CodedInputStream input, DenseNodeBuffer buffer) throws IOException {
+    int limit = input.pushLimit(input.readRawVarint32());
+    int tag;
+    while ((tag = input.readTag()) != 0) {
+      switch (WireFormat.getTagFieldNumber(tag)) {
+        case INFO_VERSION:
+          readInt32(input, tag, buffer.versions);
+          break;
+        case INFO_TIMESTAMP:
+          readDeltaSInt64(input, tag, buffer.timestamps);
+          break;
+        case INFO_CHANGESET:
+          readDeltaSInt64(input, tag, buffer.changesets);
+          break;
+        case INFO_UID:
+          readDeltaSInt32(input, tag, buffer.uids);
+          break;
+        default:
+          input.skipField(tag);
+      }
+    }
+    input.popLimit(limit);
+  }
+
+  private Node readNode(CodedInputStream input) throws IOException {
+    int limit = input.pushLimit(input.readRawVarint32());
+    long id = 0;
+    Info info = null;
+    long lat = 0;
+    long lon = 0;
+    keys.clear();
+    vals.clear();
+    int tag;
+    while ((tag = input.readTag()) != 0) {
+      switch (WireFormat.getTagFieldNumber(tag)) {
+        case ELEMENT_ID:
+          id = input.readSInt64();
+          break;
+        case ELEMENT_KEYS:
+          readInt32(input, tag, keys);
+          break;
+        case ELEMENT_VALS:
+          readInt32(input, tag, vals);
+          break;
+        case ELEMENT_INFO:
+          info = readInfo(input);
+          break;
+        case NODE_LAT:
+          lat = input.readSInt64();
+          break;
+        case NODE_LON:
+          lon = input.readSInt64();
+          break;
+        default:
+          input.skipField(tag);
+      }
+    }
+    input.popLimit(limit);
+    if (!acceptTags()) {
+      return null;
+    }
+    return new Node(id, info != null ? info : defaultInfo(), getTags(), getLon(lon), getLat(lat));
+  }
+
+  private Way readWay(CodedInputStream input) throws IOException {
+    int limit = input.pushLimit(input.readRawVarint32());
+    long id = 0;
+    Info info = null;
+    keys.clear();
+    vals.clear();
+    refs.clear();
+    lats.clear();
+    lons.clear();
+    int tag;
+    while ((tag = input.readTag()) != 0) {
+      switch (WireFormat.getTagFieldNumber(tag)) {
+        case ELEMENT_ID:
+          id = input.readInt64();
+          break;
+        case ELEMENT_KEYS:
+          readInt32(input, tag, keys);
+          break;
+        case ELEMENT_VALS:
+          readInt32(input, tag, vals);
+          break;
+        case ELEMENT_INFO:
+          info = readInfo(input);
+          break;
+        case WAY_REFS:
+          readDeltaSInt64(input, tag, refs);
+          break;
+        case WAY_LAT:
+          readDeltaSInt64(input, tag, lats);
+          break;
+        case WAY_LON:
+          readDeltaSInt64(input, tag, lons);
+          break;
+        default:
+          input.skipField(tag);
+      }
+    }
+    input.popLimit(limit);
+    if (!acceptTags()) {
+      return null;
+    }
+    List<Long> nodes = new ArrayList<>(refs.size);
+    for (int i = 0; i < refs.size; i++) {
+      nodes.add(refs.values[i]);
+    }
+    if (lats.size == refs.size && lons.size == refs.size && refs.size > 0) {
+      Coordinate[] locations = new Coordinate[refs.size];
+      for (int i = 0; i < refs.size; i++) {
+        locations[i] = getLocation(lons.values[i], lats.values[i]);
+      }
+      return new Way(id, info != null ? info : defaultInfo(), getTags(), nodes, null, locations);
+    }
+    return new Way(id, info != null ? info : defaultInfo(), getTags(), nodes);
+  }
+
+  private Relation readRelation(CodedInputStream input) throws IOException {
+    int limit = input.pushLimit(input.readRawVarint32());
+    long id = 0;
+    Info info = null;
+    keys.clear();
+    vals.clear();
+    roles.clear();
+    refs.clear();
+    types.clear();
+    int tag;
+    while ((tag = input.readTag()) != 0) {
+      switch (WireFormat.getTagFieldNumber(tag)) {
+        case ELEMENT_ID:
+          id = input.readInt64();
+          break;
+        case ELEMENT_KEYS:
+          readInt32(input, tag, keys);
+          break;
+        case ELEMENT_VALS:
+          readInt32(input, tag, vals);
+          break;
+        case ELEMENT_INFO:
+          info = readInfo(input);
+          break;
+        case RELATION_ROLES_SID:
+          readInt32(input, tag, roles);
+          break;
+        case RELATION_MEMIDS:
+          readDeltaSInt64(input, tag, refs);
+          break;
+        case RELATION_TYPES:
+          readInt32(input, tag, types);
+          break;
+        default:
+          input.skipField(tag);
+      }
+    }
+    input.popLimit(limit);
+    if (!acceptTags()) {
+      return null;
+    }
+    List<Member> members = new ArrayList<>(refs.size);
+    for (int i = 0; i < refs.size; i++) {
+      members.add(new Member(refs.values[i], type(types.values[i]), getString(roles.values[i])));
+    }
+    return new Relation(id, info != null ? info : defaultInfo(), getTags(), members);
+  }
+
+  private Info readInfo(CodedInputStream input) throws IOException {
+    int limit = input.pushLimit(input.readRawVarint32());
+    int version = -1;
+    long timestamp = 0;
+    long changeset = 0;
+    int uid = 0;
+    int tag;
+    while ((tag = input.readTag()) != 0) {
+      switch (WireFormat.getTagFieldNumber(tag)) {
+        case INFO_VERSION:
+          version = input.readInt32();
+          break;
+        case INFO_TIMESTAMP:
+          timestamp = input.readInt64();
+          break;
+        case INFO_CHANGESET:
+          changeset = input.readInt64();
+          break;
+        case INFO_UID:
+          uid = input.readInt32();
+          break;
+        default:
+          input.skipField(tag);
+      }
+    }
+    input.popLimit(limit);
+    return new Info(version, dateGranularity * timestamp, changeset, uid);
+  }
+
+  private Info defaultInfo() {
+    return new Info(-1, 0, 0, 0);
+  }
+
+  private static void readInt32(CodedInputStream input, int tag, IntColumn column) throws IOException {
+    if (WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+      int limit = input.pushLimit(input.readRawVarint32());
+      while (input.getBytesUntilLimit() > 0) {
+        column.add(input.readInt32());
+      }
+      input.popLimit(limit);
+    } else {
+      column.add(input.readInt32());
+    }
+  }
+
+  private static void readDeltaSInt32(CodedInputStream input, int tag, IntColumn column) throws IOException {
+    int value = column.last;
+    if (WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+      int limit = input.pushLimit(input.readRawVarint32());
+      while (input.getBytesUntilLimit() > 0) {
+        value += input.readSInt32();
+        column.add(value);
+      }
+      input.popLimit(limit);
+    } else {
+      value += input.readSInt32();
+      column.add(value);
+    }
+    column.last = value;
+  }
+
+  private static void readDeltaSInt64(CodedInputStream input, int tag, LongColumn column) throws IOException {
+    long value = column.last;
+    if (WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+      int limit = input.pushLimit(input.readRawVarint32());
+      while (input.getBytesUntilLimit() > 0) {
+        value += input.readSInt64();
+        column.add(value);
+      }
+      input.popLimit(limit);
+    } else {
+      value += input.readSInt64();
+      column.add(value);
+    }
+    column.last = value;
+  }
+
+  private MemberType type(int type) {
+    switch (type) {
+      case 0:
+        return MemberType.NODE;
+      case 1:
+        return MemberType.WAY;
+      case 2:
+        return MemberType.RELATION;
+      default:
+        throw new UnsupportedOperationException();
+    }
+  }
+
+  private Map<String, String> getTags() {
+    Map<String, String> tags = new HashMap<>();
+    for (int t = 0; t < keys.size; t++) {
+      tags.put(getString(keys.values[t]), getString(vals.values[t]));
+    }
+    return tags;
+  }
+
+  private double getLat(long lat) {
+    return (granularity * lat + latOffset) * .000000001;
+  }
+
+  private double getLon(long lon) {
+    return (granularity * lon + lonOffset) * .000000001;
+  }
+
+  private Coordinate getLocation(long lon, long lat) {
+    if (lon == PbfWriter.UNDEFINED_LOCATION || lat == PbfWriter.UNDEFINED_LOCATION) {
+      return null;
+    }
+    return new Coordinate(getLon(lon), getLat(lat));
+  }
+
+  private String getString(int id) {
+    return stringTable[id];
+  }
+
+  /**
+   * Accumulates the columns of the dense nodes of one or more primitive groups.
+   */
+  private class DenseNodeBuffer {
+
+    private final LongColumn ids = new LongColumn();
+    private final IntColumn versions = new IntColumn();
+    private final LongColumn timestamps = new LongColumn();
+    private final LongColumn changesets = new LongColumn();
+    private final IntColumn uids = new IntColumn();
+    private final LongColumn lats = new LongColumn();
+    private final LongColumn lons = new LongColumn();
+    private final IntColumn keysVals = new IntColumn();
+    private final IntColumn tags = new IntColumn();
+    private final IntColumn tagOffsets = new IntColumn();
+
+    /**
+     * Normalizes the columns of the group that starts at the specified index, and removes the rows whose tags
+     * are not accepted by the filter.
+     */
+    private void close(int start) {
+      int size = ids.size;
+
+      // The metadata may be omitted
+      versions.fill(size, -1);
+      timestamps.fill(size, 0);
+      changesets.fill(size, 0);
+      uids.fill(size, 0);
+
+      // The deltas are reset in every group
+      ids.last = 0;
+      timestamps.last = 0;
+      changesets.last = 0;
+      uids.last = 0;
+      lats.last = 0;
+      lons.last = 0;
+
+      // Remove the delimiters from the keys and values
+      int j = 0;
+      int row = start;
+      for (int i = start; i < size; i++) {
+        int offset = tags.size;
+        boolean allowed = matcher == null || !matcher.requiresAllowedTag();
+        boolean blocked = false;
+        if (keysVals.size > 0) {
+          while (keysVals.values[j] != 0) {
+            int key = keysVals.values[j++];
+            int val = keysVals.values[j++];
+            tags.add(key);
+            tags.add(val);
+            if (matcher != null) {
+              blocked = blocked || matcher.isBlocked(key, val);
+              allowed = allowed || matcher.isAllowed(key, val);
+            }
+          }
+          j++; // Skip over the '0' delimiter.
+        }
+        if (blocked || !allowed) {
+          tags.size = offset;
+          continue;
+        }
+        tagOffsets.add(offset);
+        if (row != i) {
+          move(i, row);
+        }
+        row++;
+      }
+      truncate(row);
+      keysVals.clear();
+    }
+
+    private void move(int from, int to) {
+      ids.values[to] = ids.values[from];
+      versions.values[to] = versions.values[from];
+      timestamps.values[to] = timestamps.values[from];
+      changesets.values[to] = changesets.values[from];
+      uids.values[to] = uids.values[from];
+      lats.values[to] = lats.values[from];
+      lons.values[to] = lons.values[from];
+    }
+
+    private void truncate(int size) {
+      ids.size = size;
+      versions.size = size;
+      timestamps.size = size;
+      changesets.size = size;
+      uids.size = size;
+      lats.size = size;
+      lons.size = size;
+    }
+
+    private DenseNodeColumns build() {
+      int size = ids.size;
+      long[] timestampColumn = new long[size];
+      double[] lonColumn = new double[size];
+      double[] latColumn = new double[size];
+      for (int i = 0; i < size; i++) {
+        timestampColumn[i] = dateGranularity * timestamps.values[i];
+        lonColumn[i] = getLon(lons.values[i]);
+        latColumn[i] = getLat(lats.values[i]);
+      }
+      tagOffsets.add(tags.size);
+      return new DenseNodeColumns(
+          size,
+          Arrays.copyOf(ids.values, size),
+          Arrays.copyOf(versions.values, size),
+          timestampColumn,
+          Arrays.copyOf(changesets.values, size),
+          Arrays.copyOf(uids.values, size),
+          lonColumn,
+          latColumn,
+          Arrays.copyOf(tagOffsets.values, size + 1),
+          Arrays.copyOf(tags.values, tags.size),
+          stringTable);
+    }
+
+  }
+
+  private static class IntColumn {
+
+    private int[] values = new int[16];
+    private int size = 0;
+    private int last = 0;
+
+    private void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    private void fill(int length, int value) {
+      while (size < length) {
+        add(value);
+      }
+    }
+
+    private void clear() {
+      size = 0;
+      last = 0;
+    }
+
+  }
+
+  private static class LongColumn {
+
+    private long[] values = new long[16];
+    private int size = 0;
+    private long last = 0;
+
+    private void add(long value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    private void fill(int length, long value) {
+      while (size < length) {
+        add(value);
+      }
+    }
+
+    private void clear() {
+      size = 0;
+      last = 0;
+    }
+
+  }
+
+}
@@ -4,7 +4,9 @@ import com.baremaps.osm.binary.Osmformat;
 import com.baremaps.osm.binary.Osmformat.DenseNodes;
 import com.baremaps.osm.binary.Osmformat.PrimitiveGroup;
 import com.baremaps.osm.domain.Blob;
+import com.baremaps.osm.domain.ColumnarDataBlock;
 import com.baremaps.osm.domain.DataBlock;
+import com.baremaps.osm.domain.DenseNodeColumns;
 import com.baremaps.osm.domain.Entity;
 import com.baremaps.osm.domain.Info;
 import com.baremaps.osm.domain.Member;
@@ -13,15 +15,13 @@ import com.baremaps.osm.domain.Node;
 import com.baremaps.osm.domain.Relation;
 import com.baremaps.osm.domain.Way;
 import com.google.protobuf.InvalidProtocolBufferException;
-import java.time.Instant;
-import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TimeZone;
 import java.util.function.Consumer;
 import java.util.zip.DataFormatException;
+import org.locationtech.jts.geom.Coordinate;
 
 public class DataBlockReader {
 
@@ -33,18 +33,40 @@ public class DataBlockReader {
   private final long latOffset;
   private final long lonOffset;
   private final String[] stringTable;
+  private final EntityFilter filter;
+  private final EntityFilter.Matcher matcher;
 
   public DataBlockReader(Blob blob) throws DataFormatException, InvalidProtocolBufferException {
+    this(blob, EntityFilter.all());
+  }
+
+  /**
+   * Constructs a reader that only decodes the entities accepted by the specified filter. The filter is
+   * evaluated on the indices of the string table before any entity is built, and the groups (or the whole
+   * block) that cannot contain an accepted entity are skipped. The dense node columns are not filtered.
+   *
+   * @param blob
+   * @param filter
+   * @throws DataFormatException
+   * @throws InvalidProtocolBufferException
+   */
+  public DataBlockReader(Blob blob, EntityFilter filter)
+      throws DataFormatException, InvalidProtocolBufferException {
     this.blob = blob;
-    this.primitiveBlock = Osmformat.PrimitiveBlock.parseFrom(blob.data());
+    try (BlockBuffer buffer = BlockBuffer.inflate(blob)) {
+      // The parsed message copies the content of the buffer, which can be released right away.
+      this.primitiveBlock = Osmformat.PrimitiveBlock.parseFrom(buffer.data());
+    }
     this.granularity = primitiveBlock.getGranularity();
     this.latOffset = primitiveBlock.getLatOffset();
     this.lonOffset = primitiveBlock.getLonOffset();
     this.dateGranularity = primitiveBlock.getDateGranularity();
     this.stringTable = new String[primitiveBlock.getStringtable().getSCount()];
     for (int i = 0; i < stringTable.length; i++) {
-      stringTable[i] = primitiveBlock.getStringtable().getS(i).toStringUtf8();
+      stringTable[i] = StringInterner.getDefault().intern(primitiveBlock.getStringtable().getS(i));
     }
+    this.filter = filter;
+    this.matcher = filter.isAll() ? null : filter.matcher(stringTable);
   }
 
   public DataBlock readDataBlock() {
@@ -59,6 +81,17 @@ public class DataBlockReader {
     return new DataBlock(blob, denseNodes, nodes, ways, relations);
   }
 
+  public ColumnarDataBlock readColumnarDataBlock() {
+    DenseNodeColumns denseNodes = readDenseNodeColumns();
+    List<Node> nodes = new ArrayList<>();
+    readNodes(nodes::add);
+    List<Way> ways = new ArrayList<>();
+    readWays(ways::add);
+    List<Relation> relations = new ArrayList<>();
+    readRelations(relations::add);
+    return new ColumnarDataBlock(blob, denseNodes, nodes, ways, relations);
+  }
+
   public void readEntities(Consumer<Entity> consumer) {
     readDenseNodes(consumer::accept);
     readNodes(consumer::accept);
@@ -67,7 +100,13 @@ public class DataBlockReader {
   }
 
   public void readDenseNodes(Consumer<Node> consumer) {
+    if (!accept(filter.acceptNodes())) {
+      return;
+    }
     for (PrimitiveGroup group : primitiveBlock.getPrimitivegroupList()) {
+      if (!group.hasDense()) {
+        continue;
+      }
       DenseNodes denseNodes = group.getDense();
 
       long id = 0;
@@ -93,6 +132,15 @@ public class DataBlockReader {
         lon = denseNodes.getLon(i) + lon;
 
         // If empty, assume that nothing here has keys or vals.
+        if (matcher != null && !accept(denseNodes, j)) {
+          if (denseNodes.getKeysValsCount() > 0) {
+            while (denseNodes.getKeysVals(j) != 0) {
+              j += 2;
+            }
+            j++; // Skip over the '0' delimiter.
+          }
+          continue;
+        }
         Map<String, String> tags = new HashMap<>();
         if (denseNodes.getKeysValsCount() > 0) {
           while (denseNodes.getKeysVals(j) != 0) {
@@ -109,17 +157,91 @@ public class DataBlockReader {
     }
   }
 
+  public DenseNodeColumns readDenseNodeColumns() {
+    int size = 0;
+    int keysValsSize = 0;
+    for (PrimitiveGroup group : primitiveBlock.getPrimitivegroupList()) {
+      size += group.getDense().getIdCount();
+      keysValsSize += group.getDense().getKeysValsCount();
+    }
+
+    long[] ids = new long[size];
+    int[] versions = new int[size];
+    long[] timestamps = new long[size];
+    long[] changesets = new long[size];
+    int[] uids = new int[size];
+    double[] lons = new double[size];
+    double[] lats = new double[size];
+    int[] tagOffsets = new int[size + 1];
+    int[] keysVals = new int[keysValsSize];
+
+    // Index into the columns and into the keysVals column.
+    int n = 0;
+    int k = 0;
+    for (PrimitiveGroup group : primitiveBlock.getPrimitivegroupList()) {
+      DenseNodes denseNodes = group.getDense();
+      Osmformat.DenseInfo denseInfo = denseNodes.getDenseinfo();
+
+      long id = 0;
+      long lat = 0;
+      long lon = 0;
+      long timestamp = 0;
+      long changeset = 0;
+      int uid = 0;
+
+      // Index into the keysvals array of the group.
+      int j = 0;
+      for (int i = 0; i < denseNodes.getIdCount(); i++) {
+        id = denseNodes.getId(i) + id;
+        uid = denseInfo.getUid(i) + uid;
+        timestamp = denseInfo.getTimestamp(i) + timestamp;
+        changeset = denseInfo.getChangeset(i) + changeset;
+        lat = denseNodes.getLat(i) + lat;
+        lon = denseNodes.getLon(i) + lon;
+
+        ids[n] = id;
+        versions[n] = denseInfo.getVersion(i);
+        timestamps[n] = dateGranularity * timestamp;
+        changesets[n] = changeset;
+        uids[n] = uid;
+        lons[n] = getLon(lon);
+        lats[n] = getLat(lat);
+        tagOffsets[n] = k;
+
+        // If empty, assume that nothing here has keys or vals.
+        if (denseNodes.getKeysValsCount() > 0) {
+          while (denseNodes.getKeysVals(j) != 0) {
+            keysVals[k++] = denseNodes.getKeysVals(j++);
+            keysVals[k++] = denseNodes.getKeysVals(j++);
+          }
+          j++; // Skip over the '0' delimiter.
+        }
+        n++;
+      }
+    }
+    tagOffsets[n] = k;
+
+    return new DenseNodeColumns(size, ids, versions, timestamps, changesets, uids, lons, lats,
+        tagOffsets, keysVals, stringTable);
+  }
+
   public void readNodes(Consumer<Node> consumer) {
+    if (!accept(filter.acceptNodes())) {
+      return;
+    }
     for (PrimitiveGroup group : primitiveBlock.getPrimitivegroupList()) {
       for (Osmformat.Node node : group.getNodesList()) {
+        if (matcher != null && !accept(node.getKeysList(), node.getValsList())) {
+          continue;
+        }
         long id = node.getId();
         int version = node.getInfo().getVersion();
-        LocalDateTime timestamp = getTimestamp(node.getInfo().getTimestamp());
+        long timestamp = getTimestamp(node.getInfo().getTimestamp());
         long changeset = node.getInfo().getChangeset();
         int uid = node.getInfo().getUid();
         Map<String, String> tags = new HashMap<>();
         for (int t = 0; t < node.getKeysList().size(); t++) {
-          tags.put(getString(node.getKeysList().get(t)), getString(node.getKeysList().get(t)));
+          tags.put(getString(node.getKeysList().get(t)), getString(node.getValsList().get(t)));
         }
         double lon = getLon(node.getLon());
         double lat = getLat(node.getLat());
@@ -131,11 +253,17 @@ public class DataBlockReader {
   }
 
   public void readWays(Consumer<Way> consumer) {
+    if (!accept(filter.acceptWays())) {
+      return;
+    }
     for (PrimitiveGroup group : primitiveBlock.getPrimitivegroupList()) {
       for (Osmformat.Way way : group.getWaysList()) {
+        if (matcher != null && !accept(way.getKeysList(), way.getValsList())) {
+          continue;
+        }
         long id = way.getId();
         int version = way.getInfo().getVersion();
-        LocalDateTime timestamp = getTimestamp(way.getInfo().getTimestamp());
+        long timestamp = getTimestamp(way.getInfo().getTimestamp());
         long changeset = way.getInfo().getChangeset();
         int uid = way.getInfo().getUid();
         Map<String, String> tags = getTags(way.getKeysList(), way.getValsList());
@@ -147,17 +275,37 @@ public class DataBlockReader {
         }
 
         Info info = new Info(version, timestamp, changeset, uid);
-        consumer.accept(new Way(id, info, tags, nodes));
+        int size = way.getRefsCount();
+        if (size > 0 && way.getLatCount() == size && way.getLonCount() == size) {
+          // The way embeds the locations of its nodes (LocationsOnWays).
+          Coordinate[] locations = new Coordinate[size];
+          long lat = 0;
+          long lon = 0;
+          for (int index = 0; index < size; index++) {
+            lat = lat + way.getLat(index);
+            lon = lon + way.getLon(index);
+            locations[index] = getLocation(lon, lat);
+          }
+          consumer.accept(new Way(id, info, tags, nodes, null, locations));
+        } else {
+          consumer.accept(new Way(id, info, tags, nodes));
+        }
       }
     }
   }
 
   public void readRelations(Consumer<Relation> consumer) {
+    if (!accept(filter.acceptRelations())) {
+      return;
+    }
     for (PrimitiveGroup group : primitiveBlock.getPrimitivegroupList()) {
       for (Osmformat.Relation relation : group.getRelationsList()) {
+        if (matcher != null && !accept(relation.getKeysList(), relation.getValsList())) {
+          continue;
+        }
         long id = relation.getId();
         int version = relation.getInfo().getVersion();
-        LocalDateTime timestamp = getTimestamp(relation.getInfo().getTimestamp());
+        long timestamp = getTimestamp(relation.getInfo().getTimestamp());
         long changeset = relation.getInfo().getChangeset();
         int uid = relation.getInfo().getUid();
         Map<String, String> tags = getTags(relation.getKeysList(), relation.getValsList());
@@ -198,9 +346,47 @@ public class DataBlockReader {
     return (granularity * lon + lonOffset) * .000000001;
   }
 
-  private LocalDateTime getTimestamp(long timestamp) {
-    return LocalDateTime
-        .ofInstant(Instant.ofEpochMilli(dateGranularity * timestamp), TimeZone.getDefault().toZoneId());
+  private Coordinate getLocation(long lon, long lat) {
+    if (lon == PbfWriter.UNDEFINED_LOCATION || lat == PbfWriter.UNDEFINED_LOCATION) {
+      return null;
+    }
+    return new Coordinate(getLon(lon), getLat(lat));
+  }
+
+  private long getTimestamp(long timestamp) {
+    return dateGranularity * timestamp;
+  }
+
+  private boolean accept(boolean type) {
+    return type && (matcher == null || matcher.mayMatch());
+  }
+
+  private boolean accept(List<Integer> keys, List<Integer> vals) {
+    boolean allowed = !matcher.requiresAllowedTag();
+    for (int t = 0; t < keys.size(); t++) {
+      int key = keys.get(t);
+      int val = vals.get(t);
+      if (matcher.isBlocked(key, val)) {
+        return false;
+      }
+      allowed = allowed || matcher.isAllowed(key, val);
+    }
+    return allowed;
+  }
+
+  private boolean accept(DenseNodes denseNodes, int j) {
+    boolean allowed = !matcher.requiresAllowedTag();
+    if (denseNodes.getKeysValsCount() > 0) {
+      while (denseNodes.getKeysVals(j) != 0) {
+        int key = denseNodes.getKeysVals(j++);
+        int val = denseNodes.getKeysVals(j++);
+        if (matcher.isBlocked(key, val)) {
+          return false;
+        }
+        allowed = allowed || matcher.isAllowed(key, val);
+      }
+    }
+    return allowed;
   }
 
   private Map<String, String> getTags(List<Integer> keys, List<Integer> vals) {
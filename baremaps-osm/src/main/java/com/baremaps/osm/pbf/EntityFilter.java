@@ -0,0 +1,330 @@
+package com.baremaps.osm.pbf;
+
+import com.baremaps.config.mapping.Mapping;
+import com.baremaps.config.mapping.Table;
+import com.baremaps.osm.domain.Element;
+import com.baremaps.osm.domain.Node;
+import com.baremaps.osm.domain.Relation;
+import com.baremaps.osm.domain.Way;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A specification of the entities that should be decoded from the data blocks.
+ *
+ * <p>The entity types are selected with the {@code node}, {@code way} and {@code relation} names and the
+ * tags are selected with rules of the form {@code key} or {@code key=value}. An entity is accepted when its
+ * type is allowed, when one of its tags matches an allow rule (if any) and when none of its tags matches a
+ * block rule. The rules are compiled against the string table of each block with {@link #matcher(String[])}
+ * so that they can be evaluated on the raw indices of the tags before any object is built.
+ */
+public class EntityFilter {
+
+  public static final String NODE = "node";
+
+  public static final String WAY = "way";
+
+  public static final String RELATION = "relation";
+
+  private static final EntityFilter ALL = new EntityFilter(
+      true, true, true, Collections.<String>emptyList(), Collections.<String>emptyList());
+
+  private final boolean nodes;
+
+  private final boolean ways;
+
+  private final boolean relations;
+
+  private final List<String[]> allowTags;
+
+  private final List<String[]> blockTags;
+
+  /**
+   * Constructs a filter.
+   *
+   * @param nodes     accept the nodes
+   * @param ways      accept the ways
+   * @param relations accept the relations
+   * @param allowTags the rules of the tags that must be present (empty to accept all the tags)
+   * @param blockTags the rules of the tags that must be absent
+   */
+  public EntityFilter(
+      boolean nodes,
+      boolean ways,
+      boolean relations,
+      Collection<String> allowTags,
+      Collection<String> blockTags) {
+    this(nodes, ways, relations, parseRules(allowTags), parseRules(blockTags));
+  }
+
+  private EntityFilter(
+      boolean nodes,
+      boolean ways,
+      boolean relations,
+      List<String[]> allowTags,
+      List<String[]> blockTags) {
+    this.nodes = nodes;
+    this.ways = ways;
+    this.relations = relations;
+    this.allowTags = allowTags;
+    this.blockTags = blockTags;
+  }
+
+  /**
+   * Returns a filter that accepts all the entities.
+   *
+   * @return the filter
+   */
+  public static EntityFilter all() {
+    return ALL;
+  }
+
+  /**
+   * Creates a filter from the entity and tag rules of a mapping.
+   *
+   * @param mapping
+   * @return the filter
+   */
+  public static EntityFilter of(Mapping mapping) {
+    Set<String> types = new HashSet<>(Arrays.asList(NODE, WAY, RELATION));
+    if (mapping.getAllowEntities() != null && !mapping.getAllowEntities().isEmpty()) {
+      types.retainAll(mapping.getAllowEntities());
+    }
+    if (mapping.getBlockEntities() != null) {
+      types.removeAll(mapping.getBlockEntities());
+    }
+    return new EntityFilter(
+        types.contains(NODE),
+        types.contains(WAY),
+        types.contains(RELATION),
+        mapping.getAllowTags() != null ? mapping.getAllowTags() : Collections.emptyList(),
+        mapping.getBlockTags() != null ? mapping.getBlockTags() : Collections.emptyList());
+  }
+
+  /**
+   * Creates a filter from the entity and tag rules of a table of a mapping.
+   *
+   * @param table
+   * @return the filter
+   */
+  public static EntityFilter of(Table table) {
+    List<String> entities = table.getAllowEntities();
+    boolean all = entities == null || entities.isEmpty();
+    return new EntityFilter(
+        all || entities.contains(NODE),
+        all || entities.contains(WAY),
+        all || entities.contains(RELATION),
+        table.getAllowTags() != null ? table.getAllowTags() : Collections.emptyList(),
+        table.getBlockTags() != null ? table.getBlockTags() : Collections.emptyList());
+  }
+
+  public boolean acceptNodes() {
+    return nodes;
+  }
+
+  public boolean acceptWays() {
+    return ways;
+  }
+
+  public boolean acceptRelations() {
+    return relations;
+  }
+
+  /**
+   * Returns a filter with the same tag rules that only accepts the specified types among the types accepted by
+   * this filter.
+   *
+   * @param nodes     accept the nodes
+   * @param ways      accept the ways
+   * @param relations accept the relations
+   * @return the filter
+   */
+  public EntityFilter restrict(boolean nodes, boolean ways, boolean relations) {
+    return new EntityFilter(
+        this.nodes && nodes, this.ways && ways, this.relations && relations, allowTags, blockTags);
+  }
+
+  /**
+   * Returns true if the filter accepts an element that has already been built.
+   *
+   * @param element
+   * @return true if the element is accepted
+   */
+  public boolean accept(Element element) {
+    if (element instanceof Node && !nodes
+        || element instanceof Way && !ways
+        || element instanceof Relation && !relations) {
+      return false;
+    }
+    Map<String, String> tags = element.getTags();
+    return (allowTags.isEmpty() || matches(allowTags, tags)) && !matches(blockTags, tags);
+  }
+
+  /**
+   * Returns true if the filter accepts all the entities.
+   */
+  public boolean isAll() {
+    return nodes && ways && relations && allowTags.isEmpty() && blockTags.isEmpty();
+  }
+
+  /**
+   * Compiles the tag rules against the string table of a block.
+   *
+   * @param stringTable
+   * @return the matcher
+   */
+  public Matcher matcher(String[] stringTable) {
+    return new Matcher(stringTable);
+  }
+
+  private static boolean matches(List<String[]> rules, Map<String, String> tags) {
+    for (String[] rule : rules) {
+      String value = tags.get(rule[0]);
+      if (value != null && (rule.length == 1 || rule[1].equals(value))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static List<String[]> parseRules(Collection<String> rules) {
+    List<String[]> list = new ArrayList<>();
+    for (String rule : rules) {
+      int separator = rule.indexOf('=');
+      if (separator < 0) {
+        list.add(new String[] {rule});
+      } else {
+        list.add(new String[] {rule.substring(0, separator), rule.substring(separator + 1)});
+      }
+    }
+    return list;
+  }
+
+  /**
+   * The tag rules of a filter compiled against the string table of a block.
+   */
+  public class Matcher {
+
+    private static final byte KEY = 1;
+
+    private static final byte PAIR = 2;
+
+    private final byte[] allowKeys;
+
+    private final byte[] blockKeys;
+
+    private final long[] allowPairs;
+
+    private final long[] blockPairs;
+
+    private final boolean mayMatch;
+
+    private Matcher(String[] stringTable) {
+      Map<String, List<Integer>> indices = new HashMap<>();
+      for (String[] rule : allowTags) {
+        indices.put(rule[0], new ArrayList<>());
+        if (rule.length > 1) {
+          indices.put(rule[1], new ArrayList<>());
+        }
+      }
+      for (String[] rule : blockTags) {
+        indices.put(rule[0], new ArrayList<>());
+        if (rule.length > 1) {
+          indices.put(rule[1], new ArrayList<>());
+        }
+      }
+      for (int i = 0; i < stringTable.length; i++) {
+        List<Integer> list = indices.get(stringTable[i]);
+        if (list != null) {
+          list.add(i);
+        }
+      }
+      this.allowKeys = new byte[stringTable.length];
+      this.blockKeys = new byte[stringTable.length];
+      this.allowPairs = compile(allowTags, indices, allowKeys);
+      this.blockPairs = compile(blockTags, indices, blockKeys);
+      boolean allowed = allowTags.isEmpty();
+      for (int i = 0; i < allowKeys.length && !allowed; i++) {
+        allowed = allowKeys[i] != 0;
+      }
+      this.mayMatch = (nodes || ways || relations) && allowed;
+    }
+
+    private long[] compile(List<String[]> rules, Map<String, List<Integer>> indices, byte[] keys) {
+      List<Long> pairs = new ArrayList<>();
+      for (String[] rule : rules) {
+        for (int key : indices.get(rule[0])) {
+          if (rule.length == 1) {
+            keys[key] |= KEY;
+          } else {
+            for (int value : indices.get(rule[1])) {
+              keys[key] |= PAIR;
+              pairs.add(pair(key, value));
+            }
+          }
+        }
+      }
+      return pairs.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    /**
+     * Returns false if no entity of the block can be accepted by the filter.
+     */
+    public boolean mayMatch() {
+      return mayMatch;
+    }
+
+    /**
+     * Returns true if an entity must have an allowed tag to be accepted.
+     */
+    public boolean requiresAllowedTag() {
+      return !allowTags.isEmpty();
+    }
+
+    /**
+     * Returns true if the tag matches an allow rule.
+     *
+     * @param key   the index of the key in the string table
+     * @param value the index of the value in the string table
+     * @return true if the tag is allowed
+     */
+    public boolean isAllowed(int key, int value) {
+      return matches(allowKeys, allowPairs, key, value);
+    }
+
+    /**
+     * Returns true if the tag matches a block rule.
+     *
+     * @param key   the index of the key in the string table
+     * @param value the index of the value in the string table
+     * @return true if the tag is blocked
+     */
+    public boolean isBlocked(int key, int value) {
+      return matches(blockKeys, blockPairs, key, value);
+    }
+
+    private boolean matches(byte[] keys, long[] pairs, int key, int value) {
+      byte flags = keys[key];
+      if (flags == 0) {
+        return false;
+      }
+      if ((flags & KEY) != 0) {
+        return true;
+      }
+      return Arrays.binarySearch(pairs, pair(key, value)) >= 0;
+    }
+
+    private long pair(int key, int value) {
+      return ((long) key << 32) | (value & 0xFFFFFFFFL);
+    }
+
+  }
+
+}
@@ -10,6 +10,8 @@ import com.google.protobuf.InvalidProtocolBufferException;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.zip.DataFormatException;
 
 public class HeaderBlockReader {
@@ -22,7 +24,9 @@ public class HeaderBlockReader {
 
   public HeaderBlockReader(Blob blob) throws DataFormatException, InvalidProtocolBufferException {
     this.blob = blob;
-    this.headerBlock = Osmformat.HeaderBlock.parseFrom(blob.data());
+    try (BlockBuffer buffer = BlockBuffer.inflate(blob)) {
+      this.headerBlock = Osmformat.HeaderBlock.parseFrom(buffer.data());
+    }
   }
 
   public HeaderBlock readHeaderBlock() {
@@ -31,7 +35,9 @@ public class HeaderBlockReader {
     String replicationBaseUrl = headerBlock.getOsmosisReplicationBaseUrl();
     String source = headerBlock.getSource();
     String writingProgram = headerBlock.getWritingprogram();
-    Header header = new Header(replicationSequenceNumber, timestamp, replicationBaseUrl, source, writingProgram);
+    List<String> optionalFeatures = new ArrayList<>(headerBlock.getOptionalFeaturesList());
+    Header header = new Header(replicationSequenceNumber, timestamp, replicationBaseUrl, source, writingProgram,
+        optionalFeatures);
 
     HeaderBBox headerBBox = headerBlock.getBbox();
     double minLon = headerBBox.getLeft() * .000000001;
@@ -0,0 +1,649 @@
+package com.baremaps.osm.pbf;
+
+import com.baremaps.osm.binary.Fileformat;
+import com.baremaps.osm.cache.Cache;
+import com.baremaps.osm.cache.CacheException;
+import com.baremaps.osm.domain.Bound;
+import com.baremaps.osm.domain.Element;
+import com.baremaps.osm.domain.Header;
+import com.baremaps.osm.domain.Info;
+import com.baremaps.osm.domain.Member;
+import com.baremaps.osm.domain.Node;
+import com.baremaps.osm.domain.Relation;
+import com.baremaps.osm.domain.Way;
+import com.baremaps.osm.handler.EntityConsumer;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.UnsafeByteOperations;
+import com.google.protobuf.WireFormat;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import org.locationtech.jts.geom.Coordinate;
+
+/**
+ * A writer that encodes a stream of entities in the OpenStreetMap PBF format.
+ *
+ * <p>The entities are expected in the order of an OpenStreetMap file (header, nodes, ways and relations) and
+ * are grouped in blocks of entities of the same type. The nodes are always written as dense nodes. The blocks
+ * are encoded and compressed in parallel by a pool of threads, and written in order by the calling thread.
+ *
+ * <p>When a coordinate cache is provided, the writer runs in locations-on-ways mode: the coordinates of the
+ * nodes are added to the cache as they are written, and the ways carry the coordinates of their nodes
+ * (the {@code LocationsOnWays} optional feature). The coordinates missing from the cache are written as
+ * {@link #UNDEFINED_LOCATION}.
+ */
+public class PbfWriter implements EntityConsumer, Closeable {
+
+  public static final int UNDEFINED_LOCATION = Integer.MAX_VALUE;
+
+  private static final int DEFAULT_BLOCK_SIZE = 8000;
+
+  private static final int GRANULARITY = 100;
+
+  private static final int DATE_GRANULARITY = 1000;
+
+  private static final int HEADER_BLOCK_BBOX = 1;
+  private static final int HEADER_BLOCK_REQUIRED_FEATURES = 4;
+  private static final int HEADER_BLOCK_OPTIONAL_FEATURES = 5;
+  private static final int HEADER_BLOCK_WRITINGPROGRAM = 16;
+  private static final int HEADER_BLOCK_SOURCE = 17;
+  private static final int HEADER_BLOCK_REPLICATION_TIMESTAMP = 32;
+  private static final int HEADER_BLOCK_REPLICATION_SEQUENCE_NUMBER = 33;
+  private static final int HEADER_BLOCK_REPLICATION_BASE_URL = 34;
+
+  private static final int HEADER_BBOX_LEFT = 1;
+  private static final int HEADER_BBOX_RIGHT = 2;
+  private static final int HEADER_BBOX_TOP = 3;
+  private static final int HEADER_BBOX_BOTTOM = 4;
+
+  private static final int PRIMITIVE_BLOCK_STRINGTABLE = 1;
+  private static final int PRIMITIVE_BLOCK_PRIMITIVEGROUP = 2;
+  private static final int STRINGTABLE_S = 1;
+
+  private static final int PRIMITIVE_GROUP_DENSE = 2;
+  private static final int PRIMITIVE_GROUP_WAYS = 3;
+  private static final int PRIMITIVE_GROUP_RELATIONS = 4;
+
+  private static final int ELEMENT_ID = 1;
+  private static final int ELEMENT_KEYS = 2;
+  private static final int ELEMENT_VALS = 3;
+  private static final int ELEMENT_INFO = 4;
+
+  private static final int WAY_REFS = 8;
+  private static final int WAY_LAT = 9;
+  private static final int WAY_LON = 10;
+
+  private static final int RELATION_ROLES_SID = 8;
+  private static final int RELATION_MEMIDS = 9;
+  private static final int RELATION_TYPES = 10;
+
+  private static final int INFO_VERSION = 1;
+  private static final int INFO_TIMESTAMP = 2;
+  private static final int INFO_CHANGESET = 3;
+  private static final int INFO_UID = 4;
+  private static final int INFO_USER_SID = 5;
+
+  private static final int DENSE_NODES_ID = 1;
+  private static final int DENSE_NODES_DENSEINFO = 5;
+  private static final int DENSE_NODES_LAT = 8;
+  private static final int DENSE_NODES_LON = 9;
+  private static final int DENSE_NODES_KEYS_VALS = 10;
+
+  private static final int DENSE_INFO_VERSION = 1;
+  private static final int DENSE_INFO_TIMESTAMP = 2;
+  private static final int DENSE_INFO_CHANGESET = 3;
+  private static final int DENSE_INFO_UID = 4;
+  private static final int DENSE_INFO_USER_SID = 5;
+
+  private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(Deflater::new);
+
+  private final DataOutputStream output;
+
+  private final int blockSize;
+
+  private final Cache<Long, Coordinate> coordinateCache;
+
+  private final ExecutorService executor;
+
+  private final int maxPendingBlocks;
+
+  private final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+
+  private Header header;
+
+  private Bound bound;
+
+  private boolean headerWritten = false;
+
+  private List<Node> nodes = new ArrayList<>();
+
+  private List<Way> ways = new ArrayList<>();
+
+  private List<Relation> relations = new ArrayList<>();
+
+  /**
+   * Constructs a writer that uses all the available processors.
+   *
+   * @param output
+   */
+  public PbfWriter(OutputStream output) {
+    this(output, DEFAULT_BLOCK_SIZE, Runtime.getRuntime().availableProcessors(), null);
+  }
+
+  /**
+   * Constructs a writer.
+   *
+   * @param output          the output stream, which is closed with the writer
+   * @param blockSize       the maximum number of entities per block
+   * @param threads         the number of threads used to encode and compress the blocks
+   * @param coordinateCache the cache used in locations-on-ways mode or null
+   */
+  public PbfWriter(OutputStream output, int blockSize, int threads, Cache<Long, Coordinate> coordinateCache) {
+    this.output = new DataOutputStream(output);
+    this.blockSize = blockSize;
+    this.coordinateCache = coordinateCache;
+    this.executor = Executors.newFixedThreadPool(threads);
+    this.maxPendingBlocks = 2 * threads;
+  }
+
+  @Override
+  public void match(Header header) throws Exception {
+    checkHeader();
+    this.header = header;
+  }
+
+  @Override
+  public void match(Bound bound) throws Exception {
+    checkHeader();
+    this.bound = bound;
+  }
+
+  @Override
+  public void match(Node node) throws Exception {
+    writeHeader();
+    if (!ways.isEmpty() || !relations.isEmpty()) {
+      flush();
+    }
+    nodes.add(node);
+    if (coordinateCache != null) {
+      coordinateCache.add(node.getId(), new Coordinate(node.getLon(), node.getLat()));
+    }
+    if (nodes.size() >= blockSize) {
+      flush();
+    }
+  }
+
+  @Override
+  public void match(Way way) throws Exception {
+    writeHeader();
+    if (!nodes.isEmpty() || !relations.isEmpty()) {
+      flush();
+    }
+    ways.add(way);
+    if (ways.size() >= blockSize) {
+      flush();
+    }
+  }
+
+  @Override
+  public void match(Relation relation) throws Exception {
+    writeHeader();
+    if (!nodes.isEmpty() || !ways.isEmpty()) {
+      flush();
+    }
+    relations.add(relation);
+    if (relations.size() >= blockSize) {
+      flush();
+    }
+  }
+
+  /**
+   * Writes the pending blocks, closes the output stream and releases the threads of the writer.
+   *
+   * @throws IOException
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      writeHeader();
+      flush();
+      drain(0);
+    } finally {
+      executor.shutdownNow();
+      output.close();
+    }
+  }
+
+  private void checkHeader() {
+    if (headerWritten) {
+      throw new IllegalStateException("The header must precede the elements");
+    }
+  }
+
+  private void writeHeader() throws IOException {
+    if (!headerWritten) {
+      headerWritten = true;
+      Header header = this.header;
+      Bound bound = this.bound;
+      submit(() -> encodeBlob("OSMHeader", encodeHeaderBlock(header, bound)));
+    }
+  }
+
+  private void flush() throws IOException {
+    if (!nodes.isEmpty()) {
+      List<Node> block = nodes;
+      nodes = new ArrayList<>();
+      submit(() -> encodeBlob("OSMData", encodeDenseNodes(block)));
+    }
+    if (!ways.isEmpty()) {
+      List<Way> block = ways;
+      ways = new ArrayList<>();
+      submit(() -> encodeBlob("OSMData", encodeWays(block)));
+    }
+    if (!relations.isEmpty()) {
+      List<Relation> block = relations;
+      relations = new ArrayList<>();
+      submit(() -> encodeBlob("OSMData", encodeRelations(block)));
+    }
+  }
+
+  private void submit(Callable<byte[]> task) throws IOException {
+    pendingBlocks.addLast(executor.submit(task));
+    drain(maxPendingBlocks);
+  }
+
+  private void drain(int max) throws IOException {
+    while (pendingBlocks.size() > max) {
+      try {
+        output.write(pendingBlocks.removeFirst().get());
+      } catch (ExecutionException e) {
+        throw new IOException(e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException(e);
+      }
+    }
+  }
+
+  private byte[] encodeHeaderBlock(Header header, Bound bound) throws IOException {
+    Encoder encoder = new Encoder();
+    if (bound != null) {
+      Encoder bbox = new Encoder();
+      bbox.output.writeSInt64(HEADER_BBOX_LEFT, Math.round(bound.getMinLon() * 1e9));
+      bbox.output.writeSInt64(HEADER_BBOX_RIGHT, Math.round(bound.getMaxLon() * 1e9));
+      bbox.output.writeSInt64(HEADER_BBOX_TOP, Math.round(bound.getMaxLat() * 1e9));
+      bbox.output.writeSInt64(HEADER_BBOX_BOTTOM, Math.round(bound.getMinLat() * 1e9));
+      encoder.output.writeByteArray(HEADER_BLOCK_BBOX, bbox.toByteArray());
+    }
+    encoder.output.writeString(HEADER_BLOCK_REQUIRED_FEATURES, "OsmSchema-V0.6");
+    encoder.output.writeString(HEADER_BLOCK_REQUIRED_FEATURES, "DenseNodes");
+    if (coordinateCache != null) {
+      encoder.output.writeString(HEADER_BLOCK_OPTIONAL_FEATURES, Header.LOCATIONS_ON_WAYS);
+    }
+    encoder.output.writeString(HEADER_BLOCK_WRITINGPROGRAM, "baremaps");
+    if (header != null) {
+      if (header.getSource() != null) {
+        encoder.output.writeString(HEADER_BLOCK_SOURCE, header.getSource());
+      }
+      if (header.getReplicationTimestamp() != null) {
+        encoder.output.writeInt64(HEADER_BLOCK_REPLICATION_TIMESTAMP,
+            header.getReplicationTimestamp().toEpochSecond(ZoneOffset.UTC));
+      }
+      if (header.getReplicationSequenceNumber() != null) {
+        encoder.output.writeInt64(HEADER_BLOCK_REPLICATION_SEQUENCE_NUMBER, header.getReplicationSequenceNumber());
+      }
+      if (header.getReplicationUrl() != null) {
+        encoder.output.writeString(HEADER_BLOCK_REPLICATION_BASE_URL, header.getReplicationUrl());
+      }
+    }
+    return encoder.toByteArray();
+  }
+
+  private byte[] encodeDenseNodes(List<Node> nodes) throws IOException {
+    StringTable stringTable = new StringTable();
+    int size = nodes.size();
+    long[] ids = new long[size];
+    int[] versions = new int[size];
+    long[] timestamps = new long[size];
+    long[] changesets = new long[size];
+    int[] uids = new int[size];
+    long[] lats = new long[size];
+    long[] lons = new long[size];
+    IntArray keysVals = new IntArray();
+    boolean tagged = false;
+    for (int i = 0; i < size; i++) {
+      Node node = nodes.get(i);
+      ids[i] = node.getId();
+      Info info = node.getInfo();
+      if (info != null) {
+        versions[i] = info.getVersion();
+        timestamps[i] = getTimestamp(info);
+        changesets[i] = info.getChangeset();
+        uids[i] = info.getUid();
+      }
+      lats[i] = getCoordinate(node.getLat());
+      lons[i] = getCoordinate(node.getLon());
+      for (Map.Entry<String, String> tag : node.getTags().entrySet()) {
+        keysVals.add(stringTable.index(tag.getKey()));
+        keysVals.add(stringTable.index(tag.getValue()));
+        tagged = true;
+      }
+      keysVals.add(0);
+    }
+
+    Encoder denseInfo = new Encoder();
+    denseInfo.writePackedInt32(DENSE_INFO_VERSION, versions, size);
+    denseInfo.writePackedSInt64(DENSE_INFO_TIMESTAMP, timestamps, size);
+    denseInfo.writePackedSInt64(DENSE_INFO_CHANGESET, changesets, size);
+    denseInfo.writePackedSInt32(DENSE_INFO_UID, uids, size);
+    // The entities do not carry the user names, which are written as the empty string (index 0).
+    denseInfo.writePackedSInt32(DENSE_INFO_USER_SID, new int[size], size);
+
+    Encoder denseNodes = new Encoder();
+    denseNodes.writePackedSInt64(DENSE_NODES_ID, ids, size);
+    denseNodes.output.writeByteArray(DENSE_NODES_DENSEINFO, denseInfo.toByteArray());
+    denseNodes.writePackedSInt64(DENSE_NODES_LAT, lats, size);
+    denseNodes.writePackedSInt64(DENSE_NODES_LON, lons, size);
+    if (tagged) {
+      denseNodes.writePackedInt32(DENSE_NODES_KEYS_VALS, keysVals.values, keysVals.size);
+    }
+
+    Encoder group = new Encoder();
+    group.output.writeByteArray(PRIMITIVE_GROUP_DENSE, denseNodes.toByteArray());
+    return encodePrimitiveBlock(stringTable, group);
+  }
+
+  private byte[] encodeWays(List<Way> ways) throws IOException, CacheException {
+    StringTable stringTable = new StringTable();
+    Encoder group = new Encoder();
+    IntArray keys = new IntArray();
+    IntArray vals = new IntArray();
+    for (Way way : ways) {
+      Encoder encoder = new Encoder();
+      encoder.output.writeInt64(ELEMENT_ID, way.getId());
+      writeTags(encoder, stringTable, way, keys, vals);
+      writeInfo(encoder, way.getInfo());
+      List<Long> nodes = way.getNodes();
+      int size = nodes.size();
+      long[] refs = new long[size];
+      for (int i = 0; i < size; i++) {
+        refs[i] = nodes.get(i);
+      }
+      encoder.writePackedSInt64(WAY_REFS, refs, size);
+      if (coordinateCache != null) {
+        // Reuse the locations embedded in the way when they are available.
+        List<Coordinate> coordinates = way.getLocations() != null
+            ? Arrays.asList(way.getLocations())
+            : coordinateCache.get(nodes);
+        long[] lats = new long[size];
+        long[] lons = new long[size];
+        for (int i = 0; i < size; i++) {
+          Coordinate coordinate = coordinates.get(i);
+          lats[i] = coordinate != null ? getCoordinate(coordinate.getY()) : UNDEFINED_LOCATION;
+          lons[i] = coordinate != null ? getCoordinate(coordinate.getX()) : UNDEFINED_LOCATION;
+        }
+        encoder.writePackedSInt64(WAY_LAT, lats, size);
+        encoder.writePackedSInt64(WAY_LON, lons, size);
+      }
+      group.output.writeByteArray(PRIMITIVE_GROUP_WAYS, encoder.toByteArray());
+    }
+    return encodePrimitiveBlock(stringTable, group);
+  }
+
+  private byte[] encodeRelations(List<Relation> relations) throws IOException {
+    StringTable stringTable = new StringTable();
+    Encoder group = new Encoder();
+    IntArray keys = new IntArray();
+    IntArray vals = new IntArray();
+    for (Relation relation : relations) {
+      Encoder encoder = new Encoder();
+      encoder.output.writeInt64(ELEMENT_ID, relation.getId());
+      writeTags(encoder, stringTable, relation, keys, vals);
+      writeInfo(encoder, relation.getInfo());
+      List<Member> members = relation.getMembers();
+      int size = members.size();
+      int[] roles = new int[size];
+      long[] memids = new long[size];
+      int[] types = new int[size];
+      for (int i = 0; i < size; i++) {
+        Member member = members.get(i);
+        roles[i] = stringTable.index(member.getRole());
+        memids[i] = member.getRef();
+        types[i] = member.getType().ordinal();
+      }
+      encoder.writePackedInt32(RELATION_ROLES_SID, roles, size);
+      encoder.writePackedSInt64(RELATION_MEMIDS, memids, size);
+      encoder.writePackedInt32(RELATION_TYPES, types, size);
+      group.output.writeByteArray(PRIMITIVE_GROUP_RELATIONS, encoder.toByteArray());
+    }
+    return encodePrimitiveBlock(stringTable, group);
+  }
+
+  private void writeTags(Encoder encoder, StringTable stringTable, Element element, IntArray keys, IntArray vals)
+      throws IOException {
+    keys.size = 0;
+    vals.size = 0;
+    for (Map.Entry<String, String> tag : element.getTags().entrySet()) {
+      keys.add(stringTable.index(tag.getKey()));
+      vals.add(stringTable.index(tag.getValue()));
+    }
+    encoder.writePackedUInt32(ELEMENT_KEYS, keys.values, keys.size);
+    encoder.writePackedUInt32(ELEMENT_VALS, vals.values, vals.size);
+  }
+
+  private void writeInfo(Encoder encoder, Info info) throws IOException {
+    if (info == null) {
+      return;
+    }
+    Encoder message = new Encoder();
+    message.output.writeInt32(INFO_VERSION, info.getVersion());
+    message.output.writeInt64(INFO_TIMESTAMP, getTimestamp(info));
+    message.output.writeInt64(INFO_CHANGESET, info.getChangeset());
+    message.output.writeInt32(INFO_UID, info.getUid());
+    message.output.writeUInt32(INFO_USER_SID, 0);
+    encoder.output.writeByteArray(ELEMENT_INFO, message.toByteArray());
+  }
+
+  private byte[] encodePrimitiveBlock(StringTable stringTable, Encoder group) throws IOException {
+    Encoder strings = new Encoder();
+    for (String string : stringTable.strings) {
+      strings.output.writeByteArray(STRINGTABLE_S, StringInterner.getDefault().getBytes(string));
+    }
+    Encoder block = new Encoder();
+    block.output.writeByteArray(PRIMITIVE_BLOCK_STRINGTABLE, strings.toByteArray());
+    block.output.writeByteArray(PRIMITIVE_BLOCK_PRIMITIVEGROUP, group.toByteArray());
+    return block.toByteArray();
+  }
+
+  private static byte[] encodeBlob(String type, byte[] data) throws IOException {
+    Deflater deflater = DEFLATER.get();
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2 + 64);
+    try {
+      deflater.setInput(data);
+      deflater.finish();
+      byte[] chunk = new byte[64 * 1024];
+      while (!deflater.finished()) {
+        int length = deflater.deflate(chunk);
+        compressed.write(chunk, 0, length);
+      }
+    } finally {
+      deflater.reset();
+    }
+
+    Fileformat.Blob blob = Fileformat.Blob.newBuilder()
+        .setRawSize(data.length)
+        .setZlibData(UnsafeByteOperations.unsafeWrap(compressed.toByteArray()))
+        .build();
+    Fileformat.BlobHeader header = Fileformat.BlobHeader.newBuilder()
+        .setType(type)
+        .setDatasize(blob.getSerializedSize())
+        .build();
+
+    byte[] headerBytes = header.toByteArray();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(4 + headerBytes.length + blob.getSerializedSize());
+    DataOutputStream output = new DataOutputStream(bytes);
+    output.writeInt(headerBytes.length);
+    output.write(headerBytes);
+    blob.writeTo(output);
+    output.flush();
+    return bytes.toByteArray();
+  }
+
+  private static long getTimestamp(Info info) {
+    return info.hasTimestamp() ? info.getTimestampMillis() / DATE_GRANULARITY : 0;
+  }
+
+  private static long getCoordinate(double value) {
+    return Math.round(value * 1e9 / GRANULARITY);
+  }
+
+  /**
+   * The string table of a block, in which the index 0 is reserved as a delimiter.
+   */
+  private static class StringTable {
+
+    private final Map<String, Integer> indices = new HashMap<>();
+
+    private final List<String> strings = new ArrayList<>();
+
+    private StringTable() {
+      strings.add("");
+    }
+
+    private int index(String string) {
+      Integer index = indices.get(string);
+      if (index == null) {
+        index = strings.size();
+        strings.add(string);
+        indices.put(string, index);
+      }
+      return index;
+    }
+
+  }
+
+  /**
+   * A growable array of integers.
+   */
+  private static class IntArray {
+
+    private int[] values = new int[16];
+
+    private int size = 0;
+
+    private void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+  }
+
+  /**
+   * Encodes a message and its packed fields with the protobuf wire format.
+   */
+  private static class Encoder {
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    private final CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+
+    private void writePackedInt32(int field, int[] values, int size) throws IOException {
+      if (size == 0) {
+        return;
+      }
+      int length = 0;
+      for (int i = 0; i < size; i++) {
+        length += CodedOutputStream.computeInt32SizeNoTag(values[i]);
+      }
+      output.writeTag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+      output.writeUInt32NoTag(length);
+      for (int i = 0; i < size; i++) {
+        output.writeInt32NoTag(values[i]);
+      }
+    }
+
+    private void writePackedUInt32(int field, int[] values, int size) throws IOException {
+      if (size == 0) {
+        return;
+      }
+      int length = 0;
+      for (int i = 0; i < size; i++) {
+        length += CodedOutputStream.computeUInt32SizeNoTag(values[i]);
+      }
+      output.writeTag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+      output.writeUInt32NoTag(length);
+      for (int i = 0; i < size; i++) {
+        output.writeUInt32NoTag(values[i]);
+      }
+    }
+
+    /**
+     * Writes delta coded values.
+     */
+    private void writePackedSInt32(int field, int[] values, int size) throws IOException {
+      if (size == 0) {
+        return;
+      }
+      int length = 0;
+      int last = 0;
+      for (int i = 0; i < size; i++) {
+        length += CodedOutputStream.computeSInt32SizeNoTag(values[i] - last);
+        last = values[i];
+      }
+      output.writeTag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+      output.writeUInt32NoTag(length);
+      last = 0;
+      for (int i = 0; i < size; i++) {
+        output.writeSInt32NoTag(values[i] - last);
+        last = values[i];
+      }
+    }
+
+    /**
+     * Writes delta coded values.
+     */
+    private void writePackedSInt64(int field, long[] values, int size) throws IOException {
+      if (size == 0) {
+        return;
+      }
+      int length = 0;
+      long last = 0;
+      for (int i = 0; i < size; i++) {
+        length += CodedOutputStream.computeSInt64SizeNoTag(values[i] - last);
+        last = values[i];
+      }
+      output.writeTag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+      output.writeUInt32NoTag(length);
+      last = 0;
+      for (int i = 0; i < size; i++) {
+        output.writeSInt64NoTag(values[i] - last);
+        last = values[i];
+      }
+    }
+
+    private byte[] toByteArray() throws IOException {
+      output.flush();
+      return bytes.toByteArray();
+    }
+
+  }
+
+}
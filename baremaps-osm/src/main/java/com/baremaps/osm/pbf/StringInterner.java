@@ -0,0 +1,254 @@
+package com.baremaps.osm.pbf;
+
+import com.google.protobuf.ByteString;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent and bounded dictionary of strings shared by the block readers.
+ *
+ * <p>The string tables of the blocks repeat the same keys and values (e.g. "highway", "building", "yes")
+ * tens of thousands of times. Interning the short strings of these tables ensures that a single instance
+ * of each string is retained by the entities, and the UTF-8 encoding of the interned strings is kept
+ * so that it can be reused when writing them.
+ *
+ * <p>The dictionary counts the lookups of each string. Once it is full, the least frequently used half of the
+ * strings is evicted and the counts of the others are halved, so that the frequent strings stay interned while
+ * the rare strings (e.g. names) of the recent blocks compete for the remaining space. The counts are
+ * incremented without synchronization, as approximate frequencies are enough to select the evicted strings.
+ */
+public class StringInterner {
+
+  private static final StringInterner DEFAULT = new StringInterner(1 << 16, 32);
+
+  private final int capacity;
+
+  private final int maxLength;
+
+  private final Map<ByteString, Entry> entries = new ConcurrentHashMap<>();
+
+  private final Map<String, Entry> strings = new ConcurrentHashMap<>();
+
+  private final LongAdder lookups = new LongAdder();
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Creates a dictionary.
+   *
+   * @param capacity  the maximum number of interned strings.
+   * @param maxLength the maximum length in bytes of the interned strings.
+   */
+  public StringInterner(int capacity, int maxLength) {
+    this.capacity = capacity;
+    this.maxLength = maxLength;
+  }
+
+  /**
+   * Returns the dictionary shared by all the block readers.
+   *
+   * @return the default dictionary
+   */
+  public static StringInterner getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Returns the canonical string for the specified UTF-8 bytes.
+   *
+   * @param utf8
+   * @return a string
+   */
+  public String intern(ByteString utf8) {
+    if (utf8.size() > maxLength) {
+      return utf8.toStringUtf8();
+    }
+    return intern(utf8, null);
+  }
+
+  /**
+   * Returns the canonical string equal to the specified string.
+   *
+   * @param value
+   * @return a string
+   */
+  public String intern(String value) {
+    // The UTF-8 encoding of a string is at least as long as the string.
+    if (value.length() > maxLength || utf8Length(value) > maxLength) {
+      return value;
+    }
+    return intern(ByteString.copyFromUtf8(value), value);
+  }
+
+  private String intern(ByteString utf8, String value) {
+    lookups.increment();
+    Entry entry = entries.get(utf8);
+    if (entry != null) {
+      entry.count++;
+      hits.increment();
+      return entry.value;
+    }
+    if (value == null) {
+      value = utf8.toStringUtf8();
+    }
+    if (entries.size() >= capacity) {
+      evict();
+    }
+    // Copy the bytes so that the dictionary does not retain the buffer of the block.
+    ByteString key = ByteString.copyFrom(utf8.asReadOnlyByteBuffer());
+    Entry created = new Entry(value, key.toByteArray());
+    Entry previous = entries.putIfAbsent(key, created);
+    if (previous != null) {
+      previous.count++;
+      return previous.value;
+    }
+    strings.put(value, created);
+    return value;
+  }
+
+  /**
+   * Evicts the least frequently used half of the strings and halves the counts of the others.
+   */
+  private synchronized void evict() {
+    // Another thread may have evicted the strings while this one was waiting.
+    int size = entries.size();
+    if (size < capacity || size == 0) {
+      return;
+    }
+    int[] counts = new int[size];
+    int i = 0;
+    for (Entry entry : entries.values()) {
+      if (i == size) {
+        break;
+      }
+      counts[i++] = entry.count;
+    }
+    Arrays.sort(counts, 0, i);
+    int threshold = counts[i / 2];
+    int remaining = Math.max(1, i / 2);
+    // The strings below the median are evicted first, and then the strings at the median until half of the
+    // strings have been evicted.
+    for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext(); ) {
+      Entry entry = iterator.next();
+      if (entry.count < threshold) {
+        iterator.remove();
+        strings.remove(entry.value, entry);
+        evictions.increment();
+        remaining--;
+      }
+    }
+    for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext(); ) {
+      Entry entry = iterator.next();
+      if (entry.count == threshold && remaining > 0) {
+        iterator.remove();
+        strings.remove(entry.value, entry);
+        evictions.increment();
+        remaining--;
+      } else {
+        entry.count >>>= 1;
+      }
+    }
+  }
+
+  /**
+   * Returns the UTF-8 encoding of the specified string, which is precomputed for the interned strings.
+   *
+   * @param value
+   * @return the UTF-8 bytes
+   */
+  public byte[] getBytes(String value) {
+    byte[] utf8 = getInternedBytes(value);
+    if (utf8 == null) {
+      utf8 = value.getBytes(StandardCharsets.UTF_8);
+    }
+    return utf8;
+  }
+
+  /**
+   * Returns the precomputed UTF-8 encoding of the specified string if it has been interned.
+   *
+   * @param value
+   * @return the UTF-8 bytes or null if the string has not been interned
+   */
+  public byte[] getInternedBytes(String value) {
+    Entry entry = strings.get(value);
+    return entry != null ? entry.bytes : null;
+  }
+
+  /**
+   * Returns the number of interned strings.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the number of lookups in the dictionary.
+   */
+  public long lookups() {
+    return lookups.sum();
+  }
+
+  /**
+   * Returns the number of lookups that found an interned string.
+   */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns the number of strings evicted from the dictionary.
+   */
+  public long evictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * Returns the ratio of lookups that found an interned string.
+   */
+  public double hitRate() {
+    long total = lookups();
+    return total == 0 ? 0 : (double) hits() / total;
+  }
+
+  private static int utf8Length(String value) {
+    int length = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        length += 1;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+  private static final class Entry {
+
+    private final String value;
+
+    private final byte[] bytes;
+
+    private int count = 1;
+
+    private Entry(String value, byte[] bytes) {
+      this.value = value;
+      this.bytes = bytes;
+    }
+
+  }
+
+}
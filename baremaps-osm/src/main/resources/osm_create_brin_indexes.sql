@@ -0,0 +1,3 @@
+CREATE INDEX IF NOT EXISTS osm_nodes_geom_brin ON osm_nodes USING BRIN (geom);
+CREATE INDEX IF NOT EXISTS osm_ways_geom_brin ON osm_ways USING BRIN (geom);
+CREATE INDEX IF NOT EXISTS osm_relations_geom_brin ON osm_relations USING BRIN (geom);
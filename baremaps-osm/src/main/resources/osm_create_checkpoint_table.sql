@@ -0,0 +1,8 @@
+CREATE TABLE IF NOT EXISTS osm_import_checkpoints
+(
+    phase        text,
+    blob_index   int,
+    blob_offset  bigint,
+    committed_at timestamp without time zone DEFAULT now(),
+    PRIMARY KEY (phase, blob_index)
+);
@@ -0,0 +1,3 @@
+ALTER TABLE osm_nodes ADD PRIMARY KEY (id);
+ALTER TABLE osm_ways ADD PRIMARY KEY (id);
+ALTER TABLE osm_relations ADD PRIMARY KEY (id);
\ No newline at end of file
@@ -6,7 +6,7 @@ CREATE TABLE IF NOT EXISTS osm_headers
     source                      text,
     writing_program             text
 );
-CREATE TABLE osm_nodes
+CREATE TABLE IF NOT EXISTS osm_nodes
 (
     id        bigint PRIMARY KEY,
     version   int,
@@ -18,7 +18,7 @@ CREATE TABLE osm_nodes
     lat       float,
     geom      geometry(point)
 );
-CREATE TABLE osm_ways
+CREATE TABLE IF NOT EXISTS osm_ways
 (
     id        bigint PRIMARY KEY,
     version   int,
@@ -29,7 +29,7 @@ CREATE TABLE osm_ways
     nodes     bigint[],
     geom      geometry
 );
-CREATE TABLE osm_relations
+CREATE TABLE IF NOT EXISTS osm_relations
 (
     id           bigint PRIMARY KEY,
     version      int,
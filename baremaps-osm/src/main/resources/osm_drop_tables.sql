@@ -1,4 +1,5 @@
 DROP TABLE IF EXISTS osm_headers;
 DROP TABLE IF EXISTS osm_nodes;
 DROP TABLE IF EXISTS osm_ways;
-DROP TABLE IF EXISTS osm_relations;
\ No newline at end of file
+DROP TABLE IF EXISTS osm_relations;
+DROP TABLE IF EXISTS osm_import_checkpoints;
\ No newline at end of file
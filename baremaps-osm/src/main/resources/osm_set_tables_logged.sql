@@ -0,0 +1,3 @@
+ALTER TABLE osm_nodes SET LOGGED;
+ALTER TABLE osm_ways SET LOGGED;
+ALTER TABLE osm_relations SET LOGGED;
\ No newline at end of file
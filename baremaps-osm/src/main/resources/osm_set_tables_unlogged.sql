@@ -0,0 +1,17 @@
+TRUNCATE TABLE osm_nodes;
+TRUNCATE TABLE osm_ways;
+TRUNCATE TABLE osm_relations;
+ALTER TABLE osm_nodes DROP CONSTRAINT IF EXISTS osm_nodes_pkey;
+ALTER TABLE osm_ways DROP CONSTRAINT IF EXISTS osm_ways_pkey;
+ALTER TABLE osm_relations DROP CONSTRAINT IF EXISTS osm_relations_pkey;
+DROP INDEX IF EXISTS osm_nodes_gix;
+DROP INDEX IF EXISTS osm_ways_gix;
+DROP INDEX IF EXISTS osm_relations_gix;
+DROP INDEX IF EXISTS osm_ways_gin;
+DROP INDEX IF EXISTS osm_relations_gin;
+DROP INDEX IF EXISTS osm_nodes_geom_brin;
+DROP INDEX IF EXISTS osm_ways_geom_brin;
+DROP INDEX IF EXISTS osm_relations_geom_brin;
+ALTER TABLE osm_nodes SET UNLOGGED;
+ALTER TABLE osm_ways SET UNLOGGED;
+ALTER TABLE osm_relations SET UNLOGGED;
\ No newline at end of file
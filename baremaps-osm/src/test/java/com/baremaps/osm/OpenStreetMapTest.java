@@ -19,12 +19,17 @@ import com.baremaps.osm.domain.Node;
 import com.baremaps.osm.domain.Relation;
 import com.baremaps.osm.domain.State;
 import com.baremaps.osm.domain.Way;
+import com.baremaps.osm.handler.BlockEntityConsumer;
 import com.baremaps.osm.handler.EntityConsumer;
 import com.baremaps.osm.state.StateReader;
+import com.baremaps.stream.StreamException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -103,6 +108,28 @@ class OpenStreetMapTest {
 
   }
 
+  @Test
+  void denseNodesOsmPbfColumnar() throws IOException {
+    List<Entity> expected;
+    try (InputStream input = DENSE_NODES_OSM_PBF.openStream()) {
+      expected = OpenStreetMap.streamPbfEntities(input).collect(Collectors.toList());
+    }
+    try (InputStream input = DENSE_NODES_OSM_PBF.openStream()) {
+      List<Entity> actual = OpenStreetMap.streamPbfColumnarBlocks(input)
+          .flatMap(block -> {
+            Stream.Builder<Entity> entities = Stream.builder();
+            try {
+              block.visit(new BlockEntityConsumer(entities::add));
+            } catch (Exception e) {
+              throw new StreamException(e);
+            }
+            return entities.build();
+          })
+          .collect(Collectors.toList());
+      assertEquals(expected, actual);
+    }
+  }
+
   @Test
   void waysOsmPbf() throws IOException {
     try (InputStream input = WAYS_OSM_PBF.openStream()) {
@@ -140,6 +167,14 @@ class OpenStreetMapTest {
     }
   }
 
+  @Test
+  void monacoOsmPbfPath() throws IOException, URISyntaxException {
+    Path path = Paths.get(MONACO_OSM_PBF.toURI());
+    try (Stream<Entity> stream = OpenStreetMap.streamPbfEntities(path)) {
+      process(stream, 1, 1, 25002, 4018, 243);
+    }
+  }
+
   @Test
   void monacoOsmBz2() throws IOException, URISyntaxException {
     try (InputStream inputStream = new BZip2CompressorInputStream(MONACO_OSM_BZ2.openStream())) {
@@ -30,16 +30,34 @@ class InMemoryCacheTest {
     Coordinate c2 = new Coordinate(2, 0);
     Coordinate c3 = new Coordinate(3, 0);
     Coordinate c4 = new Coordinate(4, 0);
-    cache.add(1, c1);
+    cache.add(1L, c1);
     cache.add(Arrays.asList(
-        new Entry(2, c2),
-        new Entry(3, c3),
-        new Entry(4, c4)));
-    assertEquals(cache.get(1), c1);
-    assertEquals(cache.get(Arrays.asList(1, 2)), Arrays.asList(c1, c2));
-    cache.delete(1);
-    assertNull(cache.get(1));
-    cache.deleteAll(Arrays.asList(1, 2));
-    assertEquals(Arrays.asList(null, null), cache.get(Arrays.asList(1, 2)));
+        new Entry(2L, c2),
+        new Entry(3L, c3),
+        new Entry(4L, c4)));
+    assertEquals(cache.get(1L), c1);
+    assertEquals(cache.get(Arrays.asList(1L, 2L)), Arrays.asList(c1, c2));
+    cache.delete(1L);
+    assertNull(cache.get(1L));
+    cache.deleteAll(Arrays.asList(1L, 2L));
+    assertEquals(Arrays.asList(null, null), cache.get(Arrays.asList(1L, 2L)));
   }
-}
\ No newline at end of file
+
+  @Test
+  void addColumns() throws Exception {
+    InMemoryCoordinateCache cache = new InMemoryCoordinateCache();
+    long[] keys = new long[1000];
+    double[] lons = new double[1000];
+    double[] lats = new double[1000];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = i * 7L;
+      lons[i] = i / 10.0;
+      lats[i] = -i / 20.0;
+    }
+    cache.add(keys, lons, lats, 999);
+    for (int i = 0; i < 999; i++) {
+      assertEquals(new Coordinate(lons[i], lats[i]), cache.get(keys[i]));
+    }
+    assertNull(cache.get(keys[999]));
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2020 The Baremaps Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.baremaps.osm.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.baremaps.osm.cache.Cache.Entry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class InMemoryReferenceCacheTest {
+
+  @Test
+  void test() throws Exception {
+    InMemoryReferenceCache cache = new InMemoryReferenceCache();
+    cache.add(1L, Arrays.asList(10L, 11L));
+    cache.add(Arrays.asList(
+        new Entry<>(2L, Arrays.asList(20L)),
+        new Entry<>(3L, Arrays.asList())));
+    assertEquals(Arrays.asList(10L, 11L), cache.get(1L));
+    assertArrayEquals(new long[] {20L}, cache.getReferences(2L));
+    assertArrayEquals(new long[0], cache.getReferences(3L));
+    assertNull(cache.get(4L));
+    assertNull(cache.getReferences(4L));
+    cache.delete(1L);
+    assertNull(cache.get(1L));
+    cache.deleteAll(Arrays.asList(2L, 5L));
+    assertEquals(Arrays.asList(null, null, Arrays.asList()), cache.get(Arrays.asList(1L, 2L, 3L)));
+  }
+
+  @Test
+  void rehash() throws Exception {
+    InMemoryReferenceCache cache = new InMemoryReferenceCache();
+    List<Entry<Long, List<Long>>> entries = new ArrayList<>();
+    for (long key = 0; key < 100000; key++) {
+      entries.add(new Entry<>(key, Arrays.asList(key, key + 1)));
+    }
+    cache.add(entries);
+    for (long key = 0; key < 100000; key += 2) {
+      cache.delete(key);
+    }
+    for (long key = 0; key < 100000; key++) {
+      if (key % 2 == 0) {
+        assertNull(cache.getReferences(key));
+      } else {
+        assertArrayEquals(new long[] {key, key + 1}, cache.getReferences(key));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2020 The Baremaps Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.baremaps.osm.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LongLongHashMapTest {
+
+  @Test
+  void remove() {
+    LongLongHashMap map = new LongLongHashMap();
+    for (long key = 0; key < 10000; key++) {
+      map.put(key, key * 2);
+    }
+    for (long key = 0; key < 10000; key += 3) {
+      assertTrue(map.remove(key));
+    }
+    assertFalse(map.remove(3));
+    assertEquals(6666, map.size());
+    for (long key = 0; key < 10000; key++) {
+      assertEquals(key % 3 == 0 ? -1 : key * 2, map.get(key, -1));
+    }
+  }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2020 The Baremaps Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.baremaps.osm.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LongObjectHashMapTest {
+
+  @Test
+  void rehash() {
+    LongObjectHashMap<String> map = new LongObjectHashMap<>();
+    for (long key = -5000; key < 5000; key++) {
+      map.put(key, Long.toString(key));
+    }
+    assertEquals(10000, map.size());
+    for (long key = -5000; key < 5000; key++) {
+      assertEquals(Long.toString(key), map.get(key));
+    }
+    assertNull(map.get(5000));
+    map.put(42, "answer");
+    assertEquals("answer", map.get(42));
+    assertEquals(10000, map.size());
+  }
+
+  @Test
+  void remove() {
+    LongObjectHashMap<String> map = new LongObjectHashMap<>(16);
+    for (long key = 0; key < 1000; key++) {
+      map.put(key, Long.toString(key));
+    }
+    for (long key = 0; key < 1000; key += 2) {
+      assertTrue(map.remove(key));
+    }
+    assertFalse(map.remove(0));
+    assertEquals(500, map.size());
+    // The keys that followed the removed keys in their probe sequences must still be found.
+    for (long key = 0; key < 1000; key++) {
+      assertEquals(key % 2 == 0 ? null : Long.toString(key), map.get(key));
+    }
+    for (long key = 0; key < 1000; key += 2) {
+      map.put(key, "new");
+    }
+    assertEquals(1000, map.size());
+    assertEquals("new", map.get(0));
+    assertEquals("1", map.get(1));
+  }
+
+  @Test
+  void invalidKey() {
+    LongObjectHashMap<String> map = new LongObjectHashMap<>();
+    assertThrows(IllegalArgumentException.class, () -> map.put(Long.MIN_VALUE, "value"));
+  }
+
+}
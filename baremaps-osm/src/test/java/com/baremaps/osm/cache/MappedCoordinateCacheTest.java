@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2020 The Baremaps Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.baremaps.osm.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.baremaps.osm.cache.Cache.Entry;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+
+class MappedCoordinateCacheTest {
+
+  @Test
+  void test() throws Exception {
+    Path path = Files.createTempFile("baremaps_", ".bin");
+    try (MappedCoordinateCache cache = new MappedCoordinateCache(path, 12)) {
+      Coordinate c1 = new Coordinate(1, 0);
+      Coordinate c2 = new Coordinate(-180, -90);
+      Coordinate c3 = new Coordinate(180, 90);
+      Coordinate c4 = new Coordinate(7.4246141, 43.7384644);
+      cache.add(1L, c1);
+      cache.add(Arrays.asList(
+          new Entry<>(2L, c2),
+          new Entry<>(3000L, c3),
+          new Entry<>(1_000_000L, c4)));
+      assertEquals(c1, cache.get(1L));
+      assertEquals(Arrays.asList(c1, c2, c3, c4), cache.get(Arrays.asList(1L, 2L, 3000L, 1_000_000L)));
+      assertNull(cache.get(4L));
+      assertNull(cache.get(10_000_000L));
+      double[] coordinates = new double[4];
+      assertEquals(1, cache.get(new long[] {3000L, 4L}, coordinates));
+      assertEquals(180, coordinates[0]);
+      assertEquals(90, coordinates[1]);
+      assertTrue(Double.isNaN(coordinates[2]));
+      cache.delete(1L);
+      assertNull(cache.get(1L));
+      cache.deleteAll(Arrays.asList(1L, 2L));
+      assertEquals(Arrays.asList(null, null), cache.get(Arrays.asList(1L, 2L)));
+    }
+    try (MappedCoordinateCache cache = new MappedCoordinateCache(path, 12)) {
+      assertEquals(new Coordinate(180, 90), cache.get(3000L));
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2020 The Baremaps Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.baremaps.osm.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.baremaps.osm.cache.Cache.Entry;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class MappedReferenceCacheTest {
+
+  @Test
+  void test() throws Exception {
+    Path path = Files.createTempFile("baremaps_", ".bin");
+    try (MappedReferenceCache cache = new MappedReferenceCache(path, 10)) {
+      List<Long> r1 = Arrays.asList(1L, 2L, 3L);
+      List<Long> r2 = Arrays.asList(8_000_000_000L, 12L, -5L, 8_000_000_001L);
+      List<Long> r3 = Collections.emptyList();
+      cache.add(1L, r1);
+      cache.add(Arrays.asList(
+          new Entry<>(2L, r2),
+          new Entry<>(3L, r3)));
+      assertEquals(r1, cache.get(1L));
+      assertEquals(Arrays.asList(r1, r2, r3), cache.get(Arrays.asList(1L, 2L, 3L)));
+      assertArrayEquals(new long[] {8_000_000_000L, 12L, -5L, 8_000_000_001L}, cache.getReferences(2L));
+      assertNull(cache.get(4L));
+      cache.delete(1L);
+      assertNull(cache.get(1L));
+      cache.deleteAll(Arrays.asList(1L, 2L));
+      assertEquals(Arrays.asList(null, null), cache.get(Arrays.asList(1L, 2L)));
+    } finally {
+      Files.deleteIfExists(path);
+      Files.deleteIfExists(path.resolveSibling(path.getFileName() + ".idx"));
+    }
+  }
+
+  @Test
+  void segments() throws Exception {
+    Path path = Files.createTempFile("baremaps_", ".bin");
+    try (MappedReferenceCache cache = new MappedReferenceCache(path, 10)) {
+      List<List<Long>> expected = new ArrayList<>();
+      for (long id = 0; id < 1000; id++) {
+        List<Long> references = new ArrayList<>();
+        for (long i = 0; i < id % 50; i++) {
+          references.add(id * 1000 + i * 3);
+        }
+        expected.add(references);
+        cache.add(id, references);
+      }
+      for (long id = 0; id < 1000; id++) {
+        assertEquals(expected.get((int) id), cache.get(id));
+      }
+      assertTrue(cache.size() < 1000 * 50 * 8 / 3);
+    } finally {
+      Files.deleteIfExists(path);
+      Files.deleteIfExists(path.resolveSibling(path.getFileName() + ".idx"));
+    }
+  }
+
+  @Test
+  void reopen() throws Exception {
+    Path path = Files.createTempFile("baremaps_", ".bin");
+    try {
+      try (MappedReferenceCache cache = new MappedReferenceCache(path, 10)) {
+        cache.add(1L, Arrays.asList(1L, 2L, 3L));
+        cache.add(2L, Arrays.asList(4L, 5L));
+        cache.delete(2L);
+      }
+      try (MappedReferenceCache cache = new MappedReferenceCache(path, 10)) {
+        assertEquals(Arrays.asList(1L, 2L, 3L), cache.get(1L));
+        assertNull(cache.get(2L));
+        cache.add(3L, Arrays.asList(6L, 7L));
+        assertEquals(Arrays.asList(1L, 2L, 3L), cache.get(1L));
+        assertEquals(Arrays.asList(6L, 7L), cache.get(3L));
+      }
+    } finally {
+      Files.deleteIfExists(path);
+      Files.deleteIfExists(path.resolveSibling(path.getFileName() + ".idx"));
+    }
+  }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2020 The Baremaps Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.baremaps.osm.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.baremaps.osm.cache.Cache.Entry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+
+class StripedCacheTest {
+
+  @Test
+  void sortByStripe() {
+    long[] keys = new long[1000];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = i * 31L;
+    }
+    int[] order = new int[keys.length];
+    int[] offsets = StripedCache.sortByStripe(keys, keys.length, order);
+    assertEquals(StripedCache.STRIPES + 1, offsets.length);
+    assertEquals(keys.length, offsets[StripedCache.STRIPES]);
+    boolean[] seen = new boolean[keys.length];
+    for (int stripe = 0; stripe < StripedCache.STRIPES; stripe++) {
+      for (int i = offsets[stripe]; i < offsets[stripe + 1]; i++) {
+        assertEquals(stripe, StripedCache.stripe(keys[order[i]]));
+        seen[order[i]] = true;
+      }
+    }
+    for (boolean s : seen) {
+      assertTrue(s);
+    }
+  }
+
+  @Test
+  void concurrentWrites() throws Exception {
+    InMemoryCoordinateCache cache = new InMemoryCoordinateCache();
+    int threads = 8;
+    int keys = 20000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        long first = (long) t * keys;
+        futures.add(executor.submit(() -> {
+          // Each batch spans all the stripes, so that the threads contend for the same locks.
+          for (long start = first; start < first + keys; start += 1000) {
+            List<Entry<Long, Coordinate>> entries = new ArrayList<>();
+            for (long key = start; key < start + 1000; key++) {
+              entries.add(new Entry<>(key, new Coordinate(key % 180, key % 90)));
+            }
+            cache.add(entries);
+          }
+          for (long key = first; key < first + keys; key += 2) {
+            cache.delete(key);
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    for (long key = 0; key < (long) threads * keys; key++) {
+      if (key % 2 == 0) {
+        assertNull(cache.get(key));
+      } else {
+        assertEquals(new Coordinate(key % 180, key % 90), cache.get(key));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,109 @@
+package com.baremaps.osm.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.baremaps.config.mapping.Table;
+import com.baremaps.osm.domain.DataBlock;
+import com.baremaps.osm.domain.Element;
+import com.baremaps.osm.domain.Info;
+import com.baremaps.osm.domain.Node;
+import com.baremaps.osm.domain.Way;
+import com.baremaps.osm.geometry.ZoomBand;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+class SaveLayerConsumerTest {
+
+  private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+  private static final Info INFO = new Info(1, null, 1, 1);
+
+  @Test
+  void route() throws Exception {
+    MockLayerTable buildings = new MockLayerTable(table("buildings", null, List.of("building"), null));
+    MockLayerTable shops = new MockLayerTable(table("shops", null, List.of("shop=bakery"), null));
+    Node bakery = node(1, Map.of("shop", "bakery", "building", "yes"));
+    Way building = way(2, Map.of("building", "yes"));
+    Way withoutGeometry = new Way(3, INFO, Map.of("building", "yes"), List.of());
+    new SaveLayerConsumer(List.of(buildings, shops))
+        .accept(new DataBlock(null, List.of(bakery), List.of(), List.of(building, withoutGeometry), List.of()));
+    assertEquals(List.of(bakery, building), buildings.rows);
+    assertEquals(List.of(bakery), shops.rows);
+  }
+
+  @Test
+  void generalize() throws Exception {
+    MockLayerTable buildings = new MockLayerTable(table("buildings_z0_5", null, List.of("building"), null),
+        new ZoomBand(0, 5, 1));
+    Node bakery = node(1, Map.of("building", "yes"));
+    Way building = way(2, Map.of("building", "yes"));
+    Way shed = new Way(3, INFO, Map.of("building", "shed"), List.of(), GEOMETRY_FACTORY.createLineString(
+        new Coordinate[] {new Coordinate(1, 2), new Coordinate(1.5, 2)}));
+    new SaveLayerConsumer(List.of(buildings))
+        .accept(new DataBlock(null, List.of(bakery), List.of(), List.of(building, shed), List.of()));
+    assertEquals(1, buildings.rows.size());
+    Element generalized = buildings.rows.get(0);
+    assertTrue(generalized instanceof Way);
+    assertEquals(building.getId(), generalized.getId());
+    assertEquals(building.getTags(), generalized.getTags());
+  }
+
+  private static Table table(String name, List<String> entities, List<String> allowTags, List<String> blockTags) {
+    Table table = new Table();
+    table.setName(name);
+    table.setAllowEntities(entities);
+    table.setAllowTags(allowTags);
+    table.setBlockTags(blockTags);
+    return table;
+  }
+
+  private static Node node(long id, Map<String, String> tags) {
+    return new Node(id, INFO, tags, 1, 2, GEOMETRY_FACTORY.createPoint(new Coordinate(1, 2)));
+  }
+
+  private static Way way(long id, Map<String, String> tags) {
+    return new Way(id, INFO, tags, List.of(1L, 2L), GEOMETRY_FACTORY.createLineString(
+        new Coordinate[] {new Coordinate(1, 2), new Coordinate(3, 4)}));
+  }
+
+  private static class MockLayerTable implements LayerTable {
+
+    private final Table mapping;
+
+    private final ZoomBand zoomBand;
+
+    private final List<Element> rows = new ArrayList<>();
+
+    MockLayerTable(Table mapping) {
+      this(mapping, null);
+    }
+
+    MockLayerTable(Table mapping, ZoomBand zoomBand) {
+      this.mapping = mapping;
+      this.zoomBand = zoomBand;
+    }
+
+    @Override
+    public Table getMapping() {
+      return mapping;
+    }
+
+    @Override
+    public ZoomBand getZoomBand() {
+      return zoomBand;
+    }
+
+    @Override
+    public void copy(List<Element> elements) {
+      rows.addAll(elements);
+    }
+
+  }
+
+}
@@ -0,0 +1,51 @@
+package com.baremaps.osm.geometry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+class HilbertCurveTest {
+
+  @Test
+  void firstOrder() {
+    assertEquals(0, HilbertCurve.index(1, 0, 0));
+    assertEquals(1, HilbertCurve.index(1, 0, 1));
+    assertEquals(2, HilbertCurve.index(1, 1, 1));
+    assertEquals(3, HilbertCurve.index(1, 1, 0));
+  }
+
+  @Test
+  void continuity() {
+    int order = 5;
+    int side = 1 << order;
+    long[][] cells = new long[side * side][];
+    for (long x = 0; x < side; x++) {
+      for (long y = 0; y < side; y++) {
+        int index = (int) HilbertCurve.index(order, x, y);
+        assertNull(cells[index]);
+        cells[index] = new long[] {x, y};
+      }
+    }
+    for (int i = 1; i < cells.length; i++) {
+      long distance = Math.abs(cells[i][0] - cells[i - 1][0]) + Math.abs(cells[i][1] - cells[i - 1][1]);
+      assertEquals(1, distance);
+    }
+  }
+
+  @Test
+  void geometry() {
+    HilbertCurve curve = HilbertCurve.of(4326);
+    GeometryFactory factory = new GeometryFactory();
+    assertEquals(Long.MAX_VALUE, curve.index(null));
+    assertEquals(Long.MAX_VALUE, curve.index(factory.createPoint()));
+    long index = curve.index(factory.createPoint(new Coordinate(6.6, 46.5)));
+    assertEquals(index, curve.index(6.6, 46.5));
+    assertTrue(index >= 0 && index < 1L << 32);
+    assertEquals(curve.index(-180, -90), curve.index(-200, -100));
+  }
+
+}
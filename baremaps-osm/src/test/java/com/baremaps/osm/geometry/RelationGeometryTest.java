@@ -1,17 +1,24 @@
 package com.baremaps.osm.geometry;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 import com.baremaps.osm.OpenStreetMap;
 import com.baremaps.osm.cache.Cache;
+import com.baremaps.osm.cache.InMemoryCoordinateCache;
+import com.baremaps.osm.cache.InMemoryReferenceCache;
 import com.baremaps.osm.cache.MockCache;
 import com.baremaps.osm.domain.Entity;
+import com.baremaps.osm.domain.Info;
+import com.baremaps.osm.domain.Member;
+import com.baremaps.osm.domain.Member.MemberType;
 import com.baremaps.osm.domain.Node;
 import com.baremaps.osm.domain.Relation;
 import com.baremaps.osm.domain.Way;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
 import org.junit.jupiter.api.Disabled;
@@ -54,6 +61,16 @@ class RelationGeometryTest {
     assertNotNull(handleRelation("/complex/1436294.osm.gz"));
   }
 
+  @Test
+  void missingReferences() {
+    Relation relation = new Relation(1, new Info(1, 0, 0, 0), Map.of("type", "multipolygon"),
+        List.of(new Member(2, MemberType.WAY, "outer")));
+    new CreateGeometryConsumer(new InMemoryCoordinateCache(), new InMemoryReferenceCache()).match(relation);
+    assertNull(relation.getGeometry());
+    new CreateGeometryConsumer(new MockCache<>(Map.of()), new MockCache<>(Map.of())).match(relation);
+    assertNull(relation.getGeometry());
+  }
+
   // The following relations generate exceptions in Planet OSM.
 
   @Test
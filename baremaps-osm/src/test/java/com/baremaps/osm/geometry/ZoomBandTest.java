@@ -0,0 +1,50 @@
+package com.baremaps.osm.geometry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+
+class ZoomBandTest {
+
+  private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+  @Test
+  void parse() {
+    List<ZoomBand> bands = ZoomBand.parse("0-5, 6-9,12", 3857);
+    assertEquals(3, bands.size());
+    assertEquals(6, bands.get(1).getMinZoom());
+    assertEquals(9, bands.get(1).getMaxZoom());
+    assertEquals("_z12_12", bands.get(2).getSuffix());
+    assertEquals(2 * 20037508.342789244 / 256 / 32, bands.get(0).getTolerance(), 1e-6);
+    assertThrows(IllegalArgumentException.class, () -> ZoomBand.parse("6-5", 3857));
+    assertThrows(IllegalArgumentException.class, () -> ZoomBand.parse("a-b", 3857));
+  }
+
+  @Test
+  void generalize() {
+    ZoomBand band = new ZoomBand(0, 5, 1);
+    Coordinate[] coordinates = new Coordinate[101];
+    for (int i = 0; i <= 100; i++) {
+      coordinates[i] = new Coordinate(i, i % 2 == 0 ? 0 : 0.1);
+    }
+    LineString line = GEOMETRY_FACTORY.createLineString(coordinates);
+    line.setSRID(3857);
+    Geometry simplified = band.generalize(line);
+    assertTrue(simplified.getNumPoints() < line.getNumPoints());
+    assertEquals(3857, simplified.getSRID());
+    assertNull(band.generalize(GEOMETRY_FACTORY.createPoint(new Coordinate(0, 0))));
+    assertNull(band.generalize(GEOMETRY_FACTORY.createLineString(
+        new Coordinate[] {new Coordinate(0, 0), new Coordinate(0.5, 0)})));
+    assertNull(band.generalize(GEOMETRY_FACTORY.createPolygon(new Coordinate[] {
+        new Coordinate(0, 0), new Coordinate(0.5, 0), new Coordinate(0.5, 0.5), new Coordinate(0, 0)})));
+  }
+
+}
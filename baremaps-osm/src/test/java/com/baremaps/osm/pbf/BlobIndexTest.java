@@ -0,0 +1,103 @@
+package com.baremaps.osm.pbf;
+
+import static com.baremaps.testing.TestFiles.MONACO_OSM_PBF;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.baremaps.osm.domain.Element;
+import com.baremaps.osm.domain.Member.MemberType;
+import com.baremaps.osm.domain.Node;
+import com.baremaps.osm.domain.Way;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.locationtech.jts.geom.Envelope;
+
+class BlobIndexTest {
+
+  @Test
+  void writeAndRead() throws Exception {
+    Path file = Paths.get(MONACO_OSM_PBF.toURI());
+    Path path = Files.createTempFile("baremaps_", ".idx");
+    try (BlobChannel channel = BlobChannel.open(file)) {
+      BlobIndex expected = BlobIndex.build(channel);
+      expected.write(path);
+      BlobIndex actual = BlobIndex.read(path);
+      assertEquals(channel.count(), actual.getEntries().size());
+      assertTrue(Arrays.equals(channel.offsets(), actual.offsets()));
+      for (int i = 0; i < actual.getEntries().size(); i++) {
+        BlobIndex.Entry entry = actual.getEntries().get(i);
+        assertEquals(expected.getEntries().get(i).getType(), entry.getType());
+        for (MemberType type : MemberType.values()) {
+          assertEquals(expected.getEntries().get(i).getMinId(type), entry.getMinId(type));
+          assertEquals(expected.getEntries().get(i).getMaxId(type), entry.getMaxId(type));
+        }
+        assertEquals(expected.getEntries().get(i).getEnvelope(), entry.getEnvelope());
+      }
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  @Test
+  void get() throws Exception {
+    Path file = Paths.get(MONACO_OSM_PBF.toURI());
+    try (BlobIndexReader reader = BlobIndexReader.open(file)) {
+      BlobIndex index = reader.getIndex();
+      BlobIndex.Entry entry = index.getEntries().stream()
+          .filter(e -> e.hasType(MemberType.WAY))
+          .findFirst()
+          .get();
+      Way way = reader.getWay(entry.getMaxId(MemberType.WAY));
+      assertNotNull(way);
+      assertEquals(entry.getMaxId(MemberType.WAY), way.getId());
+
+      List<Element> nodes = reader.get(MemberType.NODE, way.getNodes());
+      assertEquals(way.getNodes().size(), nodes.size());
+      for (int i = 0; i < nodes.size(); i++) {
+        assertEquals(way.getNodes().get(i), nodes.get(i).getId());
+      }
+
+      Node node = (Node) nodes.get(0);
+      assertFalse(index.find(new Envelope(node.getLon(), node.getLon(), node.getLat(), node.getLat())).isEmpty());
+      assertNull(reader.getRelation(Long.MAX_VALUE));
+    }
+  }
+
+  @Test
+  void staleSidecar(@TempDir Path directory) throws Exception {
+    Path file = directory.resolve("monaco.osm.pbf");
+    Files.copy(Paths.get(MONACO_OSM_PBF.toURI()), file);
+    long[] offsets;
+    try (BlobChannel channel = BlobChannel.open(file)) {
+      offsets = channel.offsets();
+      BlobIndex.build(channel).write(BlobIndex.sidecar(file));
+    }
+    assertNotNull(BlobIndex.readSidecar(file));
+
+    // An index older than the file is stale.
+    Files.setLastModifiedTime(BlobIndex.sidecar(file), FileTime.fromMillis(0));
+    assertNull(BlobIndex.readSidecar(file));
+
+    // An index whose blobs do not cover the file is stale, and the reader scans the file again.
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(offsets[2]);
+    }
+    Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+    assertNull(BlobIndex.readSidecar(file));
+    try (BlobIndexReader reader = BlobIndexReader.open(file)) {
+      assertEquals(2, reader.getIndex().getEntries().size());
+    }
+  }
+
+}
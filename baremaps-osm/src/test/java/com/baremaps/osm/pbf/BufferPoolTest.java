@@ -0,0 +1,34 @@
+package com.baremaps.osm.pbf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+class BufferPoolTest {
+
+  @Test
+  void reuse() {
+    BufferPool pool = new BufferPool(1);
+    byte[] buffer = pool.borrow(1000);
+    assertEquals(1024, buffer.length);
+    pool.release(buffer);
+    assertEquals(1, pool.size());
+    assertSame(buffer, pool.borrow(1024));
+    assertEquals(0, pool.size());
+  }
+
+  @Test
+  void bounded() {
+    BufferPool pool = new BufferPool(1);
+    byte[] buffer1 = pool.borrow(16);
+    byte[] buffer2 = pool.borrow(16);
+    assertNotSame(buffer1, buffer2);
+    pool.release(buffer1);
+    pool.release(buffer2);
+    assertEquals(1, pool.size());
+    assertEquals(64, pool.borrow(33).length);
+  }
+
+}
@@ -0,0 +1,140 @@
+package com.baremaps.osm.pbf;
+
+import static com.baremaps.testing.TestFiles.MONACO_OSM_PBF;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.baremaps.osm.binary.Fileformat;
+import com.baremaps.osm.binary.Osmformat;
+import com.baremaps.osm.domain.Blob;
+import com.baremaps.osm.domain.ColumnarDataBlock;
+import com.baremaps.osm.domain.DataBlock;
+import com.baremaps.osm.domain.Element;
+import com.baremaps.osm.domain.Entity;
+import com.baremaps.osm.domain.Member.MemberType;
+import com.google.protobuf.ByteString;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class DataBlockDecoderTest {
+
+  @Test
+  void decodeEntities() throws Exception {
+    try (InputStream input = MONACO_OSM_PBF.openStream()) {
+      BlobIterator iterator = new BlobIterator(input);
+      while (iterator.hasNext()) {
+        Blob blob = iterator.next();
+        if (!"OSMData".equals(blob.header().getType())) {
+          continue;
+        }
+        List<Entity> expected = new ArrayList<>();
+        new DataBlockReader(blob).readEntities(expected::add);
+        List<Entity> actual = new ArrayList<>();
+        try (DataBlockDecoder decoder = new DataBlockDecoder(blob)) {
+          decoder.decodeEntities(actual::add);
+        }
+        assertEquals(expected, actual);
+      }
+    }
+  }
+
+  @Test
+  void decodeMixedGroups() throws Exception {
+    // The fields of a group are serialized by field number: nodes, dense nodes, ways and relations.
+    Osmformat.PrimitiveBlock block = Osmformat.PrimitiveBlock.newBuilder()
+        .setStringtable(Osmformat.StringTable.newBuilder().addS(ByteString.EMPTY))
+        .addPrimitivegroup(Osmformat.PrimitiveGroup.newBuilder()
+            .addRelations(Osmformat.Relation.newBuilder().setId(5))
+            .addWays(Osmformat.Way.newBuilder().setId(4).addRefs(1).addRefs(1))
+            .addNodes(Osmformat.Node.newBuilder().setId(3).setLat(10).setLon(20))
+            .setDense(denseNodes(1, 1)))
+        .addPrimitivegroup(Osmformat.PrimitiveGroup.newBuilder()
+            .addWays(Osmformat.Way.newBuilder().setId(6).addRefs(3)))
+        .addPrimitivegroup(Osmformat.PrimitiveGroup.newBuilder()
+            .setDense(denseNodes(7)))
+        .build();
+    ByteString data = Fileformat.Blob.newBuilder()
+        .setRaw(block.toByteString())
+        .setRawSize(block.getSerializedSize())
+        .build()
+        .toByteString();
+    Fileformat.BlobHeader header = Fileformat.BlobHeader.newBuilder()
+        .setType("OSMData")
+        .setDatasize(data.size())
+        .build();
+    Blob blob = new Blob(header, data.toByteArray(), data.size());
+    List<Entity> expected = new ArrayList<>();
+    new DataBlockReader(blob).readEntities(expected::add);
+    List<Entity> actual = new ArrayList<>();
+    try (DataBlockDecoder decoder = new DataBlockDecoder(blob)) {
+      decoder.decodeEntities(actual::add);
+    }
+    assertEquals(Arrays.asList(1L, 2L, 7L, 3L, 4L, 6L, 5L),
+        actual.stream().map(entity -> ((Element) entity).getId()).collect(Collectors.toList()));
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  void decodeFilteredEntities() throws Exception {
+    EntityFilter filter = new EntityFilter(true, true, false,
+        Arrays.asList("building", "highway=primary"), Collections.singletonList("access=private"));
+    try (InputStream input = MONACO_OSM_PBF.openStream()) {
+      BlobIterator iterator = new BlobIterator(input);
+      while (iterator.hasNext()) {
+        Blob blob = iterator.next();
+        if (!"OSMData".equals(blob.header().getType())) {
+          continue;
+        }
+        List<Entity> expected = new ArrayList<>();
+        new DataBlockReader(blob, filter).readEntities(expected::add);
+        List<Entity> actual = new ArrayList<>();
+        try (DataBlockDecoder decoder = new DataBlockDecoder(blob, filter)) {
+          decoder.decodeEntities(actual::add);
+        }
+        assertEquals(expected, actual);
+      }
+    }
+  }
+
+  @Test
+  void decodeType() throws Exception {
+    EntityFilter ways = new EntityFilter(false, true, false, Collections.emptyList(), Collections.emptyList());
+    try (InputStream input = MONACO_OSM_PBF.openStream()) {
+      BlobIterator iterator = new BlobIterator(input);
+      while (iterator.hasNext()) {
+        Blob blob = iterator.next();
+        if (!"OSMData".equals(blob.header().getType())) {
+          continue;
+        }
+        DataBlock expected = new DataBlockReader(blob).readDataBlock();
+        try (DataBlockDecoder decoder = new DataBlockDecoder(blob, ways)) {
+          assertEquals(!expected.getDenseNodes().isEmpty() || !expected.getNodes().isEmpty(),
+              decoder.contains(MemberType.NODE));
+          assertEquals(!expected.getWays().isEmpty(), decoder.contains(MemberType.WAY));
+          assertEquals(!expected.getRelations().isEmpty(), decoder.contains(MemberType.RELATION));
+          ColumnarDataBlock actual = decoder.decodeDataBlock();
+          assertEquals(0, actual.getDenseNodeColumns().size());
+          assertTrue(actual.getNodes().isEmpty());
+          assertEquals(expected.getWays(), actual.getWays());
+          assertTrue(actual.getRelations().isEmpty());
+        }
+      }
+    }
+  }
+
+  private static Osmformat.DenseNodes denseNodes(long... ids) {
+    Osmformat.DenseNodes.Builder nodes = Osmformat.DenseNodes.newBuilder();
+    Osmformat.DenseInfo.Builder info = Osmformat.DenseInfo.newBuilder();
+    for (long id : ids) {
+      nodes.addId(id).addLat(1).addLon(1);
+      info.addVersion(1).addTimestamp(0).addChangeset(0).addUid(0).addUserSid(0);
+    }
+    return nodes.setDenseinfo(info).build();
+  }
+
+}
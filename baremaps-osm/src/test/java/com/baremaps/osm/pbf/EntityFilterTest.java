@@ -0,0 +1,90 @@
+package com.baremaps.osm.pbf;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.baremaps.config.mapping.Mapping;
+import com.baremaps.config.mapping.Table;
+import com.baremaps.osm.domain.Info;
+import com.baremaps.osm.domain.Node;
+import com.baremaps.osm.domain.Relation;
+import com.baremaps.osm.domain.Way;
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+class EntityFilterTest {
+
+  private static final String[] STRING_TABLE = {"", "building", "yes", "highway", "primary", "access", "private"};
+
+  @Test
+  void matcher() {
+    EntityFilter filter = new EntityFilter(true, true, false,
+        Arrays.asList("building", "highway=primary"), Collections.singletonList("access=private"));
+    EntityFilter.Matcher matcher = filter.matcher(STRING_TABLE);
+    assertTrue(matcher.mayMatch());
+    assertTrue(matcher.requiresAllowedTag());
+    assertTrue(matcher.isAllowed(1, 2));
+    assertTrue(matcher.isAllowed(3, 4));
+    assertFalse(matcher.isAllowed(3, 2));
+    assertFalse(matcher.isAllowed(5, 6));
+    assertTrue(matcher.isBlocked(5, 6));
+    assertFalse(matcher.isBlocked(5, 2));
+  }
+
+  @Test
+  void skipBlock() {
+    EntityFilter filter = new EntityFilter(true, true, true,
+        Collections.singletonList("railway"), Collections.emptyList());
+    assertFalse(filter.matcher(STRING_TABLE).mayMatch());
+  }
+
+  @Test
+  void mapping() {
+    Mapping mapping = new Mapping();
+    mapping.setBlockEntities(Collections.singletonList("relation"));
+    mapping.setAllowTags(Collections.singletonList("building"));
+    EntityFilter filter = EntityFilter.of(mapping);
+    assertTrue(filter.acceptNodes());
+    assertTrue(filter.acceptWays());
+    assertFalse(filter.acceptRelations());
+    assertFalse(filter.isAll());
+    assertTrue(EntityFilter.all().isAll());
+  }
+
+  @Test
+  void table() {
+    Table roads = new Table();
+    roads.setName("roads");
+    roads.setAllowEntities(Collections.singletonList("way"));
+    roads.setAllowTags(Collections.singletonList("highway"));
+    roads.setBlockTags(Collections.singletonList("area=yes"));
+    EntityFilter filter = EntityFilter.of(roads);
+    Info info = new Info(1, 0, 0, 0);
+    assertTrue(filter.accept(new Way(1, info, ImmutableMap.of("highway", "primary"), Collections.emptyList())));
+    assertFalse(filter.accept(
+        new Way(2, info, ImmutableMap.of("highway", "pedestrian", "area", "yes"), Collections.emptyList())));
+    assertFalse(filter.accept(new Way(3, info, ImmutableMap.of("building", "yes"), Collections.emptyList())));
+    assertFalse(filter.accept(new Node(4, info, ImmutableMap.of("highway", "crossing"), 0, 0)));
+  }
+
+  @Test
+  void accept() {
+    EntityFilter filter = new EntityFilter(true, true, false,
+        Arrays.asList("building", "highway=primary"), Collections.singletonList("access=private"));
+    Info info = new Info(1, 0, 0, 0);
+    assertTrue(filter.accept(new Node(1, info, ImmutableMap.of("building", "yes"), 0, 0)));
+    assertTrue(filter.accept(new Way(1, info, ImmutableMap.of("highway", "primary"), Collections.emptyList())));
+    assertFalse(filter.accept(new Way(1, info, ImmutableMap.of("highway", "service"), Collections.emptyList())));
+    assertFalse(filter.accept(new Node(1, info, ImmutableMap.of("building", "yes", "access", "private"), 0, 0)));
+    assertFalse(filter.accept(new Relation(1, info, ImmutableMap.of("building", "yes"), Collections.emptyList())));
+    EntityFilter ways = filter.restrict(false, true, true);
+    assertFalse(ways.acceptNodes());
+    assertTrue(ways.acceptWays());
+    assertFalse(ways.acceptRelations());
+    assertFalse(ways.accept(new Node(1, info, ImmutableMap.of("building", "yes"), 0, 0)));
+    assertTrue(ways.accept(new Way(1, info, ImmutableMap.of("building", "yes"), Collections.emptyList())));
+  }
+
+}
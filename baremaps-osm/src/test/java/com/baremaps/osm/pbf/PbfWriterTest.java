@@ -0,0 +1,80 @@
+package com.baremaps.osm.pbf;
+
+import static com.baremaps.testing.TestFiles.MONACO_OSM_PBF;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.baremaps.osm.OpenStreetMap;
+import com.baremaps.osm.cache.InMemoryCoordinateCache;
+import com.baremaps.osm.domain.Blob;
+import com.baremaps.osm.domain.Element;
+import com.baremaps.osm.domain.Entity;
+import com.baremaps.osm.domain.Header;
+import com.baremaps.osm.domain.Way;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+class PbfWriterTest {
+
+  @Test
+  void write() throws Exception {
+    List<Entity> expected = readElements(MONACO_OSM_PBF.openStream());
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (PbfWriter writer = new PbfWriter(output)) {
+      expected.forEach(writer);
+    }
+    List<Entity> actual = readElements(new ByteArrayInputStream(output.toByteArray()));
+    assertEquals(expected, actual);
+    assertEquals(expected, readElementsWithReader(output.toByteArray()));
+  }
+
+  @Test
+  void writeLocationsOnWays() throws Exception {
+    List<Entity> expected = readElements(MONACO_OSM_PBF.openStream());
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (PbfWriter writer = new PbfWriter(output, 1000, 2, new InMemoryCoordinateCache())) {
+      expected.forEach(writer);
+    }
+    List<Entity> actual = readElements(new ByteArrayInputStream(output.toByteArray()));
+    assertEquals(expected, actual);
+    assertEquals(expected, readElementsWithReader(output.toByteArray()));
+    assertTrue(actual.stream()
+        .filter(entity -> entity instanceof Way)
+        .allMatch(entity -> ((Way) entity).getLocations() != null));
+    try (Stream<Entity> stream = OpenStreetMap.streamPbfEntities(new ByteArrayInputStream(output.toByteArray()))) {
+      Header header = (Header) stream.filter(entity -> entity instanceof Header).findFirst().get();
+      assertTrue(header.hasLocationsOnWays());
+    }
+  }
+
+  /**
+   * Reads the elements with {@link DataBlockReader}, which requires the fields that the decoder tolerates to be
+   * missing (e.g. the user sids of the dense nodes).
+   */
+  private List<Entity> readElementsWithReader(byte[] bytes) throws Exception {
+    List<Entity> entities = new ArrayList<>();
+    BlobIterator iterator = new BlobIterator(new ByteArrayInputStream(bytes));
+    while (iterator.hasNext()) {
+      Blob blob = iterator.next();
+      if ("OSMData".equals(blob.header().getType())) {
+        new DataBlockReader(blob).readEntities(entities::add);
+      }
+    }
+    return entities;
+  }
+
+  private List<Entity> readElements(InputStream input) throws Exception {
+    try (Stream<Entity> stream = OpenStreetMap.streamPbfEntities(input)) {
+      return stream.filter(entity -> entity instanceof Element).collect(Collectors.toList());
+    } finally {
+      input.close();
+    }
+  }
+
+}
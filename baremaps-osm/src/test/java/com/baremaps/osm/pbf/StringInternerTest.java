@@ -0,0 +1,57 @@
+package com.baremaps.osm.pbf;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.google.protobuf.ByteString;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class StringInternerTest {
+
+  @Test
+  void intern() {
+    StringInterner interner = new StringInterner(2, 8);
+    String highway = interner.intern(ByteString.copyFromUtf8("highway"));
+    assertSame(highway, interner.intern(ByteString.copyFromUtf8("highway")));
+    assertSame(highway, interner.intern("highway"));
+    assertEquals(3, interner.lookups());
+    assertEquals(2, interner.hits());
+    assertEquals(1, interner.size());
+    assertArrayEquals("highway".getBytes(StandardCharsets.UTF_8), interner.getBytes(highway));
+  }
+
+  @Test
+  void bounded() {
+    StringInterner interner = new StringInterner(2, 8);
+    String yes = interner.intern("yes");
+    interner.intern("yes");
+    interner.intern("yes");
+    interner.intern("no");
+    // The dictionary is full: the least frequently used string is evicted to make room for the new one.
+    String name = interner.intern("building");
+    assertEquals(2, interner.size());
+    assertEquals(1, interner.evictions());
+    assertSame(yes, interner.intern("yes"));
+    assertSame(name, interner.intern("building"));
+    assertNull(interner.getInternedBytes("no"));
+    assertNotSame(
+        interner.intern(ByteString.copyFromUtf8("long name")),
+        interner.intern(ByteString.copyFromUtf8("long name")));
+  }
+
+  @Test
+  void byteLength() {
+    StringInterner interner = new StringInterner(2, 8);
+    // Four characters encoded with eight bytes fit in the dictionary, but five do not.
+    String accents = interner.intern("\u00e9\u00e9\u00e9\u00e9");
+    assertSame(accents, interner.intern(ByteString.copyFromUtf8("\u00e9\u00e9\u00e9\u00e9")));
+    String value = "\u00e9\u00e9\u00e9\u00e9\u00e9";
+    assertSame(value, interner.intern(value));
+    assertEquals(1, interner.size());
+  }
+
+}
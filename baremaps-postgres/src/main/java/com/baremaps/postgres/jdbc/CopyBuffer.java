@@ -0,0 +1,122 @@
+package com.baremaps.postgres.jdbc;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A growable scratch buffer in which the values of variable length are encoded before being written in a
+ * {@code COPY} stream.
+ *
+ * <p>The buffer is reused across the values. The length of a value is reserved before the value is encoded
+ * and backpatched once it is known, so that a value is encoded in place and written with a single call. The
+ * integers are encoded in big-endian order, as expected by the binary format of {@code COPY}.
+ */
+final class CopyBuffer {
+
+  private byte[] bytes = new byte[1024];
+
+  private int size = 0;
+
+  void reset() {
+    size = 0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Reserves an integer that is written later with {@link #patchInt(int, int)}.
+   *
+   * @return the position of the integer
+   */
+  int reserveInt() {
+    ensureCapacity(4);
+    int position = size;
+    size += 4;
+    return position;
+  }
+
+  void patchInt(int position, int value) {
+    bytes[position] = (byte) (value >>> 24);
+    bytes[position + 1] = (byte) (value >>> 16);
+    bytes[position + 2] = (byte) (value >>> 8);
+    bytes[position + 3] = (byte) value;
+  }
+
+  void writeByte(int value) {
+    ensureCapacity(1);
+    bytes[size++] = (byte) value;
+  }
+
+  void writeInt(int value) {
+    ensureCapacity(4);
+    patchInt(size, value);
+    size += 4;
+  }
+
+  void writeLong(long value) {
+    ensureCapacity(8);
+    for (int i = 56; i >= 0; i -= 8) {
+      bytes[size++] = (byte) (value >>> i);
+    }
+  }
+
+  void writeDouble(double value) {
+    writeLong(Double.doubleToRawLongBits(value));
+  }
+
+  void write(byte[] value) {
+    ensureCapacity(value.length);
+    System.arraycopy(value, 0, bytes, size, value.length);
+    size += value.length;
+  }
+
+  /**
+   * Encodes a string in UTF-8.
+   *
+   * @param value
+   * @return the number of bytes written
+   */
+  int writeUtf8(String value) {
+    int length = value.length();
+    // A char is encoded with at most 3 bytes (the surrogate pairs with 4 bytes for 2 chars).
+    ensureCapacity(length * 3);
+    int start = size;
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        bytes[size++] = (byte) c;
+      } else if (c < 0x800) {
+        bytes[size++] = (byte) (0xC0 | (c >> 6));
+        bytes[size++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        bytes[size++] = (byte) (0xF0 | (codePoint >> 18));
+        bytes[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        bytes[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        bytes[size++] = (byte) (0x80 | (codePoint & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        // Unpaired surrogates are replaced as with String.getBytes.
+        bytes[size++] = (byte) '?';
+      } else {
+        bytes[size++] = (byte) (0xE0 | (c >> 12));
+        bytes[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        bytes[size++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+    return size - start;
+  }
+
+  void writeTo(DataOutput output) throws IOException {
+    output.write(bytes, 0, size);
+  }
+
+  private void ensureCapacity(int length) {
+    if (size + length > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+    }
+  }
+
+}
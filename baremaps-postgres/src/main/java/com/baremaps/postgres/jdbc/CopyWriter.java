@@ -3,31 +3,41 @@
 
 package com.baremaps.postgres.jdbc;
 
-import static org.locationtech.jts.io.WKBConstants.wkbNDR;
-
+import com.baremaps.osm.pbf.StringInterner;
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.Inet4Address;
 import java.net.Inet6Address;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import org.locationtech.jts.geom.CoordinateSequence;
 import org.locationtech.jts.geom.Geometry;
-import org.locationtech.jts.io.WKBWriter;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.io.WKBConstants;
 import org.postgresql.copy.PGCopyOutputStream;
 
 /**
  * A helper for writing in a {@code PGCopyOutputStream}.
+ *
+ * <p>The primitive overloads (e.g. {@link #writeLong(long)}) and the arrays of fixed-width values are written
+ * directly in the stream without boxing. The values whose length is only known once they are encoded (e.g.
+ * hstores, geometries and lists of strings) are encoded in place in a scratch buffer reused across the rows,
+ * and their length is backpatched, so that no intermediate array is allocated per value. The geometries are
+ * encoded in EWKB without {@code WKBWriter} and the UTF-8 encoding of the strings interned by the
+ * {@link StringInterner} is copied instead of being recomputed.
  */
 public class CopyWriter implements AutoCloseable {
 
-  private static final Charset UTF8 = StandardCharsets.UTF_8;
-
   private static final byte IPV4 = 2;
   private static final byte IPV4_MASK = 32;
   private static final byte IPV4_IS_CIDR = 0;
@@ -36,13 +46,34 @@ public class CopyWriter implements AutoCloseable {
   private static final int IPV6_MASK = 128;
   private static final byte IPV6_IS_CIDR = 0;
 
+  // The dimensions, the flags, the oid, the size and the lower bound of a one-dimensional array.
+  private static final int ARRAY_HEADER_SIZE = 20;
+
+  // The flag of the geometry types followed by an SRID in EWKB.
+  private static final int EWKB_SRID_FLAG = 0x20000000;
+
+  // The byte order of the geometries (big-endian), which is also used by GeometryUtils.
+  private static final byte EWKB_XDR = 0;
+
   private final DataOutputStream data;
 
+  private final CopyBuffer scratch = new CopyBuffer();
+
+  private final StringInterner interner = StringInterner.getDefault();
+
   /**
    * Creates a new writer with the specified {@code PGCopyOutputStream}.
    * @param data
    */
   public CopyWriter(PGCopyOutputStream data) {
+    this((OutputStream) data);
+  }
+
+  /**
+   * Creates a new writer with the specified output stream (e.g. to write a {@code COPY} file).
+   * @param data
+   */
+  public CopyWriter(OutputStream data) {
     this.data = new DataOutputStream(new BufferedOutputStream(data, 65536));
   }
 
@@ -68,6 +99,27 @@ public class CopyWriter implements AutoCloseable {
     data.writeShort(columns);
   }
 
+  /**
+   * Writes a row that has already been encoded, from its number of columns to its last value.
+   *
+   * @param row    the encoded row
+   * @param offset the offset of the row
+   * @param length the length of the row
+   * @throws IOException
+   */
+  public void writeEncodedRow(byte[] row, int offset, int length) throws IOException {
+    data.write(row, offset, length);
+  }
+
+  /**
+   * Flushes the buffered values to the underlying stream.
+   *
+   * @throws IOException
+   */
+  public void flush() throws IOException {
+    data.flush();
+  }
+
   /**
    * Writes a null value.
    * @throws IOException
@@ -82,7 +134,13 @@ public class CopyWriter implements AutoCloseable {
    * @throws IOException
    */
   public void writeString(String value) throws IOException {
-    nullableWriter(CopyWriter::stringWriter).write(data, value);
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    scratch.reset();
+    encodeText(value);
+    scratch.writeTo(data);
   }
 
   /**
@@ -91,7 +149,21 @@ public class CopyWriter implements AutoCloseable {
    * @throws IOException
    */
   public void writeStringList(List<String> value) throws IOException {
-    nullableWriter(collectionWriter(ObjectIdentifier.TEXT, CopyWriter::stringWriter)).write(data, value);
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    scratch.reset();
+    int length = scratch.reserveInt();
+    scratch.writeInt(1);
+    scratch.writeInt(1);
+    scratch.writeInt(ObjectIdentifier.TEXT);
+    scratch.writeInt(value.size());
+    scratch.writeInt(1);
+    for (String string : value) {
+      encodeText(string);
+    }
+    writeScratch(length);
   }
 
   /**
@@ -100,7 +172,21 @@ public class CopyWriter implements AutoCloseable {
    * @throws IOException
    */
   public void writeBoolean(Boolean value) throws IOException {
-    nullableWriter(CopyWriter::booleanWriter).write(data, value);
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    writeBoolean(value.booleanValue());
+  }
+
+  /**
+   * Writes a boolean value.
+   * @param value
+   * @throws IOException
+   */
+  public void writeBoolean(boolean value) throws IOException {
+    data.writeInt(1);
+    data.writeByte(value ? 1 : 0);
   }
 
   /**
@@ -109,7 +195,16 @@ public class CopyWriter implements AutoCloseable {
    * @throws IOException
    */
   public void writeBooleanList(List<Boolean> value) throws IOException {
-    nullableWriter(collectionWriter(ObjectIdentifier.BOOLEAN, CopyWriter::booleanWriter)).write(data, value);
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    data.writeInt(ARRAY_HEADER_SIZE + value.size() * 5);
+    writeArrayHeader(data, ObjectIdentifier.BOOLEAN, value.size());
+    for (Boolean b : value) {
+      data.writeInt(1);
+      data.writeByte(b ? 1 : 0);
+    }
   }
 
   /**
@@ -118,7 +213,12 @@ public class CopyWriter implements AutoCloseable {
    * @throws IOException
    */
   public void writeByte(Byte value) throws IOException {
-    nullableWriter(CopyWriter::byteWriter).write(data, value);
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    data.writeInt(1);
+    data.writeShort(value.byteValue());
   }
 
   /**
@@ -127,7 +227,12 @@ public class CopyWriter implements AutoCloseable {
    * @throws IOException
    */
   public void writeByteArray(byte[] value) throws IOException {
-    nullableWriter(CopyWriter::byteArrayWriter).write(data, value);
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    data.writeInt(value.length);
+    data.write(value, 0, value.length);
   }
 
   /**
@@ -136,7 +241,21 @@ public class CopyWriter implements AutoCloseable {
    * @throws IOException
    */
   public void writeShort(Short value) throws IOException {
-    nullableWriter(CopyWriter::shortWriter).write(data, value);
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    writeShort(value.shortValue());
+  }
+
+  /**
+   * Writes a short value.
+   * @param value
+   * @throws IOException
+   */
+  public void writeShort(short value) throws IOException {
+    data.writeInt(2);
+    data.writeShort(value);
   }
 
   /**
@@ -145,7 +264,16 @@ public class CopyWriter implements AutoCloseable {
    * @throws IOException
    */
   public void writeShortList(List<Short> value) throws IOException {
-    nullableWriter(collectionWriter(ObjectIdentifier.INT4, CopyWriter::shortWriter)).write(data, value);
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    data.writeInt(ARRAY_HEADER_SIZE + value.size() * 6);
+    writeArrayHeader(data, ObjectIdentifier.INT4, value.size());
+    for (Short v : value) {
+      data.writeInt(2);
+      data.writeShort(v);
+    }
   }
 
   /**
@@ -154,7 +282,21 @@ public class CopyWriter implements AutoCloseable {
    * @throws IOException
    */
   public void writeInteger(Integer value) throws IOException {
-    nullableWriter(CopyWriter::integerWriter).write(data, value);
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    writeInteger(value.intValue());
+  }
+
+  /**
+   * Writes an integer value.
+   * @param value
+   * @throws IOException
+   */
+  public void writeInteger(int value) throws IOException {
+    data.writeInt(4);
+    data.writeInt(value);
   }
 
   /**
@@ -163,7 +305,35 @@ public class CopyWriter implements AutoCloseable {
    * @throws IOException
    */
   public void writeIntegerList(List<Integer> value) throws IOException {
-    nullableWriter(collectionWriter(ObjectIdentifier.INT4, CopyWriter::integerWriter)).write(data, value);
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    int size = value.size();
+    data.writeInt(ARRAY_HEADER_SIZE + size * 8);
+    writeArrayHeader(data, ObjectIdentifier.INT4, size);
+    for (int i = 0; i < size; i++) {
+      data.writeInt(4);
+      data.writeInt(value.get(i));
+    }
+  }
+
+  /**
+   * Writes an array of integer values.
+   * @param value
+   * @throws IOException
+   */
+  public void writeIntegerArray(int[] value) throws IOException {
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    data.writeInt(ARRAY_HEADER_SIZE + value.length * 8);
+    writeArrayHeader(data, ObjectIdentifier.INT4, value.length);
+    for (int v : value) {
+      data.writeInt(4);
+      data.writeInt(v);
+    }
   }
 
   /**
@@ -172,7 +342,21 @@ public class CopyWriter implements AutoCloseable {
    * @throws IOException
    */
   public void writeLong(Long value) throws IOException {
-    nullableWriter(CopyWriter::longWriter).write(data, value);
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    writeLong(value.longValue());
+  }
+
+  /**
+   * Writes a long value.
+   * @param value
+   * @throws IOException
+   */
+  public void writeLong(long value) throws IOException {
+    data.writeInt(8);
+    data.writeLong(value);
   }
 
   /**
@@ -181,7 +365,45 @@ public class CopyWriter implements AutoCloseable {
    * @throws IOException
    */
   public void writeLongList(List<Long> value) throws IOException {
-    nullableWriter(collectionWriter(ObjectIdentifier.INT8, CopyWriter::longWriter)).write(data, value);
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    int size = value.size();
+    data.writeInt(ARRAY_HEADER_SIZE + size * 12);
+    writeArrayHeader(data, ObjectIdentifier.INT8, size);
+    for (int i = 0; i < size; i++) {
+      data.writeInt(8);
+      data.writeLong(value.get(i));
+    }
+  }
+
+  /**
+   * Writes an array of long values.
+   * @param value
+   * @throws IOException
+   */
+  public void writeLongArray(long[] value) throws IOException {
+    writeLongArray(value, value == null ? 0 : value.length);
+  }
+
+  /**
+   * Writes the first values of an array of long values, which allows the array to be reused.
+   * @param value
+   * @param length the number of values to write
+   * @throws IOException
+   */
+  public void writeLongArray(long[] value, int length) throws IOException {
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    data.writeInt(ARRAY_HEADER_SIZE + length * 12);
+    writeArrayHeader(data, ObjectIdentifier.INT8, length);
+    for (int i = 0; i < length; i++) {
+      data.writeInt(8);
+      data.writeLong(value[i]);
+    }
   }
 
   /**
@@ -190,7 +412,21 @@ public class CopyWriter implements AutoCloseable {
    * @throws IOException
    */
   public void writeFloat(Float value) throws IOException {
-    nullableWriter(CopyWriter::floatWriter).write(data, value);
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    writeFloat(value.floatValue());
+  }
+
+  /**
+   * Writes a float value.
+   * @param value
+   * @throws IOException
+   */
+  public void writeFloat(float value) throws IOException {
+    data.writeInt(4);
+    data.writeFloat(value);
   }
 
   /**
@@ -199,7 +435,16 @@ public class CopyWriter implements AutoCloseable {
    * @throws IOException
    */
   public void writeFloatList(List<Float> value) throws IOException {
-    nullableWriter(collectionWriter(ObjectIdentifier.INT8, CopyWriter::floatWriter)).write(data, value);
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    data.writeInt(ARRAY_HEADER_SIZE + value.size() * 8);
+    writeArrayHeader(data, ObjectIdentifier.INT8, value.size());
+    for (Float v : value) {
+      data.writeInt(4);
+      data.writeFloat(v);
+    }
   }
 
   /**
@@ -208,7 +453,21 @@ public class CopyWriter implements AutoCloseable {
    * @throws IOException
    */
   public void writeDouble(Double value) throws IOException {
-    nullableWriter(CopyWriter::doubleWriter).write(data, value);
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    writeDouble(value.doubleValue());
+  }
+
+  /**
+   * Writes a double value.
+   * @param value
+   * @throws IOException
+   */
+  public void writeDouble(double value) throws IOException {
+    data.writeInt(8);
+    data.writeDouble(value);
   }
 
   /**
@@ -217,7 +476,16 @@ public class CopyWriter implements AutoCloseable {
    * @throws IOException
    */
   public void writeDoubleArray(List<Double> value) throws IOException {
-    nullableWriter(collectionWriter(ObjectIdentifier.INT8, CopyWriter::doubleWriter)).write(data, value);
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    data.writeInt(ARRAY_HEADER_SIZE + value.size() * 12);
+    writeArrayHeader(data, ObjectIdentifier.INT8, value.size());
+    for (Double v : value) {
+      data.writeInt(8);
+      data.writeDouble(v);
+    }
   }
 
   /**
@@ -226,7 +494,12 @@ public class CopyWriter implements AutoCloseable {
    * @throws IOException
    */
   public void writeLocalDate(LocalDate value) throws IOException {
-    nullableWriter(CopyWriter::localDateWriter).write(data, value);
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    data.writeInt(4);
+    data.writeInt(TimestampUtils.toPgDays(value));
   }
 
   /**
@@ -235,7 +508,22 @@ public class CopyWriter implements AutoCloseable {
    * @throws IOException
    */
   public void writeLocalDateTime(LocalDateTime value) throws IOException {
-    nullableWriter(CopyWriter::localDateTimeWriter).write(data, value);
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    data.writeInt(8);
+    data.writeLong(TimestampUtils.toPgSecs(value));
+  }
+
+  /**
+   * Writes a timestamp value expressed in milliseconds since the epoch (UTC).
+   * @param value
+   * @throws IOException
+   */
+  public void writeEpochMillis(long value) throws IOException {
+    data.writeInt(8);
+    data.writeLong(TimestampUtils.toPgMicros(value));
   }
 
   /**
@@ -244,7 +532,17 @@ public class CopyWriter implements AutoCloseable {
    * @throws IOException
    */
   public void writeInet4Adress(Inet4Address value) throws IOException {
-    nullableWriter(CopyWriter::inet4AdressWriter).write(data, value);
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    data.writeInt(8);
+    data.writeByte(IPV4);
+    data.writeByte(IPV4_MASK);
+    data.writeByte(IPV4_IS_CIDR);
+    byte[] inet4AddressBytes = value.getAddress();
+    data.writeByte(inet4AddressBytes.length);
+    data.write(inet4AddressBytes);
   }
 
   /**
@@ -253,7 +551,17 @@ public class CopyWriter implements AutoCloseable {
    * @throws IOException
    */
   public void writeInet6Adress(Inet6Address value) throws IOException {
-    nullableWriter(CopyWriter::inet6AdressWriter).write(data, value);
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    data.writeInt(20);
+    data.writeByte(IPV6);
+    data.writeByte(IPV6_MASK);
+    data.writeByte(IPV6_IS_CIDR);
+    byte[] inet6AddressBytes = value.getAddress();
+    data.writeByte(inet6AddressBytes.length);
+    data.write(inet6AddressBytes);
   }
 
   /**
@@ -262,7 +570,24 @@ public class CopyWriter implements AutoCloseable {
    * @throws IOException
    */
   public void writeHstore(Map<String, String> value) throws IOException {
-    nullableWriter(CopyWriter::hstoreWriter).write(data, value);
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    scratch.reset();
+    int length = scratch.reserveInt();
+    // Write the number of values to write
+    scratch.writeInt(value.size());
+    // Iterate over the map and write each key value pairs
+    for (Map.Entry<String, String> entry : value.entrySet()) {
+      encodeText(entry.getKey());
+      if (entry.getValue() == null) {
+        scratch.writeInt(-1);
+      } else {
+        encodeText(entry.getValue());
+      }
+    }
+    writeScratch(length);
   }
 
   /**
@@ -271,7 +596,14 @@ public class CopyWriter implements AutoCloseable {
    * @throws IOException
    */
   public void writeGeometry(Geometry value) throws IOException {
-    nullableWriter(CopyWriter::geometryWriter).write(data, value);
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    scratch.reset();
+    int length = scratch.reserveInt();
+    encodeGeometry(value, true);
+    writeScratch(length);
   }
 
   /**
@@ -284,159 +616,109 @@ public class CopyWriter implements AutoCloseable {
     data.close();
   }
 
-  private static <T> ValueWriter<T> nullableWriter(ValueWriter<T> writer) {
-    return (data, value) -> {
-      if (value == null) {
-        data.writeInt(-1);
-        return;
-      }
-      writer.write(data, value);
-    };
+  private static void writeArrayHeader(DataOutputStream output, int oid, int size) throws IOException {
+    // Use 1 for one-dimensional arrays
+    output.writeInt(1);
+    // The collection can contain null values
+    output.writeInt(1);
+    // Write the values using the OID
+    output.writeInt(oid);
+    // Write the number of elements
+    output.writeInt(size);
+    // Ignore Lower Bound. Use PG Default for now
+    output.writeInt(1);
   }
 
-  private static void booleanWriter(DataOutputStream data, Boolean value) throws IOException {
-    data.writeInt(1);
-    if (value) {
-      data.writeByte(1);
+  /**
+   * Encodes a text prefixed by its length in the scratch buffer.
+   */
+  private void encodeText(String value) {
+    byte[] bytes = interner.getInternedBytes(value);
+    if (bytes != null) {
+      scratch.writeInt(bytes.length);
+      scratch.write(bytes);
     } else {
-      data.writeByte(0);
+      int length = scratch.reserveInt();
+      scratch.patchInt(length, scratch.writeUtf8(value));
     }
   }
 
-  private static void byteWriter(DataOutputStream data, Byte value) throws IOException {
-    data.writeInt(1);
-    data.writeShort(value.byteValue());
-  }
-
-  private static void byteArrayWriter(DataOutputStream data, byte[] value) throws IOException {
-    data.writeInt(value.length);
-    data.write(value, 0, value.length);
-  }
-
-  private static void shortWriter(DataOutputStream data, Short value) throws IOException {
-    data.writeInt(2);
-    data.writeShort(value.shortValue());
-  }
-
-  private static void integerWriter(DataOutputStream data, Integer value) throws IOException {
-    data.writeInt(4);
-    data.writeInt(value.intValue());
-  }
-
-  private static void floatWriter(DataOutputStream data, Float value) throws IOException {
-    data.writeInt(4);
-    data.writeFloat(value.floatValue());
-  }
-
-  private static void doubleWriter(DataOutputStream data, Double value) throws IOException {
-    data.writeInt(8);
-    data.writeDouble(value.doubleValue());
-  }
-
-  private static void longWriter(DataOutputStream data, Long value) throws IOException {
-    data.writeInt(8);
-    data.writeLong(value.longValue());
-  }
-
-  private static void stringWriter(DataOutputStream data, String value) throws IOException {
-    byte[] bytes = value.getBytes(UTF8);
-    data.writeInt(bytes.length);
-    data.write(bytes);
-  }
-
-  private static void localDateWriter(DataOutputStream data, LocalDate value) throws IOException {
-    data.writeInt(4);
-    data.writeInt(TimestampUtils.toPgDays(value));
-  }
-
-  private static void localDateTimeWriter(DataOutputStream data, LocalDateTime value) throws IOException {
-    data.writeInt(8);
-    data.writeLong(TimestampUtils.toPgSecs(value));
-  }
-
-  private static void inet4AdressWriter(DataOutputStream data, Inet4Address value) throws IOException {
-    data.writeInt(8);
-    data.writeByte(IPV4);
-    data.writeByte(IPV4_MASK);
-    data.writeByte(IPV4_IS_CIDR);
-    byte[] inet4AddressBytes = value.getAddress();
-    data.writeByte(inet4AddressBytes.length);
-    data.write(inet4AddressBytes);
-  }
-
-  private static void inet6AdressWriter(DataOutputStream data, Inet6Address value) throws IOException {
-    data.writeInt(20);
-    data.writeByte(IPV6);
-    data.writeByte(IPV6_MASK);
-    data.writeByte(IPV6_IS_CIDR);
-    byte[] inet6AddressBytes = value.getAddress();
-    data.writeByte(inet6AddressBytes.length);
-    data.write(inet6AddressBytes);
-  }
-
-  private static void geometryWriter(DataOutputStream data, Geometry value) throws IOException {
-    WKBWriter writer = new WKBWriter(2, wkbNDR, true);
-    byte[] wkb = writer.write(value);
-    data.writeInt(wkb.length);
-    data.write(wkb, 0, wkb.length);
-  }
-
-  private <T> ValueWriter<List<T>> collectionWriter(int oid, ValueWriter<T> writer) {
-    return (data, values) -> {
-      // Write into a temporary byte array
-      ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-      DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
-
-      // Use 1 for one-dimensional arrays
-      dataOutputStream.writeInt(1);
-
-      // The collection can contain null values
-      dataOutputStream.writeInt(1);
-
-      // Write the values using the OID
-      dataOutputStream.writeInt(oid);
-
-      // Write the number of elements
-      dataOutputStream.writeInt(values.size());
-
-      // Ignore Lower Bound. Use PG Default for now
-      dataOutputStream.writeInt(1);
-
-      // Iterate over the collection and write each values
-      for (T value : values) {
-        writer.write(dataOutputStream, value);
+  /**
+   * Encodes a geometry in EWKB with two dimensions in the scratch buffer. Only the outer geometry is prefixed
+   * by the SRID.
+   */
+  private void encodeGeometry(Geometry geometry, boolean includeSrid) {
+    if (geometry instanceof Point) {
+      encodeGeometryType(WKBConstants.wkbPoint, geometry, includeSrid);
+      CoordinateSequence sequence = ((Point) geometry).getCoordinateSequence();
+      if (sequence.size() == 0) {
+        scratch.writeDouble(Double.NaN);
+        scratch.writeDouble(Double.NaN);
+      } else {
+        scratch.writeDouble(sequence.getX(0));
+        scratch.writeDouble(sequence.getY(0));
       }
-
-      // Write the entire array to the COPY data:
-      data.writeInt(byteArrayOutputStream.size());
-      data.write(byteArrayOutputStream.toByteArray());
-    };
+    } else if (geometry instanceof LineString) {
+      encodeGeometryType(WKBConstants.wkbLineString, geometry, includeSrid);
+      encodeCoordinateSequence(((LineString) geometry).getCoordinateSequence());
+    } else if (geometry instanceof Polygon) {
+      Polygon polygon = (Polygon) geometry;
+      encodeGeometryType(WKBConstants.wkbPolygon, geometry, includeSrid);
+      if (polygon.isEmpty()) {
+        scratch.writeInt(0);
+        return;
+      }
+      scratch.writeInt(polygon.getNumInteriorRing() + 1);
+      encodeCoordinateSequence(polygon.getExteriorRing().getCoordinateSequence());
+      for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+        encodeCoordinateSequence(polygon.getInteriorRingN(i).getCoordinateSequence());
+      }
+    } else if (geometry instanceof GeometryCollection) {
+      int type;
+      if (geometry instanceof MultiPoint) {
+        type = WKBConstants.wkbMultiPoint;
+      } else if (geometry instanceof MultiLineString) {
+        type = WKBConstants.wkbMultiLineString;
+      } else if (geometry instanceof MultiPolygon) {
+        type = WKBConstants.wkbMultiPolygon;
+      } else {
+        type = WKBConstants.wkbGeometryCollection;
+      }
+      encodeGeometryType(type, geometry, includeSrid);
+      scratch.writeInt(geometry.getNumGeometries());
+      for (int i = 0; i < geometry.getNumGeometries(); i++) {
+        encodeGeometry(geometry.getGeometryN(i), false);
+      }
+    } else {
+      throw new IllegalArgumentException("Unknown geometry type: " + geometry.getGeometryType());
+    }
   }
 
-  private static void hstoreWriter(DataOutputStream data, Map<String, String> value) throws IOException {
-    // Write into a temporary byte array
-    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-    DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
-
-    // Write the number of values to write
-    dataOutputStream.writeInt(value.size());
-
-    // Iterate over the map and write each key value pairs
-    for (Map.Entry<String, String> entry : value.entrySet()) {
-      stringWriter(dataOutputStream, entry.getKey());
-      stringWriter(dataOutputStream, entry.getValue());
+  private void encodeGeometryType(int type, Geometry geometry, boolean includeSrid) {
+    scratch.writeByte(EWKB_XDR);
+    if (includeSrid) {
+      scratch.writeInt(type | EWKB_SRID_FLAG);
+      scratch.writeInt(geometry.getSRID());
+    } else {
+      scratch.writeInt(type);
     }
-
-    // Write the entire array to the COPY data
-    data.writeInt(byteArrayOutputStream.size());
-    data.write(byteArrayOutputStream.toByteArray());
   }
 
-  @FunctionalInterface
-  private interface ValueWriter<T> {
-
-    void write(DataOutputStream data, T value) throws IOException;
+  private void encodeCoordinateSequence(CoordinateSequence sequence) {
+    int size = sequence.size();
+    scratch.writeInt(size);
+    for (int i = 0; i < size; i++) {
+      scratch.writeDouble(sequence.getX(i));
+      scratch.writeDouble(sequence.getY(i));
+    }
+  }
 
+  /**
+   * Backpatches the length of the value encoded in the scratch buffer and writes the buffer.
+   */
+  private void writeScratch(int length) throws IOException {
+    scratch.patchInt(length, scratch.size() - length - 4);
+    scratch.writeTo(data);
   }
 
 }
@@ -36,6 +36,22 @@ public final class PostgresUtils {
     return datasource;
   }
 
+  /**
+   * Returns a data source whose pool can hold the given number of connections, e.g. for the long-lived
+   * {@code COPY} streams of an import.
+   *
+   * @param url      the url of the database
+   * @param poolSize the maximum number of open connections
+   * @return the data source
+   */
+  public static DataSource datasource(String url, int poolSize) {
+    BasicDataSource datasource = new BasicDataSource();
+    datasource.setUrl(url);
+    datasource.setMaxTotal(poolSize);
+    datasource.setMaxIdle(poolSize);
+    return datasource;
+  }
+
   public static void executeResource(Connection connection, String resource) throws IOException, SQLException {
     URL resourceURL = Resources.getResource(resource);
     String queries = Resources.toString(resourceURL, StandardCharsets.UTF_8);
@@ -66,6 +66,13 @@ class TimestampUtils {
     return TimeUnit.SECONDS.toMicros(secs);
   }
 
+  public static long toPgMicros(long epochMillis) {
+    // pg time 0 is 2000-01-01 00:00:00:
+    long secs = toPgSecs(Math.floorDiv(epochMillis, 1000L));
+    // Needs Microseconds:
+    return TimeUnit.SECONDS.toMicros(secs) + TimeUnit.MILLISECONDS.toMicros(Math.floorMod(epochMillis, 1000L));
+  }
+
   private static long getSecondsSinceJavaEpoch(LocalDateTime localDateTime) {
     // Adjust TimeZone Offset:
     OffsetDateTime zdt = localDateTime.atOffset(ZoneOffset.UTC);
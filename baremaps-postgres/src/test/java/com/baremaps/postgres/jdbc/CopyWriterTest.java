@@ -0,0 +1,149 @@
+package com.baremaps.postgres.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import com.baremaps.osm.geometry.GeometryUtils;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+
+class CopyWriterTest {
+
+  @Test
+  void primitives() throws IOException {
+    byte[] boxed = write(writer -> {
+      writer.writeLong(Long.valueOf(42));
+      writer.writeInteger(Integer.valueOf(7));
+      writer.writeDouble(Double.valueOf(1.5));
+      writer.writeLong((Long) null);
+    });
+    byte[] primitive = write(writer -> {
+      writer.writeLong(42L);
+      writer.writeInteger(7);
+      writer.writeDouble(1.5);
+      writer.writeNull();
+    });
+    assertArrayEquals(boxed, primitive);
+    ByteBuffer buffer = ByteBuffer.wrap(primitive);
+    assertEquals(8, buffer.getInt());
+    assertEquals(42L, buffer.getLong());
+    assertEquals(4, buffer.getInt());
+    assertEquals(7, buffer.getInt());
+    assertEquals(8, buffer.getInt());
+    assertEquals(1.5, buffer.getDouble());
+    assertEquals(-1, buffer.getInt());
+  }
+
+  @Test
+  void longArray() throws IOException {
+    byte[] list = write(writer -> writer.writeLongList(Arrays.asList(1L, 2L, 3L)));
+    byte[] array = write(writer -> writer.writeLongArray(new long[] {1L, 2L, 3L, 4L}, 3));
+    assertArrayEquals(list, array);
+    ByteBuffer buffer = ByteBuffer.wrap(array);
+    assertEquals(20 + 3 * 12, buffer.getInt());
+    assertEquals(20 + 3 * 12 + 4, array.length);
+  }
+
+  @Test
+  void hstore() throws IOException {
+    Map<String, String> tags = new LinkedHashMap<>();
+    tags.put("highway", "primary");
+    tags.put("name", "Rue de l'\u00c9glise");
+    tags.put("name:ja", "\u6771\u4eac \ud83d\uddfc");
+    tags.put("note", null);
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    DataOutputStream value = new DataOutputStream(expected);
+    value.writeInt(tags.size());
+    for (Map.Entry<String, String> entry : tags.entrySet()) {
+      byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+      value.writeInt(key.length);
+      value.write(key);
+      if (entry.getValue() == null) {
+        value.writeInt(-1);
+      } else {
+        byte[] val = entry.getValue().getBytes(StandardCharsets.UTF_8);
+        value.writeInt(val.length);
+        value.write(val);
+      }
+    }
+    byte[] actual = write(writer -> writer.writeHstore(tags));
+    assertEquals(expected.size(), ByteBuffer.wrap(actual).getInt());
+    assertArrayEquals(expected.toByteArray(), Arrays.copyOfRange(actual, 4, actual.length));
+  }
+
+  @Test
+  void geometry() throws IOException {
+    GeometryFactory factory = new GeometryFactory();
+    LinearRing shell = factory.createLinearRing(new Coordinate[] {
+        new Coordinate(0, 0), new Coordinate(10, 0), new Coordinate(10, 10), new Coordinate(0, 0)});
+    LinearRing hole = factory.createLinearRing(new Coordinate[] {
+        new Coordinate(1, 1), new Coordinate(2, 1), new Coordinate(2, 2), new Coordinate(1, 1)});
+    Polygon polygon = factory.createPolygon(shell, new LinearRing[] {hole});
+    Point point = factory.createPoint(new Coordinate(1, 2));
+    LineString line = factory.createLineString(new Coordinate[] {new Coordinate(1, 2), new Coordinate(3, 4)});
+    List<Geometry> geometries = Arrays.asList(
+        point,
+        factory.createPoint(),
+        line,
+        polygon,
+        factory.createPolygon(),
+        factory.createMultiPoint(new Point[] {point, point}),
+        factory.createMultiLineString(new LineString[] {line, line}),
+        factory.createMultiPolygon(new Polygon[] {polygon, polygon}),
+        factory.createGeometryCollection(new Geometry[] {point, line, polygon}));
+    for (Geometry geometry : geometries) {
+      geometry.setSRID(3857);
+      byte[] wkb = GeometryUtils.serialize(geometry);
+      byte[] actual = write(writer -> {
+        writer.writeGeometry(geometry);
+        writer.writeGeometry(geometry);
+      });
+      assertEquals(2 * (4 + wkb.length), actual.length);
+      assertEquals(wkb.length, ByteBuffer.wrap(actual).getInt());
+      assertArrayEquals(wkb, Arrays.copyOfRange(actual, 4, 4 + wkb.length));
+      assertArrayEquals(wkb, Arrays.copyOfRange(actual, 8 + wkb.length, actual.length));
+    }
+  }
+
+  @Test
+  void string() throws IOException {
+    String value = "\u00e9\u6771\ud83d\uddfc";
+    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+    byte[] actual = write(writer -> writer.writeString(value));
+    assertEquals(utf8.length, ByteBuffer.wrap(actual).getInt());
+    assertArrayEquals(utf8, Arrays.copyOfRange(actual, 4, actual.length));
+  }
+
+  private static byte[] write(Values values) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    CopyWriter writer = new CopyWriter(output);
+    values.write(writer);
+    writer.close();
+    byte[] bytes = output.toByteArray();
+    // Remove the trailer of the copy.
+    return Arrays.copyOf(bytes, bytes.length - 2);
+  }
+
+  @FunctionalInterface
+  private interface Values {
+
+    void write(CopyWriter writer) throws IOException;
+
+  }
+
+}